@@ -6,6 +6,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
 
+import io.getlime.security.soap.client.PowerAuthPooledMessageSender;
 import io.getlime.security.soap.client.PowerAuthServiceClient;
 
 /**
@@ -21,6 +22,21 @@ public class PowerAuthWebServiceConfiguration {
 	@Value("${powerauth.service.url}")
 	private String powerAuthServiceUrl;
 
+	@Value("${powerauth.service.http.maxConnections:100}")
+	private int httpMaxConnections;
+
+	@Value("${powerauth.service.http.maxConnectionsPerRoute:100}")
+	private int httpMaxConnectionsPerRoute;
+
+	@Value("${powerauth.service.http.connectTimeout:5000}")
+	private int httpConnectTimeout;
+
+	@Value("${powerauth.service.http.readTimeout:30000}")
+	private int httpReadTimeout;
+
+	@Value("${powerauth.service.http.keepAliveTimeout:60000}")
+	private long httpKeepAliveTimeout;
+
 	/**
 	 * Return SOAP service marshaller.
 	 * @return Marshaller instance with a correct context path.
@@ -32,17 +48,29 @@ public class PowerAuthWebServiceConfiguration {
         return marshaller;
     }
 
+    /**
+     * HTTP message sender for PowerAuth SOAP service communication, keeping a pool of persistent
+     * connections configured using 'powerauth.service.http.*' properties.
+     * @return Pooled HTTP message sender.
+     */
+    @Bean
+    public PowerAuthPooledMessageSender messageSender() {
+        return new PowerAuthPooledMessageSender(httpMaxConnections, httpMaxConnectionsPerRoute, httpConnectTimeout, httpReadTimeout, httpKeepAliveTimeout);
+    }
+
     /**
      * Return a correctly configured PowerAuthServiceClient instance.
      * @param marshaller SOAP service marshaller.
+     * @param messageSender HTTP message sender.
      * @return Correctly configured PowerAuthServiceClient instance.
      */
     @Bean
-    public PowerAuthServiceClient powerAuthClient(Jaxb2Marshaller marshaller) {
+    public PowerAuthServiceClient powerAuthClient(Jaxb2Marshaller marshaller, PowerAuthPooledMessageSender messageSender) {
         PowerAuthServiceClient client = new PowerAuthServiceClient();
         client.setDefaultUri(powerAuthServiceUrl);
         client.setMarshaller(marshaller);
         client.setUnmarshaller(marshaller);
+        client.setMessageSender(messageSender);
         return client;
     }
 
@@ -62,6 +62,8 @@ CREATE TABLE pa_activation (
   max_failed_attempts bigint NOT NULL DEFAULT '5',
   server_private_key_base64 clob NOT NULL,
   server_public_key_base64 clob NOT NULL,
+  server_private_key varbinary(32) DEFAULT NULL,
+  device_public_key varbinary(65) DEFAULT NULL,
   master_keypair_id bigint DEFAULT NULL,
   timestamp_created datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
   timestamp_activation_expire datetime NOT NULL,
@@ -87,8 +89,10 @@ CREATE TABLE pa_signature_audit (
   valid int NOT NULL DEFAULT '0',
   note clob NOT NULL,
   timestamp_created datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  data blob DEFAULT NULL,
+  data_format varchar(16) DEFAULT NULL,
   PRIMARY KEY (id),
   CONSTRAINT FK_ACTIVATION_ID FOREIGN KEY (activation_id) REFERENCES pa_activation (activation_id) ON DELETE CASCADE ON UPDATE NO ACTION
 );
 
-CREATE INDEX K_ACTIVATION_ID ON pa_signature_audit (activation_id);
+CREATE INDEX K_ACTIVATION_ID_TIMESTAMP ON pa_signature_audit (activation_id, timestamp_created);
@@ -0,0 +1,11 @@
+--
+-- Add columns for the compact signature audit data formats (powerauth.service.signatureAudit.dataFormat).
+-- REQUIRED when upgrading an existing database: the server maps and writes these columns regardless of
+-- the configured format, databases created with create_schema.sql already contain them. Records created
+-- before the migration keep the data in the Base64 column, which stays empty for records stored as a hash
+-- or compressed data.
+--
+
+ALTER TABLE pa_signature_audit
+  ADD COLUMN data blob DEFAULT NULL
+  ADD COLUMN data_format varchar(16) DEFAULT NULL;
@@ -0,0 +1,57 @@
+--
+-- Replace the signature audit table with a table partitioned by month of the record creation.
+-- Partitions are named p_YYYYMM (or p_YYYYMMDD for daily partitions), the p_max partition catches
+-- records above the last period. Upcoming partitions are created below p_max and partitions older
+-- than the retention are dropped or detached into pa_signature_audit_p_YYYYMM tables by the server
+-- when powerauth.service.signatureAudit.partitionDialect is set to DB2, see
+-- powerauth.service.signatureAudit.retentionPeriods.
+--
+-- Partition boundaries are computed in UTC, the server should run in UTC so that they match the
+-- stored creation timestamps.
+--
+-- Adjust the first partition to the current month before running the script.
+--
+
+RENAME TABLE pa_signature_audit TO pa_signature_audit_old;
+
+CREATE TABLE pa_signature_audit (
+  id int NOT NULL AUTO_INCREMENT,
+  activation_id varchar(37) NOT NULL,
+  activation_counter bigint NOT NULL,
+  activation_status int NOT NULL,
+  data_base64 clob,
+  signature_type varchar(255) NOT NULL,
+  signature varchar(255) NOT NULL,
+  valid int NOT NULL DEFAULT '0',
+  note clob NOT NULL,
+  timestamp_created datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  data blob DEFAULT NULL,
+  data_format varchar(16) DEFAULT NULL,
+  PRIMARY KEY (id, timestamp_created),
+  CONSTRAINT FK_ACTIVATION_ID_PARTITIONED FOREIGN KEY (activation_id) REFERENCES pa_activation (activation_id) ON DELETE CASCADE ON UPDATE NO ACTION
+)
+PARTITION BY RANGE (timestamp_created) (
+  PARTITION p_201610 STARTING ('2016-10-01 00:00:00') INCLUSIVE ENDING ('2016-11-01 00:00:00') EXCLUSIVE,
+  PARTITION p_max STARTING ('2016-11-01 00:00:00') INCLUSIVE ENDING (MAXVALUE)
+);
+
+CREATE INDEX K_ACTIVATION_ID_TIMESTAMP ON pa_signature_audit (activation_id, timestamp_created) PARTITIONED;
+
+--
+-- Lease guarding the partition maintenance, so that only one node of a cluster changes the partitions at a time.
+--
+
+CREATE TABLE pa_signature_audit_lock (
+  id int NOT NULL,
+  locked_by varchar(37) DEFAULT NULL,
+  locked_until datetime DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO pa_signature_audit_lock (id) VALUES (1);
+
+--
+-- Optionally copy the records that should be kept and drop the old table.
+--
+-- INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_old WHERE timestamp_created >= '2016-10-01 00:00:00';
+-- DROP TABLE pa_signature_audit_old;
@@ -56,6 +56,8 @@ CREATE TABLE `pa_activation` (
   `max_failed_attempts` bigint(20) NOT NULL DEFAULT '5',
   `server_private_key_base64` text NOT NULL,
   `server_public_key_base64` text NOT NULL,
+  `server_private_key` varbinary(32) DEFAULT NULL,
+  `device_public_key` varbinary(65) DEFAULT NULL,
   `master_keypair_id` bigint(20) DEFAULT NULL,
   `timestamp_created` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `timestamp_activation_expire` datetime NOT NULL,
@@ -80,7 +82,9 @@ CREATE TABLE `pa_signature_audit` (
   `valid` int(11) NOT NULL DEFAULT '0',
   `note` text NOT NULL,
   `timestamp_created` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `data` mediumblob,
+  `data_format` varchar(16) DEFAULT NULL,
   PRIMARY KEY (`id`),
-  KEY `K_ACTIVATION_ID` (`activation_id`),
+  KEY `K_ACTIVATION_ID_TIMESTAMP` (`activation_id`,`timestamp_created`),
   CONSTRAINT `FK_ACTIVATION_ID` FOREIGN KEY (`activation_id`) REFERENCES `pa_activation` (`activation_id`) ON DELETE CASCADE ON UPDATE NO ACTION
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8;
@@ -0,0 +1,56 @@
+--
+-- Replace the signature audit table with a table partitioned by month of the record creation.
+-- Partitions are named p_YYYYMM (or p_YYYYMMDD for daily partitions), the p_max partition catches
+-- records above the last period. Upcoming partitions are created and partitions older than the
+-- retention are dropped or archived by the server when powerauth.service.signatureAudit.partitionDialect
+-- is set to MYSQL, see powerauth.service.signatureAudit.retentionPeriods.
+--
+-- Partition boundaries are computed in UTC, the server should run in UTC so that they match the
+-- stored creation timestamps.
+--
+-- MySQL does not support foreign keys on partitioned tables and requires the partitioning column
+-- in every unique key, the primary key therefore contains the creation timestamp. Adjust the first
+-- partition to the current month before running the script.
+--
+
+RENAME TABLE `pa_signature_audit` TO `pa_signature_audit_old`;
+
+CREATE TABLE `pa_signature_audit` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `activation_id` varchar(37) NOT NULL,
+  `activation_counter` bigint(20) NOT NULL,
+  `activation_status` int(11) NOT NULL,
+  `data_base64` text,
+  `signature_type` varchar(255) NOT NULL,
+  `signature` varchar(255) NOT NULL,
+  `valid` int(11) NOT NULL DEFAULT '0',
+  `note` text NOT NULL,
+  `timestamp_created` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `data` mediumblob,
+  `data_format` varchar(16) DEFAULT NULL,
+  PRIMARY KEY (`id`,`timestamp_created`),
+  KEY `K_ACTIVATION_ID_TIMESTAMP` (`activation_id`,`timestamp_created`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8
+PARTITION BY RANGE (TO_DAYS(`timestamp_created`)) (
+  PARTITION p_201610 VALUES LESS THAN (TO_DAYS('2016-11-01')),
+  PARTITION p_max VALUES LESS THAN MAXVALUE
+);
+
+--
+-- Lease guarding the partition maintenance, so that only one node of a cluster changes the partitions at a time.
+--
+
+CREATE TABLE `pa_signature_audit_lock` (
+  `id` int(11) NOT NULL,
+  `locked_by` varchar(37) DEFAULT NULL,
+  `locked_until` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+INSERT INTO `pa_signature_audit_lock` (`id`) VALUES (1);
+
+--
+-- Optionally copy the records that should be kept, keeping their IDs, and drop the old table.
+--
+-- INSERT INTO `pa_signature_audit` SELECT * FROM `pa_signature_audit_old` WHERE `timestamp_created` >= '2016-10-01';
+-- DROP TABLE `pa_signature_audit_old`;
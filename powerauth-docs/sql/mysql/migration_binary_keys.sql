@@ -0,0 +1,11 @@
+--
+-- Add columns for the binary key storage mode (powerauth.service.activation.binaryKeyStorage).
+-- REQUIRED when upgrading an existing database: the server maps these columns regardless of whether
+-- the binary key storage is enabled, databases created with create_schema.sql already contain them.
+-- Existing rows are filled by the server on startup when powerauth.service.activation.binaryKeyMigration
+-- is enabled, Base64 columns are kept and remain the source of truth for rows without binary keys.
+--
+
+ALTER TABLE `pa_activation`
+  ADD COLUMN `server_private_key` varbinary(32) DEFAULT NULL,
+  ADD COLUMN `device_public_key` varbinary(65) DEFAULT NULL;
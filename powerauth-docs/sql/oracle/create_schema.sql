@@ -20,6 +20,8 @@ CREATE TABLE "POWERAUTH"."PA_ACTIVATION"
     "MAX_FAILED_ATTEMPTS"         NUMBER(19,0),
     "SERVER_PRIVATE_KEY_BASE64"   VARCHAR2(255 CHAR),
     "SERVER_PUBLIC_KEY_BASE64"    VARCHAR2(255 CHAR),
+    "SERVER_PRIVATE_KEY"          RAW(32),
+    "DEVICE_PUBLIC_KEY"           RAW(65),
     "TIMESTAMP_ACTIVATION_EXPIRE" TIMESTAMP (6),
     "TIMESTAMP_CREATED"           TIMESTAMP (6),
     "TIMESTAMP_LAST_USED"         TIMESTAMP (6),
@@ -97,7 +99,9 @@ CREATE TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT"
     "SIGNATURE_TYPE"     VARCHAR2(255 CHAR),
     "TIMESTAMP_CREATED"  TIMESTAMP (6),
     "VALID"              NUMBER(1,0),
-    "ACTIVATION_ID"      VARCHAR2(37 CHAR)
+    "ACTIVATION_ID"      VARCHAR2(37 CHAR),
+    "DATA"               BLOB,
+    "DATA_FORMAT"        VARCHAR2(16 CHAR)
   )
   SEGMENT CREATION DEFERRED PCTFREE 10 PCTUSED 40 INITRANS 1 MAXTRANS 255 NOCOMPRESS LOGGING TABLESPACE "POWERAUTH" ;
 
@@ -155,6 +159,11 @@ ALTER TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT" MODIFY ("SIGNATURE" NOT NULL ENABLE
 ALTER TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT" MODIFY ("ACTIVATION_COUNTER" NOT NULL ENABLE);
 ALTER TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT" MODIFY ("ID" NOT NULL ENABLE);
 
+--
+--  Indexes for Table PA_SIGNATURE_AUDIT
+--
+CREATE INDEX "POWERAUTH"."K_ACTIVATION_ID_TIMESTAMP" ON "POWERAUTH"."PA_SIGNATURE_AUDIT" ("ACTIVATION_ID", "TIMESTAMP_CREATED") TABLESPACE "POWERAUTH";
+
 --
 --  Ref Constraints for Table PA_ACTIVATION
 --
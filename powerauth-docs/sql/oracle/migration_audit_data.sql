@@ -0,0 +1,9 @@
+--
+-- Add columns for the compact signature audit data formats (powerauth.service.signatureAudit.dataFormat).
+-- REQUIRED when upgrading an existing database: the server maps and writes these columns regardless of
+-- the configured format, databases created with create_schema.sql already contain them. Records created
+-- before the migration keep the data in the Base64 column, which stays empty for records stored as a hash
+-- or compressed data.
+--
+
+ALTER TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT" ADD ("DATA" BLOB, "DATA_FORMAT" VARCHAR2(16 CHAR));
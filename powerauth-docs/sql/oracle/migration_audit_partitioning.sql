@@ -0,0 +1,62 @@
+--
+-- Replace the signature audit table with a table partitioned by month of the record creation.
+-- Partitions are named P_YYYYMM (or P_YYYYMMDD for daily partitions), the P_MAX partition catches
+-- records above the last period. Upcoming partitions are split from P_MAX and partitions older than
+-- the retention are dropped or archived by the server when
+-- powerauth.service.signatureAudit.partitionDialect is set to ORACLE, see
+-- powerauth.service.signatureAudit.retentionPeriods. The server must connect as the POWERAUTH user.
+--
+-- Partition boundaries are computed in UTC, the server should run in UTC so that they match the
+-- stored creation timestamps.
+--
+-- Adjust the first partition to the current month before running the script.
+--
+
+ALTER TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT" RENAME TO "PA_SIGNATURE_AUDIT_OLD";
+
+CREATE TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT"
+  (
+    "ID"                 NUMBER(19,0) NOT NULL ENABLE,
+    "ACTIVATION_COUNTER" NUMBER(19,0) NOT NULL ENABLE,
+    "ACTIVATION_STATUS"  NUMBER(10,0),
+    "DATA_BASE64"        VARCHAR2(255 CHAR),
+    "NOTE"               VARCHAR2(255 CHAR),
+    "SIGNATURE"          VARCHAR2(255 CHAR) NOT NULL ENABLE,
+    "SIGNATURE_TYPE"     VARCHAR2(255 CHAR) NOT NULL ENABLE,
+    "TIMESTAMP_CREATED"  TIMESTAMP (6) NOT NULL ENABLE,
+    "VALID"              NUMBER(1,0) NOT NULL ENABLE,
+    "ACTIVATION_ID"      VARCHAR2(37 CHAR),
+    "DATA"               BLOB,
+    "DATA_FORMAT"        VARCHAR2(16 CHAR),
+    CONSTRAINT "PK_SIGNATURE_AUDIT" PRIMARY KEY ("ID") USING INDEX TABLESPACE "POWERAUTH" ENABLE,
+    CONSTRAINT "FK_SIGNATURE_AUDIT_ACTIVATION" FOREIGN KEY ("ACTIVATION_ID") REFERENCES "POWERAUTH"."PA_ACTIVATION" ("ACTIVATION_ID") ENABLE
+  )
+  TABLESPACE "POWERAUTH"
+  PARTITION BY RANGE ("TIMESTAMP_CREATED")
+  (
+    PARTITION "P_201610" VALUES LESS THAN (TIMESTAMP '2016-11-01 00:00:00'),
+    PARTITION "P_MAX" VALUES LESS THAN (MAXVALUE)
+  );
+
+CREATE INDEX "POWERAUTH"."K_ACTIVATION_ID_TIMESTAMP" ON "POWERAUTH"."PA_SIGNATURE_AUDIT" ("ACTIVATION_ID", "TIMESTAMP_CREATED") LOCAL;
+
+--
+-- Lease guarding the partition maintenance, so that only one node of a cluster changes the partitions at a time.
+--
+
+CREATE TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT_LOCK"
+  (
+    "ID"           NUMBER(10,0) NOT NULL ENABLE,
+    "LOCKED_BY"    VARCHAR2(37 CHAR),
+    "LOCKED_UNTIL" TIMESTAMP (6),
+    CONSTRAINT "PK_SIGNATURE_AUDIT_LOCK" PRIMARY KEY ("ID") USING INDEX TABLESPACE "POWERAUTH" ENABLE
+  )
+  TABLESPACE "POWERAUTH";
+
+INSERT INTO "POWERAUTH"."PA_SIGNATURE_AUDIT_LOCK" ("ID") VALUES (1);
+
+--
+-- Optionally copy the records that should be kept and drop the old table.
+--
+-- INSERT INTO "POWERAUTH"."PA_SIGNATURE_AUDIT" SELECT * FROM "POWERAUTH"."PA_SIGNATURE_AUDIT_OLD" WHERE "TIMESTAMP_CREATED" >= TIMESTAMP '2016-10-01 00:00:00';
+-- DROP TABLE "POWERAUTH"."PA_SIGNATURE_AUDIT_OLD";
@@ -0,0 +1,9 @@
+--
+-- Add columns for the binary key storage mode (powerauth.service.activation.binaryKeyStorage).
+-- REQUIRED when upgrading an existing database: the server maps these columns regardless of whether
+-- the binary key storage is enabled, databases created with create_schema.sql already contain them.
+-- Existing rows are filled by the server on startup when powerauth.service.activation.binaryKeyMigration
+-- is enabled, Base64 columns are kept and remain the source of truth for rows without binary keys.
+--
+
+ALTER TABLE "POWERAUTH"."PA_ACTIVATION" ADD ("SERVER_PRIVATE_KEY" RAW(32), "DEVICE_PUBLIC_KEY" RAW(65));
@@ -75,6 +75,8 @@ CREATE TABLE pa_activation (
   max_failed_attempts bigint NOT NULL DEFAULT '5',
   server_private_key_base64 text NOT NULL,
   server_public_key_base64 text NOT NULL,
+  server_private_key bytea DEFAULT NULL,
+  device_public_key bytea DEFAULT NULL,
   master_keypair_id bigint DEFAULT NULL,
   timestamp_created timestamp(0) NOT NULL DEFAULT CURRENT_TIMESTAMP,
   timestamp_activation_expire timestamp(0) NOT NULL,
@@ -102,10 +104,12 @@ CREATE TABLE pa_signature_audit (
   valid int NOT NULL DEFAULT '0',
   note text NOT NULL,
   timestamp_created timestamp(0) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  data bytea DEFAULT NULL,
+  data_format varchar(16) DEFAULT NULL,
   PRIMARY KEY (id),
   CONSTRAINT FK_ACTIVATION_ID FOREIGN KEY (activation_id) REFERENCES pa_activation (activation_id) ON DELETE CASCADE ON UPDATE NO ACTION
 );
 
 ALTER SEQUENCE pa_signature_audit_seq RESTART WITH 1;
 
-CREATE INDEX K_ACTIVATION_ID ON pa_signature_audit (activation_id);
+CREATE INDEX K_ACTIVATION_ID_TIMESTAMP ON pa_signature_audit (activation_id, timestamp_created);
@@ -0,0 +1,59 @@
+--
+-- Replace the signature audit table with a table partitioned by month of the record creation
+-- (PostgreSQL 11 or newer). Each partition is a table named pa_signature_audit_p_YYYYMM (or
+-- pa_signature_audit_p_YYYYMMDD for daily partitions), the default partition pa_signature_audit_p_max
+-- catches records outside of the periods. Upcoming partitions are created and partitions older than
+-- the retention are dropped or detached by the server when
+-- powerauth.service.signatureAudit.partitionDialect is set to POSTGRESQL, see
+-- powerauth.service.signatureAudit.retentionPeriods.
+--
+-- Partition boundaries are computed in UTC, the server should run in UTC so that they match the
+-- stored creation timestamps.
+--
+-- The partitioning column must be a part of the primary key. Adjust the first partition to the
+-- current month before running the script.
+--
+
+ALTER TABLE pa_signature_audit RENAME TO pa_signature_audit_old;
+ALTER INDEX K_ACTIVATION_ID RENAME TO K_ACTIVATION_ID_OLD;
+
+CREATE TABLE pa_signature_audit (
+  id int NOT NULL DEFAULT NEXTVAL ('pa_signature_audit_seq'),
+  activation_id varchar(37) NOT NULL,
+  activation_counter bigint NOT NULL,
+  activation_status int NOT NULL,
+  data_base64 text,
+  signature_type varchar(255) NOT NULL,
+  signature varchar(255) NOT NULL,
+  valid int NOT NULL DEFAULT '0',
+  note text NOT NULL,
+  timestamp_created timestamp(0) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  data bytea DEFAULT NULL,
+  data_format varchar(16) DEFAULT NULL,
+  PRIMARY KEY (id, timestamp_created),
+  CONSTRAINT FK_ACTIVATION_ID_PARTITIONED FOREIGN KEY (activation_id) REFERENCES pa_activation (activation_id) ON DELETE CASCADE ON UPDATE NO ACTION
+) PARTITION BY RANGE (timestamp_created);
+
+CREATE INDEX K_ACTIVATION_ID_TIMESTAMP ON pa_signature_audit (activation_id, timestamp_created);
+
+CREATE TABLE pa_signature_audit_p_201610 PARTITION OF pa_signature_audit FOR VALUES FROM ('2016-10-01') TO ('2016-11-01');
+CREATE TABLE pa_signature_audit_p_max PARTITION OF pa_signature_audit DEFAULT;
+
+--
+-- Lease guarding the partition maintenance, so that only one node of a cluster changes the partitions at a time.
+--
+
+CREATE TABLE pa_signature_audit_lock (
+  id int NOT NULL,
+  locked_by varchar(37) DEFAULT NULL,
+  locked_until timestamp(0) DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO pa_signature_audit_lock (id) VALUES (1);
+
+--
+-- Optionally copy the records that should be kept and drop the old table.
+--
+-- INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_old WHERE timestamp_created >= '2016-10-01';
+-- DROP TABLE pa_signature_audit_old;
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.InvalidKeyException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.server.activation.PowerAuthServerActivation;
+
+/**
+ * Benchmarks of the activation status related cryptography in {@link PowerAuthServerActivation}.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationBenchmark {
+
+    @Param({ "BC", "SC" })
+    public String provider;
+
+    private final PowerAuthServerActivation serverActivation = new PowerAuthServerActivation();
+
+    private SecretKey[] transportKeys;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        CryptoProviderUtil keyConvertor = CryptoProviders.install(provider);
+        TestVectors vectors = new TestVectors("compute-derived-keys.json");
+        transportKeys = new SecretKey[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            transportKeys[i] = keyConvertor.convertBytesToSharedSecretKey(vectors.outputBytes(i, "transportKey"));
+        }
+    }
+
+    @Benchmark
+    public byte[] encryptedStatusBlob() throws InvalidKeyException {
+        index = (index + 1) % transportKeys.length;
+        return serverActivation.encryptedStatusBlob((byte) 3, index, (byte) 0, (byte) 5, transportKeys[index]);
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.lib.util.CryptoPrimitivePool;
+
+/**
+ * Benchmarks comparing primitives taken from {@link CryptoPrimitivePool} with primitives created
+ * by <code>getInstance</code> on every operation, under 32 concurrent threads. Each pair of
+ * benchmarks performs exactly the same operation, the difference is the lookup overhead.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(32)
+@Fork(1)
+public class CryptoPrimitivePoolBenchmark {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS7Padding";
+    private static final String ECDH_ALGORITHM = "ECDH";
+
+    @Param({ "BC", "SC" })
+    public String provider;
+
+    private String providerName;
+    private SecretKey hmacKey;
+    private SecretKey aesKey;
+    private IvParameterSpec iv;
+    private byte[] data;
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+
+    @Setup
+    public void setUp() throws InvalidKeySpecException {
+        CryptoProviderUtil keyConvertor = CryptoProviders.install(provider);
+        providerName = keyConvertor.getProviderName();
+
+        TestVectors vectors = new TestVectors("compute-master-secret-key.json");
+        privateKey = keyConvertor.convertBytesToPrivateKey(vectors.inputBytes(0, "devicePrivateKey"));
+        publicKey = keyConvertor.convertBytesToPublicKey(vectors.inputBytes(0, "serverPublicKey"));
+
+        hmacKey = new SecretKeySpec(new byte[16], HMAC_ALGORITHM);
+        aesKey = new SecretKeySpec(new byte[16], "AES");
+        iv = new IvParameterSpec(new byte[16]);
+        data = new byte[32];
+    }
+
+    @Benchmark
+    public byte[] hmacGetInstance() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM, providerName);
+        mac.init(hmacKey);
+        return mac.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] hmacPooled() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+        Mac mac = CryptoPrimitivePool.getMac(HMAC_ALGORITHM);
+        mac.init(hmacKey);
+        return mac.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] aesGetInstance() throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION, providerName);
+        cipher.init(Cipher.ENCRYPT_MODE, aesKey, iv);
+        return cipher.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] aesPooled() throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        Cipher cipher = CryptoPrimitivePool.getCipher(AES_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, aesKey, iv);
+        return cipher.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] ecdhGetInstance() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+        KeyAgreement keyAgreement = KeyAgreement.getInstance(ECDH_ALGORITHM, providerName);
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        return keyAgreement.generateSecret();
+    }
+
+    @Benchmark
+    public byte[] ecdhPooled() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+        KeyAgreement keyAgreement = CryptoPrimitivePool.getKeyAgreement(ECDH_ALGORITHM);
+        keyAgreement.init(privateKey);
+        keyAgreement.doPhase(publicKey, true);
+        return keyAgreement.generateSecret();
+    }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.Security;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtilBouncyCastle;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtilsSpongyCastle;
+
+/**
+ * Registration of the crypto provider a benchmark runs with.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class CryptoProviders {
+
+    /**
+     * Register the provider with given name and set the matching key convertor.
+     * @param providerName Provider name, "BC" for Bouncy Castle or "SC" for Spongy Castle.
+     * @return Key convertor for the provider.
+     */
+    public static CryptoProviderUtil install(String providerName) {
+        CryptoProviderUtil keyConvertor;
+        if ("BC".equals(providerName)) {
+            Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+            keyConvertor = new CryptoProviderUtilBouncyCastle();
+        } else if ("SC".equals(providerName)) {
+            Security.addProvider(new org.spongycastle.jce.provider.BouncyCastleProvider());
+            keyConvertor = new CryptoProviderUtilsSpongyCastle();
+        } else {
+            throw new IllegalArgumentException("Unknown provider: " + providerName);
+        }
+        PowerAuthConfiguration.INSTANCE.setKeyConvertor(keyConvertor);
+        return keyConvertor;
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpHeader;
+import io.getlime.security.powerauth.lib.util.http.PowerAuthSignatureHeader;
+
+/**
+ * Benchmarks comparing the single-pass parser and builder of the "X-PowerAuth-Authorization"
+ * header with the original regular expression parser and string concatenation. Both parsers
+ * extract all six header values.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeaderBenchmark {
+
+    private static final String POWERAUTH_PREFIX = "PowerAuth ";
+
+    private String activationId;
+    private String applicationKey;
+    private String nonce;
+    private String signatureType;
+    private String signature;
+    private String header;
+    private final StringBuilder builder = new StringBuilder(256);
+
+    @Setup
+    public void setUp() {
+        activationId = "a7f8bd7c-4f1b-4e8b-9c5e-2b3f5ef5a5b1";
+        applicationKey = "MTIzNDU2Nzg5MDEyMzQ1Ng==";
+        nonce = "MDEyMzQ1Njc4OWFiY2RlZg==";
+        signatureType = "possession_knowledge";
+        signature = "12345678-87654321";
+        header = PowerAuthHttpHeader.getPowerAuthSignatureHTTPHeader(activationId, applicationKey, nonce, signatureType, signature, "2.0");
+    }
+
+    @Benchmark
+    public String[] parseRegex() {
+        Map<String, String> map = parseWithRegex(header);
+        return new String[] {
+                map.get(PowerAuthHttpHeader.ACTIVATION_ID),
+                map.get(PowerAuthHttpHeader.APPLICATION_ID),
+                map.get(PowerAuthHttpHeader.NONCE),
+                map.get(PowerAuthHttpHeader.SIGNATURE_TYPE),
+                map.get(PowerAuthHttpHeader.SIGNATURE),
+                map.get(PowerAuthHttpHeader.VERSION)
+        };
+    }
+
+    @Benchmark
+    public PowerAuthSignatureHeader parseSinglePass() {
+        return PowerAuthSignatureHeader.parse(header);
+    }
+
+    @Benchmark
+    public String buildConcatenation() {
+        return POWERAUTH_PREFIX
+                + headerField(PowerAuthHttpHeader.ACTIVATION_ID, activationId) + ", "
+                + headerField(PowerAuthHttpHeader.APPLICATION_ID, applicationKey) + ", "
+                + headerField(PowerAuthHttpHeader.NONCE, nonce) + ", "
+                + headerField(PowerAuthHttpHeader.SIGNATURE_TYPE, signatureType) + ", "
+                + headerField(PowerAuthHttpHeader.SIGNATURE, signature) + ", "
+                + headerField(PowerAuthHttpHeader.VERSION, "2.0");
+    }
+
+    @Benchmark
+    public int buildReusedBuilder() {
+        builder.setLength(0);
+        return PowerAuthHttpHeader.appendPowerAuthSignatureHTTPHeader(builder, activationId, applicationKey, nonce, signatureType, signature, "2.0").length();
+    }
+
+    /**
+     * The original header parser, compiling the pattern on every call.
+     */
+    private static Map<String, String> parseWithRegex(String xPowerAuthSignatureHeader) {
+        xPowerAuthSignatureHeader = xPowerAuthSignatureHeader.trim();
+        if (!xPowerAuthSignatureHeader.startsWith(POWERAUTH_PREFIX)) {
+            return new HashMap<>();
+        }
+        xPowerAuthSignatureHeader = xPowerAuthSignatureHeader.substring(POWERAUTH_PREFIX.length()).trim();
+        Map<String, String> result = new HashMap<>();
+        Pattern p = Pattern.compile("(\\w+)=\"*((?<=\")[^\"]+(?=\")|([^\\s]+)),*\"*");
+        Matcher m = p.matcher(xPowerAuthSignatureHeader);
+        while (m.find()) {
+            result.put(m.group(1), m.group(2));
+        }
+        return result;
+    }
+
+    private static String headerField(String key, String value) {
+        return key + "=\"" + value + "\"";
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+
+/**
+ * Benchmarks of the EC key conversions in {@link CryptoProviderUtil} implementations.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyConversionBenchmark {
+
+    @Param({ "BC", "SC" })
+    public String provider;
+
+    private CryptoProviderUtil keyConvertor;
+
+    private byte[][] privateKeyBytes;
+    private byte[][] publicKeyBytes;
+    private PrivateKey[] privateKeys;
+    private PublicKey[] publicKeys;
+    private int index;
+
+    @Setup
+    public void setUp() throws InvalidKeySpecException {
+        keyConvertor = CryptoProviders.install(provider);
+        TestVectors vectors = new TestVectors("compute-master-secret-key.json");
+        privateKeyBytes = new byte[vectors.size()][];
+        publicKeyBytes = new byte[vectors.size()][];
+        privateKeys = new PrivateKey[vectors.size()];
+        publicKeys = new PublicKey[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            privateKeyBytes[i] = vectors.inputBytes(i, "devicePrivateKey");
+            publicKeyBytes[i] = vectors.inputBytes(i, "devicePublicKey");
+            privateKeys[i] = keyConvertor.convertBytesToPrivateKey(privateKeyBytes[i]);
+            publicKeys[i] = keyConvertor.convertBytesToPublicKey(publicKeyBytes[i]);
+        }
+    }
+
+    @Benchmark
+    public PrivateKey convertBytesToPrivateKey() throws InvalidKeySpecException {
+        index = (index + 1) % privateKeyBytes.length;
+        return keyConvertor.convertBytesToPrivateKey(privateKeyBytes[index]);
+    }
+
+    @Benchmark
+    public PublicKey convertBytesToPublicKey() throws InvalidKeySpecException {
+        index = (index + 1) % publicKeyBytes.length;
+        return keyConvertor.convertBytesToPublicKey(publicKeyBytes[index]);
+    }
+
+    @Benchmark
+    public byte[] convertPrivateKeyToBytes() {
+        index = (index + 1) % privateKeys.length;
+        return keyConvertor.convertPrivateKeyToBytes(privateKeys[index]);
+    }
+
+    @Benchmark
+    public byte[] convertPublicKeyToBytes() {
+        index = (index + 1) % publicKeys.length;
+        return keyConvertor.convertPublicKeyToBytes(publicKeys[index]);
+    }
+
+}
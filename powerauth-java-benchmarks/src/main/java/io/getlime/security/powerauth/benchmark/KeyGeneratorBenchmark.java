@@ -0,0 +1,105 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.enums.PowerAuthDerivedKey;
+import io.getlime.security.powerauth.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+
+/**
+ * Benchmarks of the key agreement and key derivation in {@link KeyGenerator}.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    @Param({ "BC", "SC" })
+    public String provider;
+
+    private final KeyGenerator keyGenerator = new KeyGenerator();
+
+    private PrivateKey[] devicePrivateKeys;
+    private PublicKey[] serverPublicKeys;
+    private SecretKey[] masterSecretKeys;
+    private byte[] salt;
+    private int index;
+
+    @Setup
+    public void setUp() throws InvalidKeySpecException {
+        CryptoProviderUtil keyConvertor = CryptoProviders.install(provider);
+
+        TestVectors masterKeyVectors = new TestVectors("compute-master-secret-key.json");
+        devicePrivateKeys = new PrivateKey[masterKeyVectors.size()];
+        serverPublicKeys = new PublicKey[masterKeyVectors.size()];
+        for (int i = 0; i < masterKeyVectors.size(); i++) {
+            devicePrivateKeys[i] = keyConvertor.convertBytesToPrivateKey(masterKeyVectors.inputBytes(i, "devicePrivateKey"));
+            serverPublicKeys[i] = keyConvertor.convertBytesToPublicKey(masterKeyVectors.inputBytes(i, "serverPublicKey"));
+        }
+
+        TestVectors derivedKeyVectors = new TestVectors("compute-derived-keys.json");
+        masterSecretKeys = new SecretKey[derivedKeyVectors.size()];
+        for (int i = 0; i < derivedKeyVectors.size(); i++) {
+            masterSecretKeys[i] = keyConvertor.convertBytesToSharedSecretKey(derivedKeyVectors.inputBytes(i, "masterSecretKey"));
+        }
+
+        salt = derivedKeyVectors.inputBytes(0, "masterSecretKey");
+    }
+
+    @Benchmark
+    public SecretKey computeSharedKey() throws InvalidKeyException {
+        index = (index + 1) % devicePrivateKeys.length;
+        return keyGenerator.computeSharedKey(devicePrivateKeys[index], serverPublicKeys[index]);
+    }
+
+    @Benchmark
+    public SecretKey deriveSecretKey() {
+        index = (index + 1) % masterSecretKeys.length;
+        return keyGenerator.deriveSecretKey(masterSecretKeys[index], PowerAuthDerivedKey.SIGNATURE_POSSESSION.getIndex());
+    }
+
+    @Benchmark
+    public SecretKey deriveSecretKeyFromPassword() {
+        return keyGenerator.deriveSecretKeyFromPassword("1234", salt);
+    }
+
+}
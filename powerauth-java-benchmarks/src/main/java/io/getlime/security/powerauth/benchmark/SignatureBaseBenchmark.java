@@ -0,0 +1,112 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
+import io.getlime.security.powerauth.lib.util.SignatureUtils;
+import io.getlime.security.powerauth.server.signature.PowerAuthServerSignature;
+
+/**
+ * Benchmarks of the server side signature verification of large request bodies with a lookahead
+ * miss, so that the data are fed to the HMAC once for every counter in the lookahead window. The
+ * concatenated data are compared with a signature base of a data string encoded on every HMAC
+ * update and with a signature base of data encoded once, the way the server builds it.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBaseBenchmark {
+
+    @Param({ "1024", "1048576" })
+    public int bodySize;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+    private final PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+
+    private List<SecretKey> signatureKeys;
+    private String dataString;
+    private String applicationSecret;
+    private String signature;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        CryptoProviderUtil keyConvertor = CryptoProviders.install("BC");
+        Random random = new Random(0);
+        byte[] possessionKey = new byte[16];
+        byte[] knowledgeKey = new byte[16];
+        random.nextBytes(possessionKey);
+        random.nextBytes(knowledgeKey);
+        signatureKeys = Arrays.asList(keyConvertor.convertBytesToSharedSecretKey(possessionKey), keyConvertor.convertBytesToSharedSecretKey(knowledgeKey));
+
+        // Request data string in the form sent by the intermediate server, with a Base64 encoded body
+        byte[] body = new byte[bodySize];
+        random.nextBytes(body);
+        dataString = "POST&L3BhL3NpZ25hdHVyZS92YWxpZGF0ZQ==&MDEyMzQ1Njc4OWFiY2RlZg==&" + BaseEncoding.base64().encode(body);
+        applicationSecret = "MTIzNDU2Nzg5MDEyMzQ1Ng==";
+        byte[] data = (dataString + "&" + applicationSecret).getBytes("UTF-8");
+        signature = signatureUtils.computePowerAuthSignature(data, signatureKeys, 0);
+    }
+
+    @Benchmark
+    public Long lookaheadMissConcatenated() throws InvalidKeyException, UnsupportedEncodingException {
+        byte[] data = (dataString + "&" + applicationSecret).getBytes("UTF-8");
+        return serverSignature.verifySignatureForCounterRange(data, signature, signatureKeys, 1, PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD);
+    }
+
+    @Benchmark
+    public Long lookaheadMissStringSegment() throws InvalidKeyException {
+        PowerAuthSignatureBase data = new PowerAuthSignatureBase().append(dataString).append("&").append(applicationSecret);
+        return serverSignature.verifySignatureForCounterRange(data, signature, signatureKeys, 1, PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD);
+    }
+
+    @Benchmark
+    public Long lookaheadMissEncodedOnce() throws InvalidKeyException, UnsupportedEncodingException {
+        PowerAuthSignatureBase data = new PowerAuthSignatureBase().append(dataString.getBytes("UTF-8")).append("&").append(applicationSecret);
+        return serverSignature.verifySignatureForCounterRange(data, signature, signatureKeys, 1, PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD);
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.lib.util.SignatureUtils;
+import io.getlime.security.powerauth.server.signature.PowerAuthServerSignature;
+
+/**
+ * Benchmarks of the PowerAuth 2.0 signature computation and validation for every
+ * signature type.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+    @Param({ "BC", "SC" })
+    public String provider;
+
+    @Param({ "possession", "knowledge", "biometry", "possession_knowledge", "possession_biometry", "possession_knowledge_biometry" })
+    public String signatureType;
+
+    private final SignatureUtils signatureUtils = new SignatureUtils();
+    private final PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+
+    private List<SecretKey>[] signatureKeys;
+    private byte[][] data;
+    private long[] counters;
+    private String[] signatures;
+    private int index;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        CryptoProviderUtil keyConvertor = CryptoProviders.install(provider);
+        TestVectors vectors = new TestVectors("signatures.json");
+
+        // Use vectors of the benchmarked type, vectors do not cover all the types though,
+        // in such case data and counters of all vectors are used
+        List<Integer> matching = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            if (signatureType.equals(vectors.input(i, "signatureType"))) {
+                matching.add(i);
+            }
+        }
+        boolean hasExpectedSignatures = !matching.isEmpty();
+        if (!hasExpectedSignatures) {
+            for (int i = 0; i < vectors.size(); i++) {
+                matching.add(i);
+            }
+        }
+
+        signatureKeys = new List[matching.size()];
+        data = new byte[matching.size()][];
+        counters = new long[matching.size()];
+        signatures = new String[matching.size()];
+        for (int i = 0; i < matching.size(); i++) {
+            int vector = matching.get(i);
+            signatureKeys[i] = signatureKeys(keyConvertor, vectors, vector);
+            data[i] = vectors.inputBytes(vector, "data");
+            counters[i] = Long.parseLong(vectors.input(vector, "counter"));
+            signatures[i] = signatureUtils.computePowerAuthSignature(data[i], signatureKeys[i], counters[i]);
+            if (hasExpectedSignatures && !signatures[i].equals(vectors.output(vector, "signature"))) {
+                throw new IllegalStateException("Signature does not match test vector " + vector);
+            }
+        }
+    }
+
+    private List<SecretKey> signatureKeys(CryptoProviderUtil keyConvertor, TestVectors vectors, int vector) {
+        SecretKey possessionKey = keyConvertor.convertBytesToSharedSecretKey(vectors.inputBytes(vector, "signaturePossessionKey"));
+        SecretKey knowledgeKey = keyConvertor.convertBytesToSharedSecretKey(vectors.inputBytes(vector, "signatureKnowledgeKey"));
+        SecretKey biometryKey = keyConvertor.convertBytesToSharedSecretKey(vectors.inputBytes(vector, "signatureBiometryKey"));
+        switch (PowerAuthSignatureTypes.getEnumFromString(signatureType)) {
+            case POSSESSION:
+                return Arrays.asList(possessionKey);
+            case KNOWLEDGE:
+                return Arrays.asList(knowledgeKey);
+            case BIOMETRY:
+                return Arrays.asList(biometryKey);
+            case POSSESSION_BIOMETRY:
+                return Arrays.asList(possessionKey, biometryKey);
+            case POSSESSION_KNOWLEDGE_BIOMETRY:
+                return Arrays.asList(possessionKey, knowledgeKey, biometryKey);
+            default:
+                return Arrays.asList(possessionKey, knowledgeKey);
+        }
+    }
+
+    @Benchmark
+    public String computePowerAuthSignature() {
+        index = (index + 1) % data.length;
+        return signatureUtils.computePowerAuthSignature(data[index], signatureKeys[index], counters[index]);
+    }
+
+    @Benchmark
+    public boolean validatePowerAuthSignature() throws InvalidKeyException {
+        index = (index + 1) % data.length;
+        return signatureUtils.validatePowerAuthSignature(data[index], signatures[index], signatureKeys[index], counters[index]);
+    }
+
+    @Benchmark
+    public Long validateLookaheadMiss() throws InvalidKeyException {
+        index = (index + 1) % data.length;
+        return serverSignature.verifySignatureForCounterRange(data[index], signatures[index], signatureKeys[index], counters[index] + 1, PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD);
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Loader of the published test vectors bundled with the benchmarks.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class TestVectors {
+
+    private final List<Map<String, Map<String, String>>> data;
+
+    /**
+     * Load test vectors from a file with given name.
+     * @param fileName Test vector file name, for example "signatures.json".
+     */
+    @SuppressWarnings("unchecked")
+    public TestVectors(String fileName) {
+        try (InputStream is = TestVectors.class.getResourceAsStream("/test-vectors/" + fileName)) {
+            if (is == null) {
+                throw new IllegalArgumentException("Test vectors not found: " + fileName);
+            }
+            Map<String, Object> root = new ObjectMapper().readValue(is, Map.class);
+            this.data = (List<Map<String, Map<String, String>>>) root.get("data");
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get number of test vectors.
+     * @return Number of test vectors.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Get input value of a test vector.
+     * @param index Test vector index.
+     * @param name Input value name.
+     * @return Input value.
+     */
+    public String input(int index, String name) {
+        return data.get(index).get("input").get(name);
+    }
+
+    /**
+     * Get Base64 decoded input value of a test vector.
+     * @param index Test vector index.
+     * @param name Input value name.
+     * @return Decoded input value.
+     */
+    public byte[] inputBytes(int index, String name) {
+        return BaseEncoding.base64().decode(input(index, name));
+    }
+
+    /**
+     * Get output value of a test vector.
+     * @param index Test vector index.
+     * @param name Output value name.
+     * @return Output value.
+     */
+    public String output(int index, String name) {
+        return data.get(index).get("output").get(name);
+    }
+
+    /**
+     * Get Base64 decoded output value of a test vector.
+     * @param index Test vector index.
+     * @param name Output value name.
+     * @return Decoded output value.
+     */
+    public byte[] outputBytes(int index, String name) {
+        return BaseEncoding.base64().decode(output(index, name));
+    }
+
+}
@@ -0,0 +1,372 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.rest.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentProducer;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.getlime.powerauth.soap.BlockActivationRequest;
+import io.getlime.powerauth.soap.BlockActivationResponse;
+import io.getlime.powerauth.soap.CommitActivationRequest;
+import io.getlime.powerauth.soap.CommitActivationResponse;
+import io.getlime.powerauth.soap.CreateApplicationRequest;
+import io.getlime.powerauth.soap.CreateApplicationResponse;
+import io.getlime.powerauth.soap.CreateApplicationVersionRequest;
+import io.getlime.powerauth.soap.CreateApplicationVersionResponse;
+import io.getlime.powerauth.soap.GetActivationListForUserRequest;
+import io.getlime.powerauth.soap.GetActivationListForUserResponse;
+import io.getlime.powerauth.soap.GetActivationStatusRequest;
+import io.getlime.powerauth.soap.GetActivationStatusResponse;
+import io.getlime.powerauth.soap.GetApplicationDetailRequest;
+import io.getlime.powerauth.soap.GetApplicationDetailResponse;
+import io.getlime.powerauth.soap.GetApplicationListRequest;
+import io.getlime.powerauth.soap.GetApplicationListResponse;
+import io.getlime.powerauth.soap.GetSystemStatusRequest;
+import io.getlime.powerauth.soap.GetSystemStatusResponse;
+import io.getlime.powerauth.soap.InitActivationRequest;
+import io.getlime.powerauth.soap.InitActivationResponse;
+import io.getlime.powerauth.soap.PrepareActivationRequest;
+import io.getlime.powerauth.soap.PrepareActivationResponse;
+import io.getlime.powerauth.soap.RemoveActivationRequest;
+import io.getlime.powerauth.soap.RemoveActivationResponse;
+import io.getlime.powerauth.soap.SignatureAuditRequest;
+import io.getlime.powerauth.soap.SignatureAuditResponse;
+import io.getlime.powerauth.soap.SupportApplicationVersionRequest;
+import io.getlime.powerauth.soap.SupportApplicationVersionResponse;
+import io.getlime.powerauth.soap.UnblockActivationRequest;
+import io.getlime.powerauth.soap.UnblockActivationResponse;
+import io.getlime.powerauth.soap.UnsupportApplicationVersionRequest;
+import io.getlime.powerauth.soap.UnsupportApplicationVersionResponse;
+import io.getlime.powerauth.soap.VaultUnlockRequest;
+import io.getlime.powerauth.soap.VaultUnlockResponse;
+import io.getlime.powerauth.soap.VerifySignatureBatchRequest;
+import io.getlime.powerauth.soap.VerifySignatureBatchResponse;
+import io.getlime.powerauth.soap.VerifySignatureRequest;
+import io.getlime.powerauth.soap.VerifySignatureResponse;
+import io.getlime.security.soap.client.PowerAuthServiceClient;
+
+/**
+ * Class implementing a PowerAuth 2.0 Server client calling the REST interface of the server instead of
+ * the SOAP interface. Methods are the same as in the {@link PowerAuthServiceClient}, so that this client
+ * can be used wherever the SOAP client is used. Requests are written to and responses are read from
+ * the HTTP connection as a JSON stream, without building an intermediate document.
+ * 
+ * @author Petr Dvorak
+ * 
+ */
+public class PowerAuthRestClient extends PowerAuthServiceClient {
+
+	private final String serviceUrl;
+
+	private final HttpClient httpClient;
+
+	private final ObjectMapper objectMapper;
+
+	private final JavaType errorResponseType;
+
+	/**
+	 * Create a new REST client.
+	 * @param serviceUrl Base URL of the PowerAuth 2.0 Server REST interface, for example
+	 * "http://localhost:8080/powerauth-java-server/rest/pa".
+	 * @param httpClient HTTP client used to call the server, preferably with a connection pool.
+	 */
+	public PowerAuthRestClient(String serviceUrl, HttpClient httpClient) {
+		this.serviceUrl = serviceUrl.endsWith("/") ? serviceUrl.substring(0, serviceUrl.length() - 1) : serviceUrl;
+		this.httpClient = httpClient;
+		this.objectMapper = new ObjectMapper();
+		// Generated model classes do not use bean style getters for optional boolean values
+		this.objectMapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+		this.objectMapper.setSerializationInclusion(Include.NON_NULL);
+		this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		this.objectMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		this.errorResponseType = objectMapper.getTypeFactory().constructParametrizedType(RESTResponseWrapper.class, RESTResponseWrapper.class,
+				objectMapper.getTypeFactory().constructCollectionType(List.class, RESTErrorModel.class));
+	}
+
+	/**
+	 * Call given method of the PowerAuth 2.0 Server REST interface.
+	 * @param path Path of the method relative to the service URL.
+	 * @param request Request object.
+	 * @param responseClass Class of the response object.
+	 * @return Response object.
+	 * @throws PowerAuthRestClientException In case the server returns an error or the call fails.
+	 */
+	protected <T> T call(String path, final Object request, Class<T> responseClass) {
+		HttpPost httpPost = new HttpPost(serviceUrl + path);
+		EntityTemplate requestEntity = new EntityTemplate(new ContentProducer() {
+			@Override
+			public void writeTo(OutputStream outputStream) throws IOException {
+				JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+				generator.writeStartObject();
+				generator.writeFieldName("requestObject");
+				objectMapper.writeValue(generator, request);
+				generator.writeEndObject();
+				generator.close();
+			}
+		});
+		requestEntity.setContentType(ContentType.APPLICATION_JSON.toString());
+		httpPost.setEntity(requestEntity);
+
+		HttpEntity responseEntity = null;
+		try {
+			HttpResponse httpResponse = httpClient.execute(httpPost);
+			responseEntity = httpResponse.getEntity();
+			int statusCode = httpResponse.getStatusLine().getStatusCode();
+			if (responseEntity == null) {
+				throw new PowerAuthRestClientException("Empty response, HTTP status: " + statusCode);
+			}
+			try (InputStream inputStream = responseEntity.getContent()) {
+				if (statusCode == HttpStatus.SC_OK) {
+					JavaType responseType = objectMapper.getTypeFactory().constructParametrizedType(RESTResponseWrapper.class, RESTResponseWrapper.class, responseClass);
+					RESTResponseWrapper<T> response = objectMapper.readValue(inputStream, responseType);
+					return response.getResponseObject();
+				} else if (statusCode == HttpStatus.SC_BAD_REQUEST) {
+					RESTResponseWrapper<List<RESTErrorModel>> response = objectMapper.readValue(inputStream, errorResponseType);
+					List<RESTErrorModel> errors = response.getResponseObject();
+					if (errors != null && !errors.isEmpty()) {
+						throw new PowerAuthRestClientException(errors.get(0).getCode(), errors.get(0).getMessage());
+					}
+				}
+				throw new PowerAuthRestClientException("Unexpected response, HTTP status: " + statusCode);
+			}
+		} catch (IOException ex) {
+			throw new PowerAuthRestClientException(ex.getMessage(), ex);
+		} finally {
+			EntityUtils.consumeQuietly(responseEntity);
+		}
+	}
+
+	/**
+	 * Call the getSystemStatus method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link GetSystemStatusRequest} instance.
+	 * @return {@link GetSystemStatusResponse}
+	 */
+	@Override
+	public GetSystemStatusResponse initActivation(GetSystemStatusRequest request) {
+		return call("/status", request, GetSystemStatusResponse.class);
+	}
+
+	/**
+	 * Call the getSystemStatus method of the PowerAuth 2.0 Server REST interface.
+	 * @return {@link GetSystemStatusResponse}
+	 */
+	@Override
+	public GetSystemStatusResponse initActivation() {
+		return this.initActivation(new GetSystemStatusRequest());
+	}
+
+	/**
+	 * Call the initActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link InitActivationRequest} instance.
+	 * @return {@link InitActivationResponse}
+	 */
+	@Override
+	public InitActivationResponse initActivation(InitActivationRequest request) {
+		return call("/activation/init", request, InitActivationResponse.class);
+	}
+
+	/**
+	 * Call the prepareActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link PrepareActivationRequest} instance.
+	 * @return {@link PrepareActivationResponse}
+	 */
+	@Override
+	public PrepareActivationResponse prepareActivation(PrepareActivationRequest request) {
+		return call("/activation/prepare", request, PrepareActivationResponse.class);
+	}
+
+	/**
+	 * Call the commitActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link CommitActivationRequest} instance.
+	 * @return {@link CommitActivationResponse}
+	 */
+	@Override
+	public CommitActivationResponse commitActivation(CommitActivationRequest request) {
+		return call("/activation/commit", request, CommitActivationResponse.class);
+	}
+
+	/**
+	 * Call the getActivationStatus method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link GetActivationStatusRequest} instance.
+	 * @return {@link GetActivationStatusResponse}
+	 */
+	@Override
+	public GetActivationStatusResponse getActivationStatus(GetActivationStatusRequest request) {
+		return call("/activation/status", request, GetActivationStatusResponse.class);
+	}
+
+	/**
+	 * Call the getActivationListForUser method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link GetActivationListForUserRequest} instance.
+	 * @return {@link GetActivationListForUserResponse}
+	 */
+	@Override
+	public GetActivationListForUserResponse getActivationListForUser(GetActivationListForUserRequest request) {
+		return call("/activation/list", request, GetActivationListForUserResponse.class);
+	}
+
+	/**
+	 * Call the removeActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link RemoveActivationRequest} instance.
+	 * @return {@link RemoveActivationResponse}
+	 */
+	@Override
+	public RemoveActivationResponse removeActivation(RemoveActivationRequest request) {
+		return call("/activation/remove", request, RemoveActivationResponse.class);
+	}
+
+	/**
+	 * Call the blockActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link BlockActivationRequest} instance.
+	 * @return {@link BlockActivationResponse}
+	 */
+	@Override
+	public BlockActivationResponse blockActivation(BlockActivationRequest request) {
+		return call("/activation/block", request, BlockActivationResponse.class);
+	}
+
+	/**
+	 * Call the unblockActivation method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link UnblockActivationRequest} instance.
+	 * @return {@link UnblockActivationResponse}
+	 */
+	@Override
+	public UnblockActivationResponse unblockActivation(UnblockActivationRequest request) {
+		return call("/activation/unblock", request, UnblockActivationResponse.class);
+	}
+
+	/**
+	 * Call the vaultUnlock method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link VaultUnlockRequest} instance.
+	 * @return {@link VaultUnlockResponse}
+	 */
+	@Override
+	public VaultUnlockResponse unlockVault(VaultUnlockRequest request) {
+		return call("/vault/unlock", request, VaultUnlockResponse.class);
+	}
+
+	/**
+	 * Call the verifySignature method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link VerifySignatureRequest} instance.
+	 * @return {@link VerifySignatureResponse}
+	 */
+	@Override
+	public VerifySignatureResponse verifySignature(VerifySignatureRequest request) {
+		return call("/signature/verify", request, VerifySignatureResponse.class);
+	}
+
+	/**
+	 * Call the verifySignatureBatch method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link VerifySignatureBatchRequest} instance.
+	 * @return {@link VerifySignatureBatchResponse}
+	 */
+	@Override
+	public VerifySignatureBatchResponse verifySignatureBatch(VerifySignatureBatchRequest request) {
+		return call("/signature/verify/batch", request, VerifySignatureBatchResponse.class);
+	}
+
+	/**
+	 * Call the getSignatureAuditLog method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link SignatureAuditRequest} instance.
+	 * @return {@link SignatureAuditResponse}
+	 */
+	@Override
+	public SignatureAuditResponse getSignatureAuditLog(SignatureAuditRequest request) {
+		return call("/signature/list", request, SignatureAuditResponse.class);
+	}
+
+	/**
+	 * Call the getApplicationList method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link GetApplicationListRequest} instance.
+	 * @return {@link GetApplicationListResponse}
+	 */
+	@Override
+	public GetApplicationListResponse getApplicationList(GetApplicationListRequest request) {
+		return call("/application/list", request, GetApplicationListResponse.class);
+	}
+
+	/**
+	 * Call the getApplicationDetail method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link GetApplicationDetailRequest} instance.
+	 * @return {@link GetApplicationDetailResponse}
+	 */
+	@Override
+	public GetApplicationDetailResponse getApplicationDetail(GetApplicationDetailRequest request) {
+		return call("/application/detail", request, GetApplicationDetailResponse.class);
+	}
+
+	/**
+	 * Call the createApplication method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link CreateApplicationRequest} instance.
+	 * @return {@link CreateApplicationResponse}
+	 */
+	@Override
+	public CreateApplicationResponse createApplication(CreateApplicationRequest request) {
+		return call("/application/create", request, CreateApplicationResponse.class);
+	}
+
+	/**
+	 * Call the createApplicationVersion method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link CreateApplicationVersionRequest} instance.
+	 * @return {@link CreateApplicationVersionResponse}
+	 */
+	@Override
+	public CreateApplicationVersionResponse createApplicationVersion(CreateApplicationVersionRequest request) {
+		return call("/application/version/create", request, CreateApplicationVersionResponse.class);
+	}
+
+	/**
+	 * Call the unsupportApplicationVersion method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link UnsupportApplicationVersionRequest} instance.
+	 * @return {@link UnsupportApplicationVersionResponse}
+	 */
+	@Override
+	public UnsupportApplicationVersionResponse unsupportApplicationVersion(UnsupportApplicationVersionRequest request) {
+		return call("/application/version/unsupport", request, UnsupportApplicationVersionResponse.class);
+	}
+
+	/**
+	 * Call the supportApplicationVersion method of the PowerAuth 2.0 Server REST interface.
+	 * @param request {@link SupportApplicationVersionRequest} instance.
+	 * @return {@link SupportApplicationVersionResponse}
+	 */
+	@Override
+	public SupportApplicationVersionResponse supportApplicationVersion(SupportApplicationVersionRequest request) {
+		return call("/application/version/support", request, SupportApplicationVersionResponse.class);
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.rest.client;
+
+/**
+ * Exception raised in case a call of the PowerAuth 2.0 Server REST interface fails, either because
+ * the server returned an error or because of a communication error.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public class PowerAuthRestClientException extends RuntimeException {
+
+	private static final long serialVersionUID = -5489622371924566343L;
+
+	private final String code;
+
+	/**
+	 * Create a new exception for an error returned by the server.
+	 * @param code Error code.
+	 * @param message Error message.
+	 */
+	public PowerAuthRestClientException(String code, String message) {
+		super(message);
+		this.code = code;
+	}
+
+	/**
+	 * Create a new exception for an unexpected response of the server.
+	 * @param message Error message.
+	 */
+	public PowerAuthRestClientException(String message) {
+		super(message);
+		this.code = null;
+	}
+
+	/**
+	 * Create a new exception for a communication error.
+	 * @param message Error message.
+	 * @param cause Cause of the error.
+	 */
+	public PowerAuthRestClientException(String message, Throwable cause) {
+		super(message, cause);
+		this.code = null;
+	}
+
+	/**
+	 * Get the error code returned by the server.
+	 * @return Error code, or null in case the server did not return an error code.
+	 */
+	public String getCode() {
+		return code;
+	}
+
+}
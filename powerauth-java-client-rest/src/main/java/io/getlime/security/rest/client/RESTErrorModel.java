@@ -0,0 +1,80 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.rest.client;
+
+/**
+ * Error returned by the PowerAuth 2.0 Server REST interface.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public class RESTErrorModel {
+
+	private String code;
+
+	private String message;
+
+	private String localizedMessage;
+
+	/**
+	 * Get the error code.
+	 * @return Error code.
+	 */
+	public String getCode() {
+		return code;
+	}
+
+	/**
+	 * Set the error code.
+	 * @param code Error code.
+	 */
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	/**
+	 * Get the error message.
+	 * @return Error message.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Set the error message.
+	 * @param message Error message.
+	 */
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * Get the localized error message.
+	 * @return Localized error message.
+	 */
+	public String getLocalizedMessage() {
+		return localizedMessage;
+	}
+
+	/**
+	 * Set the localized error message.
+	 * @param localizedMessage Localized error message.
+	 */
+	public void setLocalizedMessage(String localizedMessage) {
+		this.localizedMessage = localizedMessage;
+	}
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.rest.client;
+
+/**
+ * Response object of the PowerAuth 2.0 Server REST interface.
+ * 
+ * @author Petr Dvorak
+ *
+ * @param <T> Type of the response object.
+ */
+public class RESTResponseWrapper<T> {
+
+	private String status;
+
+	private T responseObject;
+
+	/**
+	 * Get the response status, "OK" or "ERROR".
+	 * @return Response status.
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * Set the response status.
+	 * @param status Response status.
+	 */
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	/**
+	 * Get the response object.
+	 * @return Response object.
+	 */
+	public T getResponseObject() {
+		return responseObject;
+	}
+
+	/**
+	 * Set the response object.
+	 * @param responseObject Response object.
+	 */
+	public void setResponseObject(T responseObject) {
+		this.responseObject = responseObject;
+	}
+
+}
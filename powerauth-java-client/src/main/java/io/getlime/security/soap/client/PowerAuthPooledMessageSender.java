@@ -0,0 +1,123 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.soap.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.ws.transport.http.HttpComponentsMessageSender;
+
+/**
+ * SOAP message sender keeping a pool of persistent HTTP connections to the PowerAuth 2.0 Server, so that
+ * the connection is not opened for every SOAP service call. Idle connections are kept alive for at most
+ * given keep-alive timeout, or shorter in case the server requests so. Utilization of the pool is exposed
+ * as managed attributes.
+ * 
+ * @author Petr Dvorak
+ * 
+ */
+@ManagedResource(description = "PowerAuth 2.0 Server HTTP connection pool")
+public class PowerAuthPooledMessageSender extends HttpComponentsMessageSender {
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+
+	/**
+	 * Create a new message sender with a connection pool.
+	 * @param maxConnections Maximum number of connections in the pool.
+	 * @param maxConnectionsPerRoute Maximum number of connections to a single server.
+	 * @param connectTimeout Timeout for opening a connection in milliseconds, zero means no timeout.
+	 * @param readTimeout Timeout for reading the response data in milliseconds, zero means no timeout.
+	 * @param keepAliveTimeout Maximum time an idle connection is kept in the pool in milliseconds.
+	 */
+	public PowerAuthPooledMessageSender(int maxConnections, int maxConnectionsPerRoute, int connectTimeout, int readTimeout, long keepAliveTimeout) {
+		this(createConnectionManager(maxConnections, maxConnectionsPerRoute), connectTimeout, readTimeout, keepAliveTimeout);
+	}
+
+	private PowerAuthPooledMessageSender(PoolingHttpClientConnectionManager connectionManager, int connectTimeout, int readTimeout, final long keepAliveTimeout) {
+		super(HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectTimeout(connectTimeout)
+						.setConnectionRequestTimeout(connectTimeout)
+						.setSocketTimeout(readTimeout)
+						.build())
+				.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+					@Override
+					public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+						long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+						return duration > 0 ? Math.min(duration, keepAliveTimeout) : keepAliveTimeout;
+					}
+				})
+				.evictExpiredConnections()
+				.evictIdleConnections(keepAliveTimeout, TimeUnit.MILLISECONDS)
+				// SOAP message sender sets the Content-Length header itself
+				.addInterceptorFirst(new HttpComponentsMessageSender.RemoveSoapHeadersInterceptor())
+				.build());
+		this.connectionManager = connectionManager;
+	}
+
+	private static PoolingHttpClientConnectionManager createConnectionManager(int maxConnections, int maxConnectionsPerRoute) {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		return connectionManager;
+	}
+
+	/**
+	 * Get the maximum number of connections in the pool.
+	 * @return Maximum number of connections.
+	 */
+	@ManagedAttribute(description = "Maximum number of connections")
+	public int getMaxConnections() {
+		return connectionManager.getTotalStats().getMax();
+	}
+
+	/**
+	 * Get the number of connections currently used by a SOAP service call.
+	 * @return Number of leased connections.
+	 */
+	@ManagedAttribute(description = "Number of connections in use")
+	public int getLeasedConnections() {
+		return connectionManager.getTotalStats().getLeased();
+	}
+
+	/**
+	 * Get the number of idle connections kept alive in the pool.
+	 * @return Number of available connections.
+	 */
+	@ManagedAttribute(description = "Number of idle connections")
+	public int getAvailableConnections() {
+		return connectionManager.getTotalStats().getAvailable();
+	}
+
+	/**
+	 * Get the number of SOAP service calls waiting for a connection.
+	 * @return Number of pending requests.
+	 */
+	@ManagedAttribute(description = "Number of calls waiting for a connection")
+	public int getPendingRequests() {
+		return connectionManager.getTotalStats().getPending();
+	}
+
+}
@@ -0,0 +1,410 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.soap.client;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import io.getlime.powerauth.soap.BlockActivationRequest;
+import io.getlime.powerauth.soap.BlockActivationResponse;
+import io.getlime.powerauth.soap.CommitActivationRequest;
+import io.getlime.powerauth.soap.CommitActivationResponse;
+import io.getlime.powerauth.soap.CreateApplicationRequest;
+import io.getlime.powerauth.soap.CreateApplicationResponse;
+import io.getlime.powerauth.soap.CreateApplicationVersionRequest;
+import io.getlime.powerauth.soap.CreateApplicationVersionResponse;
+import io.getlime.powerauth.soap.GetActivationListForUserRequest;
+import io.getlime.powerauth.soap.GetActivationListForUserResponse;
+import io.getlime.powerauth.soap.GetActivationStatusRequest;
+import io.getlime.powerauth.soap.GetActivationStatusResponse;
+import io.getlime.powerauth.soap.GetApplicationDetailRequest;
+import io.getlime.powerauth.soap.GetApplicationDetailResponse;
+import io.getlime.powerauth.soap.GetApplicationListRequest;
+import io.getlime.powerauth.soap.GetApplicationListResponse;
+import io.getlime.powerauth.soap.GetSystemStatusRequest;
+import io.getlime.powerauth.soap.GetSystemStatusResponse;
+import io.getlime.powerauth.soap.InitActivationRequest;
+import io.getlime.powerauth.soap.InitActivationResponse;
+import io.getlime.powerauth.soap.PrepareActivationRequest;
+import io.getlime.powerauth.soap.PrepareActivationResponse;
+import io.getlime.powerauth.soap.RemoveActivationRequest;
+import io.getlime.powerauth.soap.RemoveActivationResponse;
+import io.getlime.powerauth.soap.SignatureAuditRequest;
+import io.getlime.powerauth.soap.SignatureAuditResponse;
+import io.getlime.powerauth.soap.SupportApplicationVersionRequest;
+import io.getlime.powerauth.soap.SupportApplicationVersionResponse;
+import io.getlime.powerauth.soap.UnblockActivationRequest;
+import io.getlime.powerauth.soap.UnblockActivationResponse;
+import io.getlime.powerauth.soap.UnsupportApplicationVersionRequest;
+import io.getlime.powerauth.soap.UnsupportApplicationVersionResponse;
+import io.getlime.powerauth.soap.VaultUnlockRequest;
+import io.getlime.powerauth.soap.VaultUnlockResponse;
+import io.getlime.powerauth.soap.VerifySignatureBatchRequest;
+import io.getlime.powerauth.soap.VerifySignatureBatchResponse;
+import io.getlime.powerauth.soap.VerifySignatureRequest;
+import io.getlime.powerauth.soap.VerifySignatureResponse;
+
+/**
+ * Asynchronous variant of the {@link PowerAuthServiceClient}. Every call is submitted to the provided
+ * task executor and returns immediately with a future of the SOAP response, so that the calling thread
+ * is not blocked while waiting for the PowerAuth 2.0 Server. The number of concurrently running calls
+ * and the number of calls waiting for execution are limited by the configuration of the executor.
+ * 
+ * @author Petr Dvorak
+ * 
+ */
+public class PowerAuthServiceAsyncClient {
+
+	private final PowerAuthServiceClient client;
+
+	private final AsyncListenableTaskExecutor taskExecutor;
+
+	/**
+	 * Create a new asynchronous client.
+	 * @param client Synchronous client used to call the PowerAuth 2.0 Server SOAP interface.
+	 * @param taskExecutor Executor running the calls.
+	 */
+	public PowerAuthServiceAsyncClient(PowerAuthServiceClient client, AsyncListenableTaskExecutor taskExecutor) {
+		this.client = client;
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Get the synchronous client used by this client.
+	 * @return Synchronous client.
+	 */
+	public PowerAuthServiceClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Asynchronously call the getSystemStatus method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link GetSystemStatusRequest} instance.
+	 * @return Future of the {@link GetSystemStatusResponse}.
+	 */
+	public ListenableFuture<GetSystemStatusResponse> getSystemStatus(final GetSystemStatusRequest request) {
+		return taskExecutor.submitListenable(new Callable<GetSystemStatusResponse>() {
+			@Override
+			public GetSystemStatusResponse call() throws Exception {
+				return client.initActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the initActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link InitActivationRequest} instance.
+	 * @return Future of the {@link InitActivationResponse}.
+	 */
+	public ListenableFuture<InitActivationResponse> initActivation(final InitActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<InitActivationResponse>() {
+			@Override
+			public InitActivationResponse call() throws Exception {
+				return client.initActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the prepareActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link PrepareActivationRequest} instance.
+	 * @return Future of the {@link PrepareActivationResponse}.
+	 */
+	public ListenableFuture<PrepareActivationResponse> prepareActivation(final PrepareActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<PrepareActivationResponse>() {
+			@Override
+			public PrepareActivationResponse call() throws Exception {
+				return client.prepareActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the commitActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link CommitActivationRequest} instance.
+	 * @return Future of the {@link CommitActivationResponse}.
+	 */
+	public ListenableFuture<CommitActivationResponse> commitActivation(final CommitActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<CommitActivationResponse>() {
+			@Override
+			public CommitActivationResponse call() throws Exception {
+				return client.commitActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the getActivationStatus method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link GetActivationStatusRequest} instance.
+	 * @return Future of the {@link GetActivationStatusResponse}.
+	 */
+	public ListenableFuture<GetActivationStatusResponse> getActivationStatus(final GetActivationStatusRequest request) {
+		return taskExecutor.submitListenable(new Callable<GetActivationStatusResponse>() {
+			@Override
+			public GetActivationStatusResponse call() throws Exception {
+				return client.getActivationStatus(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the getActivationStatus method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param activationId Activation Id to lookup information for.
+	 * @return Future of the {@link GetActivationStatusResponse}.
+	 */
+	public ListenableFuture<GetActivationStatusResponse> getActivationStatus(String activationId) {
+		GetActivationStatusRequest request = new GetActivationStatusRequest();
+		request.setActivationId(activationId);
+		return this.getActivationStatus(request);
+	}
+
+	/**
+	 * Asynchronously call the getActivationListForUser method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link GetActivationListForUserRequest} instance.
+	 * @return Future of the {@link GetActivationListForUserResponse}.
+	 */
+	public ListenableFuture<GetActivationListForUserResponse> getActivationListForUser(final GetActivationListForUserRequest request) {
+		return taskExecutor.submitListenable(new Callable<GetActivationListForUserResponse>() {
+			@Override
+			public GetActivationListForUserResponse call() throws Exception {
+				return client.getActivationListForUser(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the removeActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link RemoveActivationRequest} instance.
+	 * @return Future of the {@link RemoveActivationResponse}.
+	 */
+	public ListenableFuture<RemoveActivationResponse> removeActivation(final RemoveActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<RemoveActivationResponse>() {
+			@Override
+			public RemoveActivationResponse call() throws Exception {
+				return client.removeActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the blockActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link BlockActivationRequest} instance.
+	 * @return Future of the {@link BlockActivationResponse}.
+	 */
+	public ListenableFuture<BlockActivationResponse> blockActivation(final BlockActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<BlockActivationResponse>() {
+			@Override
+			public BlockActivationResponse call() throws Exception {
+				return client.blockActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the unblockActivation method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link UnblockActivationRequest} instance.
+	 * @return Future of the {@link UnblockActivationResponse}.
+	 */
+	public ListenableFuture<UnblockActivationResponse> unblockActivation(final UnblockActivationRequest request) {
+		return taskExecutor.submitListenable(new Callable<UnblockActivationResponse>() {
+			@Override
+			public UnblockActivationResponse call() throws Exception {
+				return client.unblockActivation(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the vaultUnlock method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link VaultUnlockRequest} instance.
+	 * @return Future of the {@link VaultUnlockResponse}.
+	 */
+	public ListenableFuture<VaultUnlockResponse> unlockVault(final VaultUnlockRequest request) {
+		return taskExecutor.submitListenable(new Callable<VaultUnlockResponse>() {
+			@Override
+			public VaultUnlockResponse call() throws Exception {
+				return client.unlockVault(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the vaultUnlock method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param activationId Activation Id of an activation to be used for authentication.
+	 * @param applicationKey Application Key of an application related to the activation.
+	 * @param data Data to be signed encoded in format as specified by PowerAuth 2.0 data normalization.
+	 * @param signature Vault opening request signature.
+	 * @param signatureType Vault opening request signature type.
+	 * @return Future of the {@link VaultUnlockResponse}.
+	 */
+	public ListenableFuture<VaultUnlockResponse> unlockVault(String activationId, String applicationKey, String data, String signature, String signatureType) {
+		VaultUnlockRequest request = new VaultUnlockRequest();
+		request.setActivationId(activationId);
+		request.setApplicationKey(applicationKey);
+		request.setData(data);
+		request.setSignature(signature);
+		request.setSignatureType(signatureType);
+		return this.unlockVault(request);
+	}
+
+	/**
+	 * Asynchronously call the verifySignature method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link VerifySignatureRequest} instance.
+	 * @return Future of the {@link VerifySignatureResponse}.
+	 */
+	public ListenableFuture<VerifySignatureResponse> verifySignature(final VerifySignatureRequest request) {
+		return taskExecutor.submitListenable(new Callable<VerifySignatureResponse>() {
+			@Override
+			public VerifySignatureResponse call() throws Exception {
+				return client.verifySignature(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the verifySignature method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param activationId Activation ID of activation to be used for authentication.
+	 * @param applicationKey Application Key of an application related to the activation.
+	 * @param data Data to be signed encoded in format as specified by PowerAuth 2.0 data normalization.
+	 * @param signature Request signature.
+	 * @param signatureType Request signature type.
+	 * @return Future of the {@link VerifySignatureResponse}.
+	 */
+	public ListenableFuture<VerifySignatureResponse> verifySignature(String activationId, String applicationKey, String data, String signature, String signatureType) {
+		VerifySignatureRequest request = new VerifySignatureRequest();
+		request.setActivationId(activationId);
+		request.setApplicationKey(applicationKey);
+		request.setData(data);
+		request.setSignature(signature);
+		request.setSignatureType(signatureType);
+		return this.verifySignature(request);
+	}
+
+	/**
+	 * Asynchronously call the verifySignatureBatch method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link VerifySignatureBatchRequest} instance.
+	 * @return Future of the {@link VerifySignatureBatchResponse}.
+	 */
+	public ListenableFuture<VerifySignatureBatchResponse> verifySignatureBatch(final VerifySignatureBatchRequest request) {
+		return taskExecutor.submitListenable(new Callable<VerifySignatureBatchResponse>() {
+			@Override
+			public VerifySignatureBatchResponse call() throws Exception {
+				return client.verifySignatureBatch(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the getSignatureAuditLog method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link SignatureAuditRequest} instance.
+	 * @return Future of the {@link SignatureAuditResponse}.
+	 */
+	public ListenableFuture<SignatureAuditResponse> getSignatureAuditLog(final SignatureAuditRequest request) {
+		return taskExecutor.submitListenable(new Callable<SignatureAuditResponse>() {
+			@Override
+			public SignatureAuditResponse call() throws Exception {
+				return client.getSignatureAuditLog(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the getApplicationList method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link GetApplicationListRequest} instance.
+	 * @return Future of the {@link GetApplicationListResponse}.
+	 */
+	public ListenableFuture<GetApplicationListResponse> getApplicationList(final GetApplicationListRequest request) {
+		return taskExecutor.submitListenable(new Callable<GetApplicationListResponse>() {
+			@Override
+			public GetApplicationListResponse call() throws Exception {
+				return client.getApplicationList(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the getApplicationDetail method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link GetApplicationDetailRequest} instance.
+	 * @return Future of the {@link GetApplicationDetailResponse}.
+	 */
+	public ListenableFuture<GetApplicationDetailResponse> getApplicationDetail(final GetApplicationDetailRequest request) {
+		return taskExecutor.submitListenable(new Callable<GetApplicationDetailResponse>() {
+			@Override
+			public GetApplicationDetailResponse call() throws Exception {
+				return client.getApplicationDetail(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the createApplication method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link CreateApplicationRequest} instance.
+	 * @return Future of the {@link CreateApplicationResponse}.
+	 */
+	public ListenableFuture<CreateApplicationResponse> createApplication(final CreateApplicationRequest request) {
+		return taskExecutor.submitListenable(new Callable<CreateApplicationResponse>() {
+			@Override
+			public CreateApplicationResponse call() throws Exception {
+				return client.createApplication(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the createApplicationVersion method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link CreateApplicationVersionRequest} instance.
+	 * @return Future of the {@link CreateApplicationVersionResponse}.
+	 */
+	public ListenableFuture<CreateApplicationVersionResponse> createApplicationVersion(final CreateApplicationVersionRequest request) {
+		return taskExecutor.submitListenable(new Callable<CreateApplicationVersionResponse>() {
+			@Override
+			public CreateApplicationVersionResponse call() throws Exception {
+				return client.createApplicationVersion(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the unsupportApplicationVersion method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link UnsupportApplicationVersionRequest} instance.
+	 * @return Future of the {@link UnsupportApplicationVersionResponse}.
+	 */
+	public ListenableFuture<UnsupportApplicationVersionResponse> unsupportApplicationVersion(final UnsupportApplicationVersionRequest request) {
+		return taskExecutor.submitListenable(new Callable<UnsupportApplicationVersionResponse>() {
+			@Override
+			public UnsupportApplicationVersionResponse call() throws Exception {
+				return client.unsupportApplicationVersion(request);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously call the supportApplicationVersion method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link SupportApplicationVersionRequest} instance.
+	 * @return Future of the {@link SupportApplicationVersionResponse}.
+	 */
+	public ListenableFuture<SupportApplicationVersionResponse> supportApplicationVersion(final SupportApplicationVersionRequest request) {
+		return taskExecutor.submitListenable(new Callable<SupportApplicationVersionResponse>() {
+			@Override
+			public SupportApplicationVersionResponse call() throws Exception {
+				return client.supportApplicationVersion(request);
+			}
+		});
+	}
+
+}
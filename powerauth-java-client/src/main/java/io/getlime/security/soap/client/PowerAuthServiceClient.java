@@ -61,6 +61,8 @@ import io.getlime.powerauth.soap.UnsupportApplicationVersionRequest;
 import io.getlime.powerauth.soap.UnsupportApplicationVersionResponse;
 import io.getlime.powerauth.soap.VaultUnlockRequest;
 import io.getlime.powerauth.soap.VaultUnlockResponse;
+import io.getlime.powerauth.soap.VerifySignatureBatchRequest;
+import io.getlime.powerauth.soap.VerifySignatureBatchResponse;
 import io.getlime.powerauth.soap.VerifySignatureRequest;
 import io.getlime.powerauth.soap.VerifySignatureResponse;
 
@@ -358,6 +360,26 @@ public class PowerAuthServiceClient extends WebServiceGatewaySupport {
 		return this.verifySignature(request);
 	}
 	
+	/**
+	 * Call the verifySignatureBatch method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param request {@link VerifySignatureBatchRequest} instance.
+	 * @return {@link VerifySignatureBatchResponse}
+	 */
+	public VerifySignatureBatchResponse verifySignatureBatch(VerifySignatureBatchRequest request) {
+		return (VerifySignatureBatchResponse) getWebServiceTemplate().marshalSendAndReceive(request);
+	}
+	
+	/**
+	 * Call the verifySignatureBatch method of the PowerAuth 2.0 Server SOAP interface.
+	 * @param requests List of independent {@link VerifySignatureRequest} instances.
+	 * @return List of signature verification results, in the order of the requests.
+	 */
+	public List<VerifySignatureResponse> verifySignatureBatch(List<VerifySignatureRequest> requests) {
+		VerifySignatureBatchRequest request = new VerifySignatureBatchRequest();
+		request.getVerifySignatureRequest().addAll(requests);
+		return this.verifySignatureBatch(request).getVerifySignatureResponse();
+	}
+	
 	/**
 	 * Call the getSignatureAuditLog method of the PowerAuth 2.0 Server SOAP interface.
 	 * @param request {@link SignatureAuditRequest} instance.
@@ -86,6 +86,7 @@ public class Application implements CommandLineRunner {
 			options.addOption("e", "endpoint", true, "In case a specified method is 'sign', this field specifies a URI identifier, as specified in PowerAuth signature process.");
 			options.addOption("l", "signature-type", true, "In case a specified method is 'sign', this field specifies a signature type, as specified in PowerAuth signature process.");
 			options.addOption("d", "data-file", true, "In case a specified method is 'sign', this field specifies a file with the input data to be signed and verified with the server, as specified in PowerAuth signature process.");
+			options.addOption("q", "sign-get-query", false, "In case a specified method is 'sign' and HTTP method is 'GET', sign the canonized query parameters instead of empty data. The server must have the canonized query signing enabled.");
 			options.addOption("p", "password", true, "Password used for a knowledge related key encryption. If not specified, an interactive input is required.");
 			options.addOption("i", "invalidSsl", false, "Client may accept invalid SSL certificate in HTTPS communication.");
 
@@ -215,6 +216,7 @@ public class Application implements CommandLineRunner {
 				context.put("ENDPOINT", cmd.getOptionValue("e"));
 				context.put("SIGNATURE_TYPE", cmd.getOptionValue("l"));
 				context.put("DATA_FILE_NAME", cmd.getOptionValue("d"));
+				context.put("SIGN_GET_QUERY", cmd.hasOption("q"));
 				context.put("PASSWORD", cmd.getOptionValue("p"));
 
 				VerifySignatureStep.execute(context);
@@ -18,6 +18,7 @@ package io.getlime.security.client.app.steps;
 import java.io.Console;
 import java.io.FileWriter;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Map;
@@ -45,6 +46,7 @@ import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
 import io.getlime.security.powerauth.lib.generator.KeyGenerator;
 import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpBody;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpHeader;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthRequestCanonizationUtils;
@@ -82,6 +84,7 @@ public class VerifySignatureStep {
 		String endpoint = (String)context.get("ENDPOINT");
 		String signatureType = (String)context.get("SIGNATURE_TYPE");
 		String dataFileName = (String)context.get("DATA_FILE_NAME");
+		boolean signGetQuery = Boolean.TRUE.equals(context.get("SIGN_GET_QUERY"));
 		String passwordProvided = (String)context.get("PASSWORD");
 		
 		System.out.println("### PowerAuth 2.0 Client Signature Verification");
@@ -121,13 +124,16 @@ public class VerifySignatureStep {
 		// Construct the signature base string data part based on HTTP method (GET requires different code).
 		byte[] dataFileBytes = null;
 		if (HttpMethod.GET.equals(httpMethod)) {
-			String query = uri.getRawQuery();
-			String canonizedQuery = PowerAuthRequestCanonizationUtils.canonizeGetParameters(query);
-			if (canonizedQuery != null) {
-				dataFileBytes = canonizedQuery.getBytes("UTF-8");
-			} else {
-				System.out.println("[WARN] No GET query parameters found!");
-				System.out.println();
+			// GET requests are signed with empty data, unless the canonized query signing is requested
+			if (signGetQuery) {
+				String query = uri.getRawQuery();
+				String canonizedQuery = PowerAuthRequestCanonizationUtils.canonizeGetParameters(query);
+				if (canonizedQuery != null) {
+					dataFileBytes = canonizedQuery.getBytes("UTF-8");
+				} else {
+					System.out.println("[WARN] No GET query parameters found!");
+					System.out.println();
+				}
 			}
 		} else {	
 			// Read data input file
@@ -140,8 +146,8 @@ public class VerifySignatureStep {
 		}
 
 		// Compute the current PowerAuth 2.0 signature for possession and knowledge factor
-		String signatureBaseString = PowerAuthHttpBody.getSignatureBaseString(httpMethod.name().toUpperCase(), endpoint, pa_nonce, dataFileBytes) + "&" + applicationSecret;
-		String pa_signature = signature.signatureForData(signatureBaseString.getBytes("UTF-8"), keyFactory.keysForSignatureType(signatureType, signaturePossessionKey, signatureKnowledgeKey, signatureBiometryKey), counter);
+		PowerAuthSignatureBase signatureBase = PowerAuthHttpBody.getSignatureBase(httpMethod.name().toUpperCase(), endpoint, pa_nonce, dataFileBytes != null ? ByteBuffer.wrap(dataFileBytes) : null).append("&").append(applicationSecret);
+		String pa_signature = signature.signatureForData(signatureBase, keyFactory.keysForSignatureType(signatureType, signaturePossessionKey, signatureKnowledgeKey, signatureBiometryKey), counter);
 		String httpAuhtorizationHeader = PowerAuthHttpHeader.getPowerAuthSignatureHTTPHeader(activationId, applicationId, BaseEncoding.base64().encode(pa_nonce), PowerAuthSignatureTypes.getEnumFromString(signatureType).toString(), pa_signature, "2.0");
 
 		// Increment the counter
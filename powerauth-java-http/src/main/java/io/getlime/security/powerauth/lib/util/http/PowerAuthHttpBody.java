@@ -16,9 +16,12 @@
 package io.getlime.security.powerauth.lib.util.http;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 
 import com.google.common.io.BaseEncoding;
 
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
+
 /**
  * Helper class simplifying working with HTTP request body in context of PowerAuth protocol.
  * 
@@ -27,6 +30,12 @@ import com.google.common.io.BaseEncoding;
  */
 public class PowerAuthHttpBody {
 
+	/**
+	 * Size of the chunks of data encoded at once, must be a multiple of 3 so that no padding
+	 * is produced between the chunks.
+	 */
+	private static final int ENCODING_CHUNK_SIZE = 3 * 1024;
+
 	/**
 	 * Prepare signature base string ("data to be signed") using request parameters.
 	 * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
@@ -38,6 +47,21 @@ public class PowerAuthHttpBody {
 	 */
 	public static String getSignatureBaseString(String httpMethod, String requestUri, byte[] nonce, byte[] data)
 			throws UnsupportedEncodingException {
+		return getSignatureBaseStringForBuffer(httpMethod, requestUri, nonce, data != null ? ByteBuffer.wrap(data) : null);
+	}
+
+	/**
+	 * Prepare signature base string ("data to be signed") using request parameters. Request data are
+	 * encoded directly from the provided buffer, the buffer position is not changed.
+	 * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
+	 * @param requestUri Request URI identifier (for example "/secure/payment", or "SEC_PAYM" - structure of URI ID is lose, but the first approach is suggested)
+	 * @param nonce Random 16B nonce value.
+	 * @param data Request data.
+	 * @return PowerAuth signature base string.
+	 * @throws UnsupportedEncodingException In case UTF-8 is not supported on the system.
+	 */
+	public static String getSignatureBaseStringForBuffer(String httpMethod, String requestUri, byte[] nonce, ByteBuffer data)
+			throws UnsupportedEncodingException {
 
 		String requestUriHash = "";
 		if (requestUri != null) {
@@ -46,7 +70,7 @@ public class PowerAuthHttpBody {
 
 		String dataBase64 = "";
 		if (data != null) {
-			dataBase64 = BaseEncoding.base64().encode(data);
+			dataBase64 = encodeBase64(data);
 		}
 		
 		String nonceBase64 = "";
@@ -60,4 +84,49 @@ public class PowerAuthHttpBody {
 				+ "&" + dataBase64;
 	}
 
+	/**
+	 * Prepare signature base ("data to be signed") using request parameters. The result has exactly the
+	 * same bytes as the UTF-8 representation of {@link #getSignatureBaseStringForBuffer(String, String, byte[], ByteBuffer)},
+	 * but the components are encoded only while the signature base is fed to the HMAC, so that the request
+	 * data are never copied. The buffer content must not be modified while the signature base is in use.
+	 * @param httpMethod HTTP Method (for example "GET", "POST", "PUT", "DELETE", ...)
+	 * @param requestUri Request URI identifier (for example "/secure/payment", or "SEC_PAYM" - structure of URI ID is lose, but the first approach is suggested)
+	 * @param nonce Random 16B nonce value.
+	 * @param data Request data.
+	 * @return PowerAuth signature base.
+	 * @throws UnsupportedEncodingException In case UTF-8 is not supported on the system.
+	 */
+	public static PowerAuthSignatureBase getSignatureBase(String httpMethod, String requestUri, byte[] nonce, ByteBuffer data)
+			throws UnsupportedEncodingException {
+		return new PowerAuthSignatureBase()
+				.append(httpMethod != null ? httpMethod.toUpperCase() : "GET")
+				.append("&")
+				.appendBase64(requestUri != null ? requestUri.getBytes("UTF-8") : null)
+				.append("&")
+				.appendBase64(nonce)
+				.append("&")
+				.appendBase64(data);
+	}
+
+	/**
+	 * Encode remaining bytes of the buffer in Base64, without changing the buffer position.
+	 * @param data Buffer with the data.
+	 * @return Base64 encoded data.
+	 */
+	private static String encodeBase64(ByteBuffer data) {
+		BaseEncoding encoding = BaseEncoding.base64();
+		if (data.hasArray()) {
+			return encoding.encode(data.array(), data.arrayOffset() + data.position(), data.remaining());
+		}
+		ByteBuffer source = data.duplicate();
+		StringBuilder result = new StringBuilder((source.remaining() + 2) / 3 * 4);
+		byte[] chunk = new byte[Math.min(ENCODING_CHUNK_SIZE, source.remaining())];
+		while (source.hasRemaining()) {
+			int length = Math.min(chunk.length, source.remaining());
+			source.get(chunk, 0, length);
+			result.append(encoding.encode(chunk, 0, length));
+		}
+		return result.toString();
+	}
+
 }
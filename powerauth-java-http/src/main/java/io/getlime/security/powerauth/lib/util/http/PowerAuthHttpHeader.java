@@ -17,8 +17,6 @@ package io.getlime.security.powerauth.lib.util.http;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Helper class simplifying working with PowerAuth HTTP Authorization header "X-PowerAuth-Authorization".
@@ -65,31 +63,109 @@ public class PowerAuthHttpHeader {
 	
 	private static final String POWERAUTH_PREFIX = "PowerAuth ";
 
+	/**
+	 * Typical length of the header, used as the initial capacity of the header builder.
+	 */
+	private static final int HEADER_CAPACITY = 256;
+
 	/**
 	 * Parse the PowerAuth authorization header and return map with values.
 	 * @param xPowerAuthSignatureHeader HTTP header with PowerAuth authorization.
 	 * @return Map with parsed header values.
+	 * @see PowerAuthSignatureHeader#parse(String)
 	 */
 	public static Map<String, String> parsePowerAuthSignatureHTTPHeader(String xPowerAuthSignatureHeader) {
-		xPowerAuthSignatureHeader = xPowerAuthSignatureHeader.trim();
-		if (!xPowerAuthSignatureHeader.startsWith(POWERAUTH_PREFIX)) {
-			return new HashMap<>(); // invalid map with empty values works better than null here 
+		final Map<String, String> result = new HashMap<>(); // invalid map with empty values works better than null here
+		parseFields(xPowerAuthSignatureHeader, new FieldHandler() {
+			@Override
+			public void field(String header, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+				result.put(header.substring(keyStart, keyEnd), header.substring(valueStart, valueEnd));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Callback receiving the key / value pairs found in the header, as positions in the header string.
+	 */
+	interface FieldHandler {
+
+		void field(String header, int keyStart, int keyEnd, int valueStart, int valueEnd);
+
+	}
+
+	/**
+	 * Parse the PowerAuth authorization header in a single pass, without regular expressions and
+	 * without creating any intermediate strings. Keys consist of letters, digits and underscores,
+	 * values are either quoted, or end with a whitespace or a comma. Pairs with an empty value
+	 * and any other characters are skipped. In case the header does not have the PowerAuth prefix,
+	 * the handler receives no pairs.
+	 * @param header HTTP header with PowerAuth authorization.
+	 * @param handler Handler receiving the key / value pairs.
+	 */
+	static void parseFields(String header, FieldHandler handler) {
+		int start = 0;
+		int end = header.length();
+		while (start < end && header.charAt(start) <= ' ') {
+			start++;
 		}
-		xPowerAuthSignatureHeader = xPowerAuthSignatureHeader.substring(POWERAUTH_PREFIX.length()).trim();
-		
-		// Parse the key / value pairs
-		Map<String, String> result = new HashMap<>();
-		Pattern p = Pattern.compile("(\\w+)=\"*((?<=\")[^\"]+(?=\")|([^\\s]+)),*\"*");
-		Matcher m = p.matcher(xPowerAuthSignatureHeader);
-		while (m.find()) {
-		    result.put(m.group(1), m.group(2));
+		while (end > start && header.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (!header.startsWith(POWERAUTH_PREFIX, start)) {
+			return;
 		}
 
-		return result;
+		int position = start + POWERAUTH_PREFIX.length();
+		while (position < end) {
+			if (!isKeyCharacter(header.charAt(position))) {
+				position++;
+				continue;
+			}
+
+			// Read the key, it must be followed by '='
+			int keyStart = position;
+			while (position < end && isKeyCharacter(header.charAt(position))) {
+				position++;
+			}
+			int keyEnd = position;
+			if (position == end || header.charAt(position) != '=') {
+				continue;
+			}
+			position++;
+
+			// Read the quoted or plain value
+			int valueStart;
+			int valueEnd;
+			if (position < end && header.charAt(position) == '"') {
+				valueStart = ++position;
+				while (position < end && header.charAt(position) != '"') {
+					position++;
+				}
+				valueEnd = position;
+				if (position < end) {
+					position++;
+				}
+			} else {
+				valueStart = position;
+				while (position < end && header.charAt(position) != ',' && header.charAt(position) > ' ') {
+					position++;
+				}
+				valueEnd = position;
+			}
+
+			if (valueEnd > valueStart) {
+				handler.field(header, keyStart, keyEnd, valueStart, valueEnd);
+			}
+		}
 	}
-	
-	private static String headerField(String key, String value) {
-		return key + "=\"" + value + "\"";
+
+	private static boolean isKeyCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	private static StringBuilder appendField(StringBuilder builder, String key, String value) {
+		return builder.append(key).append("=\"").append(value).append('"');
 	}
 	
 	/**
@@ -103,14 +179,31 @@ public class PowerAuthHttpHeader {
 	 * @return Value to be used in <code>X-PowerAuth-Authorization</code> HTTP header.
 	 */
 	public static String getPowerAuthSignatureHTTPHeader(String activationId, String applicationId, String nonce, String signatureType, String signature, String version) {
-		String result = POWERAUTH_PREFIX
-				+ headerField(ACTIVATION_ID, activationId) + ", "
-				+ headerField(APPLICATION_ID, applicationId) + ", "
-				+ headerField(NONCE, nonce) + ", "
-				+ headerField(SIGNATURE_TYPE, signatureType) + ", "
-				+ headerField(SIGNATURE, signature) + ", "
-				+ headerField(VERSION, version);
-		return result;
+		StringBuilder builder = new StringBuilder(HEADER_CAPACITY);
+		return appendPowerAuthSignatureHTTPHeader(builder, activationId, applicationId, nonce, signatureType, signature, version).toString();
+	}
+
+	/**
+	 * Append a valid PowerAuth Authorization header based on provided parameters to given builder.
+	 * The builder can be reused for multiple headers, after its length is reset to zero.
+	 * @param builder Builder the header is appended to.
+	 * @param activationId An ID of an activation.
+	 * @param applicationId An ID of an application.
+	 * @param nonce Random nonce.
+	 * @param signatureType Signature type.
+	 * @param signature Signature.
+	 * @param version PowerAuth protocol version.
+	 * @return The provided builder.
+	 */
+	public static StringBuilder appendPowerAuthSignatureHTTPHeader(StringBuilder builder, String activationId, String applicationId, String nonce, String signatureType, String signature, String version) {
+		builder.append(POWERAUTH_PREFIX);
+		appendField(builder, ACTIVATION_ID, activationId).append(", ");
+		appendField(builder, APPLICATION_ID, applicationId).append(", ");
+		appendField(builder, NONCE, nonce).append(", ");
+		appendField(builder, SIGNATURE_TYPE, signatureType).append(", ");
+		appendField(builder, SIGNATURE, signature).append(", ");
+		appendField(builder, VERSION, version);
+		return builder;
 	}
 
 }
@@ -3,82 +3,110 @@ package io.getlime.security.powerauth.lib.util.http;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 public class PowerAuthRequestCanonizationUtils {
 	
-	/**
-	 * Utility variable, used for the purpose of GET query attribute sorting (query attribute key).
-	 */
-	private static final String KEY = "key";
-	
-	/**
-	 * Utility variable, used for the purpose of GET query attribute sorting (query attribute value).
-	 */
-	private static final String VAL = "val";
-	
 	/**
 	 * Take the GET request query string (for example, "param1=key1&param2=key2") and convert it to the
 	 * canonized form by sorting the key value pairs primarily by keys and by values in case the keys are
-	 * equal.
+	 * equal. Key value pairs without the "=" character are skipped.
+	 * 
+	 * The pairs are decoded into parallel arrays, sorted once by their indexes and written to a single
+	 * builder, so that the canonization takes O(n log n) time in the number of pairs and linear time in
+	 * the query length.
 	 * @param queryString The original get query string, obtained for example by 'request.getQueryString();'. 
-	 * @return Canonized query string.
+	 * @return Canonized query string, or null in case the query string contains no key value pairs.
 	 * @throws UnsupportedEncodingException In case UTF-8 is not supported.
 	 */
 	public static String canonizeGetParameters(String queryString) throws UnsupportedEncodingException {
-		List<Map<String,String>> items = new ArrayList<>();
-		String[] keyValuePairs = queryString.split("&"); // ... get the key value pairs
-		for (String keyValue : keyValuePairs) {
-			String[] tmp = keyValue.split("=", 1);
-			if (tmp.length != 2) { // ... skip invalid values (this will likely fail signature verification)
-				continue;
+		if (queryString == null || queryString.isEmpty()) {
+			return null;
+		}
+
+		// Count the key value pairs to size the arrays
+		int capacity = 1;
+		for (int i = 0; i < queryString.length(); i++) {
+			if (queryString.charAt(i) == '&') {
+				capacity++;
 			}
-			String key = URLDecoder.decode(tmp[0], "UTF-8"); // decoded GET query attribute key
-			String val = URLDecoder.decode(tmp[1], "UTF-8"); // decoded GET query attribute value
-			Map<String, String> pair = new HashMap<>();
-			pair.put(KEY, key);
-			pair.put(VAL, val);
-			items.add(pair);
 		}
-		
-		// Sort the query key pair collection
-		Collections.sort(items, new Comparator<Map<String, String>>() {
-			@Override
-			public int compare(Map<String, String> left, Map<String, String> right) {
-				String leftKey = left.get(KEY);
-				String leftVal = left.get(VAL);
-				String rightKey = right.get(KEY);
-				String rightVal = right.get(VAL);
-				if (leftKey != null && leftKey.equals(rightKey)) {
-					return leftVal != null ? leftVal.compareTo(rightVal) : -1;
-				} else {
-					return leftKey != null ? leftKey.compareTo(rightKey) : -1;
-				}
+
+		// Decode the key value pairs into parallel arrays
+		String[] keys = new String[capacity];
+		String[] values = new String[capacity];
+		int count = 0;
+		int start = 0;
+		while (start <= queryString.length()) {
+			int end = queryString.indexOf('&', start);
+			if (end < 0) {
+				end = queryString.length();
 			}
-		});
-		
-		// Serialize the sorted items back to the signature base string
-		String signatureBaseString = "";
-		boolean firstSkipped = false;
-		for (Map<String, String> pair : items) {
-			String key = pair.get(KEY);
-			String val = pair.get(VAL);
-			if (firstSkipped) { // ... for all items except for the first one, prepend "&"
-				signatureBaseString += "&";
+			int separator = queryString.indexOf('=', start);
+			if (separator >= 0 && separator < end) { // ... skip invalid values (this will likely fail signature verification)
+				keys[count] = URLDecoder.decode(queryString.substring(start, separator), "UTF-8"); // decoded GET query attribute key
+				values[count] = URLDecoder.decode(queryString.substring(separator + 1, end), "UTF-8"); // decoded GET query attribute value
+				count++;
+			}
+			start = end + 1;
+		}
+		if (count == 0) {
+			return null;
+		}
+
+		// Sort the pair indexes by keys and values
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		sort(order, new int[count], 0, count, keys, values);
+
+		// Serialize the sorted items back to the signature base string, each distinct key is encoded once
+		StringBuilder signatureBaseString = new StringBuilder(queryString.length() + 16);
+		String previousKey = null;
+		String encodedKey = null;
+		for (int i = 0; i < count; i++) {
+			String key = keys[order[i]];
+			if (!key.equals(previousKey)) {
+				previousKey = key;
+				encodedKey = URLEncoder.encode(key, "UTF-8");
+			}
+			if (i > 0) { // ... for all items except for the first one, prepend "&"
+				signatureBaseString.append('&');
+			}
+			signatureBaseString.append(encodedKey).append('=').append(URLEncoder.encode(values[order[i]], "UTF-8"));
+		}
+
+		return signatureBaseString.toString();
+	}
+
+	/**
+	 * Merge sort of the pair indexes in range [from, to), ordered by keys and by values in case the keys are equal.
+	 */
+	private static void sort(int[] order, int[] buffer, int from, int to, String[] keys, String[] values) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(order, buffer, from, middle, keys, values);
+		sort(order, buffer, middle, to, keys, values);
+		if (compare(order[middle - 1], order[middle], keys, values) <= 0) {
+			return; // ... already sorted
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && compare(buffer[left], buffer[right], keys, values) <= 0)) {
+				order[i] = buffer[left++];
 			} else {
-				firstSkipped = true;
+				order[i] = buffer[right++];
 			}
-			signatureBaseString += URLEncoder.encode(key, "UTF-8");
-			signatureBaseString += "=";
-			signatureBaseString += URLEncoder.encode(val, "UTF-8");
 		}
-		
-		return signatureBaseString.length() > 0 ? signatureBaseString : null;
+	}
+
+	private static int compare(int left, int right, String[] keys, String[] values) {
+		int result = keys[left].compareTo(keys[right]);
+		return result != 0 ? result : values[left].compareTo(values[right]);
 	}
 
 }
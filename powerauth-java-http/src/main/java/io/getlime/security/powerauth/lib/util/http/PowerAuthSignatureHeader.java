@@ -0,0 +1,166 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util.http;
+
+/**
+ * Immutable value of the PowerAuth HTTP Authorization header "X-PowerAuth-Authorization".
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public final class PowerAuthSignatureHeader {
+
+	private final String activationId;
+	private final String applicationKey;
+	private final String nonce;
+	private final String signatureType;
+	private final String signature;
+	private final String version;
+
+	/**
+	 * Create the header value.
+	 * @param activationId An ID of an activation.
+	 * @param applicationKey Application key.
+	 * @param nonce Random nonce.
+	 * @param signatureType Signature type.
+	 * @param signature Signature.
+	 * @param version PowerAuth protocol version.
+	 */
+	public PowerAuthSignatureHeader(String activationId, String applicationKey, String nonce, String signatureType, String signature, String version) {
+		this.activationId = activationId;
+		this.applicationKey = applicationKey;
+		this.nonce = nonce;
+		this.signatureType = signatureType;
+		this.signature = signature;
+		this.version = version;
+	}
+
+	/**
+	 * Parse the PowerAuth authorization header in a single pass. Values missing in the header are null,
+	 * in case the header does not start with the PowerAuth prefix, all values are null. In case a key is
+	 * present multiple times, the last value is used.
+	 * @param xPowerAuthSignatureHeader HTTP header with PowerAuth authorization.
+	 * @return Parsed header value.
+	 */
+	public static PowerAuthSignatureHeader parse(String xPowerAuthSignatureHeader) {
+		Fields fields = new Fields();
+		PowerAuthHttpHeader.parseFields(xPowerAuthSignatureHeader, fields);
+		return new PowerAuthSignatureHeader(fields.activationId, fields.applicationKey, fields.nonce, fields.signatureType, fields.signature, fields.version);
+	}
+
+	/**
+	 * Get activation ID.
+	 * @return Activation ID.
+	 */
+	public String getActivationId() {
+		return activationId;
+	}
+
+	/**
+	 * Get application key.
+	 * @return Application key.
+	 */
+	public String getApplicationKey() {
+		return applicationKey;
+	}
+
+	/**
+	 * Get nonce.
+	 * @return Nonce.
+	 */
+	public String getNonce() {
+		return nonce;
+	}
+
+	/**
+	 * Get signature type.
+	 * @return Signature type.
+	 */
+	public String getSignatureType() {
+		return signatureType;
+	}
+
+	/**
+	 * Get signature.
+	 * @return Signature.
+	 */
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Get PowerAuth protocol version.
+	 * @return Version.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Append the header value to given builder.
+	 * @param builder Builder the header is appended to.
+	 * @return The provided builder.
+	 */
+	public StringBuilder appendTo(StringBuilder builder) {
+		return PowerAuthHttpHeader.appendPowerAuthSignatureHTTPHeader(builder, activationId, applicationKey, nonce, signatureType, signature, version);
+	}
+
+	/**
+	 * Get the value to be used in <code>X-PowerAuth-Authorization</code> HTTP header.
+	 * @return Header value.
+	 */
+	@Override
+	public String toString() {
+		return PowerAuthHttpHeader.getPowerAuthSignatureHTTPHeader(activationId, applicationKey, nonce, signatureType, signature, version);
+	}
+
+	/**
+	 * Collects the known fields, the keys are compared in place without creating strings.
+	 */
+	private static final class Fields implements PowerAuthHttpHeader.FieldHandler {
+
+		private String activationId;
+		private String applicationKey;
+		private String nonce;
+		private String signatureType;
+		private String signature;
+		private String version;
+
+		@Override
+		public void field(String header, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+			int keyLength = keyEnd - keyStart;
+			if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.ACTIVATION_ID)) {
+				activationId = header.substring(valueStart, valueEnd);
+			} else if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.APPLICATION_ID)) {
+				applicationKey = header.substring(valueStart, valueEnd);
+			} else if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.NONCE)) {
+				nonce = header.substring(valueStart, valueEnd);
+			} else if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.SIGNATURE_TYPE)) {
+				signatureType = header.substring(valueStart, valueEnd);
+			} else if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.SIGNATURE)) {
+				signature = header.substring(valueStart, valueEnd);
+			} else if (isKey(header, keyStart, keyLength, PowerAuthHttpHeader.VERSION)) {
+				version = header.substring(valueStart, valueEnd);
+			}
+		}
+
+		private static boolean isKey(String header, int keyStart, int keyLength, String key) {
+			return keyLength == key.length() && header.regionMatches(keyStart, key, 0, keyLength);
+		}
+
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util.http;
+
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for parsing and building the PowerAuth HTTP Authorization header, using both the map based
+ * parser and {@link PowerAuthSignatureHeader}.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class PowerAuthHttpHeaderTest {
+
+	private static final String ACTIVATION_ID = "a7f8bd7c-4f1b-4e8b-9c5e-2b3f5ef5a5b1";
+	private static final String APPLICATION_KEY = "MTIzNDU2Nzg5MDEyMzQ1Ng==";
+	private static final String NONCE = "MDEyMzQ1Njc4OWFiY2RlZg==";
+	private static final String SIGNATURE_TYPE = "possession_knowledge";
+	private static final String SIGNATURE = "12345678-87654321";
+	private static final String VERSION = "2.0";
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthHttpHeaderTest() {
+	}
+
+	/**
+	 * Test that a generated header is parsed back to the same values.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		System.out.println("testRoundTrip");
+		String header = PowerAuthHttpHeader.getPowerAuthSignatureHTTPHeader(ACTIVATION_ID, APPLICATION_KEY, NONCE, SIGNATURE_TYPE, SIGNATURE, VERSION);
+
+		PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse(header);
+		assertEquals(ACTIVATION_ID, parsed.getActivationId());
+		assertEquals(APPLICATION_KEY, parsed.getApplicationKey());
+		assertEquals(NONCE, parsed.getNonce());
+		assertEquals(SIGNATURE_TYPE, parsed.getSignatureType());
+		assertEquals(SIGNATURE, parsed.getSignature());
+		assertEquals(VERSION, parsed.getVersion());
+		assertEquals(header, parsed.toString());
+		assertEquals(header, parsed.appendTo(new StringBuilder()).toString());
+
+		Map<String, String> map = PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader(header);
+		assertEquals(6, map.size());
+		assertEquals(ACTIVATION_ID, map.get(PowerAuthHttpHeader.ACTIVATION_ID));
+		assertEquals(APPLICATION_KEY, map.get(PowerAuthHttpHeader.APPLICATION_ID));
+		assertEquals(NONCE, map.get(PowerAuthHttpHeader.NONCE));
+		assertEquals(SIGNATURE_TYPE, map.get(PowerAuthHttpHeader.SIGNATURE_TYPE));
+		assertEquals(SIGNATURE, map.get(PowerAuthHttpHeader.SIGNATURE));
+		assertEquals(VERSION, map.get(PowerAuthHttpHeader.VERSION));
+	}
+
+	/**
+	 * Test that a header without the "PowerAuth " prefix has no values.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testMissingPrefix() throws Exception {
+		System.out.println("testMissingPrefix");
+		String[] headers = {
+				"pa_activation_id=\"" + ACTIVATION_ID + "\", pa_version=\"2.0\"",
+				"Basic pa_activation_id=\"" + ACTIVATION_ID + "\"",
+				"PowerAuthpa_activation_id=\"" + ACTIVATION_ID + "\"",
+				"powerauth pa_activation_id=\"" + ACTIVATION_ID + "\"",
+				""
+		};
+		for (String header : headers) {
+			PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse(header);
+			assertNull(header, parsed.getActivationId());
+			assertNull(header, parsed.getVersion());
+			assertTrue(header, PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader(header).isEmpty());
+		}
+	}
+
+	/**
+	 * Test that an empty quoted value is skipped without swallowing the following field, and that
+	 * an unterminated quoted value ends with the header.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testQuotedValues() throws Exception {
+		System.out.println("testQuotedValues");
+		PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse("PowerAuth pa_activation_id=\"\", pa_nonce=\"" + NONCE + "\"");
+		assertNull(parsed.getActivationId());
+		assertEquals(NONCE, parsed.getNonce());
+
+		Map<String, String> map = PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader("PowerAuth pa_activation_id=\"\", pa_nonce=\"" + NONCE + "\"");
+		assertFalse(map.containsKey(PowerAuthHttpHeader.ACTIVATION_ID));
+		assertEquals(NONCE, map.get(PowerAuthHttpHeader.NONCE));
+
+		parsed = PowerAuthSignatureHeader.parse("PowerAuth pa_version=\"2.0\", pa_signature=\"" + SIGNATURE);
+		assertEquals(VERSION, parsed.getVersion());
+		assertEquals(SIGNATURE, parsed.getSignature());
+
+		parsed = PowerAuthSignatureHeader.parse("PowerAuth pa_signature_type=\"" + SIGNATURE_TYPE + "\", pa_signature=\"");
+		assertEquals(SIGNATURE_TYPE, parsed.getSignatureType());
+		assertNull(parsed.getSignature());
+	}
+
+	/**
+	 * Test that unquoted values end with a comma or a whitespace.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testUnquotedValues() throws Exception {
+		System.out.println("testUnquotedValues");
+		PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse("PowerAuth pa_activation_id=" + ACTIVATION_ID + ",pa_signature_type=" + SIGNATURE_TYPE + " pa_version=2.0");
+		assertEquals(ACTIVATION_ID, parsed.getActivationId());
+		assertEquals(SIGNATURE_TYPE, parsed.getSignatureType());
+		assertEquals(VERSION, parsed.getVersion());
+
+		parsed = PowerAuthSignatureHeader.parse("PowerAuth pa_activation_id=, pa_nonce=" + NONCE);
+		assertNull(parsed.getActivationId());
+		assertEquals(NONCE, parsed.getNonce());
+	}
+
+	/**
+	 * Test that unknown keys are ignored by the typed parser and returned by the map based parser,
+	 * and that the last value of a repeated key is used.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testUnknownAndRepeatedKeys() throws Exception {
+		System.out.println("testUnknownAndRepeatedKeys");
+		String header = "PowerAuth pa_unknown=\"x\", pa_activation=\"y\", pa_nonce=\"first\", pa_activation_id_2=\"z\", pa_nonce=\"" + NONCE + "\"";
+
+		PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse(header);
+		assertNull(parsed.getActivationId());
+		assertNull(parsed.getApplicationKey());
+		assertEquals(NONCE, parsed.getNonce());
+
+		Map<String, String> map = PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader(header);
+		assertEquals(4, map.size());
+		assertEquals("x", map.get("pa_unknown"));
+		assertEquals("y", map.get("pa_activation"));
+		assertEquals("z", map.get("pa_activation_id_2"));
+		assertEquals(NONCE, map.get(PowerAuthHttpHeader.NONCE));
+	}
+
+	/**
+	 * Test that leading and trailing whitespace around the header and between the fields is ignored.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testWhitespace() throws Exception {
+		System.out.println("testWhitespace");
+		String header = PowerAuthHttpHeader.getPowerAuthSignatureHTTPHeader(ACTIVATION_ID, APPLICATION_KEY, NONCE, SIGNATURE_TYPE, SIGNATURE, VERSION);
+
+		PowerAuthSignatureHeader parsed = PowerAuthSignatureHeader.parse(" \t" + header + " \r\n");
+		assertEquals(ACTIVATION_ID, parsed.getActivationId());
+		assertEquals(VERSION, parsed.getVersion());
+
+		parsed = PowerAuthSignatureHeader.parse("PowerAuth   pa_activation_id=\"" + ACTIVATION_ID + "\" ,\t pa_version=2.0 ");
+		assertEquals(ACTIVATION_ID, parsed.getActivationId());
+		assertEquals(VERSION, parsed.getVersion());
+	}
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util.http;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the GET query canonization, comparing the result with a straightforward reference
+ * implementation on randomly generated query strings.
+ * 
+ * @author Petr Dvorak
+ * 
+ */
+public class PowerAuthRequestCanonizationUtilsTest {
+
+	private static final String[] KEY_TOKENS = { "a", "b", "id", "name", "x%20y", "k+1", "%C3%A9", "_", "" };
+	private static final String[] VALUE_TOKENS = { "1", "2", "10", "value", "a+b", "%26", "%3D", "%C5%A1", "=", "", "Z", "z" };
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthRequestCanonizationUtilsTest() {
+	}
+
+	/**
+	 * Test canonization of simple query strings.
+	 * 
+	 * @throws Exception In case test fails 
+	 *
+	 */
+	@Test
+	public void testCanonizeGetParameters() throws Exception {
+		System.out.println("testCanonizeGetParameters");
+		assertNull(PowerAuthRequestCanonizationUtils.canonizeGetParameters(null));
+		assertNull(PowerAuthRequestCanonizationUtils.canonizeGetParameters(""));
+		assertNull(PowerAuthRequestCanonizationUtils.canonizeGetParameters("novalue&&"));
+		assertEquals("a=1&b=2", PowerAuthRequestCanonizationUtils.canonizeGetParameters("b=2&a=1"));
+		assertEquals("a=1&a=2&b=", PowerAuthRequestCanonizationUtils.canonizeGetParameters("b=&a=2&skipped&a=1&"));
+		assertEquals("a=x%3Dy&c=d+e", PowerAuthRequestCanonizationUtils.canonizeGetParameters("c=d%20e&a=x=y"));
+	}
+
+	/**
+	 * Test that the canonization produces the same result as the reference implementation for
+	 * random query strings, including large ones and ones with many repeated keys.
+	 * 
+	 * @throws Exception In case test fails 
+	 *
+	 */
+	@Test
+	public void testCanonizeRandomQueries() throws Exception {
+		System.out.println("testCanonizeRandomQueries");
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			int pairs = i % 100 == 0 ? 10000 : random.nextInt(50);
+			String query = randomQuery(random, pairs, i % 2 == 0 ? 2 : KEY_TOKENS.length);
+			assertEquals(query, canonizeReference(query), PowerAuthRequestCanonizationUtils.canonizeGetParameters(query));
+		}
+	}
+
+	private static String randomQuery(Random random, int pairs, int keyTokens) {
+		StringBuilder query = new StringBuilder();
+		for (int i = 0; i < pairs; i++) {
+			if (i > 0) {
+				query.append('&');
+			}
+			query.append(KEY_TOKENS[random.nextInt(keyTokens)]);
+			if (random.nextInt(20) != 0) { // ... occasionally a pair without value
+				query.append('=');
+				int tokens = random.nextInt(3);
+				for (int j = 0; j < tokens; j++) {
+					query.append(VALUE_TOKENS[random.nextInt(VALUE_TOKENS.length)]);
+				}
+			}
+		}
+		return query.toString();
+	}
+
+	/**
+	 * Reference implementation: split the pairs, decode them, sort them by key and value and encode them back.
+	 */
+	private static String canonizeReference(String queryString) throws UnsupportedEncodingException {
+		List<String[]> items = new ArrayList<>();
+		for (String keyValue : queryString.split("&")) {
+			String[] tmp = keyValue.split("=", 2);
+			if (tmp.length != 2) {
+				continue;
+			}
+			items.add(new String[] { URLDecoder.decode(tmp[0], "UTF-8"), URLDecoder.decode(tmp[1], "UTF-8") });
+		}
+		Collections.sort(items, new Comparator<String[]>() {
+			@Override
+			public int compare(String[] left, String[] right) {
+				int result = left[0].compareTo(right[0]);
+				return result != 0 ? result : left[1].compareTo(right[1]);
+			}
+		});
+		StringBuilder result = new StringBuilder();
+		for (String[] pair : items) {
+			if (result.length() > 0) {
+				result.append('&');
+			}
+			result.append(URLEncoder.encode(pair[0], "UTF-8")).append('=').append(URLEncoder.encode(pair[1], "UTF-8"));
+		}
+		return result.length() > 0 ? result.toString() : null;
+	}
+
+}
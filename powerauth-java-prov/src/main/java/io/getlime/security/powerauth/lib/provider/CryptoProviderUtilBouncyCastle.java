@@ -16,21 +16,18 @@
 package io.getlime.security.powerauth.lib.provider;
 
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPrivateKey;
+import org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey;
 import org.bouncycastle.jce.ECNamedCurveTable;
 import org.bouncycastle.jce.interfaces.ECPrivateKey;
 import org.bouncycastle.jce.interfaces.ECPublicKey;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
-import org.bouncycastle.jce.spec.ECParameterSpec;
 import org.bouncycastle.jce.spec.ECPrivateKeySpec;
 import org.bouncycastle.jce.spec.ECPublicKeySpec;
 import org.bouncycastle.math.ec.ECPoint;
@@ -42,6 +39,16 @@ import org.bouncycastle.math.ec.ECPoint;
  *
  */
 public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
+
+	/**
+	 * Key algorithm name, the same as the one assigned to keys by the "ECDH" key factory.
+	 */
+	private static final String KEY_ALGORITHM = "ECDH";
+
+	/**
+	 * Parameters of the secp256r1 curve, looked up only once.
+	 */
+	private static final ECNamedCurveParameterSpec CURVE_SPEC = ECNamedCurveTable.getParameterSpec("secp256r1");
 	
 	/**
 	 * Get the provider name, for example "BC" for Bouncy Castle.
@@ -72,19 +79,14 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
      * representation.
      */
     public PublicKey convertBytesToPublicKey(byte[] keyBytes) throws InvalidKeySpecException {
+        // Build the key directly, the same way the "ECDH" key factory does
         try {
-            KeyFactory kf = KeyFactory.getInstance("ECDH", getProviderName());
-
-            ECNamedCurveParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
-            ECPoint point = ecSpec.getCurve().decodePoint(keyBytes);
-            ECPublicKeySpec pubSpec = new ECPublicKeySpec(point, ecSpec);
-
-            ECPublicKey publicKey = (ECPublicKey) kf.generatePublic(pubSpec);
-            return publicKey;
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, null, ex);
+            ECPoint point = CURVE_SPEC.getCurve().decodePoint(keyBytes);
+            ECPublicKeySpec pubSpec = new ECPublicKeySpec(point, CURVE_SPEC);
+            return new BCECPublicKey(KEY_ALGORITHM, pubSpec, BouncyCastleProvider.CONFIGURATION);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidKeySpecException(ex);
         }
-        return null;
     }
 
     /**
@@ -108,18 +110,11 @@ public class CryptoProviderUtilBouncyCastle implements CryptoProviderUtil {
      * private key.
      */
     public PrivateKey convertBytesToPrivateKey(byte[] keyBytes) throws InvalidKeySpecException {
-        try {
-            KeyFactory kf = KeyFactory.getInstance("ECDH", getProviderName());
-            BigInteger keyInteger = new BigInteger(keyBytes);
-            ECParameterSpec ecSpec = ECNamedCurveTable.getParameterSpec("secp256r1");
-            ECPrivateKeySpec pubSpec = new ECPrivateKeySpec(keyInteger, ecSpec);
-
-            ECPrivateKey privateKey = (ECPrivateKey) kf.generatePrivate(pubSpec);
-            return privateKey;
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, null, ex);
-        }
-        return null;
+        // Key bytes are either a two's complement encoding with a leading zero byte or a raw
+        // unsigned scalar, both are decoded as a positive number
+        BigInteger keyInteger = new BigInteger(1, keyBytes);
+        ECPrivateKeySpec privSpec = new ECPrivateKeySpec(keyInteger, CURVE_SPEC);
+        return new BCECPrivateKey(KEY_ALGORITHM, privSpec, BouncyCastleProvider.CONFIGURATION);
     }
 
     /**
@@ -21,7 +21,14 @@ import io.getlime.security.repository.model.entity.ActivationRecordEntity;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Component;
 
 /**
@@ -66,4 +73,71 @@ public interface ActivationRepository extends CrudRepository<ActivationRecordEnt
      */
     ActivationRecordEntity findFirstByApplicationIdAndActivationIdShortAndActivationStatusInAndTimestampActivationExpireAfter(Long applicationId, String activationIdShort, Collection<ActivationStatus> states, Date currentTimestamp);
 
+    /**
+     * Find an activation with given activation ID and lock the activation row for update until the end
+     * of the current transaction. The locking read always returns the latest committed activation state.
+     * @param activationId Activation ID
+     * @return Activation with given ID or null if not found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM pa_activation a WHERE a.activationId = :activationId")
+    ActivationRecordEntity findActivationWithLock(@Param("activationId") String activationId);
+
+    /**
+     * Update the counter, failed attempt count, status and last used timestamp of an activation, only in case
+     * the activation counter and status were not changed since the activation was read (compare-and-set).
+     * Pending changes are flushed before the update (AUTO flush mode), an activation loaded before must be refreshed or detached.
+     * @param activationId Activation ID
+     * @param expectedCounter Counter value the activation was read with
+     * @param expectedStatus Activation status the activation was read with
+     * @param counter New counter value
+     * @param failedAttempts New failed attempt count
+     * @param activationStatus New activation status
+     * @param timestampLastUsed New last used timestamp
+     * @return Number of updated activations, 0 in case the activation was changed concurrently
+     */
+    @Modifying
+    @Query("UPDATE pa_activation a SET a.counter = :counter, a.failedAttempts = :failedAttempts, a.activationStatus = :activationStatus, a.timestampLastUsed = :timestampLastUsed "
+            + "WHERE a.activationId = :activationId AND a.counter = :expectedCounter AND a.activationStatus = :expectedStatus")
+    int updateCounterIfUnchanged(@Param("activationId") String activationId, @Param("expectedCounter") Long expectedCounter, @Param("expectedStatus") ActivationStatus expectedStatus,
+            @Param("counter") Long counter, @Param("failedAttempts") Long failedAttempts, @Param("activationStatus") ActivationStatus activationStatus, @Param("timestampLastUsed") Date timestampLastUsed);
+
+    /**
+     * Update the status of an activation, regardless of its current state.
+     * Pending changes are flushed before the update (AUTO flush mode), an activation loaded before must be refreshed or detached.
+     * @param activationId Activation ID
+     * @param activationStatus New activation status
+     * @return Number of updated activations
+     */
+    @Modifying
+    @Query("UPDATE pa_activation a SET a.activationStatus = :activationStatus WHERE a.activationId = :activationId")
+    int updateActivationStatus(@Param("activationId") String activationId, @Param("activationStatus") ActivationStatus activationStatus);
+
+    /**
+     * Update the status and failed attempt count of an activation, only in case the activation is still
+     * in the expected status. Pending changes are flushed before the update (AUTO flush mode), an activation
+     * loaded before must be refreshed or detached.
+     * @param activationId Activation ID
+     * @param expectedStatus Activation status the activation was read with
+     * @param activationStatus New activation status
+     * @param failedAttempts New failed attempt count
+     * @return Number of updated activations, 0 in case the activation status was changed concurrently
+     */
+    @Modifying
+    @Query("UPDATE pa_activation a SET a.activationStatus = :activationStatus, a.failedAttempts = :failedAttempts "
+            + "WHERE a.activationId = :activationId AND a.activationStatus = :expectedStatus")
+    int updateActivationStatusIfUnchanged(@Param("activationId") String activationId, @Param("expectedStatus") ActivationStatus expectedStatus,
+            @Param("activationStatus") ActivationStatus activationStatus, @Param("failedAttempts") Long failedAttempts);
+
+    /**
+     * Increment the counter of an activation in given status.
+     * Pending changes are flushed before the update (AUTO flush mode), an activation loaded before must be refreshed or detached.
+     * @param activationId Activation ID
+     * @param expectedStatus Activation status the activation was read with
+     * @return Number of updated activations, 0 in case the activation status was changed concurrently
+     */
+    @Modifying
+    @Query("UPDATE pa_activation a SET a.counter = a.counter + 1 WHERE a.activationId = :activationId AND a.activationStatus = :expectedStatus")
+    int incrementCounter(@Param("activationId") String activationId, @Param("expectedStatus") ActivationStatus expectedStatus);
+
 }
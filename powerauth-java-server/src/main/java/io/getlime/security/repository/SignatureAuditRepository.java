@@ -15,11 +15,16 @@
  */
 package io.getlime.security.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import io.getlime.security.repository.model.SignatureAuditRecord;
 import io.getlime.security.repository.model.entity.SignatureEntity;
 
 /**
@@ -49,4 +54,44 @@ public interface SignatureAuditRepository extends CrudRepository<SignatureEntity
 	 */
 	List<SignatureEntity> findByActivation_ApplicationIdAndActivation_UserIdAndTimestampCreatedBetween(Long applicationId, String userId, Date startingDate, Date endingDate);
 
+	/**
+	 * Return a page of signature audit records for given user and date range, without the signed data.
+	 * Records are ordered by ID and only records with ID greater than given ID are returned, so that
+	 * the next page is found using the index instead of skipping the previous pages.
+	 * @param userId User ID.
+	 * @param startingDate Starting date (date "from").
+	 * @param endingDate Ending date (date "to").
+	 * @param lastId ID of the last record of the previous page.
+	 * @param pageable Page size, the page number is always 0.
+	 * @return List of {@link SignatureAuditRecord} instances.
+	 */
+	@Query("SELECT new io.getlime.security.repository.model.SignatureAuditRecord(s.id, a.userId, a.application.id, a.activationId, s.activationCounter, s.activationStatus, s.signatureType, s.signature, s.note, s.valid, s.timestampCreated) "
+			+ "FROM pa_signature_audit s JOIN s.activation a "
+			+ "WHERE a.userId = :userId AND s.timestampCreated BETWEEN :startingDate AND :endingDate AND s.id > :lastId ORDER BY s.id")
+	List<SignatureAuditRecord> findRecordsByUserId(@Param("userId") String userId, @Param("startingDate") Date startingDate, @Param("endingDate") Date endingDate, @Param("lastId") Long lastId, Pageable pageable);
+
+	/**
+	 * Return a page of signature audit records for given user, application and date range, without the signed data.
+	 * Records are ordered by ID and only records with ID greater than given ID are returned.
+	 * @param applicationId Application ID.
+	 * @param userId User ID.
+	 * @param startingDate Starting date (date "from").
+	 * @param endingDate Ending date (date "to").
+	 * @param lastId ID of the last record of the previous page.
+	 * @param pageable Page size, the page number is always 0.
+	 * @return List of {@link SignatureAuditRecord} instances.
+	 */
+	@Query("SELECT new io.getlime.security.repository.model.SignatureAuditRecord(s.id, a.userId, a.application.id, a.activationId, s.activationCounter, s.activationStatus, s.signatureType, s.signature, s.note, s.valid, s.timestampCreated) "
+			+ "FROM pa_signature_audit s JOIN s.activation a "
+			+ "WHERE a.application.id = :applicationId AND a.userId = :userId AND s.timestampCreated BETWEEN :startingDate AND :endingDate AND s.id > :lastId ORDER BY s.id")
+	List<SignatureAuditRecord> findRecordsByApplicationIdAndUserId(@Param("applicationId") Long applicationId, @Param("userId") String userId, @Param("startingDate") Date startingDate, @Param("endingDate") Date endingDate, @Param("lastId") Long lastId, Pageable pageable);
+
+	/**
+	 * Return the signed data of signature audit records with given IDs.
+	 * @param ids Signature audit record IDs.
+	 * @return List of record ID, data encoded as Base64, binary data and binary data format tuples.
+	 */
+	@Query("SELECT s.id, s.dataBase64, s.data, s.dataFormat FROM pa_signature_audit s WHERE s.id IN :ids")
+	List<Object[]> findDataByIds(@Param("ids") Collection<Long> ids);
+
 }
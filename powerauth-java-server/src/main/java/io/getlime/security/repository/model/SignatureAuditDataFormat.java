@@ -0,0 +1,41 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.repository.model;
+
+/**
+ * Formats in which the signed data are stored with the signature audit records.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public enum SignatureAuditDataFormat {
+
+	/**
+	 * Complete signed data, including the application secret, encoded as Base64 in the "data_base64" column.
+	 */
+	FULL,
+
+	/**
+	 * SHA-256 hash of the complete signed data in the binary "data" column.
+	 */
+	HASH,
+
+	/**
+	 * Signed data without the application secret, compressed with DEFLATE, in the binary "data" column.
+	 */
+	COMPRESSED
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.repository.model;
+
+import java.util.Date;
+
+/**
+ * Signature audit record without the signed data payload, loaded by a projection query so that
+ * listing the audit log does not have to read the data column for every record.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public class SignatureAuditRecord {
+
+	private final Long id;
+	private final String userId;
+	private final Long applicationId;
+	private final String activationId;
+	private final Long activationCounter;
+	private final ActivationStatus activationStatus;
+	private final String signatureType;
+	private final String signature;
+	private final String note;
+	private final Boolean valid;
+	private final Date timestampCreated;
+
+	/**
+	 * Constructor used by the projection query.
+	 * @param id Signature audit record ID.
+	 * @param userId User ID.
+	 * @param applicationId Application ID.
+	 * @param activationId Activation ID.
+	 * @param activationCounter Activation counter at the time of the signature validation.
+	 * @param activationStatus Activation status at the time of the signature validation.
+	 * @param signatureType Signature type.
+	 * @param signature Signature.
+	 * @param note Note.
+	 * @param valid Signature validation result.
+	 * @param timestampCreated Record creation timestamp.
+	 */
+	public SignatureAuditRecord(Long id, String userId, Long applicationId, String activationId, Long activationCounter, ActivationStatus activationStatus, String signatureType, String signature, String note, Boolean valid, Date timestampCreated) {
+		this.id = id;
+		this.userId = userId;
+		this.applicationId = applicationId;
+		this.activationId = activationId;
+		this.activationCounter = activationCounter;
+		this.activationStatus = activationStatus;
+		this.signatureType = signatureType;
+		this.signature = signature;
+		this.note = note;
+		this.valid = valid;
+		this.timestampCreated = timestampCreated;
+	}
+
+	/**
+	 * Get signature audit record ID.
+	 * @return Record ID.
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * Get user ID.
+	 * @return User ID.
+	 */
+	public String getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Get application ID.
+	 * @return Application ID.
+	 */
+	public Long getApplicationId() {
+		return applicationId;
+	}
+
+	/**
+	 * Get activation ID.
+	 * @return Activation ID.
+	 */
+	public String getActivationId() {
+		return activationId;
+	}
+
+	/**
+	 * Get activation counter at the time of the signature validation.
+	 * @return Activation counter.
+	 */
+	public Long getActivationCounter() {
+		return activationCounter;
+	}
+
+	/**
+	 * Get activation status at the time of the signature validation.
+	 * @return Activation status.
+	 */
+	public ActivationStatus getActivationStatus() {
+		return activationStatus;
+	}
+
+	/**
+	 * Get signature type.
+	 * @return Signature type.
+	 */
+	public String getSignatureType() {
+		return signatureType;
+	}
+
+	/**
+	 * Get signature.
+	 * @return Signature.
+	 */
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Get note.
+	 * @return Note.
+	 */
+	public String getNote() {
+		return note;
+	}
+
+	/**
+	 * Get signature validation result.
+	 * @return True if the signature was valid, false otherwise.
+	 */
+	public Boolean getValid() {
+		return valid;
+	}
+
+	/**
+	 * Get record creation timestamp.
+	 * @return Creation timestamp.
+	 */
+	public Date getTimestampCreated() {
+		return timestampCreated;
+	}
+
+}
@@ -67,6 +67,12 @@ public class ActivationRecordEntity implements Serializable {
 	@Column(name = "device_public_key_base64", nullable = true)
 	private String devicePublicKeyBase64;
 
+	@Column(name = "server_private_key", nullable = true, length = 32)
+	private byte[] serverPrivateKey;
+
+	@Column(name = "device_public_key", nullable = true, length = 65)
+	private byte[] devicePublicKey;
+
 	@Column(name = "counter", nullable = false)
 	private Long counter;
 
@@ -306,6 +312,38 @@ public class ActivationRecordEntity implements Serializable {
 	public void setDevicePublicKeyBase64(String devicePublicKeyBase64) {
 		this.devicePublicKeyBase64 = devicePublicKeyBase64;
 	}
+
+	/**
+	 * Get server private key as a raw 32 byte scalar, or null in case the key is stored only as Base64.
+	 * @return Server private key bytes
+	 */
+	public byte[] getServerPrivateKey() {
+		return serverPrivateKey;
+	}
+
+	/**
+	 * Set server private key as a raw 32 byte scalar.
+	 * @param serverPrivateKey Server private key bytes
+	 */
+	public void setServerPrivateKey(byte[] serverPrivateKey) {
+		this.serverPrivateKey = serverPrivateKey;
+	}
+
+	/**
+	 * Get device public key as an uncompressed 65 byte EC point, or null in case the key is stored only as Base64.
+	 * @return Device public key bytes
+	 */
+	public byte[] getDevicePublicKey() {
+		return devicePublicKey;
+	}
+
+	/**
+	 * Set device public key as an uncompressed 65 byte EC point.
+	 * @param devicePublicKey Device public key bytes
+	 */
+	public void setDevicePublicKey(byte[] devicePublicKey) {
+		this.devicePublicKey = devicePublicKey;
+	}
 	
 	/**
 	 * Get counter value
@@ -22,6 +22,8 @@ import java.util.Objects;
 import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -30,6 +32,7 @@ import javax.persistence.ManyToOne;
 
 import io.getlime.security.repository.model.ActivationStatus;
 import io.getlime.security.repository.model.ActivationStatusConverter;
+import io.getlime.security.repository.model.SignatureAuditDataFormat;
 
 /**
  * Entity representing a single signature audit log.
@@ -61,6 +64,13 @@ public class SignatureEntity implements Serializable {
 	@Column(name = "data_base64", updatable = false)
 	private String dataBase64;
 
+	@Column(name = "data", updatable = false, length = 16777215)
+	private byte[] data;
+
+	@Column(name = "data_format", updatable = false, length = 16)
+	@Enumerated(EnumType.STRING)
+	private SignatureAuditDataFormat dataFormat;
+
 	@Column(name = "signature_type", nullable = false, updatable = false)
 	private String signatureType;
 
@@ -189,6 +199,39 @@ public class SignatureEntity implements Serializable {
 		this.dataBase64 = dataBase64;
 	}
 
+	/**
+	 * Get binary data that entered the signature, in the format given by {@link #getDataFormat()}.
+	 * The column is added to existing databases by the mandatory migration_audit_data.sql script.
+	 * @return Hash or compressed data that entered the signature.
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Set binary data that entered the signature.
+	 * @param data Hash or compressed data that entered the signature.
+	 */
+	public void setData(byte[] data) {
+		this.data = data;
+	}
+
+	/**
+	 * Get format of the stored signed data. Null value means the data are stored as Base64 in full.
+	 * @return Format of the stored signed data.
+	 */
+	public SignatureAuditDataFormat getDataFormat() {
+		return dataFormat;
+	}
+
+	/**
+	 * Set format of the stored signed data.
+	 * @param dataFormat Format of the stored signed data.
+	 */
+	public void setDataFormat(SignatureAuditDataFormat dataFormat) {
+		this.dataFormat = dataFormat;
+	}
+
 	/**
 	 * Get signature audit record note.
 	 * @return Signature audit record note.
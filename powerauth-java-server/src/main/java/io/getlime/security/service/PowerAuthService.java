@@ -51,6 +51,8 @@ import io.getlime.security.powerauth.UnsupportApplicationVersionRequest;
 import io.getlime.security.powerauth.UnsupportApplicationVersionResponse;
 import io.getlime.security.powerauth.VaultUnlockRequest;
 import io.getlime.security.powerauth.VaultUnlockResponse;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureBatchResponse;
 import io.getlime.security.powerauth.VerifySignatureRequest;
 import io.getlime.security.powerauth.VerifySignatureResponse;
 
@@ -125,6 +127,16 @@ public interface PowerAuthService {
      */
     public VerifySignatureResponse verifySignature(VerifySignatureRequest request) throws Exception;
 
+    /**
+     * Verify multiple independent signatures in one call. Each signature is verified exactly as in the
+     * {@link PowerAuthService#verifySignature(VerifySignatureRequest)} method, signatures of the same
+     * activation are verified in the request order.
+     * @param request Verify signature batch request object.
+     * @return Signature batch verification response, with the results in the request order.
+     * @throws Exception In case of a business logic error.
+     */
+    public VerifySignatureBatchResponse verifySignatureBatch(VerifySignatureBatchRequest request) throws Exception;
+
     /**
      * Commit a created activation. Only activations in OTP_USED state can be committed - in case activation
      * is in other state, exception is raised. In case of successful call of this method, activation with
@@ -51,15 +51,19 @@ import io.getlime.security.powerauth.UnsupportApplicationVersionRequest;
 import io.getlime.security.powerauth.UnsupportApplicationVersionResponse;
 import io.getlime.security.powerauth.VaultUnlockRequest;
 import io.getlime.security.powerauth.VaultUnlockResponse;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureBatchResponse;
 import io.getlime.security.powerauth.VerifySignatureRequest;
 import io.getlime.security.powerauth.VerifySignatureResponse;
 import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
 import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.lib.provider.CryptoProviderUtilFactory;
+import io.getlime.security.powerauth.lib.util.CryptoPrimitivePool;
 import io.getlime.security.service.behavior.ActivationServiceBehavior;
 import io.getlime.security.service.behavior.ApplicationServiceBehavior;
 import io.getlime.security.service.behavior.AuditingServiceBehavior;
+import io.getlime.security.service.behavior.SignatureBatchServiceBehavior;
 import io.getlime.security.service.behavior.SignatureServiceBehavior;
 import io.getlime.security.service.behavior.VaultUnlockServiceBehavior;
 import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
@@ -78,6 +82,8 @@ import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.PreDestroy;
+
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -108,6 +114,9 @@ public class PowerAuthServiceImpl implements PowerAuthService {
 
 	@Autowired
 	private SignatureServiceBehavior signatureServiceBehavior;
+
+	@Autowired
+	private SignatureBatchServiceBehavior signatureBatchServiceBehavior;
 	
 	@Autowired
 	private VaultUnlockServiceBehavior vaultUnlockServiceBehavior;
@@ -121,6 +130,15 @@ public class PowerAuthServiceImpl implements PowerAuthService {
 		Security.addProvider(new BouncyCastleProvider());
 		PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
 	}
+
+	/**
+	 * Release the pooled crypto primitives of all threads, so that container threads do not keep
+	 * the crypto provider classes reachable after the application is stopped.
+	 */
+	@PreDestroy
+	public void destroy() {
+		CryptoPrimitivePool.clear();
+	}
 	
 	@Override
 	public GetSystemStatusResponse getSystemStatus(GetSystemStatusRequest request) throws Exception {
@@ -246,6 +264,26 @@ public class PowerAuthServiceImpl implements PowerAuthService {
 		}
 	}
 
+	@Override
+	public VerifySignatureBatchResponse verifySignatureBatch(VerifySignatureBatchRequest request) throws Exception {
+		try {
+			// Every signature is verified in its own transaction
+			List<VerifySignatureRequest> requests = request.getVerifySignatureRequest();
+			if (requests.isEmpty() || requests.size() > powerAuthServiceConfiguration.getSignatureBatchMaxSize()) {
+				throw localizationProvider.buildExceptionForCode(ServiceError.ERR0011);
+			}
+			VerifySignatureBatchResponse response = new VerifySignatureBatchResponse();
+			response.getVerifySignatureResponse().addAll(signatureBatchServiceBehavior.verifySignatureBatch(requests, keyConversionUtilities));
+			return response;
+		} catch (GenericServiceException ex) {
+			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+			throw ex;
+		} catch (Exception ex) {
+			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+			throw new GenericServiceException(ServiceError.ERR0000, ex.getMessage(), ex.getLocalizedMessage());
+		}
+	}
+
 	@Override
 	@Transactional
 	public CommitActivationResponse commitActivation(CommitActivationRequest request) throws Exception {
@@ -351,9 +389,13 @@ public class PowerAuthServiceImpl implements PowerAuthService {
 			Long applicationId = request.getApplicationId();
 			Date startingDate = ModelUtil.dateWithCalendar(request.getTimestampFrom());
 			Date endingDate = ModelUtil.dateWithCalendar(request.getTimestampTo());
+			boolean includeData = request.isIncludeData() == null || request.isIncludeData();
 
-			return auditingServiceBehavior.getSignatureAuditLog(userId, applicationId, startingDate, endingDate);
+			return auditingServiceBehavior.getSignatureAuditLog(userId, applicationId, startingDate, endingDate, request.getPageSize(), request.getContinuationToken(), includeData);
 
+		} catch (GenericServiceException ex) {
+			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
+			throw ex;
 		} catch (Exception ex) {
 			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
 			throw new GenericServiceException(ServiceError.ERR0000, ex.getMessage(), ex.getLocalizedMessage());
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Database specific statements for maintenance of the partitioned signature audit table, see
+ * migration_audit_partitioning.sql scripts in the documentation. Partitions are ranges of the
+ * "timestamp_created" column named according to {@link SignatureAuditPartitionPeriod}, records above
+ * the last period are caught by the "p_max" partition, so that inserts never fail for a missing partition.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public enum SignatureAuditPartitionDialect {
+
+	/**
+	 * MySQL RANGE partitioning with a "p_max" partition catching all rows above the last period,
+	 * new partitions are split from it.
+	 */
+	MYSQL {
+
+		@Override
+		public String listPartitionsSql() {
+			return "SELECT partition_name FROM information_schema.partitions WHERE table_schema = DATABASE() AND table_name = '" + TABLE + "'";
+		}
+
+		@Override
+		public List<String> createPartitionSql(String partitionName, Date from, Date to) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+					+ "PARTITION " + partitionName + " VALUES LESS THAN (TO_DAYS('" + date(to) + "')), "
+					+ "PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+		}
+
+		@Override
+		public List<String> dropPartitionSql(String partitionName) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " DROP PARTITION " + partitionName);
+		}
+
+		@Override
+		public List<String> archivePartitionSql(String partitionName) {
+			String archiveTable = archiveTable(partitionName);
+			return Arrays.asList(
+					"CREATE TABLE " + archiveTable + " LIKE " + TABLE,
+					"ALTER TABLE " + archiveTable + " REMOVE PARTITIONING",
+					"ALTER TABLE " + TABLE + " EXCHANGE PARTITION " + partitionName + " WITH TABLE " + archiveTable,
+					"ALTER TABLE " + TABLE + " DROP PARTITION " + partitionName);
+		}
+
+	},
+
+	/**
+	 * PostgreSQL declarative partitioning, each partition is a table named after the partition. The
+	 * default partition "p_max" catches all rows outside of the periods, rows of a new period are
+	 * moved from it while the default partition is detached. All statements of an operation are
+	 * executed in one transaction, so that the default partition is never left detached.
+	 */
+	POSTGRESQL {
+
+		@Override
+		public boolean isTransactionalDdl() {
+			return true;
+		}
+
+		@Override
+		public String listPartitionsSql() {
+			return "SELECT substr(c.relname, " + (TABLE.length() + 2) + ") FROM pg_inherits i "
+					+ "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+					+ "WHERE p.relname = '" + TABLE + "'";
+		}
+
+		@Override
+		public List<String> createPartitionSql(String partitionName, Date from, Date to) {
+			String maxTable = archiveTable(MAX_PARTITION);
+			String range = " WHERE timestamp_created >= '" + date(from) + "' AND timestamp_created < '" + date(to) + "'";
+			return Arrays.asList(
+					"ALTER TABLE " + TABLE + " DETACH PARTITION " + maxTable,
+					"CREATE TABLE " + archiveTable(partitionName) + " PARTITION OF " + TABLE
+							+ " FOR VALUES FROM ('" + date(from) + "') TO ('" + date(to) + "')",
+					"INSERT INTO " + TABLE + " SELECT * FROM " + maxTable + range,
+					"DELETE FROM " + maxTable + range,
+					"ALTER TABLE " + TABLE + " ATTACH PARTITION " + maxTable + " DEFAULT");
+		}
+
+		@Override
+		public String detachedMaxPartitionSql() {
+			return "SELECT COUNT(*) FROM pg_class c WHERE c.relname = '" + archiveTable(MAX_PARTITION) + "' AND c.relkind = 'r' "
+					+ "AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)";
+		}
+
+		@Override
+		public List<String> attachMaxPartitionSql(Date from, boolean maxPartitionExists) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " ATTACH PARTITION " + archiveTable(MAX_PARTITION) + " DEFAULT");
+		}
+
+		@Override
+		public List<String> dropPartitionSql(String partitionName) {
+			return Arrays.asList("DROP TABLE " + archiveTable(partitionName));
+		}
+
+		@Override
+		public List<String> archivePartitionSql(String partitionName) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " DETACH PARTITION " + archiveTable(partitionName));
+		}
+
+	},
+
+	/**
+	 * Oracle RANGE partitioning with a "P_MAX" partition catching all rows above the last period,
+	 * new partitions are split from it.
+	 */
+	ORACLE {
+
+		@Override
+		public String listPartitionsSql() {
+			return "SELECT partition_name FROM user_tab_partitions WHERE table_name = '" + TABLE.toUpperCase() + "'";
+		}
+
+		@Override
+		public List<String> createPartitionSql(String partitionName, Date from, Date to) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " SPLIT PARTITION " + MAX_PARTITION
+					+ " AT (TIMESTAMP '" + date(to) + " 00:00:00') INTO (PARTITION " + partitionName + ", PARTITION " + MAX_PARTITION + ") UPDATE GLOBAL INDEXES");
+		}
+
+		@Override
+		public List<String> dropPartitionSql(String partitionName) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " DROP PARTITION " + partitionName + " UPDATE GLOBAL INDEXES");
+		}
+
+		@Override
+		public List<String> archivePartitionSql(String partitionName) {
+			String archiveTable = archiveTable(partitionName);
+			return Arrays.asList(
+					"CREATE TABLE " + archiveTable + " AS SELECT * FROM " + TABLE + " WHERE 1 = 0",
+					"ALTER TABLE " + TABLE + " EXCHANGE PARTITION " + partitionName + " WITH TABLE " + archiveTable + " UPDATE GLOBAL INDEXES",
+					"ALTER TABLE " + TABLE + " DROP PARTITION " + partitionName + " UPDATE GLOBAL INDEXES");
+		}
+
+	},
+
+	/**
+	 * DB2 range partitioning with a "p_max" partition catching all rows above the last period, partitions
+	 * are detached into standalone tables. DB2 cannot split a partition, the "p_max" partition is detached,
+	 * added again above the new period and its rows are inserted back. A detached partition is only
+	 * accessible after the detach is committed, so each statement is committed on its own.
+	 */
+	DB2 {
+
+		@Override
+		public String listPartitionsSql() {
+			return "SELECT datapartitionname FROM syscat.datapartitions WHERE tabname = '" + TABLE.toUpperCase() + "'";
+		}
+
+		@Override
+		public List<String> createPartitionSql(String partitionName, Date from, Date to) {
+			String maxTable = archiveTable(MAX_PARTITION);
+			return Arrays.asList(
+					"ALTER TABLE " + TABLE + " DETACH PARTITION " + MAX_PARTITION + " INTO " + maxTable,
+					"ALTER TABLE " + TABLE + " ADD PARTITION " + partitionName
+							+ " STARTING ('" + date(from) + " 00:00:00') INCLUSIVE ENDING ('" + date(to) + " 00:00:00') EXCLUSIVE",
+					"ALTER TABLE " + TABLE + " ADD PARTITION " + MAX_PARTITION
+							+ " STARTING ('" + date(to) + " 00:00:00') INCLUSIVE ENDING (MAXVALUE)",
+					"INSERT INTO " + TABLE + " SELECT * FROM " + maxTable,
+					"DROP TABLE " + maxTable);
+		}
+
+		@Override
+		public String detachedMaxPartitionSql() {
+			return "SELECT COUNT(*) FROM syscat.tables WHERE tabname = '" + archiveTable(MAX_PARTITION).toUpperCase() + "'";
+		}
+
+		@Override
+		public List<String> attachMaxPartitionSql(Date from, boolean maxPartitionExists) {
+			String maxTable = archiveTable(MAX_PARTITION);
+			List<String> statements = new ArrayList<>();
+			if (!maxPartitionExists) {
+				statements.add("ALTER TABLE " + TABLE + " ADD PARTITION " + MAX_PARTITION
+						+ " STARTING ('" + date(from) + " 00:00:00') INCLUSIVE ENDING (MAXVALUE)");
+			}
+			statements.add("INSERT INTO " + TABLE + " SELECT * FROM " + maxTable);
+			statements.add("DROP TABLE " + maxTable);
+			return statements;
+		}
+
+		@Override
+		public List<String> dropPartitionSql(String partitionName) {
+			String archiveTable = archiveTable(partitionName);
+			return Arrays.asList(
+					"ALTER TABLE " + TABLE + " DETACH PARTITION " + partitionName + " INTO " + archiveTable,
+					"DROP TABLE " + archiveTable);
+		}
+
+		@Override
+		public List<String> archivePartitionSql(String partitionName) {
+			return Arrays.asList("ALTER TABLE " + TABLE + " DETACH PARTITION " + partitionName + " INTO " + archiveTable(partitionName));
+		}
+
+	};
+
+	private static final String TABLE = "pa_signature_audit";
+
+	private static final String MAX_PARTITION = "p_max";
+
+	/**
+	 * Get the query returning names of all partitions of the signature audit table.
+	 * @return SQL query with a single string column.
+	 */
+	public abstract String listPartitionsSql();
+
+	/**
+	 * Get the statements creating a partition for given period, records of the period that were caught
+	 * by the "p_max" partition are moved to the new partition.
+	 * @param partitionName Partition name.
+	 * @param from Start of the period (inclusive).
+	 * @param to End of the period (exclusive).
+	 * @return SQL statements to be executed in given order.
+	 */
+	public abstract List<String> createPartitionSql(String partitionName, Date from, Date to);
+
+	/**
+	 * Get the query counting standalone "p_max" tables that are not attached to the signature audit table,
+	 * which happens when a creation of a partition is interrupted after the "p_max" partition is detached.
+	 * @return SQL query with a single numeric column, or null in case the dialect never detaches the "p_max" partition.
+	 */
+	public String detachedMaxPartitionSql() {
+		return null;
+	}
+
+	/**
+	 * Get the statements attaching a detached "p_max" table back to the signature audit table, see
+	 * {@link #detachedMaxPartitionSql()}.
+	 * @param from End of the last period, the start of the "p_max" partition.
+	 * @param maxPartitionExists Flag indicating if the "p_max" partition was already added again.
+	 * @return SQL statements to be executed in given order.
+	 */
+	public List<String> attachMaxPartitionSql(Date from, boolean maxPartitionExists) {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Check if given partition is the "p_max" partition.
+	 * @param partitionName Partition name, in any letter case.
+	 * @return True in case the partition is the "p_max" partition.
+	 */
+	public boolean isMaxPartition(String partitionName) {
+		return MAX_PARTITION.equalsIgnoreCase(partitionName);
+	}
+
+	/**
+	 * Check if all statements of a single operation are executed in one transaction. Otherwise, each
+	 * statement is committed on its own.
+	 * @return True in case the statements of an operation are executed in one transaction.
+	 */
+	public boolean isTransactionalDdl() {
+		return false;
+	}
+
+	/**
+	 * Get the statements removing a partition together with its records.
+	 * @param partitionName Partition name.
+	 * @return SQL statements to be executed in given order.
+	 */
+	public abstract List<String> dropPartitionSql(String partitionName);
+
+	/**
+	 * Get the statements moving a partition out of the signature audit table into a standalone
+	 * archive table, see {@link #archiveTable(String)}.
+	 * @param partitionName Partition name.
+	 * @return SQL statements to be executed in given order.
+	 */
+	public abstract List<String> archivePartitionSql(String partitionName);
+
+	/**
+	 * Get the name of the standalone table for given partition.
+	 * @param partitionName Partition name.
+	 * @return Table name, for example "pa_signature_audit_p_201610".
+	 */
+	public String archiveTable(String partitionName) {
+		return TABLE + "_" + partitionName.toLowerCase();
+	}
+
+	private static String date(Date date) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setTimeZone(SignatureAuditPartitionPeriod.UTC);
+		return format.format(date);
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Time periods covered by a single partition of the signature audit table. Partitions are named
+ * "p_" followed by the period start, for example "p_201610" or "p_20161018". Periods are always
+ * computed in UTC, so that all nodes agree on the boundaries regardless of their default time zone
+ * and daylight saving time changes.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public enum SignatureAuditPartitionPeriod {
+
+	/**
+	 * One partition per calendar day.
+	 */
+	DAY("yyyyMMdd", Calendar.DAY_OF_MONTH),
+
+	/**
+	 * One partition per calendar month.
+	 */
+	MONTH("yyyyMM", Calendar.MONTH);
+
+	private static final String PREFIX = "p_";
+
+	/**
+	 * Time zone of the partition boundaries.
+	 */
+	static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private final String pattern;
+	private final int calendarField;
+
+	SignatureAuditPartitionPeriod(String pattern, int calendarField) {
+		this.pattern = pattern;
+		this.calendarField = calendarField;
+	}
+
+	/**
+	 * Get the start of the period containing given date.
+	 * @param date Date.
+	 * @return Start of the period.
+	 */
+	public Date start(Date date) {
+		Calendar calendar = Calendar.getInstance(UTC);
+		calendar.setTime(date);
+		if (calendarField == Calendar.MONTH) {
+			calendar.set(Calendar.DAY_OF_MONTH, 1);
+		}
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar.getTime();
+	}
+
+	/**
+	 * Move the start of a period by given number of periods.
+	 * @param start Start of a period.
+	 * @param periods Number of periods, negative numbers move to the past.
+	 * @return Start of the resulting period.
+	 */
+	public Date add(Date start, int periods) {
+		Calendar calendar = Calendar.getInstance(UTC);
+		calendar.setTime(start);
+		calendar.add(calendarField, periods);
+		return calendar.getTime();
+	}
+
+	/**
+	 * Get the name of the partition for the period starting at given date.
+	 * @param start Start of the period.
+	 * @return Partition name.
+	 */
+	public String partitionName(Date start) {
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		format.setTimeZone(UTC);
+		return PREFIX + format.format(start);
+	}
+
+	/**
+	 * Get the start of the period from a partition name.
+	 * @param partitionName Partition name, in any letter case.
+	 * @return Start of the period, or null in case the name does not belong to a partition of this period.
+	 */
+	public Date parsePartitionName(String partitionName) {
+		if (partitionName == null || partitionName.length() != PREFIX.length() + pattern.length()
+				|| !partitionName.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+			return null;
+		}
+		String value = partitionName.substring(PREFIX.length());
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return null;
+			}
+		}
+		SimpleDateFormat format = new SimpleDateFormat(pattern);
+		format.setLenient(false);
+		format.setTimeZone(UTC);
+		try {
+			return format.parse(value);
+		} catch (ParseException ex) {
+			return null;
+		}
+	}
+
+}
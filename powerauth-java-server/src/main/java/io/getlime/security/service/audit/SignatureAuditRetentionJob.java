@@ -0,0 +1,248 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+
+/**
+ * Periodic maintenance of the partitioned signature audit table. The job creates partitions for the
+ * current and upcoming periods ahead of time and, in case a retention is configured, drops or archives
+ * whole partitions that are older than the retention, instead of deleting the records one by one.
+ * The job runs only in case a partition dialect is configured, see {@link SignatureAuditPartitionDialect}.
+ *
+ * Every node of a cluster schedules the job, the maintenance is therefore guarded by a lease in the
+ * pa_signature_audit_lock table (see migration_audit_partitioning.sql), so that only one node changes
+ * the partitions at a time.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class SignatureAuditRetentionJob {
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private SignatureAuditPartitionDialect dialect;
+
+	private SignatureAuditPartitionPeriod period;
+
+	private long interval;
+
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Schedule the partition maintenance, in case a partition dialect is configured.
+	 */
+	@PostConstruct
+	public void init() {
+		dialect = powerAuthServiceConfiguration.getSignatureAuditPartitionDialect();
+		if (dialect == null) {
+			return;
+		}
+		period = powerAuthServiceConfiguration.getSignatureAuditPartitionPeriod();
+		if (period == null) {
+			period = SignatureAuditPartitionPeriod.MONTH;
+		}
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		interval = Math.max(60, powerAuthServiceConfiguration.getSignatureAuditMaintenanceInterval());
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "powerauth-signature-audit-retention");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					maintainPartitions(new Date());
+				} catch (RuntimeException ex) {
+					Logger.getLogger(SignatureAuditRetentionJob.class.getName()).log(Level.SEVERE, null, ex);
+				}
+			}
+		}, 0, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stop the periodic maintenance.
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Create missing partitions up to the configured number of periods ahead and remove partitions
+	 * that are older than the configured retention. Partitions with names that do not match the
+	 * configured period are left untouched. Nothing is changed in case another node holds the lease.
+	 * @param now Current date.
+	 */
+	public synchronized void maintainPartitions(Date now) {
+		if (dialect == null) {
+			return;
+		}
+		if (!acquireLease()) {
+			Logger.getLogger(SignatureAuditRetentionJob.class.getName()).log(Level.FINE, "Signature audit partitions are maintained by another node");
+			return;
+		}
+		try {
+			updatePartitions(period.start(now));
+		} finally {
+			releaseLease();
+		}
+	}
+
+	private void updatePartitions(Date current) {
+
+		// Find existing partitions by their period start
+		TreeMap<Date, String> partitions = new TreeMap<>();
+		boolean maxPartitionExists = false;
+		for (String partitionName : jdbcTemplate.queryForList(dialect.listPartitionsSql(), String.class)) {
+			Date start = period.parsePartitionName(partitionName);
+			if (start != null) {
+				partitions.put(start, partitionName);
+			} else if (dialect.isMaxPartition(partitionName)) {
+				maxPartitionExists = true;
+			}
+		}
+
+		// Attach the "p_max" partition left detached by an interrupted creation before detaching it again
+		String detachedMaxPartitionSql = dialect.detachedMaxPartitionSql();
+		if (detachedMaxPartitionSql != null && jdbcTemplate.queryForObject(detachedMaxPartitionSql, Integer.class) > 0) {
+			Date from = partitions.isEmpty() ? current : period.add(partitions.lastKey(), 1);
+			if (!execute("attach", "p_max", dialect.attachMaxPartitionSql(from, maxPartitionExists))) {
+				return;
+			}
+		}
+
+		// Create partitions above the highest existing one, so that records always have a partition to go to
+		int partitionsAhead = Math.max(0, powerAuthServiceConfiguration.getSignatureAuditPartitionsAhead());
+		for (int i = 0; i <= partitionsAhead; i++) {
+			Date from = period.add(current, i);
+			if (partitions.isEmpty() || from.after(partitions.lastKey())) {
+				String partitionName = period.partitionName(from);
+				if (!execute("create", partitionName, dialect.createPartitionSql(partitionName, from, period.add(from, 1)))) {
+					break;
+				}
+				partitions.put(from, partitionName);
+			}
+		}
+
+		// Remove partitions older than the retention
+		int retentionPeriods = powerAuthServiceConfiguration.getSignatureAuditRetentionPeriods();
+		if (retentionPeriods > 0) {
+			boolean archive = powerAuthServiceConfiguration.isSignatureAuditRetentionArchive();
+			Date cutoff = period.add(current, -retentionPeriods);
+			for (Map.Entry<Date, String> partition : partitions.headMap(cutoff).entrySet()) {
+				String partitionName = partition.getValue();
+				if (archive) {
+					if (!execute("archive", partitionName, dialect.archivePartitionSql(partitionName))) {
+						break;
+					}
+				} else {
+					if (!execute("drop", partitionName, dialect.dropPartitionSql(partitionName))) {
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take the maintenance lease for the maintenance interval, in case it is not held by another node.
+	 * The lease is a committed row update, so it is kept while the DDL statements commit implicitly
+	 * and it expires when the node holding it fails.
+	 */
+	private boolean acquireLease() {
+		long now = System.currentTimeMillis();
+		return jdbcTemplate.update("UPDATE pa_signature_audit_lock SET locked_by = ?, locked_until = ? WHERE id = 1 AND (locked_until IS NULL OR locked_until < ?)",
+				nodeId, new Date(now + interval * 1000L), new Date(now)) > 0;
+	}
+
+	private void releaseLease() {
+		try {
+			jdbcTemplate.update("UPDATE pa_signature_audit_lock SET locked_until = NULL WHERE id = 1 AND locked_by = ?", nodeId);
+		} catch (DataAccessException ex) {
+			Logger.getLogger(SignatureAuditRetentionJob.class.getName()).log(Level.WARNING, "Signature audit partition lease was not released", ex);
+		}
+	}
+
+	private boolean execute(String operation, String partitionName, final List<String> statements) {
+		try {
+			if (dialect.isTransactionalDdl()) {
+				transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+					@Override
+					protected void doInTransactionWithoutResult(TransactionStatus status) {
+						for (String sql : statements) {
+							jdbcTemplate.execute(sql);
+						}
+					}
+				});
+			} else {
+				for (String sql : statements) {
+					jdbcTemplate.execute(sql);
+				}
+			}
+			Logger.getLogger(SignatureAuditRetentionJob.class.getName()).log(Level.INFO, "Signature audit partition " + partitionName + ": " + operation + " finished");
+			return true;
+		} catch (DataAccessException | TransactionException ex) {
+			Logger.getLogger(SignatureAuditRetentionJob.class.getName()).log(Level.SEVERE, "Signature audit partition " + partitionName + ": " + operation + " failed", ex);
+			return false;
+		}
+	}
+
+}
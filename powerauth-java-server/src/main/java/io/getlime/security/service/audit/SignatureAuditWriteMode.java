@@ -0,0 +1,43 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+/**
+ * Modes in which the signature audit records are written to the database.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public enum SignatureAuditWriteMode {
+
+	/**
+	 * Record is saved within the signature verification transaction.
+	 */
+	SYNCHRONOUS,
+
+	/**
+	 * Record is queued and inserted in a batch by a background writer. Callers wait
+	 * for a free slot in case the queue is full.
+	 */
+	ASYNC_BACKPRESSURE,
+
+	/**
+	 * Record is queued and inserted in a batch by a background writer. Records are
+	 * dropped and counted in case the queue is full.
+	 */
+	ASYNC_DROP
+
+}
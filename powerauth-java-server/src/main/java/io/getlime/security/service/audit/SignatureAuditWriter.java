@@ -0,0 +1,327 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.BulkInsertionCapableIdentifierGenerator;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.IdentityGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+
+import io.getlime.security.repository.SignatureAuditRepository;
+import io.getlime.security.repository.model.ActivationStatusConverter;
+import io.getlime.security.repository.model.entity.SignatureEntity;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
+
+/**
+ * Writer of the signature audit records. Depending on the configured {@link SignatureAuditWriteMode},
+ * records are either saved synchronously via the repository, or copied into a bounded queue that is
+ * flushed with JDBC batch inserts by a background thread. Records that are still queued when the
+ * application shuts down are written before the writer stops, records written after that are
+ * inserted synchronously. Batch inserts take the record ID from the same generator as the entity,
+ * unless an explicit ID expression is configured.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class SignatureAuditWriter {
+
+	private static final long POLL_TIMEOUT_MILLIS = 500;
+
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private SignatureAuditRepository signatureAuditRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	private final ActivationStatusConverter activationStatusConverter = new ActivationStatusConverter();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong failedCount = new AtomicLong();
+
+	private SignatureAuditWriteMode writeMode;
+
+	private BlockingQueue<Object[]> queue;
+
+	private String insertSql;
+
+	private int batchSize;
+
+	private Thread writerThread;
+
+	private volatile boolean running;
+
+	/**
+	 * Prepare the queue and start the background writer in case an asynchronous mode is configured.
+	 */
+	@PostConstruct
+	public void init() {
+		registerGauges();
+		writeMode = powerAuthServiceConfiguration.getSignatureAuditWriteMode();
+		if (writeMode == null) {
+			writeMode = SignatureAuditWriteMode.SYNCHRONOUS;
+		}
+		if (writeMode == SignatureAuditWriteMode.SYNCHRONOUS) {
+			return;
+		}
+
+		String idExpression = resolveIdExpression();
+		if (idExpression == null) {
+			insertSql = "INSERT INTO pa_signature_audit (activation_id, activation_counter, activation_status, data_base64, signature_type, signature, note, valid, timestamp_created, data, data_format) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+		} else {
+			insertSql = "INSERT INTO pa_signature_audit (id, activation_id, activation_counter, activation_status, data_base64, signature_type, signature, note, valid, timestamp_created, data, data_format) "
+					+ "VALUES (" + idExpression + ", ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+		}
+		batchSize = Math.max(1, powerAuthServiceConfiguration.getSignatureAuditBatchSize());
+		queue = new ArrayBlockingQueue<>(Math.max(1, powerAuthServiceConfiguration.getSignatureAuditQueueCapacity()));
+
+		running = true;
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeQueuedRecords();
+			}
+		}, "powerauth-signature-audit-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Stop the background writer, flushing all records that are still in the queue.
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (writerThread == null) {
+			return;
+		}
+		running = false;
+		try {
+			writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		// Write anything that was queued after the writer has finished
+		List<Object[]> batch = new ArrayList<>();
+		queue.drainTo(batch);
+		flush(batch);
+		writerThread = null;
+	}
+
+	/**
+	 * Write a signature audit record according to the configured write mode.
+	 * @param signatureAuditRecord Signature audit record.
+	 */
+	public void write(SignatureEntity signatureAuditRecord) {
+		if (writeMode == SignatureAuditWriteMode.SYNCHRONOUS) {
+			signatureAuditRepository.save(signatureAuditRecord);
+			return;
+		}
+
+		// Copy the values now, the activation entity keeps changing after the record is created
+		Object[] row = toRow(signatureAuditRecord);
+		if (!running) {
+			jdbcTemplate.update(insertSql, row);
+			return;
+		}
+		if (writeMode == SignatureAuditWriteMode.ASYNC_DROP) {
+			if (!queue.offer(row)) {
+				droppedCount.incrementAndGet();
+			}
+		} else {
+			try {
+				while (!queue.offer(row, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (!running) {
+						// Writer was stopped while waiting for a free slot
+						jdbcTemplate.update(insertSql, row);
+						return;
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				jdbcTemplate.update(insertSql, row);
+				return;
+			}
+		}
+		if (!running) {
+			// Writer was stopped while the record was being queued, it may have already drained the queue
+			List<Object[]> batch = new ArrayList<>();
+			queue.drainTo(batch);
+			flush(batch);
+		}
+	}
+
+	/**
+	 * Get the configured write mode.
+	 * @return Signature audit write mode.
+	 */
+	public SignatureAuditWriteMode getWriteMode() {
+		return writeMode;
+	}
+
+	/**
+	 * Get the number of records waiting for the background writer.
+	 * @return Number of queued records.
+	 */
+	public int getQueueSize() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	/**
+	 * Get the number of records dropped because the queue was full (only in {@link SignatureAuditWriteMode#ASYNC_DROP} mode).
+	 * @return Number of dropped records.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Get the number of records that were lost because a batch insert failed.
+	 * @return Number of records that failed to be written.
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * Publish the queue size and the numbers of dropped and failed records as metric gauges, so that
+	 * lost audit records are visible in the metrics.
+	 */
+	private void registerGauges() {
+		serviceMetrics.gauge(PowerAuthServiceMetrics.AUDIT_QUEUE_SIZE, new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getQueueSize();
+			}
+		});
+		serviceMetrics.gauge(PowerAuthServiceMetrics.AUDIT_DROPPED, new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getDroppedCount();
+			}
+		});
+		serviceMetrics.gauge(PowerAuthServiceMetrics.AUDIT_FAILED, new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getFailedCount();
+			}
+		});
+	}
+
+	/**
+	 * Get the SQL expression for the record ID used by the batch insert. An explicitly configured
+	 * expression wins, otherwise the generator of {@link SignatureEntity} is used, so that records
+	 * written by the repository and by the batch insert never get the same ID.
+	 * @return SQL expression for the record ID, or null in case the ID is generated by the database.
+	 */
+	private String resolveIdExpression() {
+		String idExpression = powerAuthServiceConfiguration.getSignatureAuditIdExpression();
+		if (idExpression != null && !idExpression.trim().isEmpty()) {
+			return idExpression.trim();
+		}
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		IdentifierGenerator generator = sessionFactory.getIdentifierGenerator(SignatureEntity.class.getName());
+		if (generator instanceof IdentityGenerator) {
+			return null;
+		}
+		if (generator instanceof BulkInsertionCapableIdentifierGenerator
+				&& ((BulkInsertionCapableIdentifierGenerator) generator).supportsBulkInsertionIdentifierGeneration()) {
+			return ((BulkInsertionCapableIdentifierGenerator) generator).determineBulkInsertionIdentifierGenerationSelectFragment(sessionFactory.getDialect());
+		}
+		throw new IllegalStateException("Signature audit ID generator " + generator.getClass().getName()
+				+ " cannot be used by the asynchronous writer, configure powerauth.service.signatureAudit.idExpression");
+	}
+
+	private void writeQueuedRecords() {
+		List<Object[]> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				Object[] row = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (row == null) {
+					continue;
+				}
+				batch.add(row);
+				queue.drainTo(batch, batchSize - 1);
+				flush(batch);
+			} catch (InterruptedException ex) {
+				// Keep writing until the shutdown hook stops the writer
+				Logger.getLogger(SignatureAuditWriter.class.getName()).log(Level.WARNING, null, ex);
+			}
+		}
+	}
+
+	private void flush(List<Object[]> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			jdbcTemplate.batchUpdate(insertSql, batch);
+		} catch (RuntimeException ex) {
+			failedCount.addAndGet(batch.size());
+			Logger.getLogger(SignatureAuditWriter.class.getName()).log(Level.SEVERE, null, ex);
+		}
+		batch.clear();
+	}
+
+	private Object[] toRow(SignatureEntity signatureAuditRecord) {
+		return new Object[] {
+				signatureAuditRecord.getActivation().getActivationId(),
+				signatureAuditRecord.getActivationCounter(),
+				activationStatusConverter.convertToDatabaseColumn(signatureAuditRecord.getActivationStatus()),
+				signatureAuditRecord.getDataBase64(),
+				signatureAuditRecord.getSignatureType(),
+				signatureAuditRecord.getSignature(),
+				signatureAuditRecord.getNote(),
+				signatureAuditRecord.getValid(),
+				new Timestamp(signatureAuditRecord.getTimestampCreated().getTime()),
+				signatureAuditRecord.getData(),
+				signatureAuditRecord.getDataFormat() == null ? null : signatureAuditRecord.getDataFormat().name()
+		};
+	}
+
+}
@@ -13,11 +13,15 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.crypto.SecretKey;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.xml.datatype.DatatypeConfigurationException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.Timer;
+
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.BaseEncoding;
 
@@ -36,16 +40,20 @@ import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
 import io.getlime.security.powerauth.server.activation.PowerAuthServerActivation;
 import io.getlime.security.powerauth.server.keyfactory.PowerAuthServerKeyFactory;
 import io.getlime.security.repository.ActivationRepository;
-import io.getlime.security.repository.ApplicationVersionRepository;
-import io.getlime.security.repository.MasterKeyPairRepository;
 import io.getlime.security.repository.model.ActivationStatus;
 import io.getlime.security.repository.model.entity.ActivationRecordEntity;
 import io.getlime.security.repository.model.entity.ApplicationEntity;
-import io.getlime.security.repository.model.entity.ApplicationVersionEntity;
 import io.getlime.security.repository.model.entity.MasterKeyPairEntity;
 import io.getlime.security.service.PowerAuthServiceImpl;
+import io.getlime.security.service.cache.ApplicationVersionCache;
+import io.getlime.security.service.cache.ApplicationVersionCache.CachedApplicationVersion;
+import io.getlime.security.service.cache.MasterKeyPairCache;
+import io.getlime.security.service.cache.MasterKeyPairCache.CachedMasterKeyPair;
+import io.getlime.security.service.cache.SignatureKeyCache;
 import io.getlime.security.service.exceptions.GenericServiceException;
 import io.getlime.security.service.i18n.LocalizationProvider;
+import io.getlime.security.service.keys.ActivationKeyStorage;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
 import io.getlime.security.service.util.ModelUtil;
 import io.getlime.security.service.util.model.ServiceError;
 
@@ -63,27 +71,41 @@ public class ActivationServiceBehavior {
 	private ActivationRepository powerAuthRepository;
 
 	@Autowired
-	private MasterKeyPairRepository masterKeyPairRepository;
+	private MasterKeyPairCache masterKeyPairCache;
 	
 	@Autowired
-	private ApplicationVersionRepository applicationVersionRepository;
+	private ApplicationVersionCache applicationVersionCache;
 	
 	@Autowired
 	private LocalizationProvider localizationProvider;
+	
+	@Autowired
+	private SignatureKeyCache signatureKeyCache;
+	
+	@Autowired
+	private ActivationKeyStorage activationKeyStorage;
+	
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
 
 	private final PowerAuthServerKeyFactory powerAuthServerKeyFactory = new PowerAuthServerKeyFactory();
 	private final PowerAuthServerActivation powerAuthServerActivation = new PowerAuthServerActivation();
 
 	/**
 	 * Deactivate the activation in CREATED or OTP_USED if it's activation expiration timestamp
-	 * is below the given timestamp.
+	 * is below the given timestamp. The activation is detached and its status is set to REMOVED
+	 * in memory, so that it does not have to be read again and the status is never flushed.
 	 * @param timestamp Timestamp to check activations against.
 	 * @param activation Activation to check.
 	 */
 	private void deactivatePendingActivation(Date timestamp, ActivationRecordEntity activation) {
 		if ((activation.getActivationStatus().equals(ActivationStatus.CREATED) || activation.getActivationStatus().equals(ActivationStatus.OTP_USED)) && (timestamp.getTime() > activation.getTimestampActivationExpire().getTime())) {
+			powerAuthRepository.updateActivationStatus(activation.getActivationId(), ActivationStatus.REMOVED);
+			entityManager.detach(activation);
 			activation.setActivationStatus(ActivationStatus.REMOVED);
-			powerAuthRepository.save(activation);
 		}
 	}
 
@@ -144,7 +166,13 @@ public class ActivationServiceBehavior {
 		// Generate timestamp in advance
 		Date timestamp = new Date();
 
-		ActivationRecordEntity activation = powerAuthRepository.findFirstByActivationId(activationId);
+		ActivationRecordEntity activation;
+		Timer.Context fetchTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_STATUS_FETCH);
+		try {
+			activation = powerAuthRepository.findFirstByActivationId(activationId);
+		} finally {
+			fetchTimer.stop();
+		}
 
 		// Check if the activation exists
 		if (activation != null) {
@@ -160,12 +188,11 @@ public class ActivationServiceBehavior {
 				byte[] randomStatusBlob = new KeyGenerator().generateRandomBytes(16);
 				
 				// Activation signature
-				String masterPrivateKeyBase64 = masterKeyPairRepository.findFirstByApplicationIdOrderByTimestampCreatedDesc(activation.getApplication().getId()).getMasterKeyPrivateBase64();
-				byte[] masterPrivateKeyBytes = BaseEncoding.base64().decode(masterPrivateKeyBase64);
+				PrivateKey masterPrivateKey = masterKeyPairCache.getLatest(activation.getApplication().getId(), keyConversionUtilities).getMasterPrivateKey();
 				byte[] activationSignature = powerAuthServerActivation.generateActivationSignature(
 						activation.getActivationIdShort(), 
 						activation.getActivationOTP(), 
-						keyConversionUtilities.convertBytesToPrivateKey(masterPrivateKeyBytes)
+						masterPrivateKey
 				);
 
 				// return the data
@@ -186,11 +213,6 @@ public class ActivationServiceBehavior {
 
 			} else {
 
-				// Get the server private and device public keys to compute
-				// the transport key
-				String serverPrivateKeyBase64 = activation.getServerPrivateKeyBase64();
-				String devicePublicKeyBase64 = activation.getDevicePublicKeyBase64();
-
 				// If an activation was turned to REMOVED directly from CREATED state,
 				// there is not device public key in the database - we need to handle
 				// that case by defaulting the C_statusBlob to random value...
@@ -198,22 +220,33 @@ public class ActivationServiceBehavior {
 
 				// There is a device public key available, therefore we can compute
 				// the real C_statusBlob value.
-				if (devicePublicKeyBase64 != null) {
-
-					PrivateKey serverPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(BaseEncoding.base64().decode(serverPrivateKeyBase64));
-					PublicKey devicePublicKey = keyConversionUtilities.convertBytesToPublicKey(BaseEncoding.base64().decode(devicePublicKeyBase64));
-
-					SecretKey masterSecretKey = powerAuthServerKeyFactory.generateServerMasterSecretKey(serverPrivateKey, devicePublicKey);
-					SecretKey transportKey = powerAuthServerKeyFactory.generateServerTransportKey(masterSecretKey);
-
-					// Encrypt the status blob
-					C_statusBlob = powerAuthServerActivation.encryptedStatusBlob(
-							activation.getActivationStatus().getByte(),
-							activation.getCounter(), 
-							activation.getFailedAttempts().byteValue(), 
-							activation.getMaxFailedAttempts().byteValue(), 
-							transportKey
-					);
+				if (activation.getDevicePublicKeyBase64() != null) {
+
+					Timer.Context encryptTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_STATUS_ENCRYPT);
+					try {
+						SecretKey transportKey;
+						if (activation.getActivationStatus() == ActivationStatus.ACTIVE) {
+							// Keys of ACTIVE activations are shared with the signature validation
+							transportKey = signatureKeyCache.getTransportKey(activation, keyConversionUtilities);
+						} else {
+							// Get the server private and device public keys to compute the transport key
+							PrivateKey serverPrivateKey = activationKeyStorage.getServerPrivateKey(activation, keyConversionUtilities);
+							PublicKey devicePublicKey = activationKeyStorage.getDevicePublicKey(activation, keyConversionUtilities);
+							SecretKey masterSecretKey = powerAuthServerKeyFactory.generateServerMasterSecretKey(serverPrivateKey, devicePublicKey);
+							transportKey = powerAuthServerKeyFactory.generateServerTransportKey(masterSecretKey);
+						}
+
+						// Encrypt the status blob
+						C_statusBlob = powerAuthServerActivation.encryptedStatusBlob(
+								activation.getActivationStatus().getByte(),
+								activation.getCounter(), 
+								activation.getFailedAttempts().byteValue(), 
+								activation.getMaxFailedAttempts().byteValue(), 
+								transportKey
+						);
+					} finally {
+						encryptTimer.stop();
+					}
 
 				}
 
@@ -296,14 +329,13 @@ public class ActivationServiceBehavior {
 		}
 
 		// Fetch the latest master private key
-		MasterKeyPairEntity masterKeyPair = masterKeyPairRepository.findFirstByApplicationIdOrderByTimestampCreatedDesc(applicationId);
+		CachedMasterKeyPair masterKeyPair = masterKeyPairCache.getLatest(applicationId, keyConversionUtilities);
 		if (masterKeyPair == null) {
 			GenericServiceException ex = localizationProvider.buildExceptionForCode(ServiceError.ERR0003);
 			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
 			throw ex;
 		}
-		byte[] masterPrivateKeyBytes = BaseEncoding.base64().decode(masterKeyPair.getMasterKeyPrivateBase64());
-		PrivateKey masterPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(masterPrivateKeyBytes);
+		PrivateKey masterPrivateKey = masterKeyPair.getMasterPrivateKey();
 		if (masterPrivateKey == null) {
 			GenericServiceException ex = localizationProvider.buildExceptionForCode(ServiceError.ERR0004);
 			Logger.getLogger(PowerAuthServiceImpl.class.getName()).log(Level.SEVERE, null, ex);
@@ -350,7 +382,6 @@ public class ActivationServiceBehavior {
 
 		// Generate server key pair
 		KeyPair serverKeyPair = powerAuthServerActivation.generateServerKeyPair();
-		byte[] serverKeyPrivateBytes = keyConversionUtilities.convertPrivateKeyToBytes(serverKeyPair.getPrivate());
 		byte[] serverKeyPublicBytes = keyConversionUtilities.convertPublicKeyToBytes(serverKeyPair.getPublic());
 
 		// Store the new activation
@@ -364,16 +395,17 @@ public class ActivationServiceBehavior {
 		activation.setDevicePublicKeyBase64(null);
 		activation.setExtras(null);
 		activation.setFailedAttempts(0L);
-		activation.setApplication(masterKeyPair.getApplication());
-		activation.setMasterKeyPair(masterKeyPair);
+		activation.setApplication(entityManager.getReference(ApplicationEntity.class, masterKeyPair.getApplicationId()));
+		activation.setMasterKeyPair(entityManager.getReference(MasterKeyPairEntity.class, masterKeyPair.getId()));
 		activation.setMaxFailedAttempts(maxAttempt);
-		activation.setServerPrivateKeyBase64(BaseEncoding.base64().encode(serverKeyPrivateBytes));
+		activationKeyStorage.setServerPrivateKey(activation, serverKeyPair.getPrivate(), keyConversionUtilities);
 		activation.setServerPublicKeyBase64(BaseEncoding.base64().encode(serverKeyPublicBytes));
 		activation.setTimestampActivationExpire(timestampExpiration);
 		activation.setTimestampCreated(timestamp);
 		activation.setTimestampLastUsed(timestamp);
 		activation.setUserId(userId);
 		powerAuthRepository.save(activation);
+		serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "created");
 
 		// Return the server response
 		InitActivationResponse response = new InitActivationResponse();
@@ -409,31 +441,33 @@ public class ActivationServiceBehavior {
 		// Get current timestamp
 		Date timestamp = new Date();
 		
-		ApplicationVersionEntity applicationVersion = applicationVersionRepository.findByApplicationKey(applicationKey);
+		CachedApplicationVersion applicationVersion = applicationVersionCache.get(applicationKey);
 		// if there is no such application, exit
-		if (applicationVersion == null || applicationVersion.getSupported() == false) {
+		if (applicationVersion == null || !applicationVersion.isSupported()) {
+			serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "application_invalid");
 			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0007);
 		}
 		
-		ApplicationEntity application = applicationVersion.getApplication();
-		// if there is no such application, exit
-		if (application == null) {
-			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0007);
-		}
+		long applicationId = applicationVersion.getApplicationId();
 
 		// Fetch the current activation by short activation ID
 		Set<ActivationStatus> states = ImmutableSet.of(ActivationStatus.CREATED);
-		ActivationRecordEntity activation = powerAuthRepository.findFirstByApplicationIdAndActivationIdShortAndActivationStatusInAndTimestampActivationExpireAfter(application.getId(), activationIdShort, states, timestamp);
+		ActivationRecordEntity activation;
+		Timer.Context fetchTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_PREPARE_FETCH);
+		try {
+			activation = powerAuthRepository.findFirstByApplicationIdAndActivationIdShortAndActivationStatusInAndTimestampActivationExpireAfter(applicationId, activationIdShort, states, timestamp);
+		} finally {
+			fetchTimer.stop();
+		}
 
 		// if there is no such activation or application does not match the activation application, exit 
-		if (activation == null || (activation.getApplication().getId() != application.getId())) {
+		if (activation == null || (activation.getApplication().getId() != applicationId)) {
+			serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "activation_not_found");
 			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0007);
 		}
 		
 		// Get master private key
-		String masterPrivateKeyBase64 = activation.getMasterKeyPair().getMasterKeyPrivateBase64();
-		byte[] masterPrivateKeyBytes = BaseEncoding.base64().decode(masterPrivateKeyBase64);
-		PrivateKey masterPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(masterPrivateKeyBytes);
+		PrivateKey masterPrivateKey = masterKeyPairCache.get(activation.getMasterKeyPair(), keyConversionUtilities).getMasterPrivateKey();
 		
 		// Get client ephemeral public key
 		PublicKey clientEphemeralPublicKey = null;
@@ -445,18 +479,24 @@ public class ActivationServiceBehavior {
 		// Decrypt the device public key
 		byte[] C_devicePublicKey = BaseEncoding.base64().decode(cDevicePublicKeyBase64);
 		byte[] activationNonce = BaseEncoding.base64().decode(activationNonceBase64);
-		PublicKey devicePublicKey = powerAuthServerActivation.decryptDevicePublicKey(
-				C_devicePublicKey,
-				activationIdShort,
-				masterPrivateKey,
-				clientEphemeralPublicKey,
-				activation.getActivationOTP(), 
-				activationNonce
-		);
+		PublicKey devicePublicKey;
+		Timer.Context decryptTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_PREPARE_DECRYPT);
+		try {
+			devicePublicKey = powerAuthServerActivation.decryptDevicePublicKey(
+					C_devicePublicKey,
+					activationIdShort,
+					masterPrivateKey,
+					clientEphemeralPublicKey,
+					activation.getActivationOTP(), 
+					activationNonce
+			);
+		} finally {
+			decryptTimer.stop();
+		}
 		
 		if (devicePublicKey == null) { // invalid key was sent, return error
-			activation.setActivationStatus(ActivationStatus.REMOVED);
-			powerAuthRepository.save(activation);
+			powerAuthRepository.updateActivationStatus(activation.getActivationId(), ActivationStatus.REMOVED);
+			serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "device_public_key_invalid");
 			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0009);
 		}
 		
@@ -467,36 +507,52 @@ public class ActivationServiceBehavior {
 				activationNonce, 
 				C_devicePublicKey, 
 				BaseEncoding.base64().decode(applicationKey), 
-				BaseEncoding.base64().decode(applicationVersion.getApplicationSecret()), 
+				applicationVersion.getApplicationSecretBytes(), 
 				applicationSignatureBytes)) {
+			serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "application_signature_invalid");
 			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0007);
 		}
 
 		// Update and persist the activation record
 		activation.setActivationStatus(ActivationStatus.OTP_USED);
-		activation.setDevicePublicKeyBase64(BaseEncoding.base64().encode(keyConversionUtilities.convertPublicKeyToBytes(devicePublicKey)));
+		activationKeyStorage.setDevicePublicKey(activation, devicePublicKey, keyConversionUtilities);
 		activation.setActivationName(activationName);
 		activation.setExtras(extras);
-		powerAuthRepository.save(activation);
+		Timer.Context saveTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_PREPARE_SAVE);
+		try {
+			powerAuthRepository.save(activation);
+		} finally {
+			saveTimer.stop();
+		}
 
 		// Generate response data
-		byte[] activationNonceServer = powerAuthServerActivation.generateActivationNonce();
-		String serverPublicKeyBase64 = activation.getServerPublicKeyBase64();
-		PublicKey serverPublicKey = keyConversionUtilities.convertBytesToPublicKey(BaseEncoding.base64().decode(serverPublicKeyBase64));
-		KeyPair ephemeralKeyPair = new KeyGenerator().generateKeyPair();
-		PrivateKey ephemeralPrivateKey = ephemeralKeyPair.getPrivate();
-		PublicKey ephemeralPublicKey = ephemeralKeyPair.getPublic();
-		byte[] ephemeralPublicKeyBytes = keyConversionUtilities.convertPublicKeyToBytes(ephemeralPublicKey);
-		String activationOtp = activation.getActivationOTP();
-
-		// Encrypt the public key
-		byte[] C_serverPublicKey = powerAuthServerActivation.encryptServerPublicKey(serverPublicKey, devicePublicKey, ephemeralPrivateKey, activationOtp, activationIdShort, activationNonceServer);
-
-		// Get encrypted public key signature
-		byte[] C_serverPubKeySignature = powerAuthServerActivation.computeServerDataSignature(activation.getActivationId(), C_serverPublicKey, masterPrivateKey);
-		if (C_serverPubKeySignature == null) { // in case there is a technical error with signing and null is returned, return random bytes
-			C_serverPubKeySignature = new KeyGenerator().generateRandomBytes(71);
+		byte[] activationNonceServer;
+		byte[] ephemeralPublicKeyBytes;
+		byte[] C_serverPublicKey;
+		byte[] C_serverPubKeySignature;
+		Timer.Context encryptTimer = serviceMetrics.time(PowerAuthServiceMetrics.ACTIVATION_PREPARE_ENCRYPT);
+		try {
+			activationNonceServer = powerAuthServerActivation.generateActivationNonce();
+			String serverPublicKeyBase64 = activation.getServerPublicKeyBase64();
+			PublicKey serverPublicKey = keyConversionUtilities.convertBytesToPublicKey(BaseEncoding.base64().decode(serverPublicKeyBase64));
+			KeyPair ephemeralKeyPair = new KeyGenerator().generateKeyPair();
+			PrivateKey ephemeralPrivateKey = ephemeralKeyPair.getPrivate();
+			PublicKey ephemeralPublicKey = ephemeralKeyPair.getPublic();
+			ephemeralPublicKeyBytes = keyConversionUtilities.convertPublicKeyToBytes(ephemeralPublicKey);
+			String activationOtp = activation.getActivationOTP();
+
+			// Encrypt the public key
+			C_serverPublicKey = powerAuthServerActivation.encryptServerPublicKey(serverPublicKey, devicePublicKey, ephemeralPrivateKey, activationOtp, activationIdShort, activationNonceServer);
+
+			// Get encrypted public key signature
+			C_serverPubKeySignature = powerAuthServerActivation.computeServerDataSignature(activation.getActivationId(), C_serverPublicKey, masterPrivateKey);
+			if (C_serverPubKeySignature == null) { // in case there is a technical error with signing and null is returned, return random bytes
+				C_serverPubKeySignature = new KeyGenerator().generateRandomBytes(71);
+			}
+		} finally {
+			encryptTimer.stop();
 		}
+		serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "prepared");
 
 		// Compute the response
 		PrepareActivationResponse response = new PrepareActivationResponse();
@@ -535,9 +591,12 @@ public class ActivationServiceBehavior {
 			boolean activated = false;
 			if (activation.getActivationStatus().equals(ActivationStatus.OTP_USED)) {
 
-				activated = true;
-				activation.setActivationStatus(ActivationStatus.ACTIVE);
-				powerAuthRepository.save(activation);
+				// Commit the activation only in case it was not removed in the meantime
+				activated = powerAuthRepository.updateActivationStatusIfUnchanged(activationId, ActivationStatus.OTP_USED, ActivationStatus.ACTIVE, activation.getFailedAttempts()) > 0;
+				if (!activated) {
+					throw localizationProvider.buildExceptionForCode(ServiceError.ERR0008);
+				}
+				serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "committed");
 
 				CommitActivationResponse response = new CommitActivationResponse();
 				response.setActivationId(activationId);
@@ -564,8 +623,9 @@ public class ActivationServiceBehavior {
 		boolean removed = false;
 		if (activation != null) { // does the record even exist?
 			removed = true;
-			activation.setActivationStatus(ActivationStatus.REMOVED);
-			powerAuthRepository.save(activation);
+			powerAuthRepository.updateActivationStatus(activationId, ActivationStatus.REMOVED);
+			signatureKeyCache.invalidate(activationId);
+			serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "removed");
 
 			RemoveActivationResponse response = new RemoveActivationResponse();
 			response.setActivationId(activationId);
@@ -590,8 +650,12 @@ public class ActivationServiceBehavior {
 
 		// does the record even exist, is it in correct state?
 		if (activation != null && activation.getActivationStatus().equals(ActivationStatus.ACTIVE)) {
-			activation.setActivationStatus(ActivationStatus.BLOCKED);
-			powerAuthRepository.save(activation);
+			if (powerAuthRepository.updateActivationStatusIfUnchanged(activationId, ActivationStatus.ACTIVE, ActivationStatus.BLOCKED, activation.getFailedAttempts()) > 0) {
+				serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "blocked");
+			}
+			// Reload the current status, the activation might have been changed by a parallel request
+			entityManager.refresh(activation);
+			signatureKeyCache.invalidate(activationId);
 		}
 		BlockActivationResponse response = new BlockActivationResponse();
 		response.setActivationId(activationId);
@@ -612,9 +676,12 @@ public class ActivationServiceBehavior {
 		}
 		// does the record even exist, is it in correct state?
 		if (activation != null && activation.getActivationStatus().equals(ActivationStatus.BLOCKED)) {
-			activation.setActivationStatus(ActivationStatus.ACTIVE);
-			activation.setFailedAttempts(0L);
-			powerAuthRepository.save(activation);
+			if (powerAuthRepository.updateActivationStatusIfUnchanged(activationId, ActivationStatus.BLOCKED, ActivationStatus.ACTIVE, 0L) > 0) {
+				serviceMetrics.increment(PowerAuthServiceMetrics.ACTIVATION_RESULT + "unblocked");
+			}
+			// Reload the current status, the activation might have been changed by a parallel request
+			entityManager.refresh(activation);
+			signatureKeyCache.invalidate(activationId);
 		}
 		UnblockActivationResponse response = new UnblockActivationResponse();
 		response.setActivationId(activationId);
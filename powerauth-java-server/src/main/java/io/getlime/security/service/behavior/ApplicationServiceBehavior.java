@@ -26,6 +26,8 @@ import io.getlime.security.repository.MasterKeyPairRepository;
 import io.getlime.security.repository.model.entity.ApplicationEntity;
 import io.getlime.security.repository.model.entity.ApplicationVersionEntity;
 import io.getlime.security.repository.model.entity.MasterKeyPairEntity;
+import io.getlime.security.service.cache.ApplicationVersionCache;
+import io.getlime.security.service.cache.MasterKeyPairCache;
 
 /**
  * Behavior class implementing the application management related processes. The class separates the
@@ -45,6 +47,12 @@ public class ApplicationServiceBehavior {
 	
 	@Autowired
 	private MasterKeyPairRepository masterKeyPairRepository;
+	
+	@Autowired
+	private ApplicationVersionCache applicationVersionCache;
+	
+	@Autowired
+	private MasterKeyPairCache masterKeyPairCache;
 
 	/**
 	 * Get application details.
@@ -122,6 +130,7 @@ public class ApplicationServiceBehavior {
 		keyPair.setTimestampCreated(new Date());
 		keyPair.setName(name + " Default Keypair");
 		masterKeyPairRepository.save(keyPair);
+		masterKeyPairCache.invalidate(application.getId());
 		
 		// Create the default application version
 		byte[] applicationKeyBytes = keyGen.generateRandomBytes(16);
@@ -132,7 +141,8 @@ public class ApplicationServiceBehavior {
 		version.setSupported(true);
 		version.setApplicationKey(BaseEncoding.base64().encode(applicationKeyBytes));
 		version.setApplicationSecret(BaseEncoding.base64().encode(applicationSecretBytes));
-		applicationVersionRepository.save(version);
+		version = applicationVersionRepository.save(version);
+		applicationVersionCache.update(version);
 		
 		CreateApplicationResponse response = new CreateApplicationResponse();
 		response.setApplicationId(application.getId());
@@ -162,6 +172,7 @@ public class ApplicationServiceBehavior {
 		version.setApplicationKey(BaseEncoding.base64().encode(applicationKeyBytes));
 		version.setApplicationSecret(BaseEncoding.base64().encode(applicationSecretBytes));
 		version = applicationVersionRepository.save(version);
+		applicationVersionCache.update(version);
 		
 		CreateApplicationVersionResponse response = new CreateApplicationVersionResponse();
 		response.setApplicationVersionId(version.getId());
@@ -183,6 +194,7 @@ public class ApplicationServiceBehavior {
 		ApplicationVersionEntity version = applicationVersionRepository.findOne(versionId);
 		version.setSupported(false);
 		version = applicationVersionRepository.save(version);
+		applicationVersionCache.update(version);
 		
 		UnsupportApplicationVersionResponse response = new UnsupportApplicationVersionResponse();
 		response.setApplicationVersionId(version.getId());
@@ -201,6 +213,7 @@ public class ApplicationServiceBehavior {
 		ApplicationVersionEntity version = applicationVersionRepository.findOne(versionId);
 		version.setSupported(true);
 		version = applicationVersionRepository.save(version);
+		applicationVersionCache.update(version);
 		
 		SupportApplicationVersionResponse response = new SupportApplicationVersionResponse();
 		response.setApplicationVersionId(version.getId());
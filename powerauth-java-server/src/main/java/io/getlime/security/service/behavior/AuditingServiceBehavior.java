@@ -1,20 +1,42 @@
 package io.getlime.security.service.behavior;
 
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.Timer;
+
 import com.google.common.io.BaseEncoding;
 
 import io.getlime.security.powerauth.SignatureAuditResponse;
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
 import io.getlime.security.repository.SignatureAuditRepository;
+import io.getlime.security.repository.model.SignatureAuditDataFormat;
+import io.getlime.security.repository.model.SignatureAuditRecord;
 import io.getlime.security.repository.model.entity.ActivationRecordEntity;
 import io.getlime.security.repository.model.entity.SignatureEntity;
+import io.getlime.security.service.audit.SignatureAuditWriter;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+import io.getlime.security.service.exceptions.GenericServiceException;
+import io.getlime.security.service.i18n.LocalizationProvider;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
 import io.getlime.security.service.util.ModelUtil;
+import io.getlime.security.service.util.model.ServiceError;
 
 /**
  * Behavior class associated with process of a server auditing. Every time server attempts to compute a signature,
@@ -28,74 +50,258 @@ public class AuditingServiceBehavior {
 
 	@Autowired
 	private SignatureAuditRepository signatureAuditRepository;
+
+	@Autowired
+	private SignatureAuditWriter signatureAuditWriter;
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private LocalizationProvider localizationProvider;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
 	
 	/**
-	 * List records from the signature audit log for given user
+	 * List records from the signature audit log for given user. In case the page size is provided, at most
+	 * given number of records is returned together with a continuation token for the next page, if there
+	 * are more records. Otherwise, all matching records are returned. Records are always read from the
+	 * database in pages ordered by the record ID.
+	 *
+	 * Record IDs are not committed in order (concurrent transactions, asynchronous audit writer), so a record
+	 * with a lower ID may appear after a page with higher IDs was read. To keep the paging consistent, only
+	 * records created before the configured read lag are returned when the page size is provided, and the
+	 * upper bound determined for the first page is kept in the continuation token for all following pages.
 	 * @param userId User ID
 	 * @param applicationId Application ID. If null is provided, all applications are checked.
 	 * @param startingDate Since when should the log be displayed.
 	 * @param endingDate Until when should the log be displayed.
+	 * @param pageSize Maximum number of returned records. If null is provided, all records are returned.
+	 * @param continuationToken Continuation token returned with the previous page, or null for the first page.
+	 * @param includeData Flag indicating if the signed data should be returned with the records.
 	 * @return Response with log items.
 	 * @throws DatatypeConfigurationException In case date cannot be converted.
+	 * @throws GenericServiceException In case the page size or the continuation token is invalid.
+	 * @throws DataFormatException In case compressed data are corrupted.
 	 */
-	public SignatureAuditResponse getSignatureAuditLog(String userId, Long applicationId, Date startingDate, Date endingDate) throws DatatypeConfigurationException {
-		
-		List<SignatureEntity> signatureAuditEntityList = null;
-		if (applicationId == null) {
-			signatureAuditEntityList = signatureAuditRepository.findByActivation_UserIdAndTimestampCreatedBetween(userId, startingDate, endingDate);
+	public SignatureAuditResponse getSignatureAuditLog(String userId, Long applicationId, Date startingDate, Date endingDate, Integer pageSize, String continuationToken, boolean includeData) throws DatatypeConfigurationException, GenericServiceException, DataFormatException {
+
+		if (pageSize != null && pageSize < 1) {
+			throw localizationProvider.buildExceptionForCode(ServiceError.ERR0011);
+		}
+		long lastId = 0L;
+		Date upperBound;
+		if (pageSize == null) {
+			// All records are read at once, there is no following page to keep consistent
+			upperBound = endingDate;
+		} else if (continuationToken == null || continuationToken.isEmpty()) {
+			// Records created within the read lag may still be committed with lower IDs
+			Date committedBefore = new Date(System.currentTimeMillis() - powerAuthServiceConfiguration.getSignatureAuditReadLag() * 1000L);
+			upperBound = committedBefore.before(endingDate) ? committedBefore : endingDate;
 		} else {
-			signatureAuditEntityList = signatureAuditRepository.findByActivation_ApplicationIdAndActivation_UserIdAndTimestampCreatedBetween(applicationId, userId, startingDate, endingDate);
+			String[] token = continuationToken.split(":");
+			try {
+				if (token.length != 2) {
+					throw localizationProvider.buildExceptionForCode(ServiceError.ERR0011);
+				}
+				lastId = Long.parseLong(token[0]);
+				upperBound = new Date(Long.parseLong(token[1]));
+			} catch (NumberFormatException ex) {
+				throw localizationProvider.buildExceptionForCode(ServiceError.ERR0011);
+			}
 		}
+		int maxPageSize = Math.max(1, powerAuthServiceConfiguration.getSignatureAuditMaxPageSize());
+		int size = pageSize != null ? Math.min(pageSize, maxPageSize) : maxPageSize;
 
 		SignatureAuditResponse response = new SignatureAuditResponse();
-		if (signatureAuditEntityList != null) {
-			for (SignatureEntity signatureEntity : signatureAuditEntityList) {
-
-				SignatureAuditResponse.Items item = new SignatureAuditResponse.Items();
-
-				item.setId(signatureEntity.getId());
-				item.setApplicationId(signatureEntity.getActivation().getApplication().getId());
-				item.setActivationCounter(signatureEntity.getActivationCounter());
-				item.setActivationStatus(ModelUtil.toServiceStatus(signatureEntity.getActivationStatus()));
-				item.setActivationId(signatureEntity.getActivation().getActivationId());
-				item.setDataBase64(signatureEntity.getDataBase64());
-				item.setSignature(signatureEntity.getSignature());
-				item.setSignatureType(signatureEntity.getSignatureType());
-				item.setValid(signatureEntity.getValid());
-				item.setTimestampCreated(ModelUtil.calendarWithDate(signatureEntity.getTimestampCreated()));
-				item.setNote(signatureEntity.getNote());
-				item.setUserId(signatureEntity.getActivation().getUserId());
-
-				response.getItems().add(item);
-			}
+		List<SignatureAuditRecord> records;
+		Timer.Context readTimer = serviceMetrics.time(PowerAuthServiceMetrics.AUDIT_READ);
+		try {
+			do {
+				if (applicationId == null) {
+					records = signatureAuditRepository.findRecordsByUserId(userId, startingDate, upperBound, lastId, new PageRequest(0, size));
+				} else {
+					records = signatureAuditRepository.findRecordsByApplicationIdAndUserId(applicationId, userId, startingDate, upperBound, lastId, new PageRequest(0, size));
+				}
+				addItems(response, records, includeData);
+				if (!records.isEmpty()) {
+					lastId = records.get(records.size() - 1).getId();
+				}
+			} while (pageSize == null && records.size() == size);
+		} finally {
+			readTimer.stop();
+		}
+
+		// Full page was returned, there may be more records
+		if (pageSize != null && records.size() == size) {
+			response.setContinuationToken(lastId + ":" + upperBound.getTime());
 		}
 
 		return response;
 	}
+
+	/**
+	 * Set the signed data of a response item according to the format they were stored in. Compressed data
+	 * are returned as Base64 of the data without the application secret, hash is returned as Base64 in
+	 * a separate attribute.
+	 * @param item Response item.
+	 * @param row Record ID, data encoded as Base64, binary data and binary data format, or null if data were not loaded.
+	 * @throws DataFormatException In case compressed data are corrupted.
+	 */
+	private void setData(SignatureAuditResponse.Items item, Object[] row) throws DataFormatException {
+		if (row == null) {
+			return;
+		}
+		byte[] binaryData = (byte[]) row[2];
+		SignatureAuditDataFormat dataFormat = (SignatureAuditDataFormat) row[3];
+		if (binaryData != null && dataFormat == SignatureAuditDataFormat.HASH) {
+			item.setDataHash(BaseEncoding.base64().encode(binaryData));
+		} else if (binaryData != null && dataFormat == SignatureAuditDataFormat.COMPRESSED) {
+			item.setDataBase64(BaseEncoding.base64().encode(decompress(binaryData)));
+		} else {
+			item.setDataBase64((String) row[1]);
+		}
+	}
+
+	/**
+	 * Convert signature audit records to response items, the signed data are loaded for the whole page at once.
+	 * @param response Response to add the items to.
+	 * @param records Signature audit records.
+	 * @param includeData Flag indicating if the signed data should be loaded.
+	 * @throws DatatypeConfigurationException In case date cannot be converted.
+	 * @throws DataFormatException In case compressed data are corrupted.
+	 */
+	private void addItems(SignatureAuditResponse response, List<SignatureAuditRecord> records, boolean includeData) throws DatatypeConfigurationException, DataFormatException {
+		if (records.isEmpty()) {
+			return;
+		}
+		Map<Long, Object[]> data = new HashMap<>();
+		if (includeData) {
+			List<Long> ids = new ArrayList<>(records.size());
+			for (SignatureAuditRecord record : records) {
+				ids.add(record.getId());
+			}
+			for (Object[] row : signatureAuditRepository.findDataByIds(ids)) {
+				data.put((Long) row[0], row);
+			}
+		}
+		for (SignatureAuditRecord record : records) {
+
+			SignatureAuditResponse.Items item = new SignatureAuditResponse.Items();
+
+			item.setId(record.getId());
+			item.setApplicationId(record.getApplicationId());
+			item.setActivationCounter(record.getActivationCounter());
+			item.setActivationStatus(ModelUtil.toServiceStatus(record.getActivationStatus()));
+			item.setActivationId(record.getActivationId());
+			setData(item, data.get(record.getId()));
+			item.setSignature(record.getSignature());
+			item.setSignatureType(record.getSignatureType());
+			item.setValid(record.getValid());
+			item.setTimestampCreated(ModelUtil.calendarWithDate(record.getTimestampCreated()));
+			item.setNote(record.getNote());
+			item.setUserId(record.getUserId());
+
+			response.getItems().add(item);
+		}
+	}
 	
 	/**
-	 * Log a record in a signature audit log.
+	 * Log a record in a signature audit log. Depending on the configuration, the record is either
+	 * saved immediately or queued for a batch insert, see {@link SignatureAuditWriter}.
 	 * @param activation Activation used for the signature calculation.
 	 * @param signatureType Requested signature type
 	 * @param signature Provided signature.
-	 * @param data Provided data.
+	 * @param dataString Provided data, without the application secret.
+	 * @param data Signature base with provided data, including the application secret.
 	 * @param valid Flag indicating if the signature was valid
 	 * @param note Record additional info (for example, reason for signature validation failure)
 	 * @param currentTimestamp Record timestamp
+	 * @throws UnsupportedEncodingException In case UTF-8 is not supported on the system.
 	 */
-	public void logSignatureAuditRecord(ActivationRecordEntity activation, String signatureType, String signature, byte[] data, Boolean valid, String note, Date currentTimestamp) {
+	public void logSignatureAuditRecord(ActivationRecordEntity activation, String signatureType, String signature, String dataString, PowerAuthSignatureBase data, Boolean valid, String note, Date currentTimestamp) throws UnsupportedEncodingException {
 		// Audit the signature
-		SignatureEntity signatureAuditRecord = new SignatureEntity();
-		signatureAuditRecord.setActivation(activation);
-		signatureAuditRecord.setActivationCounter(activation.getCounter());
-		signatureAuditRecord.setActivationStatus(activation.getActivationStatus());
-		signatureAuditRecord.setDataBase64(BaseEncoding.base64().encode(data));
-		signatureAuditRecord.setSignature(signature);
-		signatureAuditRecord.setSignatureType(signatureType);
-		signatureAuditRecord.setValid(valid);
-		signatureAuditRecord.setNote(note);
-		signatureAuditRecord.setTimestampCreated(currentTimestamp);
-		signatureAuditRepository.save(signatureAuditRecord);
+		Timer.Context writeTimer = serviceMetrics.time(PowerAuthServiceMetrics.AUDIT_WRITE);
+		try {
+			SignatureEntity signatureAuditRecord = new SignatureEntity();
+			signatureAuditRecord.setActivation(activation);
+			signatureAuditRecord.setActivationCounter(activation.getCounter());
+			signatureAuditRecord.setActivationStatus(activation.getActivationStatus());
+			switch (dataFormat()) {
+				case HASH:
+					signatureAuditRecord.setData(hash(data));
+					signatureAuditRecord.setDataFormat(SignatureAuditDataFormat.HASH);
+					break;
+				case FULL:
+					signatureAuditRecord.setDataBase64(BaseEncoding.base64().encode(data.toByteArray()));
+					signatureAuditRecord.setDataFormat(SignatureAuditDataFormat.FULL);
+					break;
+				default:
+					signatureAuditRecord.setData(compress(dataString.getBytes("UTF-8")));
+					signatureAuditRecord.setDataFormat(SignatureAuditDataFormat.COMPRESSED);
+					break;
+			}
+			signatureAuditRecord.setSignature(signature);
+			signatureAuditRecord.setSignatureType(signatureType);
+			signatureAuditRecord.setValid(valid);
+			signatureAuditRecord.setNote(note);
+			signatureAuditRecord.setTimestampCreated(currentTimestamp);
+			signatureAuditWriter.write(signatureAuditRecord);
+		} finally {
+			writeTimer.stop();
+		}
+	}
+
+	private SignatureAuditDataFormat dataFormat() {
+		SignatureAuditDataFormat dataFormat = powerAuthServiceConfiguration.getSignatureAuditDataFormat();
+		return dataFormat != null ? dataFormat : SignatureAuditDataFormat.COMPRESSED;
+	}
+
+	private static byte[] hash(PowerAuthSignatureBase data) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			data.update(digest);
+			return digest.digest();
+		} catch (NoSuchAlgorithmException ex) {
+			// SHA-256 is available on every Java platform
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static byte[] compress(byte[] data) {
+		Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2 + 16);
+			byte[] buffer = new byte[1024];
+			while (!deflater.finished()) {
+				output.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] decompress(byte[] data) throws DataFormatException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 3);
+			byte[] buffer = new byte[1024];
+			while (!inflater.finished()) {
+				int length = inflater.inflate(buffer);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new DataFormatException("Truncated signature audit data");
+				}
+				output.write(buffer, 0, length);
+			}
+			return output.toByteArray();
+		} finally {
+			inflater.end();
+		}
 	}
 	
 }
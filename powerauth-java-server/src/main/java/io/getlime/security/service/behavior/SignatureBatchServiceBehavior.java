@@ -0,0 +1,203 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.behavior;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.VerifySignatureResponse;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.repository.model.ActivationStatus;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
+import io.getlime.security.service.util.ModelUtil;
+
+/**
+ * Behavior class implementing the batch signature validation. Signatures are grouped by activation,
+ * signatures of a single activation are verified one after another in the request order, while
+ * groups of different activations are verified in parallel. Every signature is verified in its own
+ * transaction, exactly as if it was verified by a separate request, so a signature that fails to be
+ * verified is reported as invalid without affecting the other signatures of the batch.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class SignatureBatchServiceBehavior {
+
+	@Autowired
+	private SignatureServiceBehavior signatureServiceBehavior;
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ExecutorService executor;
+
+	/**
+	 * Prepare the threads verifying the signatures, unless verification in the calling thread is configured.
+	 */
+	@PostConstruct
+	public void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		int threads = powerAuthServiceConfiguration.getSignatureBatchThreads();
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger counter = new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "powerauth-signature-batch-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stop the threads verifying the signatures.
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Verify signatures from the batch and log every validation attempt in the audit log. In case a verification
+	 * fails with an exception, its transaction is rolled back and the signature is reported as invalid, while
+	 * the other signatures of the batch are verified normally.
+	 * @param requests Signature verification requests.
+	 * @param keyConversionUtilities Conversion utility class.
+	 * @return Responses with the signature validation result objects, in the order of the requests.
+	 * @throws Exception In case the batch verification is interrupted.
+	 */
+	public List<VerifySignatureResponse> verifySignatureBatch(final List<VerifySignatureRequest> requests, final CryptoProviderUtil keyConversionUtilities) throws Exception {
+		// Group the requests by activation, keep the request order within the group
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < requests.size(); i++) {
+			String activationId = requests.get(i).getActivationId();
+			List<Integer> group = groups.get(activationId);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(activationId, group);
+			}
+			group.add(i);
+		}
+
+		final VerifySignatureResponse[] responses = new VerifySignatureResponse[requests.size()];
+		if (executor == null || groups.size() < 2) {
+			for (List<Integer> group : groups.values()) {
+				verifyGroup(requests, group, responses, keyConversionUtilities);
+			}
+		} else {
+			List<Future<Void>> futures = new ArrayList<>(groups.size());
+			for (final List<Integer> group : groups.values()) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						verifyGroup(requests, group, responses, keyConversionUtilities);
+						return null;
+					}
+				}));
+			}
+			try {
+				for (Future<Void> future : futures) {
+					future.get();
+				}
+			} catch (ExecutionException ex) {
+				for (Future<Void> future : futures) {
+					future.cancel(false);
+				}
+				if (ex.getCause() instanceof Exception) {
+					throw (Exception) ex.getCause();
+				}
+				throw ex;
+			}
+		}
+		return Arrays.asList(responses);
+	}
+
+	private void verifyGroup(List<VerifySignatureRequest> requests, List<Integer> group, VerifySignatureResponse[] responses, CryptoProviderUtil keyConversionUtilities) {
+		for (Integer index : group) {
+			responses[index] = verifySignature(requests.get(index), keyConversionUtilities);
+		}
+	}
+
+	private VerifySignatureResponse verifySignature(final VerifySignatureRequest request, final CryptoProviderUtil keyConversionUtilities) {
+		try {
+			return transactionTemplate.execute(new TransactionCallback<VerifySignatureResponse>() {
+				@Override
+				public VerifySignatureResponse doInTransaction(TransactionStatus status) {
+					try {
+						String signatureType = request.getSignatureType().toLowerCase();
+						return signatureServiceBehavior.verifySignature(request.getActivationId(), signatureType, request.getSignature(), request.getData(), request.getApplicationKey(), keyConversionUtilities);
+					} catch (UnsupportedEncodingException | InvalidKeySpecException | InvalidKeyException ex) {
+						throw new IllegalStateException(ex);
+					}
+				}
+			});
+		} catch (RuntimeException ex) {
+			// The state of the activation is not known, reject the signature the same way as for an unknown activation
+			Logger.getLogger(SignatureBatchServiceBehavior.class.getName()).log(Level.SEVERE, "Signature verification failed: " + request.getActivationId(), ex);
+			serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_RESULT + "verification_error");
+			VerifySignatureResponse response = new VerifySignatureResponse();
+			response.setActivationId(request.getActivationId());
+			response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
+			response.setRemainingAttempts(BigInteger.valueOf(0));
+			response.setSignatureValid(false);
+			response.setUserId("UNKNOWN");
+			return response;
+		}
+	}
+
+}
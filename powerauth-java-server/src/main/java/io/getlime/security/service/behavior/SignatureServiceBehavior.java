@@ -3,29 +3,34 @@ package io.getlime.security.service.behavior;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.InvalidKeyException;
-import java.security.PrivateKey;
-import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Date;
 import java.util.List;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import javax.crypto.SecretKey;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.google.common.io.BaseEncoding;
+import com.codahale.metrics.Timer;
 
 import io.getlime.security.powerauth.VerifySignatureResponse;
 import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
 import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
-import io.getlime.security.powerauth.server.keyfactory.PowerAuthServerKeyFactory;
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
 import io.getlime.security.powerauth.server.signature.PowerAuthServerSignature;
 import io.getlime.security.repository.ActivationRepository;
-import io.getlime.security.repository.ApplicationVersionRepository;
 import io.getlime.security.repository.model.ActivationStatus;
 import io.getlime.security.repository.model.entity.ActivationRecordEntity;
-import io.getlime.security.repository.model.entity.ApplicationVersionEntity;
+import io.getlime.security.service.cache.ApplicationVersionCache;
+import io.getlime.security.service.cache.ApplicationVersionCache.CachedApplicationVersion;
+import io.getlime.security.service.cache.SignatureKeyCache;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
 import io.getlime.security.service.util.ModelUtil;
 
 /**
@@ -45,13 +50,33 @@ public class SignatureServiceBehavior {
 	private ActivationRepository powerAuthRepository;
 	
 	@Autowired
-	private ApplicationVersionRepository applicationVersionRepository;
+	private ApplicationVersionCache applicationVersionCache;
+	
+	@Autowired
+	private SignatureKeyCache signatureKeyCache;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	@PersistenceContext
+	private EntityManager entityManager;
 	
 	private final PowerAuthServerSignature powerAuthServerSignature = new PowerAuthServerSignature();
-	private final PowerAuthServerKeyFactory powerAuthServerKeyFactory = new PowerAuthServerKeyFactory();
+
+	/**
+	 * Maximum number of attempts to verify the signature and update the activation counter. The first
+	 * attempt reads the activation without a lock, all following attempts lock the activation row.
+	 */
+	private static final int MAX_UPDATE_ATTEMPTS = 3;
 
 	/**
 	 * Verify signature for given activation and provided data. Log every validation attempt in the audit log.
+	 * 
+	 * The activation is read without a lock and updated only in case its counter and status were not changed
+	 * in the meantime. In case a parallel request for the same activation updated it first, the activation is
+	 * read again with a row lock and the signature is verified against the new lookahead window. In case the
+	 * activation still cannot be updated, the signature is reported as invalid without changing the activation.
+	 * 
 	 * @param activationId Activation ID.
 	 * @param signatureType Provided signature type.
 	 * @param signature Provided signature.
@@ -64,169 +89,209 @@ public class SignatureServiceBehavior {
 	 * @throws InvalidKeyException In case invalid key is provided.
 	 */
 	public VerifySignatureResponse verifySignature(String activationId, String signatureType, String signature, String dataString, String applicationKey, CryptoProviderUtil keyConversionUtilities) throws UnsupportedEncodingException, InvalidKeySpecException, InvalidKeyException {
-		// Prepare current timestamp in advance
-		Date currentTimestamp = new Date();
-
-		// Fetch related activation
-		ActivationRecordEntity activation = powerAuthRepository.findFirstByActivationId(activationId);
-
-		// Only validate signature for existing ACTIVE activation records
-		if (activation != null) {
-
-			// Check the activation - application relationship and version support
-			ApplicationVersionEntity applicationVersion = applicationVersionRepository.findByApplicationKey(applicationKey);
-
-			if (applicationVersion == null || applicationVersion.getSupported() == false || applicationVersion.getApplication().getId() != activation.getApplication().getId()) {
+		Timer.Context verifyTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_VERIFY);
+		try {
+			// Prepare current timestamp in advance
+			Date currentTimestamp = new Date();
+
+			// Fetch related activation
+			ActivationRecordEntity activation;
+			Timer.Context fetchTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_FETCH);
+			try {
+				activation = powerAuthRepository.findFirstByActivationId(activationId);
+			} finally {
+				fetchTimer.stop();
+			}
 
-				// Get the data and append application KEY in this case, just for auditing reasons
-				byte[] data = (dataString + "&" + applicationKey).getBytes("UTF-8");
+			for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
 
-				// Increment the counter
-				activation.setCounter(activation.getCounter() + 1);
-				
-				// Update failed attempts and block the activation, if necessary
-				activation.setFailedAttempts(activation.getFailedAttempts() + 1);
-				Long remainingAttempts = (activation.getMaxFailedAttempts() - activation.getFailedAttempts());
-				if (remainingAttempts <= 0) {
-					activation.setActivationStatus(ActivationStatus.BLOCKED);
+				// Only validate signature for existing activation records
+				if (activation == null) {
+					break;
 				}
 
-				// Update the last used date
-				activation.setTimestampLastUsed(currentTimestamp);
-
-				// Save the activation
-				powerAuthRepository.save(activation);
+				VerifySignatureResponse response = verifySignature(activation, signatureType, signature, dataString, applicationKey, keyConversionUtilities, currentTimestamp);
+				if (response != null) {
+					return response;
+				}
 
-				auditingServiceBehavior.logSignatureAuditRecord(activation, signatureType, signature, data, false, "activation_invalid_application", currentTimestamp);
+				// Activation was updated by a parallel request, read the latest state and lock it
+				serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_UPDATE_CONFLICT);
+				fetchTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_FETCH);
+				try {
+					activation = powerAuthRepository.findActivationWithLock(activationId);
+				} finally {
+					fetchTimer.stop();
+				}
+			}
 
-				// return the data
+			if (activation != null) {
+				// Activation keeps being changed by parallel requests, reject the signature
+				Logger.getLogger(SignatureServiceBehavior.class.getName()).log(Level.WARNING, "Activation counter could not be updated: {0}", activationId);
+				serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_update_conflict");
 				VerifySignatureResponse response = new VerifySignatureResponse();
 				response.setActivationId(activationId);
-				response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
-				response.setRemainingAttempts(BigInteger.valueOf(0));
+				response.setActivationStatus(ModelUtil.toServiceStatus(activation.getActivationStatus()));
+				response.setRemainingAttempts(BigInteger.valueOf(activation.getMaxFailedAttempts() - activation.getFailedAttempts()));
 				response.setSignatureValid(false);
-				response.setUserId("UNKNOWN");
-
+				response.setUserId(activation.getUserId());
 				return response;
 			}
 
-			String applicationSecret = applicationVersion.getApplicationSecret();
-			byte[] data = (dataString + "&" + applicationSecret).getBytes("UTF-8");
-
-			if (activation.getActivationStatus() == ActivationStatus.ACTIVE) {
-
-				// Get the server private and device public keys
-				byte[] serverPrivateKeyBytes = BaseEncoding.base64().decode(activation.getServerPrivateKeyBase64());
-				byte[] devicePublicKeyBytes = BaseEncoding.base64().decode(activation.getDevicePublicKeyBase64());
-				PrivateKey serverPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(serverPrivateKeyBytes);
-				PublicKey devicePublicKey = keyConversionUtilities.convertBytesToPublicKey(devicePublicKeyBytes);
-
-				// Compute the master secret key
-				SecretKey masterSecretKey = powerAuthServerKeyFactory.generateServerMasterSecretKey(serverPrivateKey, devicePublicKey);
-
-				// Get the signature keys according to the signature type
-				List<SecretKey> signatureKeys = powerAuthServerKeyFactory.keysForSignatureType(signatureType, masterSecretKey);
-
-				// Verify the signature with given lookahead
-				boolean signatureValid = false;
-				long ctr = activation.getCounter();
-				long lowestValidCounter = ctr;
-				for (long iterCtr = ctr; iterCtr < ctr + PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD; iterCtr++) {
-					signatureValid = powerAuthServerSignature.verifySignatureForData(data, signature, signatureKeys, iterCtr);
-					if (signatureValid) {
-						// set the lowest valid counter and break at the lowest
-						// counter where signature validates
-						lowestValidCounter = iterCtr;
-						break;
-					}
-				}
-				if (signatureValid) {
-
-					// Set the activation record counter to the lowest counter
-					// (+1, since the client has incremented the counter)
-					activation.setCounter(lowestValidCounter + 1);
+			// Activation does not exist, return the data
+			serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_not_found");
+			VerifySignatureResponse response = new VerifySignatureResponse();
+			response.setActivationId(activationId);
+			response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
+			response.setRemainingAttempts(BigInteger.valueOf(0));
+			response.setSignatureValid(false);
+			response.setUserId("UNKNOWN");
 
-					// Reset failed attempt count
-					activation.setFailedAttempts(0L);
+			return response;
+		} finally {
+			verifyTimer.stop();
+		}
+	}
 
-					// Update the last used date
-					activation.setTimestampLastUsed(currentTimestamp);
+	/**
+	 * Verify signature for given existing activation.
+	 * @return Response with the signature validation result object, or null in case the activation
+	 * was changed by a parallel request and could not be updated.
+	 */
+	private VerifySignatureResponse verifySignature(ActivationRecordEntity activation, String signatureType, String signature, String dataString, String applicationKey, CryptoProviderUtil keyConversionUtilities, Date currentTimestamp) throws UnsupportedEncodingException, InvalidKeySpecException, InvalidKeyException {
+		String activationId = activation.getActivationId();
 
-					// Save the activation
-					powerAuthRepository.save(activation);
+		// Check the activation - application relationship and version support
+		CachedApplicationVersion applicationVersion = applicationVersionCache.get(applicationKey);
 
-					auditingServiceBehavior.logSignatureAuditRecord(activation, signatureType, signature, data, true, "signature_ok", currentTimestamp);
+		if (applicationVersion == null || !applicationVersion.isSupported() || applicationVersion.getApplicationId() != activation.getApplication().getId()) {
 
-					// return the data
-					VerifySignatureResponse response = new VerifySignatureResponse();
-					response.setActivationId(activationId);
-					response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.ACTIVE));
-					response.setRemainingAttempts(BigInteger.valueOf(activation.getMaxFailedAttempts()));
-					response.setSignatureValid(true);
-					response.setUserId(activation.getUserId());
+			// Get the data and append application KEY in this case, just for auditing reasons
+			PowerAuthSignatureBase data = new PowerAuthSignatureBase().append(dataString).append("&").append(applicationKey);
 
-					return response;
+			// Increment the counter, update failed attempts and block the activation, if necessary
+			Long failedAttempts = activation.getFailedAttempts() + 1;
+			Long remainingAttempts = (activation.getMaxFailedAttempts() - failedAttempts);
+			ActivationStatus activationStatus = activation.getActivationStatus();
+			if (remainingAttempts <= 0) {
+				activationStatus = ActivationStatus.BLOCKED;
+			}
 
-				} else {
+			// Save the activation, including the last used date
+			if (!updateActivation(activation, activation.getCounter() + 1, failedAttempts, activationStatus, currentTimestamp)) {
+				return null;
+			}
+			if (activationStatus == ActivationStatus.BLOCKED) {
+				signatureKeyCache.invalidate(activationId);
+				serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_BLOCKED);
+			}
 
-					// Increment the activation record counter
-					activation.setCounter(activation.getCounter() + 1);
+			logSignatureResult(activation, signatureType, signature, dataString, data, false, "activation_invalid_application", currentTimestamp);
 
-					// Update failed attempts and block the activation, if
-					// necessary
-					activation.setFailedAttempts(activation.getFailedAttempts() + 1);
-					Long remainingAttempts = (activation.getMaxFailedAttempts() - activation.getFailedAttempts());
-					if (remainingAttempts <= 0) {
-						activation.setActivationStatus(ActivationStatus.BLOCKED);
-					}
+			// return the data
+			VerifySignatureResponse response = new VerifySignatureResponse();
+			response.setActivationId(activationId);
+			response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
+			response.setRemainingAttempts(BigInteger.valueOf(0));
+			response.setSignatureValid(false);
+			response.setUserId("UNKNOWN");
 
-					// Update the last used date
-					activation.setTimestampLastUsed(currentTimestamp);
+			return response;
+		}
 
-					// Save the activation
-					powerAuthRepository.save(activation);
+		// Signed data are the data string followed by the application secret, the signature base
+		// feeds them to the HMAC without concatenating them, the data string is encoded only once
+		// since it is fed to the HMAC for every counter in the lookahead window
+		String applicationSecret = applicationVersion.getApplicationSecret();
+		PowerAuthSignatureBase data = new PowerAuthSignatureBase().append(dataString.getBytes("UTF-8")).append("&").append(applicationSecret);
+
+		if (activation.getActivationStatus() == ActivationStatus.ACTIVE) {
+
+			// Get the signature keys according to the signature type, the keys
+			// are derived from the master secret key only on a cache miss
+			List<SecretKey> signatureKeys;
+			Timer.Context keysTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_KEYS);
+			try {
+				signatureKeys = signatureKeyCache.getSignatureKeys(activation, signatureType, keyConversionUtilities);
+			} finally {
+				keysTimer.stop();
+			}
 
-					auditingServiceBehavior.logSignatureAuditRecord(activation, signatureType, signature, data, false, "signature_does_not_match", currentTimestamp);
+			// Verify the signature with given lookahead, get the lowest
+			// counter where signature validates
+			Long lowestValidCounter;
+			Timer.Context hmacTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_HMAC);
+			try {
+				lowestValidCounter = powerAuthServerSignature.verifySignatureForCounterRange(data, signature, signatureKeys, activation.getCounter(), PowerAuthConfiguration.SIGNATURE_VALIDATION_LOOKAHEAD);
+			} finally {
+				hmacTimer.stop();
+			}
+			if (lowestValidCounter != null) {
+
+				// Set the activation record counter to the lowest counter
+				// (+1, since the client has incremented the counter), reset
+				// failed attempt count and update the last used date
+				long lookaheadDepth = lowestValidCounter - activation.getCounter();
+				if (!updateActivation(activation, lowestValidCounter + 1, 0L, ActivationStatus.ACTIVE, currentTimestamp)) {
+					return null;
+				}
+				serviceMetrics.update(PowerAuthServiceMetrics.SIGNATURE_LOOKAHEAD_DEPTH, lookaheadDepth);
 
-					// return the data
-					VerifySignatureResponse response = new VerifySignatureResponse();
-					response.setActivationId(activationId);
-					response.setActivationStatus(ModelUtil.toServiceStatus(activation.getActivationStatus()));
-					response.setRemainingAttempts(BigInteger.valueOf(remainingAttempts));
-					response.setSignatureValid(false);
-					response.setUserId(activation.getUserId());
+				logSignatureResult(activation, signatureType, signature, dataString, data, true, "signature_ok", currentTimestamp);
 
-					return response;
+				// return the data
+				VerifySignatureResponse response = new VerifySignatureResponse();
+				response.setActivationId(activationId);
+				response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.ACTIVE));
+				response.setRemainingAttempts(BigInteger.valueOf(activation.getMaxFailedAttempts()));
+				response.setSignatureValid(true);
+				response.setUserId(activation.getUserId());
 
-				}
+				return response;
 
 			} else {
 
-				// Despite the fact activation is not in active state, increase
-				// the counter
-				activation.setCounter(activation.getCounter() + 1);
-
-				// Update the last used date
-				activation.setTimestampLastUsed(currentTimestamp);
+				// Increment the activation record counter, update failed
+				// attempts and block the activation, if necessary
+				Long failedAttempts = activation.getFailedAttempts() + 1;
+				Long remainingAttempts = (activation.getMaxFailedAttempts() - failedAttempts);
+				ActivationStatus activationStatus = ActivationStatus.ACTIVE;
+				if (remainingAttempts <= 0) {
+					activationStatus = ActivationStatus.BLOCKED;
+				}
 
-				// Save the activation
-				powerAuthRepository.save(activation);
+				// Save the activation, including the last used date
+				if (!updateActivation(activation, activation.getCounter() + 1, failedAttempts, activationStatus, currentTimestamp)) {
+					return null;
+				}
+				if (activationStatus == ActivationStatus.BLOCKED) {
+					signatureKeyCache.invalidate(activationId);
+					serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_BLOCKED);
+				}
 
-				auditingServiceBehavior.logSignatureAuditRecord(activation, signatureType, signature, data, false, "activation_invalid_state", currentTimestamp);
+				logSignatureResult(activation, signatureType, signature, dataString, data, false, "signature_does_not_match", currentTimestamp);
 
 				// return the data
 				VerifySignatureResponse response = new VerifySignatureResponse();
 				response.setActivationId(activationId);
-				response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
-				response.setRemainingAttempts(BigInteger.valueOf(0));
+				response.setActivationStatus(ModelUtil.toServiceStatus(activation.getActivationStatus()));
+				response.setRemainingAttempts(BigInteger.valueOf(remainingAttempts));
 				response.setSignatureValid(false);
-				response.setUserId("UNKNOWN");
+				response.setUserId(activation.getUserId());
 
 				return response;
 
 			}
 
-		} else { // Activation does not exist
+		} else {
+
+			// Despite the fact activation is not in active state, increase
+			// the counter and update the last used date
+			if (!updateActivation(activation, activation.getCounter() + 1, activation.getFailedAttempts(), activation.getActivationStatus(), currentTimestamp)) {
+				return null;
+			}
+
+			logSignatureResult(activation, signatureType, signature, dataString, data, false, "activation_invalid_state", currentTimestamp);
 
 			// return the data
 			VerifySignatureResponse response = new VerifySignatureResponse();
@@ -241,4 +306,37 @@ public class SignatureServiceBehavior {
 		}
 	}
 
+	/**
+	 * Count the signature verification result and log it in the audit log.
+	 */
+	private void logSignatureResult(ActivationRecordEntity activation, String signatureType, String signature, String dataString, PowerAuthSignatureBase data, boolean valid, String note, Date currentTimestamp) throws UnsupportedEncodingException {
+		serviceMetrics.increment(PowerAuthServiceMetrics.SIGNATURE_RESULT + note);
+		auditingServiceBehavior.logSignatureAuditRecord(activation, signatureType, signature, dataString, data, valid, note, currentTimestamp);
+	}
+
+	/**
+	 * Update the activation in the database in case its counter and status are the same as when it was read,
+	 * and copy the new values to the activation object. The activation is detached, so that the copied values
+	 * are never flushed and a following read of the activation gets its current state from the database.
+	 * @return True in case the activation was updated, false in case it was changed by a parallel request.
+	 */
+	private boolean updateActivation(ActivationRecordEntity activation, Long counter, Long failedAttempts, ActivationStatus activationStatus, Date timestampLastUsed) {
+		int updated;
+		Timer.Context updateTimer = serviceMetrics.time(PowerAuthServiceMetrics.SIGNATURE_UPDATE);
+		try {
+			updated = powerAuthRepository.updateCounterIfUnchanged(activation.getActivationId(), activation.getCounter(), activation.getActivationStatus(), counter, failedAttempts, activationStatus, timestampLastUsed);
+		} finally {
+			updateTimer.stop();
+		}
+		entityManager.detach(activation);
+		if (updated == 0) {
+			return false;
+		}
+		activation.setCounter(counter);
+		activation.setFailedAttempts(failedAttempts);
+		activation.setActivationStatus(activationStatus);
+		activation.setTimestampLastUsed(timestampLastUsed);
+		return true;
+	}
+
 }
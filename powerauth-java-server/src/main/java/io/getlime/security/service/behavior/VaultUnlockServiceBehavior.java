@@ -9,6 +9,8 @@ import java.security.spec.InvalidKeySpecException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.Timer;
+
 import com.google.common.io.BaseEncoding;
 
 import io.getlime.security.powerauth.VaultUnlockResponse;
@@ -17,6 +19,8 @@ import io.getlime.security.powerauth.server.vault.PowerAuthServerVault;
 import io.getlime.security.repository.ActivationRepository;
 import io.getlime.security.repository.model.ActivationStatus;
 import io.getlime.security.repository.model.entity.ActivationRecordEntity;
+import io.getlime.security.service.keys.ActivationKeyStorage;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
 import io.getlime.security.service.util.ModelUtil;
 
 /**
@@ -32,6 +36,12 @@ public class VaultUnlockServiceBehavior {
 	@Autowired
 	private ActivationRepository powerAuthRepository;
 	
+	@Autowired
+	private ActivationKeyStorage activationKeyStorage;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+	
 	private final PowerAuthServerVault powerAuthServerVault = new PowerAuthServerVault();
 
 	/**
@@ -48,24 +58,34 @@ public class VaultUnlockServiceBehavior {
 	 */
 	public VaultUnlockResponse unlockVault(String activationId, boolean isSignatureValid, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException, InvalidKeyException {
 		// Find related activation record
-		ActivationRecordEntity activation = powerAuthRepository.findFirstByActivationId(activationId);
+		ActivationRecordEntity activation;
+		Timer.Context fetchTimer = serviceMetrics.time(PowerAuthServiceMetrics.VAULT_UNLOCK_FETCH);
+		try {
+			activation = powerAuthRepository.findFirstByActivationId(activationId);
+		} finally {
+			fetchTimer.stop();
+		}
 
 		if (activation != null && activation.getActivationStatus() == ActivationStatus.ACTIVE) {
 
 			// Check if the signature is valid
 			if (isSignatureValid) {
 
-				// Get the server private and device public keys
-				byte[] serverPrivateKeyBytes = BaseEncoding.base64().decode(activation.getServerPrivateKeyBase64());
-				byte[] devicePublicKeyBytes = BaseEncoding.base64().decode(activation.getDevicePublicKeyBase64());
-				PrivateKey serverPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(serverPrivateKeyBytes);
-				PublicKey devicePublicKey = keyConversionUtilities.convertBytesToPublicKey(devicePublicKeyBytes);
-
-				// Get encrypted vault unlock key and increment the counter
-				Long counter = activation.getCounter();
-				byte[] cKeyBytes = powerAuthServerVault.encryptVaultEncryptionKey(serverPrivateKey, devicePublicKey, counter);
-				activation.setCounter(counter + 1);
-				powerAuthRepository.save(activation);
+				byte[] cKeyBytes;
+				Timer.Context encryptTimer = serviceMetrics.time(PowerAuthServiceMetrics.VAULT_UNLOCK_ENCRYPT);
+				try {
+					// Get the server private and device public keys
+					PrivateKey serverPrivateKey = activationKeyStorage.getServerPrivateKey(activation, keyConversionUtilities);
+					PublicKey devicePublicKey = activationKeyStorage.getDevicePublicKey(activation, keyConversionUtilities);
+
+					// Get encrypted vault unlock key and increment the counter
+					Long counter = activation.getCounter();
+					cKeyBytes = powerAuthServerVault.encryptVaultEncryptionKey(serverPrivateKey, devicePublicKey, counter);
+				} finally {
+					encryptTimer.stop();
+				}
+				powerAuthRepository.incrementCounter(activationId, ActivationStatus.ACTIVE);
+				serviceMetrics.increment(PowerAuthServiceMetrics.VAULT_UNLOCK_RESULT + "unlocked");
 
 				// return the data
 				VaultUnlockResponse response = new VaultUnlockResponse();
@@ -81,9 +101,8 @@ public class VaultUnlockServiceBehavior {
 			} else {
 
 				// Even if the signature is not valid, increment the counter
-				Long counter = activation.getCounter();
-				activation.setCounter(counter + 1);
-				powerAuthRepository.save(activation);
+				powerAuthRepository.incrementCounter(activationId, ActivationStatus.ACTIVE);
+				serviceMetrics.increment(PowerAuthServiceMetrics.VAULT_UNLOCK_RESULT + "signature_invalid");
 
 				// return the data
 				VaultUnlockResponse response = new VaultUnlockResponse();
@@ -100,6 +119,7 @@ public class VaultUnlockServiceBehavior {
 		} else {
 
 			// return the data
+			serviceMetrics.increment(PowerAuthServiceMetrics.VAULT_UNLOCK_RESULT + "activation_invalid");
 			VaultUnlockResponse response = new VaultUnlockResponse();
 			response.setActivationId(activationId);
 			response.setActivationStatus(ModelUtil.toServiceStatus(ActivationStatus.REMOVED));
@@ -0,0 +1,270 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.repository.ApplicationVersionRepository;
+import io.getlime.security.repository.model.entity.ApplicationVersionEntity;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+
+/**
+ * In-memory index of application versions by application key. The index is loaded at startup,
+ * updated whenever an application version is created or its support flag changes and, in case
+ * a refresh interval is configured, reloaded periodically so that changes made by other server
+ * nodes are picked up. Application keys that are not in the index are looked up in the database.
+ *
+ * Every entry remembers when it was stored, a periodic reload replaces only entries that are
+ * older than the reload itself, so that it never brings back a version that was changed locally
+ * while the reload was running.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class ApplicationVersionCache {
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private ApplicationVersionRepository applicationVersionRepository;
+
+	private final ConcurrentMap<String, CachedApplicationVersion> versions = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private ScheduledExecutorService refreshExecutor;
+
+	/**
+	 * Load all application versions and schedule the periodic refresh, if configured.
+	 */
+	@PostConstruct
+	public void init() {
+		refresh();
+		long refreshInterval = powerAuthServiceConfiguration.getApplicationVersionCacheRefreshInterval();
+		if (refreshInterval > 0) {
+			refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "powerauth-application-version-cache");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						refresh();
+					} catch (RuntimeException ex) {
+						Logger.getLogger(ApplicationVersionCache.class.getName()).log(Level.SEVERE, null, ex);
+					}
+				}
+			}, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Stop the periodic refresh.
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (refreshExecutor != null) {
+			refreshExecutor.shutdownNow();
+			refreshExecutor = null;
+		}
+	}
+
+	/**
+	 * Get application version with given application key.
+	 * @param applicationKey Application key.
+	 * @return Application version, or null in case no version with given key exists.
+	 */
+	public CachedApplicationVersion get(String applicationKey) {
+		if (applicationKey == null) {
+			return null;
+		}
+		CachedApplicationVersion version = versions.get(applicationKey);
+		if (version == null) {
+			// Version might have been created on another node since the last refresh
+			long loadSequence = sequence.incrementAndGet();
+			ApplicationVersionEntity entity = applicationVersionRepository.findByApplicationKey(applicationKey);
+			if (entity != null) {
+				version = new CachedApplicationVersion(entity, loadSequence);
+				merge(applicationKey, version);
+			}
+		}
+		return version;
+	}
+
+	/**
+	 * Reload all application versions from the database.
+	 */
+	public void refresh() {
+		long refreshSequence = sequence.incrementAndGet();
+		Map<String, CachedApplicationVersion> loaded = new HashMap<>();
+		for (ApplicationVersionEntity entity : applicationVersionRepository.findAll()) {
+			if (entity.getApplicationKey() != null) {
+				loaded.put(entity.getApplicationKey(), new CachedApplicationVersion(entity, refreshSequence));
+			}
+		}
+		for (CachedApplicationVersion version : loaded.values()) {
+			merge(version.getApplicationKey(), version);
+		}
+		// Drop versions that no longer exist, unless they were stored after the reload started
+		for (Map.Entry<String, CachedApplicationVersion> entry : versions.entrySet()) {
+			if (!loaded.containsKey(entry.getKey()) && entry.getValue().sequence < refreshSequence) {
+				versions.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Store a created or modified application version in the index. In case a transaction is active,
+	 * the index is updated only after the transaction is committed.
+	 * @param entity Application version entity.
+	 */
+	public void update(final ApplicationVersionEntity entity) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					CachedApplicationVersion version = new CachedApplicationVersion(entity, sequence.incrementAndGet());
+					versions.put(version.getApplicationKey(), version);
+				}
+			});
+		} else {
+			CachedApplicationVersion version = new CachedApplicationVersion(entity, sequence.incrementAndGet());
+			versions.put(version.getApplicationKey(), version);
+		}
+	}
+
+	/**
+	 * Store a loaded application version, unless the index already contains an entry stored later
+	 * than the version was loaded.
+	 * @param applicationKey Application key.
+	 * @param version Loaded application version.
+	 */
+	private void merge(String applicationKey, CachedApplicationVersion version) {
+		while (true) {
+			CachedApplicationVersion current = versions.get(applicationKey);
+			if (current == null) {
+				if (versions.putIfAbsent(applicationKey, version) == null) {
+					return;
+				}
+			} else if (current.sequence > version.sequence) {
+				return;
+			} else if (versions.replace(applicationKey, current, version)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Immutable snapshot of an application version.
+	 */
+	public static final class CachedApplicationVersion {
+
+		private final long id;
+		private final long applicationId;
+		private final String applicationKey;
+		private final String applicationSecret;
+		private final byte[] applicationSecretBytes;
+		private final boolean supported;
+		private final long sequence;
+
+		private CachedApplicationVersion(ApplicationVersionEntity entity, long sequence) {
+			this.id = entity.getId();
+			this.applicationId = entity.getApplication().getId();
+			this.applicationKey = entity.getApplicationKey();
+			this.applicationSecret = entity.getApplicationSecret();
+			this.applicationSecretBytes = BaseEncoding.base64().decode(entity.getApplicationSecret());
+			this.supported = Boolean.TRUE.equals(entity.getSupported());
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Get application version ID.
+		 * @return Application version ID.
+		 */
+		public long getId() {
+			return id;
+		}
+
+		/**
+		 * Get ID of the application the version belongs to.
+		 * @return Application ID.
+		 */
+		public long getApplicationId() {
+			return applicationId;
+		}
+
+		/**
+		 * Get application key.
+		 * @return Application key.
+		 */
+		public String getApplicationKey() {
+			return applicationKey;
+		}
+
+		/**
+		 * Get application secret, as stored in the database (Base64 encoded).
+		 * @return Application secret.
+		 */
+		public String getApplicationSecret() {
+			return applicationSecret;
+		}
+
+		/**
+		 * Get decoded application secret bytes.
+		 * @return Copy of the application secret bytes.
+		 */
+		public byte[] getApplicationSecretBytes() {
+			return applicationSecretBytes.clone();
+		}
+
+		/**
+		 * Check if the application version is supported.
+		 * @return True if the version is supported, false otherwise.
+		 */
+		public boolean isSupported() {
+			return supported;
+		}
+
+	}
+
+}
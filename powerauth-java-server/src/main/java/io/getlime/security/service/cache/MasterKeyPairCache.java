@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.cache;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.repository.MasterKeyPairRepository;
+import io.getlime.security.repository.model.entity.MasterKeyPairEntity;
+
+/**
+ * Cache of master key pairs with already converted private and public keys. Key pairs are
+ * cached by their ID, and the newest key pair of every application is cached by application ID,
+ * so that neither the ORDER BY query nor the key conversion has to be performed on every request.
+ * Key pairs are never modified, only the newest key pair of an application changes when a new
+ * key pair is created - {@link #invalidate(Long)} must be called in such case.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class MasterKeyPairCache {
+
+	@Autowired
+	private MasterKeyPairRepository masterKeyPairRepository;
+
+	private final ConcurrentMap<Long, CachedMasterKeyPair> latestByApplicationId = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Long, CachedMasterKeyPair> byId = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the newest master key pair of given application.
+	 * @param applicationId Application ID.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return The newest master key pair, or null in case application has no master key pair.
+	 * @throws InvalidKeySpecException In case invalid key is stored in the database.
+	 */
+	public CachedMasterKeyPair getLatest(Long applicationId, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException {
+		CachedMasterKeyPair keyPair = latestByApplicationId.get(applicationId);
+		if (keyPair == null) {
+			MasterKeyPairEntity entity = masterKeyPairRepository.findFirstByApplicationIdOrderByTimestampCreatedDesc(applicationId);
+			if (entity == null) {
+				return null;
+			}
+			keyPair = get(entity, keyConversionUtilities);
+			latestByApplicationId.put(applicationId, keyPair);
+		}
+		return keyPair;
+	}
+
+	/**
+	 * Get master key pair for given entity, for example the master key pair associated with an activation.
+	 * @param entity Master key pair entity.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return Master key pair.
+	 * @throws InvalidKeySpecException In case invalid key is stored in the database.
+	 */
+	public CachedMasterKeyPair get(MasterKeyPairEntity entity, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException {
+		CachedMasterKeyPair keyPair = byId.get(entity.getId());
+		if (keyPair == null) {
+			keyPair = new CachedMasterKeyPair(entity, keyConversionUtilities);
+			byId.put(entity.getId(), keyPair);
+		}
+		return keyPair;
+	}
+
+	/**
+	 * Forget the newest master key pair of given application. In case a transaction is active, the
+	 * cache entry is removed both immediately and again after the transaction is committed.
+	 * @param applicationId Application ID.
+	 */
+	public void invalidate(final Long applicationId) {
+		latestByApplicationId.remove(applicationId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					latestByApplicationId.remove(applicationId);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Immutable master key pair with converted keys.
+	 */
+	public static final class CachedMasterKeyPair {
+
+		private final long id;
+		private final long applicationId;
+		private final PrivateKey masterPrivateKey;
+		private final PublicKey masterPublicKey;
+
+		private CachedMasterKeyPair(MasterKeyPairEntity entity, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException {
+			this.id = entity.getId();
+			this.applicationId = entity.getApplication().getId();
+			this.masterPrivateKey = keyConversionUtilities.convertBytesToPrivateKey(BaseEncoding.base64().decode(entity.getMasterKeyPrivateBase64()));
+			this.masterPublicKey = keyConversionUtilities.convertBytesToPublicKey(BaseEncoding.base64().decode(entity.getMasterKeyPublicBase64()));
+		}
+
+		/**
+		 * Get master key pair ID.
+		 * @return Master key pair ID.
+		 */
+		public long getId() {
+			return id;
+		}
+
+		/**
+		 * Get ID of the application the master key pair belongs to.
+		 * @return Application ID.
+		 */
+		public long getApplicationId() {
+			return applicationId;
+		}
+
+		/**
+		 * Get master private key.
+		 * @return Master private key.
+		 */
+		public PrivateKey getMasterPrivateKey() {
+			return masterPrivateKey;
+		}
+
+		/**
+		 * Get master public key.
+		 * @return Master public key.
+		 */
+		public PublicKey getMasterPublicKey() {
+			return masterPublicKey;
+		}
+
+	}
+
+}
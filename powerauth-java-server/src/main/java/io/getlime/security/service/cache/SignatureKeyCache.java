@@ -0,0 +1,264 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.cache;
+
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.powerauth.server.keyfactory.PowerAuthServerKeyFactory;
+import io.getlime.security.repository.model.entity.ActivationRecordEntity;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+import io.getlime.security.service.keys.ActivationKeyStorage;
+
+/**
+ * Bounded cache of the master secret key and derived keys of ACTIVE activations. Keys are kept
+ * as raw byte arrays that are wiped when an entry is evicted, expires or is invalidated, so that
+ * the signature validation does not have to perform ECDH and KDF on every request.
+ *
+ * Callers are responsible for asking only for keys of activations in ACTIVE state and for
+ * invalidating the entry whenever the activation leaves that state.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class SignatureKeyCache {
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	@Autowired
+	private ActivationKeyStorage activationKeyStorage;
+
+	private final PowerAuthServerKeyFactory powerAuthServerKeyFactory = new PowerAuthServerKeyFactory();
+
+	private Cache<String, ActivationKeys> cache;
+
+	/**
+	 * Build the cache according to the service configuration. Cache is disabled in case
+	 * the maximum size is not a positive number.
+	 */
+	@PostConstruct
+	public void init() {
+		long maximumSize = powerAuthServiceConfiguration.getSignatureKeyCacheMaximumSize();
+		if (maximumSize > 0) {
+			this.cache = CacheBuilder.newBuilder()
+					.maximumSize(maximumSize)
+					.expireAfterAccess(powerAuthServiceConfiguration.getSignatureKeyCacheExpireAfterAccess(), TimeUnit.SECONDS)
+					.removalListener(new RemovalListener<String, ActivationKeys>() {
+						@Override
+						public void onRemoval(RemovalNotification<String, ActivationKeys> notification) {
+							ActivationKeys keys = notification.getValue();
+							if (keys != null) {
+								keys.destroy();
+							}
+						}
+					})
+					.build();
+		}
+	}
+
+	/**
+	 * Wipe all cached keys on shutdown.
+	 */
+	@PreDestroy
+	public void destroy() {
+		invalidateAll();
+	}
+
+	/**
+	 * Get signature keys for given activation and signature type. The semantics is the same as in
+	 * {@link PowerAuthServerKeyFactory#keysForSignatureType(String, SecretKey)}, i.e. an empty list
+	 * is returned for unknown signature types.
+	 * @param activation Activation in ACTIVE state.
+	 * @param signatureType Signature type.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return List with signature keys for given signature type.
+	 * @throws InvalidKeySpecException In case invalid key is stored with the activation.
+	 * @throws InvalidKeyException In case invalid key is stored with the activation.
+	 */
+	public List<SecretKey> getSignatureKeys(ActivationRecordEntity activation, String signatureType, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException, InvalidKeyException {
+		List<SecretKey> signatureKeys = keysForActivation(activation, keyConversionUtilities).signatureKeys(signatureType, keyConversionUtilities);
+		if (signatureKeys == null) {
+			// Entry was wiped by a concurrent eviction, use freshly computed keys
+			ActivationKeys keys = computeKeys(activation, keyConversionUtilities);
+			signatureKeys = keys.signatureKeys(signatureType, keyConversionUtilities);
+			keys.destroy();
+		}
+		return signatureKeys;
+	}
+
+	/**
+	 * Get transport key KEY_TRANSPORT for given activation.
+	 * @param activation Activation in ACTIVE state.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return Transport key.
+	 * @throws InvalidKeySpecException In case invalid key is stored with the activation.
+	 * @throws InvalidKeyException In case invalid key is stored with the activation.
+	 */
+	public SecretKey getTransportKey(ActivationRecordEntity activation, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException, InvalidKeyException {
+		SecretKey transportKey = keysForActivation(activation, keyConversionUtilities).transportKey(keyConversionUtilities);
+		if (transportKey == null) {
+			// Entry was wiped by a concurrent eviction, use freshly computed keys
+			ActivationKeys keys = computeKeys(activation, keyConversionUtilities);
+			transportKey = keys.transportKey(keyConversionUtilities);
+			keys.destroy();
+		}
+		return transportKey;
+	}
+
+	/**
+	 * Remove and wipe cached keys for given activation.
+	 * @param activationId Activation ID.
+	 */
+	public void invalidate(String activationId) {
+		if (cache != null && activationId != null) {
+			cache.invalidate(activationId);
+		}
+	}
+
+	/**
+	 * Remove and wipe all cached keys.
+	 */
+	public void invalidateAll() {
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	private ActivationKeys keysForActivation(ActivationRecordEntity activation, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException, InvalidKeyException {
+		if (cache == null) {
+			return computeKeys(activation, keyConversionUtilities);
+		}
+		ActivationKeys keys = cache.getIfPresent(activation.getActivationId());
+		if (keys == null || !keys.devicePublicKeyBase64.equals(activation.getDevicePublicKeyBase64())) {
+			keys = computeKeys(activation, keyConversionUtilities);
+			cache.put(activation.getActivationId(), keys);
+		}
+		return keys;
+	}
+
+	private ActivationKeys computeKeys(ActivationRecordEntity activation, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException, InvalidKeyException {
+		// Get the server private and device public keys
+		PrivateKey serverPrivateKey = activationKeyStorage.getServerPrivateKey(activation, keyConversionUtilities);
+		PublicKey devicePublicKey = activationKeyStorage.getDevicePublicKey(activation, keyConversionUtilities);
+
+		// Compute the master secret key and the derived keys
+		SecretKey masterSecretKey = powerAuthServerKeyFactory.generateServerMasterSecretKey(serverPrivateKey, devicePublicKey);
+		return new ActivationKeys(
+				activation.getDevicePublicKeyBase64(),
+				keyConversionUtilities.convertSharedSecretKeyToBytes(powerAuthServerKeyFactory.generateServerSignaturePossessionKey(masterSecretKey)),
+				keyConversionUtilities.convertSharedSecretKeyToBytes(powerAuthServerKeyFactory.generateServerSignatureKnowledgeKey(masterSecretKey)),
+				keyConversionUtilities.convertSharedSecretKeyToBytes(powerAuthServerKeyFactory.generateServerSignatureBiometryKey(masterSecretKey)),
+				keyConversionUtilities.convertSharedSecretKeyToBytes(powerAuthServerKeyFactory.generateServerTransportKey(masterSecretKey))
+		);
+	}
+
+	/**
+	 * Derived keys of a single activation. Each returned key is a copy, so that the stored
+	 * bytes can be wiped at any time without affecting the keys that are already in use.
+	 */
+	private static final class ActivationKeys {
+
+		private final String devicePublicKeyBase64;
+		private final byte[] possessionKey;
+		private final byte[] knowledgeKey;
+		private final byte[] biometryKey;
+		private final byte[] transportKey;
+		private boolean destroyed = false;
+
+		private ActivationKeys(String devicePublicKeyBase64, byte[] possessionKey, byte[] knowledgeKey, byte[] biometryKey, byte[] transportKey) {
+			this.devicePublicKeyBase64 = devicePublicKeyBase64;
+			this.possessionKey = possessionKey;
+			this.knowledgeKey = knowledgeKey;
+			this.biometryKey = biometryKey;
+			this.transportKey = transportKey;
+		}
+
+		private synchronized List<SecretKey> signatureKeys(String signatureType, CryptoProviderUtil keyConversionUtilities) {
+			if (destroyed) {
+				return null;
+			}
+			List<SecretKey> signatureKeys = new ArrayList<>();
+			PowerAuthSignatureTypes type = PowerAuthSignatureTypes.getEnumFromString(signatureType);
+			if (!type.equalsName(signatureType)) {
+				return signatureKeys;
+			}
+			switch (type) {
+				case POSSESSION:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(possessionKey));
+					break;
+				case KNOWLEDGE:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(knowledgeKey));
+					break;
+				case BIOMETRY:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(biometryKey));
+					break;
+				case POSSESSION_KNOWLEDGE:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(possessionKey));
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(knowledgeKey));
+					break;
+				case POSSESSION_BIOMETRY:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(possessionKey));
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(biometryKey));
+					break;
+				case POSSESSION_KNOWLEDGE_BIOMETRY:
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(possessionKey));
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(knowledgeKey));
+					signatureKeys.add(keyConversionUtilities.convertBytesToSharedSecretKey(biometryKey));
+					break;
+			}
+			return signatureKeys;
+		}
+
+		private synchronized SecretKey transportKey(CryptoProviderUtil keyConversionUtilities) {
+			if (destroyed) {
+				return null;
+			}
+			return keyConversionUtilities.convertBytesToSharedSecretKey(transportKey);
+		}
+
+		private synchronized void destroy() {
+			destroyed = true;
+			Arrays.fill(possessionKey, (byte) 0);
+			Arrays.fill(knowledgeKey, (byte) 0);
+			Arrays.fill(biometryKey, (byte) 0);
+			Arrays.fill(transportKey, (byte) 0);
+		}
+
+	}
+
+}
@@ -5,6 +5,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
 
+import io.getlime.security.repository.model.SignatureAuditDataFormat;
+import io.getlime.security.service.audit.SignatureAuditPartitionDialect;
+import io.getlime.security.service.audit.SignatureAuditPartitionPeriod;
+import io.getlime.security.service.audit.SignatureAuditWriteMode;
+
 /**
  * Class holding the configuration data of this PowerAuth 2.0 Server
  * instance. Default values are in "application.properties" file.
@@ -24,6 +29,66 @@ public class PowerAuthServiceConfiguration {
 	@Value("${powerauth.service.applicationEnvironment}")
 	private String applicationEnvironment;
 
+	@Value("${powerauth.service.signatureKeyCache.maximumSize:10000}")
+	private long signatureKeyCacheMaximumSize;
+
+	@Value("${powerauth.service.signatureKeyCache.expireAfterAccess:300}")
+	private long signatureKeyCacheExpireAfterAccess;
+
+	@Value("${powerauth.service.applicationVersionCache.refreshInterval:60}")
+	private long applicationVersionCacheRefreshInterval;
+
+	@Value("${powerauth.service.activation.binaryKeyStorage:false}")
+	private boolean activationBinaryKeyStorage;
+
+	@Value("${powerauth.service.activation.binaryKeyMigration:false}")
+	private boolean activationBinaryKeyMigration;
+
+	@Value("${powerauth.service.signatureAudit.writeMode:SYNCHRONOUS}")
+	private SignatureAuditWriteMode signatureAuditWriteMode;
+
+	@Value("${powerauth.service.signatureAudit.queueCapacity:10000}")
+	private int signatureAuditQueueCapacity;
+
+	@Value("${powerauth.service.signatureAudit.batchSize:100}")
+	private int signatureAuditBatchSize;
+
+	@Value("${powerauth.service.signatureAudit.idExpression:}")
+	private String signatureAuditIdExpression;
+
+	@Value("${powerauth.service.signatureAudit.dataFormat:COMPRESSED}")
+	private SignatureAuditDataFormat signatureAuditDataFormat;
+
+	@Value("${powerauth.service.signatureAudit.maxPageSize:1000}")
+	private int signatureAuditMaxPageSize;
+
+	@Value("${powerauth.service.signatureAudit.readLag:5}")
+	private long signatureAuditReadLag;
+
+	@Value("${powerauth.service.signatureAudit.partitionDialect:}")
+	private SignatureAuditPartitionDialect signatureAuditPartitionDialect;
+
+	@Value("${powerauth.service.signatureAudit.partitionPeriod:MONTH}")
+	private SignatureAuditPartitionPeriod signatureAuditPartitionPeriod;
+
+	@Value("${powerauth.service.signatureAudit.partitionsAhead:2}")
+	private int signatureAuditPartitionsAhead;
+
+	@Value("${powerauth.service.signatureAudit.retentionPeriods:0}")
+	private int signatureAuditRetentionPeriods;
+
+	@Value("${powerauth.service.signatureAudit.retentionArchive:false}")
+	private boolean signatureAuditRetentionArchive;
+
+	@Value("${powerauth.service.signatureAudit.maintenanceInterval:3600}")
+	private long signatureAuditMaintenanceInterval;
+
+	@Value("${powerauth.service.signatureBatch.maxSize:100}")
+	private int signatureBatchMaxSize;
+
+	@Value("${powerauth.service.signatureBatch.threads:8}")
+	private int signatureBatchThreads;
+
 	/**
 	 * Get application name, usually used as a "unique code" for the application within
 	 * a server infrastructure.
@@ -74,6 +139,338 @@ public class PowerAuthServiceConfiguration {
 		this.applicationEnvironment = applicationEnvironment;
 	}
 
+	/**
+	 * Get the maximum number of activations for which the derived signature keys are cached.
+	 * Value 0 disables the cache.
+	 * @return Maximum signature key cache size.
+	 */
+	public long getSignatureKeyCacheMaximumSize() {
+		return signatureKeyCacheMaximumSize;
+	}
+
+	/**
+	 * Set the maximum number of activations for which the derived signature keys are cached.
+	 * @param signatureKeyCacheMaximumSize Maximum signature key cache size.
+	 */
+	public void setSignatureKeyCacheMaximumSize(long signatureKeyCacheMaximumSize) {
+		this.signatureKeyCacheMaximumSize = signatureKeyCacheMaximumSize;
+	}
+
+	/**
+	 * Get the number of seconds after the last access when cached signature keys expire.
+	 * @return Signature key cache expiration in seconds.
+	 */
+	public long getSignatureKeyCacheExpireAfterAccess() {
+		return signatureKeyCacheExpireAfterAccess;
+	}
+
+	/**
+	 * Set the number of seconds after the last access when cached signature keys expire.
+	 * @param signatureKeyCacheExpireAfterAccess Signature key cache expiration in seconds.
+	 */
+	public void setSignatureKeyCacheExpireAfterAccess(long signatureKeyCacheExpireAfterAccess) {
+		this.signatureKeyCacheExpireAfterAccess = signatureKeyCacheExpireAfterAccess;
+	}
+
+	/**
+	 * Get the number of seconds between reloads of the application version cache. Value 0 disables
+	 * the periodic reload, which is sufficient for deployments with a single server node.
+	 * @return Application version cache refresh interval in seconds.
+	 */
+	public long getApplicationVersionCacheRefreshInterval() {
+		return applicationVersionCacheRefreshInterval;
+	}
+
+	/**
+	 * Set the number of seconds between reloads of the application version cache.
+	 * @param applicationVersionCacheRefreshInterval Application version cache refresh interval in seconds.
+	 */
+	public void setApplicationVersionCacheRefreshInterval(long applicationVersionCacheRefreshInterval) {
+		this.applicationVersionCacheRefreshInterval = applicationVersionCacheRefreshInterval;
+	}
+
+	/**
+	 * Check if activation keys are also stored in the binary key columns.
+	 * @return True in case binary key storage is enabled, false otherwise.
+	 */
+	public boolean getActivationBinaryKeyStorage() {
+		return activationBinaryKeyStorage;
+	}
+
+	/**
+	 * Set if activation keys are also stored in the binary key columns.
+	 * @param activationBinaryKeyStorage True to enable binary key storage.
+	 */
+	public void setActivationBinaryKeyStorage(boolean activationBinaryKeyStorage) {
+		this.activationBinaryKeyStorage = activationBinaryKeyStorage;
+	}
+
+	/**
+	 * Check if binary keys of existing activations should be filled on startup.
+	 * @return True in case the binary key migration is enabled, false otherwise.
+	 */
+	public boolean getActivationBinaryKeyMigration() {
+		return activationBinaryKeyMigration;
+	}
+
+	/**
+	 * Set if binary keys of existing activations should be filled on startup.
+	 * @param activationBinaryKeyMigration True to enable the binary key migration.
+	 */
+	public void setActivationBinaryKeyMigration(boolean activationBinaryKeyMigration) {
+		this.activationBinaryKeyMigration = activationBinaryKeyMigration;
+	}
+
+	/**
+	 * Get the mode in which the signature audit records are written.
+	 * @return Signature audit write mode.
+	 */
+	public SignatureAuditWriteMode getSignatureAuditWriteMode() {
+		return signatureAuditWriteMode;
+	}
+
+	/**
+	 * Set the mode in which the signature audit records are written.
+	 * @param signatureAuditWriteMode Signature audit write mode.
+	 */
+	public void setSignatureAuditWriteMode(SignatureAuditWriteMode signatureAuditWriteMode) {
+		this.signatureAuditWriteMode = signatureAuditWriteMode;
+	}
+
+	/**
+	 * Get the maximum number of signature audit records waiting for the asynchronous writer.
+	 * @return Signature audit queue capacity.
+	 */
+	public int getSignatureAuditQueueCapacity() {
+		return signatureAuditQueueCapacity;
+	}
+
+	/**
+	 * Set the maximum number of signature audit records waiting for the asynchronous writer.
+	 * @param signatureAuditQueueCapacity Signature audit queue capacity.
+	 */
+	public void setSignatureAuditQueueCapacity(int signatureAuditQueueCapacity) {
+		this.signatureAuditQueueCapacity = signatureAuditQueueCapacity;
+	}
+
+	/**
+	 * Get the maximum number of signature audit records inserted by the asynchronous writer in one batch.
+	 * @return Signature audit batch size.
+	 */
+	public int getSignatureAuditBatchSize() {
+		return signatureAuditBatchSize;
+	}
+
+	/**
+	 * Set the maximum number of signature audit records inserted by the asynchronous writer in one batch.
+	 * @param signatureAuditBatchSize Signature audit batch size.
+	 */
+	public void setSignatureAuditBatchSize(int signatureAuditBatchSize) {
+		this.signatureAuditBatchSize = signatureAuditBatchSize;
+	}
+
+	/**
+	 * Get the SQL expression used as a signature audit record ID by the asynchronous writer, for example
+	 * "hibernate_sequence.nextval" on Oracle. Empty value means the ID is taken from the same generator
+	 * the JPA entity uses (AUTO_INCREMENT on MySQL, hibernate_sequence on PostgreSQL and Oracle).
+	 * @return SQL expression for the signature audit record ID.
+	 */
+	public String getSignatureAuditIdExpression() {
+		return signatureAuditIdExpression;
+	}
+
+	/**
+	 * Set the SQL expression used as a signature audit record ID by the asynchronous writer.
+	 * @param signatureAuditIdExpression SQL expression for the signature audit record ID.
+	 */
+	public void setSignatureAuditIdExpression(String signatureAuditIdExpression) {
+		this.signatureAuditIdExpression = signatureAuditIdExpression;
+	}
+
+	/**
+	 * Get the format in which the signed data are stored with new signature audit records. Compressed data
+	 * are stored by default, complete data including the application secret are stored only on request.
+	 * @return Signature audit data format.
+	 */
+	public SignatureAuditDataFormat getSignatureAuditDataFormat() {
+		return signatureAuditDataFormat;
+	}
+
+	/**
+	 * Set the format in which the signed data are stored with new signature audit records.
+	 * @param signatureAuditDataFormat Signature audit data format.
+	 */
+	public void setSignatureAuditDataFormat(SignatureAuditDataFormat signatureAuditDataFormat) {
+		this.signatureAuditDataFormat = signatureAuditDataFormat;
+	}
+
+	/**
+	 * Get the maximum number of signature audit records returned in one page and read from the database at once.
+	 * @return Maximum signature audit page size.
+	 */
+	public int getSignatureAuditMaxPageSize() {
+		return signatureAuditMaxPageSize;
+	}
+
+	/**
+	 * Set the maximum number of signature audit records returned in one page and read from the database at once.
+	 * @param signatureAuditMaxPageSize Maximum signature audit page size.
+	 */
+	public void setSignatureAuditMaxPageSize(int signatureAuditMaxPageSize) {
+		this.signatureAuditMaxPageSize = signatureAuditMaxPageSize;
+	}
+
+	/**
+	 * Get the time in seconds for which newly created signature audit records are not returned when reading
+	 * the audit log, so that records committed out of the ID order are not skipped by the paging.
+	 * @return Signature audit read lag in seconds.
+	 */
+	public long getSignatureAuditReadLag() {
+		return signatureAuditReadLag;
+	}
+
+	/**
+	 * Set the time in seconds for which newly created signature audit records are not returned when reading
+	 * the audit log.
+	 * @param signatureAuditReadLag Signature audit read lag in seconds.
+	 */
+	public void setSignatureAuditReadLag(long signatureAuditReadLag) {
+		this.signatureAuditReadLag = signatureAuditReadLag;
+	}
+
+	/**
+	 * Get the database dialect used for maintenance of the partitioned signature audit table. Null value
+	 * means the table is not partitioned and the partition maintenance is disabled.
+	 * @return Signature audit partition dialect.
+	 */
+	public SignatureAuditPartitionDialect getSignatureAuditPartitionDialect() {
+		return signatureAuditPartitionDialect;
+	}
+
+	/**
+	 * Set the database dialect used for maintenance of the partitioned signature audit table.
+	 * @param signatureAuditPartitionDialect Signature audit partition dialect.
+	 */
+	public void setSignatureAuditPartitionDialect(SignatureAuditPartitionDialect signatureAuditPartitionDialect) {
+		this.signatureAuditPartitionDialect = signatureAuditPartitionDialect;
+	}
+
+	/**
+	 * Get the time period covered by a single partition of the signature audit table.
+	 * @return Signature audit partition period.
+	 */
+	public SignatureAuditPartitionPeriod getSignatureAuditPartitionPeriod() {
+		return signatureAuditPartitionPeriod;
+	}
+
+	/**
+	 * Set the time period covered by a single partition of the signature audit table.
+	 * @param signatureAuditPartitionPeriod Signature audit partition period.
+	 */
+	public void setSignatureAuditPartitionPeriod(SignatureAuditPartitionPeriod signatureAuditPartitionPeriod) {
+		this.signatureAuditPartitionPeriod = signatureAuditPartitionPeriod;
+	}
+
+	/**
+	 * Get the number of signature audit partitions created ahead of the current period.
+	 * @return Number of partitions created ahead.
+	 */
+	public int getSignatureAuditPartitionsAhead() {
+		return signatureAuditPartitionsAhead;
+	}
+
+	/**
+	 * Set the number of signature audit partitions created ahead of the current period.
+	 * @param signatureAuditPartitionsAhead Number of partitions created ahead.
+	 */
+	public void setSignatureAuditPartitionsAhead(int signatureAuditPartitionsAhead) {
+		this.signatureAuditPartitionsAhead = signatureAuditPartitionsAhead;
+	}
+
+	/**
+	 * Get the number of past periods for which the signature audit partitions are kept, in addition
+	 * to the current period. Value 0 means the partitions are kept forever.
+	 * @return Number of retained past periods.
+	 */
+	public int getSignatureAuditRetentionPeriods() {
+		return signatureAuditRetentionPeriods;
+	}
+
+	/**
+	 * Set the number of past periods for which the signature audit partitions are kept.
+	 * @param signatureAuditRetentionPeriods Number of retained past periods.
+	 */
+	public void setSignatureAuditRetentionPeriods(int signatureAuditRetentionPeriods) {
+		this.signatureAuditRetentionPeriods = signatureAuditRetentionPeriods;
+	}
+
+	/**
+	 * Get the flag indicating if the signature audit partitions older than the retention are moved
+	 * to standalone archive tables instead of being dropped.
+	 * @return True in case old partitions are archived, false in case they are dropped.
+	 */
+	public boolean isSignatureAuditRetentionArchive() {
+		return signatureAuditRetentionArchive;
+	}
+
+	/**
+	 * Set the flag indicating if the signature audit partitions older than the retention are archived.
+	 * @param signatureAuditRetentionArchive True in case old partitions are archived, false in case they are dropped.
+	 */
+	public void setSignatureAuditRetentionArchive(boolean signatureAuditRetentionArchive) {
+		this.signatureAuditRetentionArchive = signatureAuditRetentionArchive;
+	}
+
+	/**
+	 * Get the interval of the signature audit partition maintenance in seconds.
+	 * @return Maintenance interval in seconds.
+	 */
+	public long getSignatureAuditMaintenanceInterval() {
+		return signatureAuditMaintenanceInterval;
+	}
+
+	/**
+	 * Set the interval of the signature audit partition maintenance in seconds.
+	 * @param signatureAuditMaintenanceInterval Maintenance interval in seconds.
+	 */
+	public void setSignatureAuditMaintenanceInterval(long signatureAuditMaintenanceInterval) {
+		this.signatureAuditMaintenanceInterval = signatureAuditMaintenanceInterval;
+	}
+
+	/**
+	 * Get the maximum number of signatures verified in one batch verification request.
+	 * @return Maximum signature batch size.
+	 */
+	public int getSignatureBatchMaxSize() {
+		return signatureBatchMaxSize;
+	}
+
+	/**
+	 * Set the maximum number of signatures verified in one batch verification request.
+	 * @param signatureBatchMaxSize Maximum signature batch size.
+	 */
+	public void setSignatureBatchMaxSize(int signatureBatchMaxSize) {
+		this.signatureBatchMaxSize = signatureBatchMaxSize;
+	}
+
+	/**
+	 * Get the number of threads verifying signatures of different activations from batch verification
+	 * requests in parallel. Value lower than 2 means signatures are verified in the calling thread.
+	 * @return Number of signature batch threads.
+	 */
+	public int getSignatureBatchThreads() {
+		return signatureBatchThreads;
+	}
+
+	/**
+	 * Set the number of threads verifying signatures of different activations from batch verification
+	 * requests in parallel.
+	 * @param signatureBatchThreads Number of signature batch threads.
+	 */
+	public void setSignatureBatchThreads(int signatureBatchThreads) {
+		this.signatureBatchThreads = signatureBatchThreads;
+	}
+
 	@Bean
 	public ResourceBundleMessageSource messageSource() {
 		ResourceBundleMessageSource source = new ResourceBundleMessageSource();
@@ -15,13 +15,22 @@
  */
 package io.getlime.security.service.controller;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.getlime.security.powerauth.BlockActivationRequest;
 import io.getlime.security.powerauth.BlockActivationResponse;
 import io.getlime.security.powerauth.CommitActivationRequest;
@@ -58,9 +67,14 @@ import io.getlime.security.powerauth.UnsupportApplicationVersionRequest;
 import io.getlime.security.powerauth.UnsupportApplicationVersionResponse;
 import io.getlime.security.powerauth.VaultUnlockRequest;
 import io.getlime.security.powerauth.VaultUnlockResponse;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureBatchResponse;
 import io.getlime.security.powerauth.VerifySignatureRequest;
 import io.getlime.security.powerauth.VerifySignatureResponse;
 import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+import io.getlime.security.service.exceptions.GenericServiceException;
+import io.getlime.security.service.util.model.ServiceError;
 
 /**
  * Class implementing the RESTful controller for PowerAuth service.
@@ -74,6 +88,12 @@ public class PowerAuthController {
 
     @Autowired
     private PowerAuthService powerAuthService;
+
+    @Autowired
+    private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     /**
      * Call {@link PowerAuthService#getSystemStatus(GetSystemStatusRequest)} method and
@@ -182,6 +202,18 @@ public class PowerAuthController {
     public @ResponseBody RESTResponseWrapper<VerifySignatureResponse> verifySignature(@RequestBody RESTRequestWrapper<VerifySignatureRequest> request) throws Exception {
         return new RESTResponseWrapper<>("OK", powerAuthService.verifySignature(request.getRequestObject()));
     }
+
+    /**
+     * Call {@link PowerAuthService#verifySignatureBatch(VerifySignatureBatchRequest)} method and
+     * return the response.
+     * @param request Verify signature batch request.
+     * @return Verify signature batch response.
+     * @throws Exception In case the service throws exception.
+     */
+    @RequestMapping(value = "/signature/verify/batch", method = RequestMethod.POST)
+    public @ResponseBody RESTResponseWrapper<VerifySignatureBatchResponse> verifySignatureBatch(@RequestBody RESTRequestWrapper<VerifySignatureBatchRequest> request) throws Exception {
+        return new RESTResponseWrapper<>("OK", powerAuthService.verifySignatureBatch(request.getRequestObject()));
+    }
     
     /**
      * Call {@link PowerAuthService#getSignatureAuditLog(SignatureAuditRequest)} method and
@@ -195,6 +227,63 @@ public class PowerAuthController {
         return new RESTResponseWrapper<>("OK", powerAuthService.getSignatureAuditLog(request.getRequestObject()));
     }
 
+    /**
+     * Call {@link PowerAuthService#getSignatureAuditLog(SignatureAuditRequest)} method repeatedly
+     * and write all records to the response as they are read, one page at a time. The response has
+     * the same format as the response of {@link #getSignatureAuditLog(RESTRequestWrapper)}, but the
+     * records are never held in memory all at once. Page size and continuation token from the request
+     * are ignored. Since the response is already committed when a later page fails, the response object
+     * contains the "complete" flag and, in case it is false, the "error" object describing the failure,
+     * the items written before the failure are not the whole result.
+     * @param request Signature audit request.
+     * @param response HTTP response the records are written to.
+     * @throws Exception In case the service throws exception.
+     */
+    @RequestMapping(value = "/signature/export", method = RequestMethod.POST)
+    public void exportSignatureAuditLog(@RequestBody RESTRequestWrapper<SignatureAuditRequest> request, HttpServletResponse response) throws Exception {
+        SignatureAuditRequest auditRequest = request.getRequestObject();
+        auditRequest.setPageSize(powerAuthServiceConfiguration.getSignatureAuditMaxPageSize());
+        auditRequest.setContinuationToken(null);
+
+        // Read the first page before writing anything, so that errors are reported the usual way
+        SignatureAuditResponse page = powerAuthService.getSignatureAuditLog(auditRequest);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.writeStartObject();
+        generator.writeStringField("status", "OK");
+        generator.writeObjectFieldStart("responseObject");
+        generator.writeArrayFieldStart("items");
+        RESTErrorModel error = null;
+        try {
+            while (true) {
+                for (SignatureAuditResponse.Items item : page.getItems()) {
+                    generator.writeObject(item);
+                }
+                generator.flush();
+                if (page.getContinuationToken() == null) {
+                    break;
+                }
+                auditRequest.setContinuationToken(page.getContinuationToken());
+                page = powerAuthService.getSignatureAuditLog(auditRequest);
+            }
+        } catch (Exception ex) {
+            Logger.getLogger(PowerAuthController.class.getName()).log(Level.SEVERE, "Signature audit export failed", ex);
+            error = new RESTErrorModel();
+            error.setCode(ex instanceof GenericServiceException ? ((GenericServiceException) ex).getCode() : ServiceError.ERR0000);
+            error.setMessage(ex.getMessage());
+            error.setLocalizedMessage(ex.getLocalizedMessage());
+        }
+        generator.writeEndArray();
+        generator.writeBooleanField("complete", error == null);
+        if (error != null) {
+            generator.writeObjectField("error", error);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.close();
+    }
+
     /**
      * Call {@link PowerAuthService#blockActivation(BlockActivationRequest)} method and
      * return the response.
@@ -31,9 +31,12 @@ import org.springframework.web.servlet.mvc.support.DefaultHandlerExceptionResolv
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.getlime.security.service.exceptions.GenericServiceException;
+
 /**
  * Exception resolver responsible for catching Spring errors and rendering them in
- * the same format as the application logics exceptions.
+ * the same format as the application logics exceptions. Application logics exceptions
+ * reaching this resolver keep their error code.
  * 
  * @author Petr Dvorak
  *
@@ -53,7 +56,11 @@ public class RESTResponseExceptionResolver extends DefaultHandlerExceptionResolv
         try {
             // Build the error list
             RESTErrorModel error = new RESTErrorModel();
-            error.setCode("ERR_SPRING_JAVA");
+            if (exception instanceof GenericServiceException) {
+                error.setCode(((GenericServiceException) exception).getCode());
+            } else {
+                error.setCode("ERR_SPRING_JAVA");
+            }
             error.setMessage(exception.getMessage());
             error.setLocalizedMessage(exception.getLocalizedMessage());
             List<RESTErrorModel> errorList = new LinkedList<>();
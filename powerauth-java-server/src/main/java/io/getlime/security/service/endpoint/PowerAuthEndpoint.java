@@ -51,6 +51,8 @@ import io.getlime.security.powerauth.UnsupportApplicationVersionRequest;
 import io.getlime.security.powerauth.UnsupportApplicationVersionResponse;
 import io.getlime.security.powerauth.VaultUnlockRequest;
 import io.getlime.security.powerauth.VaultUnlockResponse;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureBatchResponse;
 import io.getlime.security.powerauth.VerifySignatureRequest;
 import io.getlime.security.powerauth.VerifySignatureResponse;
 import io.getlime.security.service.PowerAuthService;
@@ -190,6 +192,19 @@ public class PowerAuthEndpoint {
     public VerifySignatureResponse verifySignature(@RequestPayload VerifySignatureRequest request) throws Exception {
         return powerAuthService.verifySignature(request);
     }
+
+    /**
+     * Call {@link PowerAuthService#verifySignatureBatch(VerifySignatureBatchRequest)} method and
+     * return the response.
+     * @param request Verify signature batch request.
+     * @return Verify signature batch response.
+     * @throws Exception In case the service throws exception.
+     */
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "VerifySignatureBatchRequest")
+    @ResponsePayload
+    public VerifySignatureBatchResponse verifySignatureBatch(@RequestPayload VerifySignatureBatchRequest request) throws Exception {
+        return powerAuthService.verifySignatureBatch(request);
+    }
     
     /**
      * Call {@link PowerAuthService#getSignatureAuditLog(SignatureAuditRequest)} method and
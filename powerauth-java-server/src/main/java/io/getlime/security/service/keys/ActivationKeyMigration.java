@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.keys;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+
+/**
+ * Migration of existing activation records to the binary key storage. Fills the binary key columns
+ * of all rows that have only Base64 keys, in batches ordered by activation ID. The migration runs
+ * in a background thread after the application is started in case it is enabled in the configuration,
+ * and it can be run again at any time, already migrated rows are skipped.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class ActivationKeyMigration implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final int BATCH_SIZE = 500;
+
+	private static final String SELECT_SQL = "SELECT activation_id, server_private_key_base64, device_public_key_base64 FROM pa_activation "
+			+ "WHERE activation_id > ? AND (server_private_key IS NULL OR (device_public_key IS NULL AND device_public_key_base64 IS NOT NULL)) "
+			+ "ORDER BY activation_id";
+
+	private static final String UPDATE_SQL = "UPDATE pa_activation SET server_private_key = ?, device_public_key = ? WHERE activation_id = ?";
+
+	private static final int[] UPDATE_TYPES = { Types.VARBINARY, Types.VARBINARY, Types.VARCHAR };
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Set the data source, the migration reads at most one batch of rows per query.
+	 * @param dataSource Data source.
+	 */
+	@Autowired
+	public void setDataSource(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setMaxRows(BATCH_SIZE);
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		if (!powerAuthServiceConfiguration.getActivationBinaryKeyMigration()) {
+			return;
+		}
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int count = migrate();
+					Logger.getLogger(ActivationKeyMigration.class.getName()).log(Level.INFO, "Binary key migration finished, migrated activations: {0}", count);
+				} catch (RuntimeException ex) {
+					Logger.getLogger(ActivationKeyMigration.class.getName()).log(Level.SEVERE, null, ex);
+				}
+			}
+		}, "powerauth-activation-key-migration");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Fill binary keys of all activation records that have only Base64 keys.
+	 * @return Number of migrated activation records.
+	 */
+	public int migrate() {
+		int count = 0;
+		String lastActivationId = "";
+		while (true) {
+			List<Object[]> batch = jdbcTemplate.query(SELECT_SQL, new Object[] { lastActivationId }, new RowMapper<Object[]>() {
+				@Override
+				public Object[] mapRow(ResultSet rs, int rowNum) throws SQLException {
+					String serverPrivateKeyBase64 = rs.getString("server_private_key_base64");
+					String devicePublicKeyBase64 = rs.getString("device_public_key_base64");
+					return new Object[] {
+							ActivationKeyStorage.toRawPrivateKey(BaseEncoding.base64().decode(serverPrivateKeyBase64)),
+							devicePublicKeyBase64 == null ? null : BaseEncoding.base64().decode(devicePublicKeyBase64),
+							rs.getString("activation_id")
+					};
+				}
+			});
+			if (batch.isEmpty()) {
+				return count;
+			}
+			jdbcTemplate.batchUpdate(UPDATE_SQL, batch, UPDATE_TYPES);
+			count += batch.size();
+			lastActivationId = (String) batch.get(batch.size() - 1)[2];
+		}
+	}
+
+}
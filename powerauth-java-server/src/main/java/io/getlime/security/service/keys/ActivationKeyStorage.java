@@ -0,0 +1,125 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.keys;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.repository.model.entity.ActivationRecordEntity;
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+
+/**
+ * Access to the server private key and device public key of an activation. Keys are always stored
+ * as Base64, in binary key storage mode they are also stored in binary columns (raw 32 byte scalar
+ * for the private key, uncompressed 65 byte point for the public key). Binary keys are preferred
+ * when reading, so that the Base64 decoding is skipped for rows that have them. The binary columns
+ * are part of the schema in every mode, existing databases must be upgraded with migration_binary_keys.sql.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class ActivationKeyStorage {
+
+	/**
+	 * Length of a raw secp256r1 private key scalar.
+	 */
+	public static final int PRIVATE_KEY_LENGTH = 32;
+
+	@Autowired
+	private PowerAuthServiceConfiguration powerAuthServiceConfiguration;
+
+	/**
+	 * Get the server private key of given activation.
+	 * @param activation Activation record.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return Server private key.
+	 * @throws InvalidKeySpecException In case invalid key is stored with the activation.
+	 */
+	public PrivateKey getServerPrivateKey(ActivationRecordEntity activation, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException {
+		byte[] keyBytes = activation.getServerPrivateKey();
+		if (keyBytes == null) {
+			keyBytes = BaseEncoding.base64().decode(activation.getServerPrivateKeyBase64());
+		}
+		return keyConversionUtilities.convertBytesToPrivateKey(keyBytes);
+	}
+
+	/**
+	 * Get the device public key of given activation.
+	 * @param activation Activation record.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 * @return Device public key.
+	 * @throws InvalidKeySpecException In case invalid key is stored with the activation.
+	 */
+	public PublicKey getDevicePublicKey(ActivationRecordEntity activation, CryptoProviderUtil keyConversionUtilities) throws InvalidKeySpecException {
+		byte[] keyBytes = activation.getDevicePublicKey();
+		if (keyBytes == null) {
+			keyBytes = BaseEncoding.base64().decode(activation.getDevicePublicKeyBase64());
+		}
+		return keyConversionUtilities.convertBytesToPublicKey(keyBytes);
+	}
+
+	/**
+	 * Store the server private key with given activation.
+	 * @param activation Activation record.
+	 * @param serverPrivateKey Server private key.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 */
+	public void setServerPrivateKey(ActivationRecordEntity activation, PrivateKey serverPrivateKey, CryptoProviderUtil keyConversionUtilities) {
+		byte[] keyBytes = keyConversionUtilities.convertPrivateKeyToBytes(serverPrivateKey);
+		activation.setServerPrivateKeyBase64(BaseEncoding.base64().encode(keyBytes));
+		if (powerAuthServiceConfiguration.getActivationBinaryKeyStorage()) {
+			activation.setServerPrivateKey(toRawPrivateKey(keyBytes));
+		}
+	}
+
+	/**
+	 * Store the device public key with given activation.
+	 * @param activation Activation record.
+	 * @param devicePublicKey Device public key.
+	 * @param keyConversionUtilities Key conversion utilities.
+	 */
+	public void setDevicePublicKey(ActivationRecordEntity activation, PublicKey devicePublicKey, CryptoProviderUtil keyConversionUtilities) {
+		byte[] keyBytes = keyConversionUtilities.convertPublicKeyToBytes(devicePublicKey);
+		activation.setDevicePublicKeyBase64(BaseEncoding.base64().encode(keyBytes));
+		if (powerAuthServiceConfiguration.getActivationBinaryKeyStorage()) {
+			activation.setDevicePublicKey(keyBytes);
+		}
+	}
+
+	/**
+	 * Convert private key bytes as produced by the key convertor (two's complement representation
+	 * of the scalar, with a leading zero byte when the highest bit is set) to a raw 32 byte scalar.
+	 * @param keyBytes Private key bytes.
+	 * @return Raw 32 byte private key scalar.
+	 */
+	public static byte[] toRawPrivateKey(byte[] keyBytes) {
+		byte[] scalar = new BigInteger(1, keyBytes).toByteArray();
+		byte[] raw = new byte[PRIVATE_KEY_LENGTH];
+		int length = Math.min(scalar.length, PRIVATE_KEY_LENGTH);
+		System.arraycopy(scalar, scalar.length - length, raw, PRIVATE_KEY_LENGTH - length, length);
+		return raw;
+	}
+
+}
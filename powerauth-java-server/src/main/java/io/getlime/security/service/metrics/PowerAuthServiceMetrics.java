@@ -0,0 +1,203 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Names and helpers for the metrics recorded by the service behaviors. Metrics are kept in the
+ * Dropwizard {@link MetricRegistry} and published by the actuator "/metrics" endpoint, timers and
+ * histograms with their count, rates and snapshot percentiles.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+@Component
+public class PowerAuthServiceMetrics {
+
+	/**
+	 * Timer of the whole signature verification.
+	 */
+	public static final String SIGNATURE_VERIFY = "powerauth.signature.verify";
+
+	/**
+	 * Timer of fetching the activation for the signature verification.
+	 */
+	public static final String SIGNATURE_FETCH = "powerauth.signature.phase.fetch";
+
+	/**
+	 * Timer of getting the signature keys, including ECDH and KDF on a signature key cache miss.
+	 */
+	public static final String SIGNATURE_KEYS = "powerauth.signature.phase.keys";
+
+	/**
+	 * Timer of the HMAC computation over the lookahead window.
+	 */
+	public static final String SIGNATURE_HMAC = "powerauth.signature.phase.hmac";
+
+	/**
+	 * Timer of updating the activation counter.
+	 */
+	public static final String SIGNATURE_UPDATE = "powerauth.signature.phase.update";
+
+	/**
+	 * Histogram of the lookahead depth at which a valid signature matched.
+	 */
+	public static final String SIGNATURE_LOOKAHEAD_DEPTH = "powerauth.signature.lookaheadDepth";
+
+	/**
+	 * Prefix of counters of signature verification results, by the audit note.
+	 */
+	public static final String SIGNATURE_RESULT = "powerauth.signature.result.";
+
+	/**
+	 * Counter of activations blocked by too many failed signatures.
+	 */
+	public static final String SIGNATURE_BLOCKED = "powerauth.signature.blocked";
+
+	/**
+	 * Counter of activation updates that conflicted with a parallel request.
+	 */
+	public static final String SIGNATURE_UPDATE_CONFLICT = "powerauth.signature.updateConflict";
+
+	/**
+	 * Timer of fetching the activation for the activation status.
+	 */
+	public static final String ACTIVATION_STATUS_FETCH = "powerauth.activation.status.phase.fetch";
+
+	/**
+	 * Timer of computing the encrypted activation status blob.
+	 */
+	public static final String ACTIVATION_STATUS_ENCRYPT = "powerauth.activation.status.phase.encrypt";
+
+	/**
+	 * Timer of fetching the activation for the activation prepare step.
+	 */
+	public static final String ACTIVATION_PREPARE_FETCH = "powerauth.activation.prepare.phase.fetch";
+
+	/**
+	 * Timer of decrypting the device public key in the activation prepare step.
+	 */
+	public static final String ACTIVATION_PREPARE_DECRYPT = "powerauth.activation.prepare.phase.decrypt";
+
+	/**
+	 * Timer of persisting the activation in the activation prepare step.
+	 */
+	public static final String ACTIVATION_PREPARE_SAVE = "powerauth.activation.prepare.phase.save";
+
+	/**
+	 * Timer of encrypting and signing the server public key in the activation prepare step.
+	 */
+	public static final String ACTIVATION_PREPARE_ENCRYPT = "powerauth.activation.prepare.phase.encrypt";
+
+	/**
+	 * Prefix of counters of activation lifecycle results.
+	 */
+	public static final String ACTIVATION_RESULT = "powerauth.activation.result.";
+
+	/**
+	 * Timer of fetching the activation for the vault unlock.
+	 */
+	public static final String VAULT_UNLOCK_FETCH = "powerauth.vault.unlock.phase.fetch";
+
+	/**
+	 * Timer of deriving the transport key and encrypting the vault encryption key.
+	 */
+	public static final String VAULT_UNLOCK_ENCRYPT = "powerauth.vault.unlock.phase.encrypt";
+
+	/**
+	 * Prefix of counters of vault unlock results.
+	 */
+	public static final String VAULT_UNLOCK_RESULT = "powerauth.vault.unlock.result.";
+
+	/**
+	 * Timer of writing a signature audit record.
+	 */
+	public static final String AUDIT_WRITE = "powerauth.audit.write";
+
+	/**
+	 * Timer of reading a page of the signature audit log.
+	 */
+	public static final String AUDIT_READ = "powerauth.audit.read";
+
+	/**
+	 * Gauge of the number of signature audit records waiting for the background writer.
+	 */
+	public static final String AUDIT_QUEUE_SIZE = "powerauth.audit.queueSize";
+
+	/**
+	 * Gauge of the number of signature audit records dropped because the writer queue was full.
+	 */
+	public static final String AUDIT_DROPPED = "powerauth.audit.dropped";
+
+	/**
+	 * Gauge of the number of signature audit records lost because a batch insert failed.
+	 */
+	public static final String AUDIT_FAILED = "powerauth.audit.failed";
+
+	@Autowired
+	private MetricRegistry metricRegistry;
+
+	/**
+	 * Start measuring a duration with the timer of given name.
+	 * @param name Timer name.
+	 * @return Timer context, the duration is recorded when it is stopped.
+	 */
+	public Timer.Context time(String name) {
+		return metricRegistry.timer(name).time();
+	}
+
+	/**
+	 * Increment the counter of given name.
+	 * @param name Counter name.
+	 */
+	public void increment(String name) {
+		metricRegistry.counter(name).inc();
+	}
+
+	/**
+	 * Record a value in the histogram of given name.
+	 * @param name Histogram name.
+	 * @param value Value to be recorded.
+	 */
+	public void update(String name, long value) {
+		metricRegistry.histogram(name).update(value);
+	}
+
+	/**
+	 * Register a gauge with given name, replacing a gauge registered before with the same name.
+	 * @param name Gauge name.
+	 * @param gauge Gauge to be registered.
+	 */
+	public void gauge(String name, Gauge<?> gauge) {
+		metricRegistry.remove(name);
+		metricRegistry.register(name, gauge);
+	}
+
+	/**
+	 * Get the underlying metric registry.
+	 * @return Metric registry.
+	 */
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.GetActivationStatusRequest;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.SignatureAuditRequest;
+import io.getlime.security.powerauth.SignatureAuditResponse;
+import io.getlime.security.powerauth.VaultUnlockRequest;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.VerifySignatureResponse;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
+import io.getlime.security.service.util.ModelUtil;
+import io.getlime.security.service.util.TestActivation;
+
+/**
+ * Load test of the PowerAuth 2.0 Server service running against an embedded H2 database.
+ * The test provisions applications and activations using the regular activation process
+ * and then calls signature validation, activation status and vault unlock from multiple
+ * threads, reporting throughput and latency percentiles of each operation.
+ *
+ * The test is skipped unless "powerauth.loadTest" system property is set to true, for example:
+ * <pre>
+ * mvn test -Dtest=PowerAuthServiceLoadTest -Dpowerauth.loadTest=true -Dpowerauth.loadTest.threads=16
+ * </pre>
+ * Other properties: "powerauth.loadTest.applications", "powerauth.loadTest.activations" (per
+ * application) and "powerauth.loadTest.duration" (in seconds).
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("loadtest")
+public class PowerAuthServiceLoadTest {
+
+	private static final String VERIFY_SIGNATURE = "verifySignature";
+	private static final String GET_ACTIVATION_STATUS = "getActivationStatus";
+	private static final String VAULT_UNLOCK = "vaultUnlock";
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	/**
+	 * Skip the test unless it was explicitly enabled.
+	 */
+	@BeforeClass
+	public static void checkEnabled() {
+		assumeTrue(Boolean.getBoolean("powerauth.loadTest"));
+	}
+
+	/**
+	 * Provision activations and run the load.
+	 * @throws Exception In case the test fails.
+	 */
+	@Test
+	public void testServiceThroughput() throws Exception {
+		int applicationCount = Integer.getInteger("powerauth.loadTest.applications", 2);
+		int activationCount = Integer.getInteger("powerauth.loadTest.activations", 50);
+		int threadCount = Integer.getInteger("powerauth.loadTest.threads", 8);
+		final long durationMillis = Integer.getInteger("powerauth.loadTest.duration", 30) * 1000L;
+
+		// Provision applications and activations
+		long provisioningStart = System.nanoTime();
+		List<TestActivation> activations = new ArrayList<>();
+		for (int i = 0; i < applicationCount; i++) {
+			GetApplicationDetailResponse applicationDetail = TestActivation.createApplication(powerAuthService, "load-test-" + i);
+			for (int j = 0; j < activationCount; j++) {
+				activations.add(TestActivation.create(powerAuthService, applicationDetail, "user-" + i + "-" + j));
+			}
+		}
+		System.out.println("Provisioned " + activations.size() + " activations in " + (System.nanoTime() - provisioningStart) / 1000000L + " ms");
+
+		// Split activations between threads, so that no two threads use the same activation
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		List<Future<Statistics>> futures = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			final List<TestActivation> threadActivations = new ArrayList<>();
+			for (int i = t; i < activations.size(); i += threadCount) {
+				threadActivations.add(activations.get(i));
+			}
+			futures.add(executor.submit(new Callable<Statistics>() {
+				@Override
+				public Statistics call() throws Exception {
+					return runLoad(threadActivations, durationMillis);
+				}
+			}));
+		}
+
+		Statistics total = new Statistics();
+		for (Future<Statistics> future : futures) {
+			total.addAll(future.get());
+		}
+		executor.shutdown();
+
+		// Report the results
+		System.out.println("Threads: " + threadCount + ", duration: " + durationMillis / 1000L + " s");
+		for (String operation : Arrays.asList(VERIFY_SIGNATURE, GET_ACTIVATION_STATUS, VAULT_UNLOCK)) {
+			System.out.println(total.report(operation, durationMillis));
+		}
+		assertEquals("Valid signatures were rejected", 0, total.failures);
+
+		// Verify signatures of multiple activations in one batch, two signatures per activation
+		long batchStart = System.nanoTime();
+		VerifySignatureBatchRequest batchRequest = new VerifySignatureBatchRequest();
+		List<TestActivation> batchActivations = activations.subList(0, Math.min(20, activations.size()));
+		for (int i = 0; i < 2; i++) {
+			for (TestActivation activation : batchActivations) {
+				batchRequest.getVerifySignatureRequest().add(activation.verifySignatureRequest());
+			}
+		}
+		List<VerifySignatureResponse> batchResponses = powerAuthService.verifySignatureBatch(batchRequest).getVerifySignatureResponse();
+		assertEquals(batchRequest.getVerifySignatureRequest().size(), batchResponses.size());
+		for (int i = 0; i < batchResponses.size(); i++) {
+			assertEquals("Batch responses are not ordered", batchRequest.getVerifySignatureRequest().get(i).getActivationId(), batchResponses.get(i).getActivationId());
+			assertTrue("Valid batch signature was rejected", batchResponses.get(i).isSignatureValid());
+		}
+		System.out.println("Verified " + batchResponses.size() + " signatures in a batch in " + (System.nanoTime() - batchStart) / 1000000L + " ms");
+
+		// Page through the signature audit log of a single user
+		long auditStart = System.nanoTime();
+		SignatureAuditRequest auditRequest = new SignatureAuditRequest();
+		auditRequest.setUserId("user-0-0");
+		auditRequest.setTimestampFrom(ModelUtil.calendarWithDate(new Date(0)));
+		auditRequest.setTimestampTo(ModelUtil.calendarWithDate(new Date()));
+		auditRequest.setPageSize(10);
+		auditRequest.setIncludeData(true);
+		int auditPages = 0;
+		int auditRecords = 0;
+		long lastAuditId = 0;
+		do {
+			SignatureAuditResponse auditResponse = powerAuthService.getSignatureAuditLog(auditRequest);
+			for (SignatureAuditResponse.Items item : auditResponse.getItems()) {
+				assertTrue("Audit records are not ordered", item.getId() > lastAuditId);
+				assertTrue("Audit record data is missing", item.getDataBase64() != null);
+				lastAuditId = item.getId();
+			}
+			auditRecords += auditResponse.getItems().size();
+			auditPages++;
+			auditRequest.setContinuationToken(auditResponse.getContinuationToken());
+		} while (auditRequest.getContinuationToken() != null);
+		System.out.println("Read " + auditRecords + " audit records in " + auditPages + " pages in " + (System.nanoTime() - auditStart) / 1000000L + " ms");
+
+		// Print the server side timers recorded during the test
+		SortedMap<String, Timer> timers = serviceMetrics.getMetricRegistry().getTimers();
+		assertTrue("Signature verification was not timed", timers.get(PowerAuthServiceMetrics.SIGNATURE_VERIFY).getCount() > 0);
+		for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+			Snapshot snapshot = timer.getValue().getSnapshot();
+			System.out.println(String.format("%s: %d calls, p50 %.2f ms, p99 %.2f ms",
+					timer.getKey(), timer.getValue().getCount(), snapshot.getMedian() / 1000000.0, snapshot.get99thPercentile() / 1000000.0));
+		}
+	}
+
+	private Statistics runLoad(List<TestActivation> activations, long durationMillis) throws Exception {
+		Statistics statistics = new Statistics();
+		if (activations.isEmpty()) {
+			return statistics;
+		}
+		Random random = new Random();
+		long end = System.currentTimeMillis() + durationMillis;
+		int index = 0;
+		while (System.currentTimeMillis() < end) {
+			TestActivation activation = activations.get(index++ % activations.size());
+			int operation = random.nextInt(100);
+			long start = System.nanoTime();
+			if (operation < 80) {
+				VerifySignatureRequest request = activation.verifySignatureRequest();
+				boolean valid = powerAuthService.verifySignature(request).isSignatureValid();
+				statistics.add(VERIFY_SIGNATURE, System.nanoTime() - start, valid);
+			} else if (operation < 95) {
+				GetActivationStatusRequest request = new GetActivationStatusRequest();
+				request.setActivationId(activation.getActivationId());
+				powerAuthService.getActivationStatus(request);
+				statistics.add(GET_ACTIVATION_STATUS, System.nanoTime() - start, true);
+			} else {
+				VerifySignatureRequest signatureRequest = activation.verifySignatureRequest();
+				VaultUnlockRequest request = new VaultUnlockRequest();
+				request.setActivationId(signatureRequest.getActivationId());
+				request.setApplicationKey(signatureRequest.getApplicationKey());
+				request.setSignatureType(signatureRequest.getSignatureType());
+				request.setData(signatureRequest.getData());
+				request.setSignature(signatureRequest.getSignature());
+				boolean valid = powerAuthService.vaultUnlock(request).isSignatureValid();
+				// Vault unlock moves the server counter once more after the signature validation
+				activation.setCounter(activation.getCounter() + 1);
+				statistics.add(VAULT_UNLOCK, System.nanoTime() - start, valid);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Latencies of the executed operations.
+	 */
+	private static class Statistics {
+
+		private final List<String> operations = new ArrayList<>();
+		private final List<Long> latencies = new ArrayList<>();
+		private long failures = 0;
+
+		private void add(String operation, long latencyNanos, boolean success) {
+			operations.add(operation);
+			latencies.add(latencyNanos);
+			if (!success) {
+				failures++;
+			}
+		}
+
+		private void addAll(Statistics other) {
+			operations.addAll(other.operations);
+			latencies.addAll(other.latencies);
+			failures += other.failures;
+		}
+
+		private String report(String operation, long durationMillis) {
+			List<Long> values = new ArrayList<>();
+			for (int i = 0; i < operations.size(); i++) {
+				if (operations.get(i).equals(operation)) {
+					values.add(latencies.get(i));
+				}
+			}
+			if (values.isEmpty()) {
+				return operation + ": no operations";
+			}
+			Collections.sort(values);
+			return String.format("%s: %d ops, %.1f ops/s, latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+					operation,
+					values.size(),
+					values.size() * 1000.0 / durationMillis,
+					percentile(values, 50),
+					percentile(values, 90),
+					percentile(values, 99),
+					values.get(values.size() - 1) / 1000000.0);
+		}
+
+		private double percentile(List<Long> sortedValues, int percentile) {
+			int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+			return sortedValues.get(Math.max(index, 0)) / 1000000.0;
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import static io.getlime.security.service.audit.SignatureAuditPartitionPeriodTest.utc;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test of the statements maintaining the partitions of the signature audit table.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class SignatureAuditPartitionDialectTest {
+
+	/**
+	 * Default constructor
+	 */
+	public SignatureAuditPartitionDialectTest() {
+	}
+
+	/**
+	 * Test that the PostgreSQL partition is created while the default partition is detached, and that
+	 * a detached default partition is attached back.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testPostgreSql() throws Exception {
+		System.out.println("testPostgreSql");
+		SignatureAuditPartitionDialect dialect = SignatureAuditPartitionDialect.POSTGRESQL;
+		assertTrue(dialect.isTransactionalDdl());
+		assertEquals(Arrays.asList(
+				"ALTER TABLE pa_signature_audit DETACH PARTITION pa_signature_audit_p_max",
+				"CREATE TABLE pa_signature_audit_p_201611 PARTITION OF pa_signature_audit FOR VALUES FROM ('2016-11-01') TO ('2016-12-01')",
+				"INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_p_max WHERE timestamp_created >= '2016-11-01' AND timestamp_created < '2016-12-01'",
+				"DELETE FROM pa_signature_audit_p_max WHERE timestamp_created >= '2016-11-01' AND timestamp_created < '2016-12-01'",
+				"ALTER TABLE pa_signature_audit ATTACH PARTITION pa_signature_audit_p_max DEFAULT"),
+				dialect.createPartitionSql("p_201611", utc(2016, 11, 1), utc(2016, 12, 1)));
+		assertTrue(dialect.detachedMaxPartitionSql().contains("c.relname = 'pa_signature_audit_p_max'"));
+		assertEquals(Collections.singletonList("ALTER TABLE pa_signature_audit ATTACH PARTITION pa_signature_audit_p_max DEFAULT"),
+				dialect.attachMaxPartitionSql(utc(2016, 12, 1), false));
+		assertEquals(Collections.singletonList("DROP TABLE pa_signature_audit_p_201610"), dialect.dropPartitionSql("p_201610"));
+		assertEquals(Collections.singletonList("ALTER TABLE pa_signature_audit DETACH PARTITION pa_signature_audit_p_201610"), dialect.archivePartitionSql("p_201610"));
+	}
+
+	/**
+	 * Test that the DB2 partition is created below a re-added "p_max" partition, and that a detached
+	 * "p_max" table is added back only in case the partition was not added yet.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testDb2() throws Exception {
+		System.out.println("testDb2");
+		SignatureAuditPartitionDialect dialect = SignatureAuditPartitionDialect.DB2;
+		assertFalse(dialect.isTransactionalDdl());
+		assertEquals(Arrays.asList(
+				"ALTER TABLE pa_signature_audit DETACH PARTITION p_max INTO pa_signature_audit_p_max",
+				"ALTER TABLE pa_signature_audit ADD PARTITION p_20161018 STARTING ('2016-10-18 00:00:00') INCLUSIVE ENDING ('2016-10-19 00:00:00') EXCLUSIVE",
+				"ALTER TABLE pa_signature_audit ADD PARTITION p_max STARTING ('2016-10-19 00:00:00') INCLUSIVE ENDING (MAXVALUE)",
+				"INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_p_max",
+				"DROP TABLE pa_signature_audit_p_max"),
+				dialect.createPartitionSql("p_20161018", utc(2016, 10, 18), utc(2016, 10, 19)));
+		assertTrue(dialect.detachedMaxPartitionSql().contains("tabname = 'PA_SIGNATURE_AUDIT_P_MAX'"));
+		assertEquals(Arrays.asList(
+				"ALTER TABLE pa_signature_audit ADD PARTITION p_max STARTING ('2016-12-01 00:00:00') INCLUSIVE ENDING (MAXVALUE)",
+				"INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_p_max",
+				"DROP TABLE pa_signature_audit_p_max"),
+				dialect.attachMaxPartitionSql(utc(2016, 12, 1), false));
+		assertEquals(Arrays.asList(
+				"INSERT INTO pa_signature_audit SELECT * FROM pa_signature_audit_p_max",
+				"DROP TABLE pa_signature_audit_p_max"),
+				dialect.attachMaxPartitionSql(utc(2016, 12, 1), true));
+	}
+
+	/**
+	 * Test that MySQL and Oracle partitions are split from the "p_max" partition in a single statement,
+	 * without ever detaching it.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testSplitDialects() throws Exception {
+		System.out.println("testSplitDialects");
+		assertEquals(Collections.singletonList("ALTER TABLE pa_signature_audit REORGANIZE PARTITION p_max INTO ("
+				+ "PARTITION p_201611 VALUES LESS THAN (TO_DAYS('2016-12-01')), PARTITION p_max VALUES LESS THAN MAXVALUE)"),
+				SignatureAuditPartitionDialect.MYSQL.createPartitionSql("p_201611", utc(2016, 11, 1), utc(2016, 12, 1)));
+		assertEquals(Collections.singletonList("ALTER TABLE pa_signature_audit SPLIT PARTITION p_max AT (TIMESTAMP '2016-12-01 00:00:00') "
+				+ "INTO (PARTITION p_201611, PARTITION p_max) UPDATE GLOBAL INDEXES"),
+				SignatureAuditPartitionDialect.ORACLE.createPartitionSql("p_201611", utc(2016, 11, 1), utc(2016, 12, 1)));
+		for (SignatureAuditPartitionDialect dialect : Arrays.asList(SignatureAuditPartitionDialect.MYSQL, SignatureAuditPartitionDialect.ORACLE)) {
+			assertFalse(dialect.isTransactionalDdl());
+			assertNull(dialect.detachedMaxPartitionSql());
+			assertTrue(dialect.attachMaxPartitionSql(utc(2016, 12, 1), false).isEmpty());
+		}
+	}
+
+	/**
+	 * Test the names of the "p_max" partition and of the standalone partition tables.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testNames() throws Exception {
+		System.out.println("testNames");
+		for (SignatureAuditPartitionDialect dialect : SignatureAuditPartitionDialect.values()) {
+			assertNotNull(dialect.listPartitionsSql());
+			assertTrue(dialect.isMaxPartition("p_max"));
+			assertTrue(dialect.isMaxPartition("P_MAX"));
+			assertFalse(dialect.isMaxPartition("p_201610"));
+			assertEquals("pa_signature_audit_p_201610", dialect.archiveTable("P_201610"));
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Test of the partition names and period boundaries of the signature audit partitions.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class SignatureAuditPartitionPeriodTest {
+
+	/**
+	 * Default constructor
+	 */
+	public SignatureAuditPartitionPeriodTest() {
+	}
+
+	/**
+	 * Test the partition names of monthly and daily periods.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testPartitionName() throws Exception {
+		System.out.println("testPartitionName");
+		assertEquals("p_201610", SignatureAuditPartitionPeriod.MONTH.partitionName(utc(2016, 10, 1)));
+		assertEquals("p_20161018", SignatureAuditPartitionPeriod.DAY.partitionName(utc(2016, 10, 18)));
+		assertEquals("p_201701", SignatureAuditPartitionPeriod.MONTH.partitionName(utc(2017, 1, 1)));
+	}
+
+	/**
+	 * Test that partition names are parsed back to the period start, and that other names are ignored.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testParsePartitionName() throws Exception {
+		System.out.println("testParsePartitionName");
+		assertEquals(utc(2016, 10, 1), SignatureAuditPartitionPeriod.MONTH.parsePartitionName("p_201610"));
+		assertEquals(utc(2016, 10, 1), SignatureAuditPartitionPeriod.MONTH.parsePartitionName("P_201610"));
+		assertEquals(utc(2016, 10, 18), SignatureAuditPartitionPeriod.DAY.parsePartitionName("p_20161018"));
+		for (SignatureAuditPartitionPeriod period : SignatureAuditPartitionPeriod.values()) {
+			Date start = period.start(utc(2016, 2, 29));
+			assertEquals(start, period.parsePartitionName(period.partitionName(start)));
+		}
+
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName(null));
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName("p_max"));
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName("p_20161018"));
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName("x_201610"));
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName("p_2016+1"));
+		assertNull(SignatureAuditPartitionPeriod.MONTH.parsePartitionName("p_201613"));
+		assertNull(SignatureAuditPartitionPeriod.DAY.parsePartitionName("p_201610"));
+		assertNull(SignatureAuditPartitionPeriod.DAY.parsePartitionName("p_20170229"));
+	}
+
+	/**
+	 * Test the start of a period and moving it by a number of periods, across the end of a year and a leap day.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testStartAndAdd() throws Exception {
+		System.out.println("testStartAndAdd");
+		Calendar calendar = Calendar.getInstance(SignatureAuditPartitionPeriod.UTC);
+		calendar.setTime(utc(2016, 10, 18));
+		calendar.set(Calendar.HOUR_OF_DAY, 23);
+		calendar.set(Calendar.MINUTE, 59);
+		assertEquals(utc(2016, 10, 1), SignatureAuditPartitionPeriod.MONTH.start(calendar.getTime()));
+		assertEquals(utc(2016, 10, 18), SignatureAuditPartitionPeriod.DAY.start(calendar.getTime()));
+
+		assertEquals(utc(2017, 1, 1), SignatureAuditPartitionPeriod.MONTH.add(utc(2016, 12, 1), 1));
+		assertEquals(utc(2016, 11, 1), SignatureAuditPartitionPeriod.MONTH.add(utc(2017, 2, 1), -3));
+		assertEquals(utc(2016, 2, 29), SignatureAuditPartitionPeriod.DAY.add(utc(2016, 2, 28), 1));
+		assertEquals(utc(2016, 3, 1), SignatureAuditPartitionPeriod.DAY.add(utc(2016, 2, 29), 1));
+		assertEquals(utc(2016, 10, 31), SignatureAuditPartitionPeriod.DAY.add(utc(2016, 10, 30), 1));
+	}
+
+	/**
+	 * Get midnight of given day in UTC.
+	 */
+	static Date utc(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance(SignatureAuditPartitionPeriod.UTC);
+		calendar.clear();
+		calendar.set(year, month - 1, day);
+		return calendar.getTime();
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.audit;
+
+import static io.getlime.security.service.audit.SignatureAuditPartitionPeriodTest.utc;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.getlime.security.service.configuration.PowerAuthServiceConfiguration;
+
+/**
+ * Test of the partition maintenance order, the maintenance lease and the transactions of the
+ * PostgreSQL partition maintenance.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class SignatureAuditRetentionJobTest {
+
+	private static final SignatureAuditPartitionDialect DIALECT = SignatureAuditPartitionDialect.POSTGRESQL;
+
+	private static final String ACQUIRE_LEASE = "UPDATE pa_signature_audit_lock SET locked_by";
+
+	private static final String RELEASE_LEASE = "UPDATE pa_signature_audit_lock SET locked_until = NULL";
+
+	private JdbcTemplate jdbcTemplate;
+
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionStatus transactionStatus;
+
+	private SignatureAuditRetentionJob job;
+
+	/**
+	 * Default constructor
+	 */
+	public SignatureAuditRetentionJobTest() {
+	}
+
+	/**
+	 * Prepare the job with a PostgreSQL table containing the October 2016 partition and a free lease.
+	 */
+	@Before
+	public void setUp() {
+		PowerAuthServiceConfiguration configuration = new PowerAuthServiceConfiguration();
+		configuration.setSignatureAuditPartitionsAhead(1);
+		jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+		Mockito.when(jdbcTemplate.update(Mockito.startsWith(ACQUIRE_LEASE), Mockito.<Object>anyVararg())).thenReturn(1);
+		Mockito.when(jdbcTemplate.queryForList(DIALECT.listPartitionsSql(), String.class)).thenReturn(Arrays.asList("p_201610", "p_max"));
+		Mockito.when(jdbcTemplate.queryForObject(DIALECT.detachedMaxPartitionSql(), Integer.class)).thenReturn(0);
+		transactionManager = Mockito.mock(PlatformTransactionManager.class);
+		transactionStatus = Mockito.mock(TransactionStatus.class);
+		Mockito.when(transactionManager.getTransaction(Mockito.any(TransactionDefinition.class))).thenReturn(transactionStatus);
+
+		job = new SignatureAuditRetentionJob();
+		ReflectionTestUtils.setField(job, "powerAuthServiceConfiguration", configuration);
+		ReflectionTestUtils.setField(job, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(job, "transactionTemplate", new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(job, "dialect", DIALECT);
+		ReflectionTestUtils.setField(job, "period", SignatureAuditPartitionPeriod.MONTH);
+		ReflectionTestUtils.setField(job, "interval", 3600L);
+	}
+
+	/**
+	 * Test that the missing partition is created in one transaction and the lease is released.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testCreatePartitionInTransaction() throws Exception {
+		System.out.println("testCreatePartitionInTransaction");
+		job.maintainPartitions(utc(2016, 10, 18));
+
+		InOrder inOrder = Mockito.inOrder(jdbcTemplate, transactionManager);
+		inOrder.verify(jdbcTemplate).update(Mockito.startsWith(ACQUIRE_LEASE), Mockito.<Object>anyVararg());
+		inOrder.verify(transactionManager).getTransaction(Mockito.any(TransactionDefinition.class));
+		for (String sql : DIALECT.createPartitionSql("p_201611", utc(2016, 11, 1), utc(2016, 12, 1))) {
+			inOrder.verify(jdbcTemplate).execute(sql);
+		}
+		inOrder.verify(transactionManager).commit(transactionStatus);
+		inOrder.verify(jdbcTemplate).update(Mockito.startsWith(RELEASE_LEASE), Mockito.<Object>anyVararg());
+		Mockito.verify(jdbcTemplate, Mockito.times(5)).execute(Mockito.anyString());
+	}
+
+	/**
+	 * Test that nothing is changed while another node holds the lease.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testLeaseHeldByAnotherNode() throws Exception {
+		System.out.println("testLeaseHeldByAnotherNode");
+		Mockito.when(jdbcTemplate.update(Mockito.startsWith(ACQUIRE_LEASE), Mockito.<Object>anyVararg())).thenReturn(0);
+		job.maintainPartitions(utc(2016, 10, 18));
+
+		Mockito.verify(jdbcTemplate, Mockito.never()).queryForList(Mockito.anyString(), Mockito.eq(String.class));
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute(Mockito.anyString());
+		Mockito.verify(jdbcTemplate, Mockito.never()).update(Mockito.startsWith(RELEASE_LEASE), Mockito.<Object>anyVararg());
+	}
+
+	/**
+	 * Test that a detached default partition is attached back before it is detached again.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testDetachedMaxPartitionAttachedFirst() throws Exception {
+		System.out.println("testDetachedMaxPartitionAttachedFirst");
+		Mockito.when(jdbcTemplate.queryForList(DIALECT.listPartitionsSql(), String.class)).thenReturn(Collections.singletonList("p_201610"));
+		Mockito.when(jdbcTemplate.queryForObject(DIALECT.detachedMaxPartitionSql(), Integer.class)).thenReturn(1);
+		job.maintainPartitions(utc(2016, 10, 18));
+
+		InOrder inOrder = Mockito.inOrder(jdbcTemplate, transactionManager);
+		inOrder.verify(jdbcTemplate).execute("ALTER TABLE pa_signature_audit ATTACH PARTITION pa_signature_audit_p_max DEFAULT");
+		inOrder.verify(transactionManager).commit(transactionStatus);
+		inOrder.verify(jdbcTemplate).execute("ALTER TABLE pa_signature_audit DETACH PARTITION pa_signature_audit_p_max");
+		inOrder.verify(transactionManager).commit(transactionStatus);
+	}
+
+	/**
+	 * Test that a failed creation is rolled back, no further partitions are created and the lease is released.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testFailedCreationRolledBack() throws Exception {
+		System.out.println("testFailedCreationRolledBack");
+		Mockito.doThrow(new DataAccessResourceFailureException("Insert failed")).when(jdbcTemplate).execute(Mockito.startsWith("INSERT INTO pa_signature_audit "));
+		job.maintainPartitions(utc(2016, 11, 18));
+
+		Mockito.verify(transactionManager).rollback(transactionStatus);
+		Mockito.verify(transactionManager, Mockito.never()).commit(Mockito.any(TransactionStatus.class));
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute(Mockito.contains("p_201612"));
+		Mockito.verify(jdbcTemplate).update(Mockito.startsWith(RELEASE_LEASE), Mockito.<Object>anyVararg());
+	}
+
+}
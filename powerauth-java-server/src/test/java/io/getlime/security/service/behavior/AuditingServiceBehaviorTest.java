@@ -0,0 +1,93 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.behavior;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.SignatureAuditResponse;
+import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.util.TestActivation;
+
+/**
+ * Test of the signature audit log listing, making sure the read lag only limits the paged listing.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = {
+		"powerauth.service.signatureAudit.writeMode=SYNCHRONOUS",
+		"powerauth.service.signatureAudit.readLag=3600"
+})
+public class AuditingServiceBehaviorTest {
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private AuditingServiceBehavior auditingServiceBehavior;
+
+	/**
+	 * Default constructor
+	 */
+	public AuditingServiceBehaviorTest() {
+	}
+
+	/**
+	 * Test that records created within the read lag are returned by the listing without a page size,
+	 * and held back by the paged listing until the read lag passes.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testReadLagAppliedToPagedListingOnly() throws Exception {
+		System.out.println("testReadLagAppliedToPagedListingOnly");
+		GetApplicationDetailResponse application = TestActivation.createApplication(powerAuthService, "audit-test");
+		TestActivation activation = TestActivation.create(powerAuthService, application, "user-audit-test");
+		assertTrue(powerAuthService.verifySignature(activation.verifySignatureRequest()).isSignatureValid());
+
+		Date startingDate = new Date(System.currentTimeMillis() - 60000L);
+		Date endingDate = new Date(System.currentTimeMillis() + 60000L);
+
+		SignatureAuditResponse response = auditingServiceBehavior.getSignatureAuditLog("user-audit-test", application.getApplicationId(), startingDate, endingDate, null, null, false);
+		assertEquals(1, response.getItems().size());
+		assertEquals(activation.getActivationId(), response.getItems().get(0).getActivationId());
+
+		response = auditingServiceBehavior.getSignatureAuditLog("user-audit-test", application.getApplicationId(), startingDate, endingDate, 10, null, false);
+		assertTrue(response.getItems().isEmpty());
+		assertNull(response.getContinuationToken());
+	}
+
+}
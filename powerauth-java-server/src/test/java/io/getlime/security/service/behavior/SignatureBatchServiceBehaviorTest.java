@@ -0,0 +1,142 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.behavior;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.VerifySignatureBatchRequest;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.VerifySignatureResponse;
+import io.getlime.security.repository.ActivationRepository;
+import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
+import io.getlime.security.service.util.TestActivation;
+
+/**
+ * Test of the batch signature verification with a signature that fails to be verified.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = "powerauth.service.signatureAudit.writeMode=SYNCHRONOUS")
+public class SignatureBatchServiceBehaviorTest {
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private SignatureServiceBehavior signatureServiceBehavior;
+
+	@Autowired
+	private ActivationRepository activationRepository;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Default constructor
+	 */
+	public SignatureBatchServiceBehaviorTest() {
+	}
+
+	/**
+	 * Test that a signature failing with an exception is reported as invalid, while the other signatures
+	 * of the batch are verified and their activations are updated.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testFailingSignatureInBatch() throws Exception {
+		System.out.println("testFailingSignatureInBatch");
+		GetApplicationDetailResponse application = TestActivation.createApplication(powerAuthService, "batch-test");
+		TestActivation first = TestActivation.create(powerAuthService, application, "user-batch-test-1");
+		TestActivation second = TestActivation.create(powerAuthService, application, "user-batch-test-2");
+		String failingActivationId = UUID.randomUUID().toString();
+
+		VerifySignatureBatchRequest request = new VerifySignatureBatchRequest();
+		request.getVerifySignatureRequest().add(first.verifySignatureRequest());
+		VerifySignatureRequest failingRequest = second.verifySignatureRequest();
+		failingRequest.setActivationId(failingActivationId);
+		second.setCounter(0);
+		request.getVerifySignatureRequest().add(failingRequest);
+		request.getVerifySignatureRequest().add(second.verifySignatureRequest());
+		request.getVerifySignatureRequest().add(first.verifySignatureRequest());
+
+		ActivationRepository failingRepository = Mockito.mock(ActivationRepository.class, AdditionalAnswers.delegatesTo(activationRepository));
+		Mockito.doThrow(new IllegalStateException("Database not available")).when(failingRepository).findFirstByActivationId(failingActivationId);
+		long errorCount = serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_RESULT + "verification_error").getCount();
+		List<VerifySignatureResponse> responses;
+		ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", failingRepository);
+		try {
+			responses = powerAuthService.verifySignatureBatch(request).getVerifySignatureResponse();
+		} finally {
+			ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", activationRepository);
+		}
+
+		assertEquals(4, responses.size());
+		assertTrue(responses.get(0).isSignatureValid());
+		assertEquals(first.getActivationId(), responses.get(0).getActivationId());
+		assertFalse(responses.get(1).isSignatureValid());
+		assertEquals(failingActivationId, responses.get(1).getActivationId());
+		assertTrue(responses.get(2).isSignatureValid());
+		assertEquals(second.getActivationId(), responses.get(2).getActivationId());
+		assertTrue(responses.get(3).isSignatureValid());
+		assertEquals(errorCount + 1, serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_RESULT + "verification_error").getCount());
+
+		assertEquals(2L, counter(first.getActivationId()));
+		assertEquals(1L, counter(second.getActivationId()));
+		assertEquals(2L, auditRecordCount(first.getActivationId()));
+		assertEquals(1L, auditRecordCount(second.getActivationId()));
+		assertEquals(0L, auditRecordCount(failingActivationId));
+	}
+
+	private long counter(String activationId) {
+		return jdbcTemplate.queryForObject("SELECT counter FROM pa_activation WHERE activation_id = ?", Long.class, activationId);
+	}
+
+	private long auditRecordCount(String activationId) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pa_signature_audit WHERE activation_id = ?", Long.class, activationId);
+	}
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.behavior;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.VerifySignatureResponse;
+import io.getlime.security.repository.ActivationRepository;
+import io.getlime.security.repository.model.ActivationStatus;
+import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.metrics.PowerAuthServiceMetrics;
+import io.getlime.security.service.util.TestActivation;
+
+/**
+ * Test of the signature verification against an activation that is changed by a parallel request
+ * between the activation read and the compare-and-set update of the activation counter. The parallel
+ * request is simulated by incrementing the counter right before the update is executed.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("loadtest")
+@TestPropertySource(properties = "powerauth.service.signatureAudit.writeMode=SYNCHRONOUS")
+public class SignatureServiceBehaviorTest {
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private SignatureServiceBehavior signatureServiceBehavior;
+
+	@Autowired
+	private ActivationRepository activationRepository;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private ActivationRepository conflictingRepository;
+
+	private TestActivation activation;
+
+	/**
+	 * Default constructor
+	 */
+	public SignatureServiceBehaviorTest() {
+	}
+
+	/**
+	 * Create an activation and replace the repository used by the signature verification.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Before
+	public void setUp() throws Exception {
+		GetApplicationDetailResponse application = TestActivation.createApplication(powerAuthService, "signature-test");
+		activation = TestActivation.create(powerAuthService, application, "user-signature-test");
+		conflictingRepository = Mockito.mock(ActivationRepository.class, AdditionalAnswers.delegatesTo(activationRepository));
+		ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", conflictingRepository);
+	}
+
+	/**
+	 * Restore the original repository.
+	 */
+	@After
+	public void tearDown() {
+		ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", activationRepository);
+	}
+
+	/**
+	 * Test that a signature is verified again against the locked activation after a parallel request
+	 * used the current counter, and that the activation counter is incremented exactly once and
+	 * audited with the updated counter.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testUpdateConflictRetriedWithLock() throws Exception {
+		System.out.println("testUpdateConflictRetriedWithLock");
+		simulateParallelRequests(1);
+		long conflictCount = serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_UPDATE_CONFLICT).getCount();
+
+		// The parallel request uses counter 0, the verified signature uses the following counter
+		activation.setCounter(1);
+		VerifySignatureResponse response = powerAuthService.verifySignature(activation.verifySignatureRequest());
+		assertTrue(response.isSignatureValid());
+
+		Mockito.verify(conflictingRepository, Mockito.times(1)).findActivationWithLock(activation.getActivationId());
+		assertEquals(conflictCount + 1, serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_UPDATE_CONFLICT).getCount());
+		assertEquals(2L, counter());
+
+		List<Map<String, Object>> auditRecords = auditRecords();
+		assertEquals(1, auditRecords.size());
+		assertEquals(2L, ((Number) auditRecords.get(0).get("activation_counter")).longValue());
+		assertEquals("signature_ok", auditRecords.get(0).get("note"));
+		assertTrue((Boolean) auditRecords.get(0).get("valid"));
+	}
+
+	/**
+	 * Test that a signature is reported as invalid without changing the activation and without an audit
+	 * record when the activation is changed by a parallel request on every update attempt.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testUpdateConflictOnEveryAttempt() throws Exception {
+		System.out.println("testUpdateConflictOnEveryAttempt");
+		simulateParallelRequests(Integer.MAX_VALUE);
+		long conflictResultCount = serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_update_conflict").getCount();
+
+		VerifySignatureRequest request = activation.verifySignatureRequest();
+		VerifySignatureResponse response = powerAuthService.verifySignature(request);
+		assertFalse(response.isSignatureValid());
+		assertEquals(activation.getActivationId(), response.getActivationId());
+
+		// Only the parallel requests changed the counter, one per update attempt
+		Mockito.verify(conflictingRepository, Mockito.times(3)).updateCounterIfUnchanged(Mockito.anyString(), Mockito.anyLong(), Mockito.any(ActivationStatus.class),
+				Mockito.anyLong(), Mockito.anyLong(), Mockito.any(ActivationStatus.class), Mockito.any(Date.class));
+		assertEquals(3L, counter());
+		assertTrue(auditRecords().isEmpty());
+		assertEquals(conflictResultCount + 1, serviceMetrics.getMetricRegistry().counter(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_update_conflict").getCount());
+	}
+
+	/**
+	 * Increment the activation counter right before the given number of following activation updates,
+	 * as a parallel request using the same activation would.
+	 */
+	private void simulateParallelRequests(final int updates) {
+		Mockito.doAnswer(new Answer<Object>() {
+
+			private int count = 0;
+
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				if (count++ < updates) {
+					activationRepository.incrementCounter(activation.getActivationId(), ActivationStatus.ACTIVE);
+				}
+				return invocation.getMethod().invoke(activationRepository, invocation.getArguments());
+			}
+
+		}).when(conflictingRepository).updateCounterIfUnchanged(Mockito.anyString(), Mockito.anyLong(), Mockito.any(ActivationStatus.class),
+				Mockito.anyLong(), Mockito.anyLong(), Mockito.any(ActivationStatus.class), Mockito.any(Date.class));
+	}
+
+	private long counter() {
+		return jdbcTemplate.queryForObject("SELECT counter FROM pa_activation WHERE activation_id = ?", Long.class, activation.getActivationId());
+	}
+
+	private List<Map<String, Object>> auditRecords() {
+		return jdbcTemplate.queryForList("SELECT activation_counter, note, valid FROM pa_signature_audit WHERE activation_id = ?", activation.getActivationId());
+	}
+
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import io.getlime.powerauth.soap.CreateApplicationResponse;
+import io.getlime.powerauth.soap.GetSystemStatusRequest;
+import io.getlime.powerauth.soap.GetSystemStatusResponse;
+import io.getlime.powerauth.soap.InitActivationResponse;
+import io.getlime.powerauth.soap.RemoveActivationResponse;
+import io.getlime.powerauth.soap.SignatureAuditResponse;
+import io.getlime.powerauth.soap.VerifySignatureResponse;
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.repository.ActivationRepository;
+import io.getlime.security.rest.client.PowerAuthRestClient;
+import io.getlime.security.rest.client.PowerAuthRestClientException;
+import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.util.TestActivation;
+import io.getlime.security.service.util.model.ServiceError;
+
+/**
+ * Test of the REST client against the REST interface of an embedded server, making sure the JSON
+ * written and read by the client matches the JSON read and written by the {@link PowerAuthController}.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebIntegrationTest({
+		"server.port=0",
+		"management.port=0",
+		"powerauth.service.signatureAudit.writeMode=SYNCHRONOUS"
+})
+@ActiveProfiles("loadtest")
+public class PowerAuthRestClientTest {
+
+	@Value("${local.server.port}")
+	private int port;
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private ActivationRepository activationRepository;
+
+	private CloseableHttpClient httpClient;
+
+	private PowerAuthRestClient client;
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthRestClientTest() {
+	}
+
+	/**
+	 * Create the REST client of the embedded server.
+	 */
+	@Before
+	public void setUp() {
+		httpClient = HttpClients.createDefault();
+		client = new PowerAuthRestClient("http://localhost:" + port + "/rest/pa/", httpClient);
+	}
+
+	/**
+	 * Close the HTTP client.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@After
+	public void tearDown() throws Exception {
+		httpClient.close();
+	}
+
+	/**
+	 * Test the system status, including its timestamp.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testGetSystemStatus() throws Exception {
+		System.out.println("testGetSystemStatus");
+		long before = System.currentTimeMillis();
+		GetSystemStatusResponse response = client.initActivation(new GetSystemStatusRequest());
+		assertEquals("OK", response.getStatus());
+		assertNotNull(response.getApplicationName());
+		long timestamp = response.getTimestamp().toGregorianCalendar().getTimeInMillis();
+		assertTrue(timestamp >= before - 1000L && timestamp <= System.currentTimeMillis() + 1000L);
+	}
+
+	/**
+	 * Test that the activation expiration and the maximum failure count sent by the client are stored
+	 * by the server, and that the removal of the activation is confirmed.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testInitActivationWithExpiration() throws Exception {
+		System.out.println("testInitActivationWithExpiration");
+		CreateApplicationResponse application = client.createApplication("rest-client-test-" + UUID.randomUUID());
+		Date expiration = new Date((System.currentTimeMillis() / 1000L + 3600L) * 1000L);
+		InitActivationResponse response = client.initActivation("user-rest-client-test", application.getApplicationId(), 3L, expiration);
+		assertNotNull(response.getActivationId());
+		assertNotNull(response.getActivationOTP());
+		assertEquals("user-rest-client-test", response.getUserId());
+		assertEquals(application.getApplicationId(), response.getApplicationId());
+		assertEquals(expiration.getTime(), activationRepository.findFirstByActivationId(response.getActivationId()).getTimestampActivationExpire().getTime());
+		assertEquals(Long.valueOf(3L), activationRepository.findFirstByActivationId(response.getActivationId()).getMaxFailedAttempts());
+
+		RemoveActivationResponse removeResponse = client.removeActivation(response.getActivationId());
+		assertEquals(response.getActivationId(), removeResponse.getActivationId());
+		assertTrue(removeResponse.isRemoved());
+	}
+
+	/**
+	 * Test that a signature verified by the client is listed in the signature audit log.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testGetSignatureAuditLog() throws Exception {
+		System.out.println("testGetSignatureAuditLog");
+		GetApplicationDetailResponse application = TestActivation.createApplication(powerAuthService, "rest-client-audit-test");
+		TestActivation activation = TestActivation.create(powerAuthService, application, "user-rest-client-audit-test");
+		Date startingDate = new Date(System.currentTimeMillis() - 60000L);
+
+		VerifySignatureRequest request = activation.verifySignatureRequest();
+		VerifySignatureResponse response = client.verifySignature(request.getActivationId(), request.getApplicationKey(), request.getData(), request.getSignature(), request.getSignatureType());
+		assertTrue(response.isSignatureValid());
+
+		List<SignatureAuditResponse.Items> items = client.getSignatureAuditLog("user-rest-client-audit-test", application.getApplicationId(), startingDate, new Date(System.currentTimeMillis() + 60000L));
+		assertEquals(1, items.size());
+		SignatureAuditResponse.Items item = items.get(0);
+		assertEquals(activation.getActivationId(), item.getActivationId());
+		assertEquals(application.getApplicationId(), item.getApplicationId());
+		assertEquals("user-rest-client-audit-test", item.getUserId());
+		assertEquals(request.getSignature(), item.getSignature());
+		assertEquals("signature_ok", item.getNote());
+		assertTrue(item.isValid());
+		assertFalse(item.getTimestampCreated().toGregorianCalendar().getTime().before(startingDate));
+	}
+
+	/**
+	 * Test that an error returned by the server is raised with its error code.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testErrorResponse() throws Exception {
+		System.out.println("testErrorResponse");
+		try {
+			client.commitActivation(UUID.randomUUID().toString());
+			fail("Error response was expected");
+		} catch (PowerAuthRestClientException ex) {
+			assertEquals(ServiceError.ERR0009, ex.getCode());
+			assertNotNull(ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import io.getlime.security.Application;
+import io.getlime.security.powerauth.VaultUnlockRequest;
+import io.getlime.security.powerauth.VaultUnlockResponse;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.VerifySignatureResponse;
+import io.getlime.security.repository.ActivationRepository;
+import io.getlime.security.service.PowerAuthService;
+import io.getlime.security.service.audit.SignatureAuditWriter;
+import io.getlime.security.service.behavior.SignatureServiceBehavior;
+import io.getlime.security.service.behavior.VaultUnlockServiceBehavior;
+
+/**
+ * Test of the metrics recorded by the service behaviors and of the way they are published.
+ *
+ * @author Petr Dvorak
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("loadtest")
+public class PowerAuthServiceMetricsTest {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private PowerAuthService powerAuthService;
+
+	@Autowired
+	private PowerAuthServiceMetrics serviceMetrics;
+
+	@Autowired
+	private MetricsEndpoint metricsEndpoint;
+
+	@Autowired
+	private SignatureServiceBehavior signatureServiceBehavior;
+
+	@Autowired
+	private VaultUnlockServiceBehavior vaultUnlockServiceBehavior;
+
+	@Autowired
+	private SignatureAuditWriter signatureAuditWriter;
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthServiceMetricsTest() {
+	}
+
+	/**
+	 * Test that the metrics endpoint is not served by the application (SOAP) port, while the
+	 * metrics are still published by the enabled metrics endpoint.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testMetricsEndpointNotOnApplicationPort() throws Exception {
+		System.out.println("testMetricsEndpointNotOnApplicationPort");
+		MockMvcBuilders.webAppContextSetup(context).build()
+				.perform(get("/metrics"))
+				.andExpect(status().isNotFound());
+
+		verifySignature(UUID.randomUUID().toString());
+		assertTrue(metricsEndpoint.isEnabled());
+		Map<String, Object> metrics = metricsEndpoint.invoke();
+		assertTrue(metrics.containsKey(PowerAuthServiceMetrics.SIGNATURE_VERIFY + ".count"));
+		assertTrue(metrics.containsKey(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_not_found"));
+	}
+
+	/**
+	 * Test that the numbers of queued, dropped and failed signature audit records are published as gauges.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testAuditWriterGauges() throws Exception {
+		System.out.println("testAuditWriterGauges");
+		Map<String, Object> metrics = metricsEndpoint.invoke();
+		assertEquals(signatureAuditWriter.getQueueSize(), ((Number) metrics.get(PowerAuthServiceMetrics.AUDIT_QUEUE_SIZE)).intValue());
+		assertEquals(signatureAuditWriter.getDroppedCount(), ((Number) metrics.get(PowerAuthServiceMetrics.AUDIT_DROPPED)).longValue());
+		assertEquals(signatureAuditWriter.getFailedCount(), ((Number) metrics.get(PowerAuthServiceMetrics.AUDIT_FAILED)).longValue());
+	}
+
+	/**
+	 * Test that the signature verification and vault unlock of an unknown activation record their
+	 * timers and result counters.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testUnknownActivationMetrics() throws Exception {
+		System.out.println("testUnknownActivationMetrics");
+		long verifyCount = timerCount(PowerAuthServiceMetrics.SIGNATURE_VERIFY);
+		long fetchCount = timerCount(PowerAuthServiceMetrics.SIGNATURE_FETCH);
+		long hmacCount = timerCount(PowerAuthServiceMetrics.SIGNATURE_HMAC);
+		long notFoundCount = counterCount(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_not_found");
+		long unlockFetchCount = timerCount(PowerAuthServiceMetrics.VAULT_UNLOCK_FETCH);
+
+		String activationId = UUID.randomUUID().toString();
+		assertFalse(verifySignature(activationId).isSignatureValid());
+		assertEquals(verifyCount + 1, timerCount(PowerAuthServiceMetrics.SIGNATURE_VERIFY));
+		assertEquals(fetchCount + 1, timerCount(PowerAuthServiceMetrics.SIGNATURE_FETCH));
+		assertEquals(hmacCount, timerCount(PowerAuthServiceMetrics.SIGNATURE_HMAC));
+		assertEquals(notFoundCount + 1, counterCount(PowerAuthServiceMetrics.SIGNATURE_RESULT + "activation_not_found"));
+
+		VaultUnlockRequest request = new VaultUnlockRequest();
+		request.setActivationId(activationId);
+		request.setApplicationKey("MTIzNDU2Nzg5MDEyMzQ1Ng==");
+		request.setData("data");
+		request.setSignature("12345678-87654321");
+		request.setSignatureType("possession_knowledge");
+		VaultUnlockResponse response = powerAuthService.vaultUnlock(request);
+		assertFalse(response.isSignatureValid());
+		assertEquals(unlockFetchCount + 1, timerCount(PowerAuthServiceMetrics.VAULT_UNLOCK_FETCH));
+	}
+
+	/**
+	 * Test that the phase timers are stopped when the timed phase fails.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testTimersStoppedOnFailure() throws Exception {
+		System.out.println("testTimersStoppedOnFailure");
+		ActivationRepository failingRepository = Mockito.mock(ActivationRepository.class);
+		Mockito.when(failingRepository.findFirstByActivationId(Mockito.anyString())).thenThrow(new IllegalStateException("Database not available"));
+
+		long verifyCount = timerCount(PowerAuthServiceMetrics.SIGNATURE_VERIFY);
+		long fetchCount = timerCount(PowerAuthServiceMetrics.SIGNATURE_FETCH);
+		Object repository = ReflectionTestUtils.getField(signatureServiceBehavior, "powerAuthRepository");
+		ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", failingRepository);
+		try {
+			signatureServiceBehavior.verifySignature(UUID.randomUUID().toString(), "possession_knowledge", "12345678-87654321", "data", "MTIzNDU2Nzg5MDEyMzQ1Ng==", null);
+			fail("Repository failure was expected");
+		} catch (IllegalStateException ex) {
+			// ... expected
+		} finally {
+			ReflectionTestUtils.setField(signatureServiceBehavior, "powerAuthRepository", repository);
+		}
+		assertEquals(verifyCount + 1, timerCount(PowerAuthServiceMetrics.SIGNATURE_VERIFY));
+		assertEquals(fetchCount + 1, timerCount(PowerAuthServiceMetrics.SIGNATURE_FETCH));
+
+		long unlockFetchCount = timerCount(PowerAuthServiceMetrics.VAULT_UNLOCK_FETCH);
+		repository = ReflectionTestUtils.getField(vaultUnlockServiceBehavior, "powerAuthRepository");
+		ReflectionTestUtils.setField(vaultUnlockServiceBehavior, "powerAuthRepository", failingRepository);
+		try {
+			vaultUnlockServiceBehavior.unlockVault(UUID.randomUUID().toString(), true, null);
+			fail("Repository failure was expected");
+		} catch (IllegalStateException ex) {
+			// ... expected
+		} finally {
+			ReflectionTestUtils.setField(vaultUnlockServiceBehavior, "powerAuthRepository", repository);
+		}
+		assertEquals(unlockFetchCount + 1, timerCount(PowerAuthServiceMetrics.VAULT_UNLOCK_FETCH));
+	}
+
+	private VerifySignatureResponse verifySignature(String activationId) throws Exception {
+		VerifySignatureRequest request = new VerifySignatureRequest();
+		request.setActivationId(activationId);
+		request.setApplicationKey("MTIzNDU2Nzg5MDEyMzQ1Ng==");
+		request.setData("data");
+		request.setSignature("12345678-87654321");
+		request.setSignatureType("possession_knowledge");
+		return powerAuthService.verifySignature(request);
+	}
+
+	private long timerCount(String name) {
+		return serviceMetrics.getMetricRegistry().timer(name).getCount();
+	}
+
+	private long counterCount(String name) {
+		return serviceMetrics.getMetricRegistry().counter(name).getCount();
+	}
+
+}
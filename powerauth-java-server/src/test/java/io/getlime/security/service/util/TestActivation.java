@@ -0,0 +1,219 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.service.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.powerauth.CommitActivationRequest;
+import io.getlime.security.powerauth.CreateApplicationRequest;
+import io.getlime.security.powerauth.CreateApplicationResponse;
+import io.getlime.security.powerauth.GetApplicationDetailRequest;
+import io.getlime.security.powerauth.GetApplicationDetailResponse;
+import io.getlime.security.powerauth.InitActivationRequest;
+import io.getlime.security.powerauth.InitActivationResponse;
+import io.getlime.security.powerauth.PrepareActivationRequest;
+import io.getlime.security.powerauth.PrepareActivationResponse;
+import io.getlime.security.powerauth.VerifySignatureRequest;
+import io.getlime.security.powerauth.client.activation.PowerAuthClientActivation;
+import io.getlime.security.powerauth.client.keyfactory.PowerAuthClientKeyFactory;
+import io.getlime.security.powerauth.client.signature.PowerAuthClientSignature;
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
+import io.getlime.security.powerauth.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+import io.getlime.security.service.PowerAuthService;
+
+/**
+ * Client side state of an activation used by the service tests. Activations are created through
+ * the regular activation process, the same way the mobile client and the intermediate server
+ * would create them, and sign the data with the client side signature keys.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class TestActivation {
+
+	private static final KeyGenerator keyGenerator = new KeyGenerator();
+	private static final PowerAuthClientActivation clientActivation = new PowerAuthClientActivation();
+	private static final PowerAuthClientKeyFactory clientKeyFactory = new PowerAuthClientKeyFactory();
+	private static final PowerAuthClientSignature clientSignature = new PowerAuthClientSignature();
+
+	private String activationId;
+	private String applicationKey;
+	private String applicationSecret;
+	private List<SecretKey> signatureKeys;
+	private long counter = 0;
+
+	/**
+	 * Create an application with a default application version.
+	 * @param powerAuthService Service used to create the application.
+	 * @param applicationName Application name.
+	 * @return Application detail, including the application versions and the master public key.
+	 * @throws Exception In case the application cannot be created.
+	 */
+	public static GetApplicationDetailResponse createApplication(PowerAuthService powerAuthService, String applicationName) throws Exception {
+		CreateApplicationRequest createApplicationRequest = new CreateApplicationRequest();
+		createApplicationRequest.setApplicationName(applicationName);
+		CreateApplicationResponse application = powerAuthService.createApplication(createApplicationRequest);
+
+		GetApplicationDetailRequest applicationDetailRequest = new GetApplicationDetailRequest();
+		applicationDetailRequest.setApplicationId(application.getApplicationId());
+		return powerAuthService.getApplicationDetail(applicationDetailRequest);
+	}
+
+	/**
+	 * Create and commit an activation of given application for given user.
+	 * @param powerAuthService Service used to create the activation.
+	 * @param application Application detail.
+	 * @param userId User ID.
+	 * @return Client side state of the active activation.
+	 * @throws Exception In case the activation cannot be created.
+	 */
+	public static TestActivation create(PowerAuthService powerAuthService, GetApplicationDetailResponse application, String userId) throws Exception {
+		CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+		GetApplicationDetailResponse.Versions version = application.getVersions().get(0);
+		PublicKey masterPublicKey = keyConvertor.convertBytesToPublicKey(BaseEncoding.base64().decode(application.getMasterPublicKey()));
+
+		InitActivationRequest initRequest = new InitActivationRequest();
+		initRequest.setApplicationId(application.getApplicationId());
+		initRequest.setUserId(userId);
+		InitActivationResponse initResponse = powerAuthService.initActivation(initRequest);
+		String activationIdShort = initResponse.getActivationIdShort();
+		String activationOtp = initResponse.getActivationOTP();
+
+		// Encrypt the device public key, as the mobile client would
+		KeyPair ephemeralKeyPair = keyGenerator.generateKeyPair();
+		KeyPair deviceKeyPair = clientActivation.generateDeviceKeyPair();
+		byte[] activationNonce = clientActivation.generateActivationNonce();
+		byte[] cDevicePublicKey = clientActivation.encryptDevicePublicKey(deviceKeyPair.getPublic(), ephemeralKeyPair.getPrivate(), masterPublicKey, activationOtp, activationIdShort, activationNonce);
+		byte[] applicationSignature = clientActivation.computeApplicationSignature(activationIdShort, activationNonce, cDevicePublicKey, BaseEncoding.base64().decode(version.getApplicationKey()), BaseEncoding.base64().decode(version.getApplicationSecret()));
+
+		PrepareActivationRequest prepareRequest = new PrepareActivationRequest();
+		prepareRequest.setActivationIdShort(activationIdShort);
+		prepareRequest.setActivationName("test");
+		prepareRequest.setActivationNonce(BaseEncoding.base64().encode(activationNonce));
+		prepareRequest.setEphemeralPublicKey(BaseEncoding.base64().encode(keyConvertor.convertPublicKeyToBytes(ephemeralKeyPair.getPublic())));
+		prepareRequest.setEncryptedDevicePublicKey(BaseEncoding.base64().encode(cDevicePublicKey));
+		prepareRequest.setApplicationKey(version.getApplicationKey());
+		prepareRequest.setApplicationSignature(BaseEncoding.base64().encode(applicationSignature));
+		PrepareActivationResponse prepareResponse = powerAuthService.prepareActivation(prepareRequest);
+
+		// Decrypt the server public key and derive the signature keys
+		PublicKey serverEphemeralPublicKey = keyConvertor.convertBytesToPublicKey(BaseEncoding.base64().decode(prepareResponse.getEphemeralPublicKey()));
+		PublicKey serverPublicKey = clientActivation.decryptServerPublicKey(
+				BaseEncoding.base64().decode(prepareResponse.getEncryptedServerPublicKey()),
+				deviceKeyPair.getPrivate(),
+				serverEphemeralPublicKey,
+				activationOtp,
+				activationIdShort,
+				BaseEncoding.base64().decode(prepareResponse.getActivationNonce())
+		);
+		SecretKey masterSecretKey = clientKeyFactory.generateClientMasterSecretKey(deviceKeyPair.getPrivate(), serverPublicKey);
+
+		CommitActivationRequest commitRequest = new CommitActivationRequest();
+		commitRequest.setActivationId(prepareResponse.getActivationId());
+		assertTrue(powerAuthService.commitActivation(commitRequest).isActivated());
+
+		TestActivation activation = new TestActivation();
+		activation.activationId = prepareResponse.getActivationId();
+		activation.applicationKey = version.getApplicationKey();
+		activation.applicationSecret = version.getApplicationSecret();
+		activation.signatureKeys = Arrays.asList(
+				clientKeyFactory.generateClientSignaturePossessionKey(masterSecretKey),
+				clientKeyFactory.generateClientSignatureKnowledgeKey(masterSecretKey)
+		);
+		return activation;
+	}
+
+	/**
+	 * Sign given data with the current client counter and increment the counter.
+	 * @param data Signed data string.
+	 * @return Signature of the data.
+	 * @throws Exception In case the signature cannot be computed.
+	 */
+	public String sign(String data) throws Exception {
+		return sign(data, counter++);
+	}
+
+	/**
+	 * Sign given data with given counter, the client counter is not changed.
+	 * @param data Signed data string.
+	 * @param counter Counter used for the signature.
+	 * @return Signature of the data.
+	 * @throws Exception In case the signature cannot be computed.
+	 */
+	public String sign(String data, long counter) throws Exception {
+		byte[] signedData = (data + "&" + applicationSecret).getBytes("UTF-8");
+		return clientSignature.signatureForData(signedData, signatureKeys, counter);
+	}
+
+	/**
+	 * Prepare a signature verification request of random data signed with the current client counter.
+	 * @return Signature verification request.
+	 * @throws Exception In case the signature cannot be computed.
+	 */
+	public VerifySignatureRequest verifySignatureRequest() throws Exception {
+		VerifySignatureRequest request = new VerifySignatureRequest();
+		request.setActivationId(activationId);
+		request.setApplicationKey(applicationKey);
+		request.setSignatureType(PowerAuthSignatureTypes.POSSESSION_KNOWLEDGE.toString());
+		request.setData(BaseEncoding.base64().encode(keyGenerator.generateRandomBytes(64)));
+		request.setSignature(sign(request.getData()));
+		return request;
+	}
+
+	/**
+	 * Get the activation ID.
+	 * @return Activation ID.
+	 */
+	public String getActivationId() {
+		return activationId;
+	}
+
+	/**
+	 * Get the application key.
+	 * @return Application key.
+	 */
+	public String getApplicationKey() {
+		return applicationKey;
+	}
+
+	/**
+	 * Get the client counter, the counter used for the next signature.
+	 * @return Client counter.
+	 */
+	public long getCounter() {
+		return counter;
+	}
+
+	/**
+	 * Set the client counter, the counter used for the next signature.
+	 * @param counter Client counter.
+	 */
+	public void setCounter(long counter) {
+		this.counter = counter;
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package io.getlime.security.powerauth.client.signature;
 
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
 import io.getlime.security.powerauth.lib.util.SignatureUtils;
 import java.security.InvalidKeyException;
 import java.util.List;
@@ -51,4 +52,22 @@ public class PowerAuthClientSignature {
         return signatureUtils.computePowerAuthSignature(data, signatureKeys, ctr);
     }
 
+    /**
+     * Compute a PowerAuth 2.0 signature for given signature base, signature keys
+     * and counter. The signature base is fed to the HMAC without being materialized,
+     * which is useful for signing large request bodies.
+     *
+     * @param data Signature base to be signed.
+     * @param signatureKeys A signature keys.
+     * @param ctr Counter / index of the derived key KEY_DERIVED.
+     * @return PowerAuth 2.0 signature for given data.
+     * @throws InvalidKeyException In case signature key is invalid.
+     */
+    public String signatureForData(
+            PowerAuthSignatureBase data,
+            List<SecretKey> signatureKeys,
+            long ctr) throws InvalidKeyException {
+        return signatureUtils.computePowerAuthSignature(data, signatureKeys, ctr);
+    }
+
 }
@@ -16,6 +16,7 @@
 package io.getlime.security.powerauth.lib.generator;
 
 import io.getlime.security.powerauth.lib.util.AESEncryptionUtils;
+import io.getlime.security.powerauth.lib.util.CryptoPrimitivePool;
 import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
 import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
@@ -80,7 +81,7 @@ public class KeyGenerator {
      */
     public SecretKey computeSharedKey(PrivateKey privateKey, PublicKey publicKey) throws InvalidKeyException {
         try {
-            KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            KeyAgreement keyAgreement = CryptoPrimitivePool.getKeyAgreement("ECDH");
             keyAgreement.init(privateKey);
             keyAgreement.doPhase(publicKey, true);
             // Generate 16B key from 32B key by applying XOR
@@ -28,8 +28,6 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 
-import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
-
 /**
  * A utility class for AES encryption.
  * 
@@ -53,7 +51,7 @@ public class AESEncryptionUtils {
      */
     public byte[] encrypt(byte[] bytes, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
         try {
-            Cipher cipherForCryptoResponse = Cipher.getInstance(padding, PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Cipher cipherForCryptoResponse = CryptoPrimitivePool.getCipher(padding);
             cipherForCryptoResponse.init(Cipher.ENCRYPT_MODE, secret, new IvParameterSpec(iv));
             byte[] cryptoResponseData = cipherForCryptoResponse.doFinal(bytes);
             return cryptoResponseData;
@@ -94,7 +92,7 @@ public class AESEncryptionUtils {
      */
     public byte[] decrypt(byte[] bytes, byte[] iv, SecretKey secret, String padding) throws InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
         try {
-            Cipher cipherForCryptoResponse = Cipher.getInstance(padding, PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Cipher cipherForCryptoResponse = CryptoPrimitivePool.getCipher(padding);
             cipherForCryptoResponse.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
             byte[] cryptoResponseData = cipherForCryptoResponse.doFinal(bytes);
             return cryptoResponseData;
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util;
+
+import java.lang.ref.WeakReference;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Signature;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+
+/**
+ * Per-thread pool of cryptographic primitives created by the currently configured crypto provider.
+ * Creating a primitive with <code>getInstance(algorithm, providerName)</code> performs a provider
+ * lookup and a reflective instantiation on every call, this pool does it only once per thread,
+ * algorithm and provider. In case the configured provider changes, the pool of the thread is
+ * discarded and the primitives are created again by the new provider.
+ *
+ * Every returned primitive must be initialized by the caller ({@link Mac#init(java.security.Key)},
+ * {@link Cipher#init(int, java.security.Key)}, ...), which also resets any state left from the
+ * previous use. The primitive must not be kept beyond a single operation and the operation must
+ * not obtain the same primitive from the pool again before it completes.
+ *
+ * Threads keep only JDK collections in their thread locals. Applications running in a container
+ * should call {@link #clear()} on shutdown, so that pooled threads do not keep the provider
+ * classes, and with them the application class loader, reachable after the application is stopped.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public final class CryptoPrimitivePool {
+
+    private static final ThreadLocal<String> PROVIDER_NAME = new ThreadLocal<>();
+
+    private static final ThreadLocal<ConcurrentMap<Class<?>, ConcurrentMap<String, Object>>> PRIMITIVES = new ThreadLocal<>();
+
+    /**
+     * Primitives of all threads, so that they can be released by {@link #clear()}.
+     */
+    private static final Queue<WeakReference<ConcurrentMap<Class<?>, ConcurrentMap<String, Object>>>> THREAD_PRIMITIVES = new ConcurrentLinkedQueue<>();
+
+    private CryptoPrimitivePool() {
+    }
+
+    /**
+     * Get a MAC instance for given algorithm.
+     * @param algorithm MAC algorithm, for example "HmacSHA256".
+     * @return MAC instance owned by the current thread.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported by the provider.
+     * @throws NoSuchProviderException In case the configured provider is not installed.
+     */
+    public static Mac getMac(String algorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+        ConcurrentMap<String, Object> macs = primitives(Mac.class);
+        Mac mac = (Mac) macs.get(algorithm);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm, PROVIDER_NAME.get());
+            macs.put(algorithm, mac);
+        }
+        return mac;
+    }
+
+    /**
+     * Get a cipher instance for given transformation.
+     * @param transformation Cipher transformation, for example "AES/CBC/PKCS7Padding".
+     * @return Cipher instance owned by the current thread.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported by the provider.
+     * @throws NoSuchProviderException In case the configured provider is not installed.
+     * @throws NoSuchPaddingException In case the padding is not supported by the provider.
+     */
+    public static Cipher getCipher(String transformation) throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException {
+        ConcurrentMap<String, Object> ciphers = primitives(Cipher.class);
+        Cipher cipher = (Cipher) ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation, PROVIDER_NAME.get());
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Get a key agreement instance for given algorithm.
+     * @param algorithm Key agreement algorithm, for example "ECDH".
+     * @return Key agreement instance owned by the current thread.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported by the provider.
+     * @throws NoSuchProviderException In case the configured provider is not installed.
+     */
+    public static KeyAgreement getKeyAgreement(String algorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+        ConcurrentMap<String, Object> keyAgreements = primitives(KeyAgreement.class);
+        KeyAgreement keyAgreement = (KeyAgreement) keyAgreements.get(algorithm);
+        if (keyAgreement == null) {
+            keyAgreement = KeyAgreement.getInstance(algorithm, PROVIDER_NAME.get());
+            keyAgreements.put(algorithm, keyAgreement);
+        }
+        return keyAgreement;
+    }
+
+    /**
+     * Get a signature instance for given algorithm.
+     * @param algorithm Signature algorithm, for example "SHA256withECDSA".
+     * @return Signature instance owned by the current thread.
+     * @throws NoSuchAlgorithmException In case the algorithm is not supported by the provider.
+     * @throws NoSuchProviderException In case the configured provider is not installed.
+     */
+    public static Signature getSignature(String algorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+        ConcurrentMap<String, Object> signatures = primitives(Signature.class);
+        Signature signature = (Signature) signatures.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm, PROVIDER_NAME.get());
+            signatures.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Release the primitives of all threads. Threads that use the pool afterwards create new
+     * primitives, primitives that are in use at the moment of the call stay valid for the
+     * current operation.
+     */
+    public static void clear() {
+        for (WeakReference<ConcurrentMap<Class<?>, ConcurrentMap<String, Object>>> reference : THREAD_PRIMITIVES) {
+            ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> primitives = reference.get();
+            if (primitives != null) {
+                primitives.clear();
+            }
+        }
+    }
+
+    /**
+     * Get primitives of given type of the current thread, discarding all primitives of the thread
+     * in case the configured provider has changed.
+     */
+    private static ConcurrentMap<String, Object> primitives(Class<?> type) {
+        String providerName = PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName();
+        ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> primitives = PRIMITIVES.get();
+        if (primitives == null) {
+            primitives = new ConcurrentHashMap<>();
+            PRIMITIVES.set(primitives);
+            register(primitives);
+        }
+        if (!providerName.equals(PROVIDER_NAME.get())) {
+            primitives.clear();
+            PROVIDER_NAME.set(providerName);
+        }
+        ConcurrentMap<String, Object> typePrimitives = primitives.get(type);
+        if (typePrimitives == null) {
+            typePrimitives = new ConcurrentHashMap<>();
+            primitives.put(type, typePrimitives);
+        }
+        return typePrimitives;
+    }
+
+    /**
+     * Register primitives of a new thread, forgetting primitives of threads that no longer exist.
+     */
+    private static void register(ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> primitives) {
+        Iterator<WeakReference<ConcurrentMap<Class<?>, ConcurrentMap<String, Object>>>> iterator = THREAD_PRIMITIVES.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+        THREAD_PRIMITIVES.add(new WeakReference<>(primitives));
+    }
+
+}
@@ -25,8 +25,6 @@ import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
-import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
-
 /**
  * Simple utility class for HMAC-SHA256 algorithm
  * @author Petr Dvorak, petr@lime-company.eu
@@ -42,7 +40,7 @@ public class HMACHashUtilities {
 	 */
 	public byte[] hash(byte[] key, byte[] data) {
 		try {
-			Mac hmacSha256 = Mac.getInstance("HmacSHA256", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+			Mac hmacSha256 = CryptoPrimitivePool.getMac("HmacSHA256");
 			SecretKey hmacKey = new SecretKeySpec(key, "HmacSHA256");
 	    	hmacSha256.init(hmacKey);
 	    	byte[] derivedKey = hmacSha256.doFinal(data);
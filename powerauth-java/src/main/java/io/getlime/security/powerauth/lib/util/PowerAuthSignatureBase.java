@@ -0,0 +1,353 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.Mac;
+
+/**
+ * Signature base ("data to be signed") composed from several components that are encoded only
+ * while they are fed to the HMAC, in small chunks written to a per-thread buffer. The signed data
+ * are byte-for-byte the same as the UTF-8 bytes of the concatenated components, but the full data
+ * are never materialized, so that large request bodies are not copied on every verification.
+ *
+ * Instances are not thread-safe while being built, a fully built instance can be used to update
+ * any number of HMAC instances concurrently.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class PowerAuthSignatureBase {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final byte[] BASE64_ALPHABET = {
+            'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P',
+            'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f',
+            'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v',
+            'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'
+    };
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private long length = 0;
+
+    /**
+     * Append UTF-8 representation of given string. Null value is treated as an empty string.
+     * The string is encoded again every time the signature base is fed to an HMAC, append
+     * the UTF-8 bytes instead in case a large string is verified with several counters.
+     * @param value String value.
+     * @return This signature base.
+     */
+    public PowerAuthSignatureBase append(String value) {
+        if (value != null && !value.isEmpty()) {
+            return add(new StringSegment(value));
+        }
+        return this;
+    }
+
+    /**
+     * Append raw bytes. The array is not copied and must not be modified while the signature
+     * base is in use. Null value is treated as an empty array.
+     * @param value Bytes to be appended.
+     * @return This signature base.
+     */
+    public PowerAuthSignatureBase append(byte[] value) {
+        return append(value != null ? ByteBuffer.wrap(value) : null);
+    }
+
+    /**
+     * Append remaining bytes of given buffer. The buffer content is not copied and its position
+     * is not changed. Null value is treated as an empty buffer.
+     * @param value Buffer with bytes to be appended.
+     * @return This signature base.
+     */
+    public PowerAuthSignatureBase append(ByteBuffer value) {
+        if (value != null && value.hasRemaining()) {
+            return add(new BytesSegment(value.duplicate()));
+        }
+        return this;
+    }
+
+    /**
+     * Append Base64 representation of given bytes. The array is not copied and must not be
+     * modified while the signature base is in use. Null value is treated as an empty array.
+     * @param value Bytes to be encoded.
+     * @return This signature base.
+     */
+    public PowerAuthSignatureBase appendBase64(byte[] value) {
+        return appendBase64(value != null ? ByteBuffer.wrap(value) : null);
+    }
+
+    /**
+     * Append Base64 representation of remaining bytes of given buffer. The buffer content is not
+     * copied and its position is not changed. Null value is treated as an empty buffer.
+     * @param value Buffer with bytes to be encoded.
+     * @return This signature base.
+     */
+    public PowerAuthSignatureBase appendBase64(ByteBuffer value) {
+        if (value != null && value.hasRemaining()) {
+            return add(new Base64Segment(value.duplicate()));
+        }
+        return this;
+    }
+
+    /**
+     * Get the length of the signature base in bytes.
+     * @return Length of the signature base.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Feed the signature base to given HMAC instance.
+     * @param mac Initialized HMAC instance.
+     */
+    public void update(final Mac mac) {
+        write(new Sink() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                mac.update(bytes, offset, length);
+            }
+        });
+    }
+
+    /**
+     * Feed the signature base to given message digest.
+     * @param digest Message digest.
+     */
+    public void update(final MessageDigest digest) {
+        write(new Sink() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                digest.update(bytes, offset, length);
+            }
+        });
+    }
+
+    /**
+     * Get the signature base as a byte array. Use only in case the full data are really needed,
+     * for example for auditing.
+     * @return Signature base bytes.
+     */
+    public byte[] toByteArray() {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Signature base is too large: " + length);
+        }
+        final byte[] result = new byte[(int) length];
+        write(new Sink() {
+            private int position = 0;
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                System.arraycopy(bytes, offset, result, position, length);
+                position += length;
+            }
+        });
+        return result;
+    }
+
+    private PowerAuthSignatureBase add(Segment segment) {
+        segments.add(segment);
+        length += segment.length();
+        return this;
+    }
+
+    private void write(Sink sink) {
+        byte[] buffer = BUFFER.get();
+        for (Segment segment : segments) {
+            segment.write(sink, buffer);
+        }
+    }
+
+    /**
+     * Destination of the signature base bytes.
+     */
+    private interface Sink {
+
+        void write(byte[] bytes, int offset, int length);
+
+    }
+
+    /**
+     * Single component of the signature base.
+     */
+    private interface Segment {
+
+        long length();
+
+        void write(Sink sink, byte[] buffer);
+
+    }
+
+    /**
+     * String encoded in UTF-8, unpaired surrogates are replaced with '?' the same way as in
+     * {@link String#getBytes(String)}.
+     */
+    private static final class StringSegment implements Segment {
+
+        private final String value;
+        private final long length;
+
+        private StringSegment(String value) {
+            this.value = value;
+            long length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    length += 1;
+                } else {
+                    length += 3;
+                }
+            }
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void write(Sink sink, byte[] buffer) {
+            int position = 0;
+            for (int i = 0; i < value.length(); i++) {
+                if (position > buffer.length - 4) {
+                    sink.write(buffer, 0, position);
+                    position = 0;
+                }
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            sink.write(buffer, 0, position);
+        }
+
+    }
+
+    /**
+     * Raw bytes, written directly from the backing array when possible.
+     */
+    private static final class BytesSegment implements Segment {
+
+        private final ByteBuffer value;
+
+        private BytesSegment(ByteBuffer value) {
+            this.value = value;
+        }
+
+        @Override
+        public long length() {
+            return value.remaining();
+        }
+
+        @Override
+        public void write(Sink sink, byte[] buffer) {
+            if (value.hasArray()) {
+                sink.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+                return;
+            }
+            ByteBuffer source = value.duplicate();
+            while (source.hasRemaining()) {
+                int length = Math.min(buffer.length, source.remaining());
+                source.get(buffer, 0, length);
+                sink.write(buffer, 0, length);
+            }
+        }
+
+    }
+
+    /**
+     * Base64 representation of bytes, with padding.
+     */
+    private static final class Base64Segment implements Segment {
+
+        private final ByteBuffer value;
+
+        private Base64Segment(ByteBuffer value) {
+            this.value = value;
+        }
+
+        @Override
+        public long length() {
+            return (value.remaining() + 2L) / 3 * 4;
+        }
+
+        @Override
+        public void write(Sink sink, byte[] buffer) {
+            int index = value.position();
+            int limit = value.limit();
+            int position = 0;
+            while (index < limit) {
+                if (position > buffer.length - 4) {
+                    sink.write(buffer, 0, position);
+                    position = 0;
+                }
+                int available = limit - index;
+                int bits = (value.get(index) & 0xFF) << 16;
+                if (available > 1) {
+                    bits |= (value.get(index + 1) & 0xFF) << 8;
+                }
+                if (available > 2) {
+                    bits |= value.get(index + 2) & 0xFF;
+                }
+                buffer[position++] = BASE64_ALPHABET[(bits >> 18) & 0x3F];
+                buffer[position++] = BASE64_ALPHABET[(bits >> 12) & 0x3F];
+                buffer[position++] = available > 1 ? BASE64_ALPHABET[(bits >> 6) & 0x3F] : (byte) '=';
+                buffer[position++] = available > 2 ? BASE64_ALPHABET[bits & 0x3F] : (byte) '=';
+                index += 3;
+            }
+            sink.write(buffer, 0, position);
+        }
+
+    }
+
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
+
+/**
+ * Engine computing and validating PowerAuth 2.0 signatures. The engine keeps a HMAC-SHA256
+ * instance and all working buffers per thread, computes the counter derived key of every
+ * signature factor only once and formats the decimal signature into a reusable character
+ * buffer, so that the validation does not create any intermediate strings.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class PowerAuthSignatureEngine {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final int HMAC_LENGTH = 32;
+
+    private static final int SIGNATURE_MODULO;
+
+    static {
+        int modulo = 1;
+        for (int i = 0; i < PowerAuthConfiguration.SIGNATURE_LENGTH; i++) {
+            modulo *= 10;
+        }
+        SIGNATURE_MODULO = modulo;
+    }
+
+    /**
+     * Per-thread working buffers. The thread local holds only JDK types (arrays of primitive
+     * buffers), so that container threads do not keep any class of this library, and with it
+     * the application class loader, reachable after the application is stopped.
+     */
+    private static final ThreadLocal<Object[]> BUFFERS = new ThreadLocal<>();
+
+    private static final int CTR = 0;
+    private static final int DERIVED_KEY = 1;
+    private static final int SIGNATURE_LONG = 2;
+    private static final int COUNTER_KEYS = 3;
+    private static final int SIGNATURE = 4;
+
+    /**
+     * Compute PowerAuth 2.0 signature for given data using a secret signature
+     * keys and counter.
+     *
+     * @param data Data to be signed.
+     * @param signatureKeys Keys for computing the signature.
+     * @param counter Counter / derived key index.
+     * @return PowerAuth 2.0 signature for given data.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public String computeSignature(byte[] data, List<SecretKey> signatureKeys, long counter) throws InvalidKeyException {
+        return computeSignature(new PowerAuthSignatureBase().append(data), signatureKeys, counter);
+    }
+
+    /**
+     * Compute PowerAuth 2.0 signature for given signature base using a secret signature
+     * keys and counter. The signature base is fed to the HMAC without being materialized.
+     *
+     * @param data Signature base to be signed.
+     * @param signatureKeys Keys for computing the signature.
+     * @param counter Counter / derived key index.
+     * @return PowerAuth 2.0 signature for given data.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public String computeSignature(PowerAuthSignatureBase data, List<SecretKey> signatureKeys, long counter) throws InvalidKeyException {
+        Context context = Context.current();
+        int length = computeSignature(context, data, keyBytes(signatureKeys), counter, null);
+        return new String(context.signature(), 0, length);
+    }
+
+    /**
+     * Validate the PowerAuth 2.0 signature for given data using provided keys.
+     *
+     * @param data Data that were signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param counter Counter.
+     * @return Return "true" if signature matches, "false" otherwise.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public boolean verifySignature(byte[] data, String signature, List<SecretKey> signatureKeys, long counter) throws InvalidKeyException {
+        return verifySignature(data, signature, signatureKeys, counter, counter + 1) != null;
+    }
+
+    /**
+     * Validate the PowerAuth 2.0 signature for given data using provided keys against all
+     * counters from given range, starting with the lowest one. Signature format is checked
+     * before any computation and the signature keys are converted only once for the whole
+     * range. All signature components are computed and compared in constant time for every
+     * counter, the search only stops between counters once a matching one is found.
+     *
+     * @param data Data that were signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param counterFrom Lowest counter to be checked (inclusive).
+     * @param counterTo Highest counter to be checked (exclusive).
+     * @return The lowest counter for which the signature matches, or null if the signature
+     * does not match any counter from the range.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public Long verifySignature(byte[] data, String signature, List<SecretKey> signatureKeys, long counterFrom, long counterTo) throws InvalidKeyException {
+        return verifySignature(new PowerAuthSignatureBase().append(data), signature, signatureKeys, counterFrom, counterTo);
+    }
+
+    /**
+     * Validate the PowerAuth 2.0 signature for given signature base using provided keys against
+     * all counters from given range, see {@link #verifySignature(byte[], String, List, long, long)}.
+     * The signature base is fed to the HMAC without being materialized.
+     *
+     * @param data Signature base that was signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param counterFrom Lowest counter to be checked (inclusive).
+     * @param counterTo Highest counter to be checked (exclusive).
+     * @return The lowest counter for which the signature matches, or null if the signature
+     * does not match any counter from the range.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public Long verifySignature(PowerAuthSignatureBase data, String signature, List<SecretKey> signatureKeys, long counterFrom, long counterTo) throws InvalidKeyException {
+        if (!isValidFormat(signature, signatureKeys.size())) {
+            return null;
+        }
+        Context context = Context.current();
+        byte[][] keys = keyBytes(signatureKeys);
+        for (long counter = counterFrom; counter < counterTo; counter++) {
+            if (computeSignature(context, data, keys, counter, signature) >= 0) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if the signature has a format of a signature computed with given number of keys,
+     * i.e. decimal components of the signature length separated with a dash.
+     * @param signature Signature to be checked.
+     * @param keyCount Number of signature keys.
+     * @return True in case the signature format is valid, false otherwise.
+     */
+    static boolean isValidFormat(String signature, int keyCount) {
+        if (signature == null || signature.length() != signatureLength(keyCount)) {
+            return false;
+        }
+        for (int i = 0; i < signature.length(); i++) {
+            char c = signature.charAt(i);
+            if ((i + 1) % (PowerAuthConfiguration.SIGNATURE_LENGTH + 1) == 0) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the length of a signature computed with given number of signature keys.
+     * @param keyCount Number of signature keys.
+     * @return Signature length, including the component separators.
+     */
+    static int signatureLength(int keyCount) {
+        return keyCount == 0 ? 0 : keyCount * (PowerAuthConfiguration.SIGNATURE_LENGTH + 1) - 1;
+    }
+
+    /**
+     * Convert signature keys to bytes, only once per validation.
+     * @param signatureKeys Signature keys.
+     * @return Byte representations of the signature keys.
+     */
+    static byte[][] keyBytes(List<SecretKey> signatureKeys) {
+        CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        byte[][] keys = new byte[signatureKeys.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyConvertor.convertSharedSecretKeyToBytes(signatureKeys.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * Compute the signature characters into the context signature buffer. In case an expected
+     * signature is provided, all components are always computed and compared in constant time,
+     * so that the timing does not reveal how many leading components match.
+     * @return Length of the computed signature, or -1 if the expected signature does not match.
+     */
+    static int computeSignature(Context context, PowerAuthSignatureBase data, byte[][] keys, long counter, String expected) throws InvalidKeyException {
+        Mac mac = context.mac();
+        context.ensureCapacity(keys.length);
+
+        // Prepare a counter
+        byte[] ctr = context.ctr();
+        for (int i = 0; i < 8; i++) {
+            ctr[8 + i] = (byte) (counter >>> (56 - 8 * i));
+        }
+
+        // Derive the counter specific key of every factor once
+        byte[][] counterKeys = context.counterKeys();
+        for (int i = 0; i < keys.length; i++) {
+            hmac(mac, keys[i], ctr, counterKeys[i]);
+        }
+
+        byte[] derivedKey = context.derivedKey();
+        byte[] signatureLong = context.signatureLong();
+        char[] signature = context.signature();
+        int position = 0;
+        int difference = 0;
+        for (int i = 0; i < keys.length; i++) {
+            System.arraycopy(counterKeys[i], 0, derivedKey, 0, HMAC_LENGTH);
+            for (int j = 0; j < i; j++) {
+                hmac(mac, counterKeys[j + 1], derivedKey, derivedKey);
+            }
+            hmac(mac, derivedKey, data, signatureLong);
+
+            int index = HMAC_LENGTH - 4;
+            int number = ((signatureLong[index] & 0xFF) << 24
+                    | (signatureLong[index + 1] & 0xFF) << 16
+                    | (signatureLong[index + 2] & 0xFF) << 8
+                    | (signatureLong[index + 3] & 0xFF)) & 0x7FFFFFFF;
+            number = number % SIGNATURE_MODULO;
+
+            if (i > 0) {
+                signature[position++] = '-';
+            }
+            for (int d = PowerAuthConfiguration.SIGNATURE_LENGTH - 1; d >= 0; d--) {
+                char digit = (char) ('0' + number % 10);
+                signature[position + d] = digit;
+                if (expected != null) {
+                    difference |= digit ^ expected.charAt(position + d);
+                }
+                number /= 10;
+            }
+            position += PowerAuthConfiguration.SIGNATURE_LENGTH;
+        }
+        return difference == 0 ? position : -1;
+    }
+
+    private static void hmac(Mac mac, byte[] key, byte[] data, byte[] output) throws InvalidKeyException {
+        mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        mac.update(data);
+        doFinal(mac, output);
+    }
+
+    private static void hmac(Mac mac, byte[] key, PowerAuthSignatureBase data, byte[] output) throws InvalidKeyException {
+        mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        data.update(mac);
+        doFinal(mac, output);
+    }
+
+    private static void doFinal(Mac mac, byte[] output) {
+        try {
+            mac.doFinal(output, 0);
+        } catch (ShortBufferException ex) {
+            // Output buffers always have the HMAC-SHA256 length
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * View of the working buffers of the current thread, the HMAC instance is taken from
+     * {@link CryptoPrimitivePool}. The view itself is never stored in the thread local.
+     */
+    static final class Context {
+
+        private final Object[] buffers;
+
+        private Context(Object[] buffers) {
+            this.buffers = buffers;
+        }
+
+        /**
+         * Get the working buffers of the current thread, create them on the first use.
+         */
+        static Context current() {
+            Object[] buffers = BUFFERS.get();
+            if (buffers == null) {
+                buffers = new Object[] { new byte[16], new byte[HMAC_LENGTH], new byte[HMAC_LENGTH], new byte[0][], new char[0] };
+                BUFFERS.set(buffers);
+            }
+            return new Context(buffers);
+        }
+
+        byte[] ctr() {
+            return (byte[]) buffers[CTR];
+        }
+
+        byte[] derivedKey() {
+            return (byte[]) buffers[DERIVED_KEY];
+        }
+
+        byte[] signatureLong() {
+            return (byte[]) buffers[SIGNATURE_LONG];
+        }
+
+        byte[][] counterKeys() {
+            return (byte[][]) buffers[COUNTER_KEYS];
+        }
+
+        char[] signature() {
+            return (char[]) buffers[SIGNATURE];
+        }
+
+        /**
+         * Get the HMAC-SHA256 instance for the currently configured provider.
+         */
+        Mac mac() {
+            try {
+                return CryptoPrimitivePool.getMac(HMAC_ALGORITHM);
+            } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        void ensureCapacity(int keyCount) {
+            if (counterKeys().length < keyCount) {
+                buffers[COUNTER_KEYS] = new byte[keyCount][HMAC_LENGTH];
+                buffers[SIGNATURE] = new char[signatureLength(keyCount)];
+            }
+        }
+
+    }
+
+}
@@ -15,7 +15,6 @@
  */
 package io.getlime.security.powerauth.lib.util;
 
-import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -28,11 +27,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.SecretKey;
 
-import com.google.common.base.Joiner;
-
-import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
-import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
-
 /**
  * Utility class for signature calculation and validation used both on client and server.
  *  
@@ -41,6 +35,8 @@ import io.getlime.security.powerauth.lib.provider.CryptoProviderUtil;
  */
 public class SignatureUtils {
 
+    private final PowerAuthSignatureEngine signatureEngine = new PowerAuthSignatureEngine();
+
     /**
      * Compute ECDSA signature of given bytes with a private key.
      *
@@ -52,12 +48,12 @@ public class SignatureUtils {
      */
     public byte[] computeECDSASignature(byte[] bytes, PrivateKey masterPrivateKey) throws InvalidKeyException, SignatureException {
         try {
-            Signature ecdsa = Signature.getInstance("SHA256withECDSA");
+            Signature ecdsa = CryptoPrimitivePool.getSignature("SHA256withECDSA");
             ecdsa.initSign(masterPrivateKey);
             ecdsa.update(bytes);
             byte[] signature = ecdsa.sign();
             return signature;
-        } catch (NoSuchAlgorithmException ex) {
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
             Logger.getLogger(SignatureUtils.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
@@ -75,7 +71,7 @@ public class SignatureUtils {
      */
     public boolean validateECDSASignature(byte[] signedBytes, byte[] signature, PublicKey masterPublicKey) throws InvalidKeyException, SignatureException {
         try {
-            Signature ecdsa = Signature.getInstance("SHA256withECDSA", PowerAuthConfiguration.INSTANCE.getKeyConvertor().getProviderName());
+            Signature ecdsa = CryptoPrimitivePool.getSignature("SHA256withECDSA");
             ecdsa.initVerify(masterPublicKey);
             ecdsa.update(signedBytes);
             boolean isValid = ecdsa.verify(signature);
@@ -97,39 +93,12 @@ public class SignatureUtils {
      * 
      */
     public String computePowerAuthSignature(byte[] data, List<SecretKey> signatureKeys, long counter) {
-    	// Prepare a hash
-    	HMACHashUtilities hmac = new HMACHashUtilities();
-    	
-    	// Prepare a counter
-        byte[] ctr = ByteBuffer.allocate(16).putLong(8, counter).array();
-
-        // Prepare holder for signature components
-        String[] signatureComponents = new String[signatureKeys.size()];
-        
-        CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
-            
-        for (int i = 0; i < signatureKeys.size(); i++) {
-           	byte[] signatureKey = keyConvertor.convertSharedSecretKeyToBytes(signatureKeys.get(i));
-           	byte[] derivedKey = hmac.hash(signatureKey, ctr);
-           	
-           	for (int j = 0; j < i; j++) {
-           		byte[] signatureKeyInner = keyConvertor.convertSharedSecretKeyToBytes(signatureKeys.get(j + 1));
-            	byte[] derivedKeyInner = hmac.hash(signatureKeyInner, ctr);
-                derivedKey = hmac.hash(derivedKeyInner, derivedKey);
-            }
-            	
-            byte[] signatureLong = hmac.hash(derivedKey, data);
-            	
-            if (signatureLong.length < 4) { // assert
-                throw new IndexOutOfBoundsException();
-            }
-            int index = signatureLong.length - 4;
-            int number = (ByteBuffer.wrap(signatureLong).getInt(index) & 0x7FFFFFFF) % (int) (Math.pow(10, PowerAuthConfiguration.SIGNATURE_LENGTH));
-            String signature = String.format("%0" + PowerAuthConfiguration.SIGNATURE_LENGTH + "d", number);
-        	signatureComponents[i] = signature;
+        try {
+            return signatureEngine.computeSignature(data, signatureKeys, counter);
+        } catch (InvalidKeyException ex) {
+            Logger.getLogger(SignatureUtils.class.getName()).log(Level.SEVERE, null, ex);
         }
-        
-        return Joiner.on("-").join(signatureComponents);
+        return null;
     }
 
     /**
@@ -143,7 +112,41 @@ public class SignatureUtils {
      * @throws InvalidKeyException In case invalid key is provided.
      */
     public boolean validatePowerAuthSignature(byte[] data, String signature, List<SecretKey> signatureKeys, long counter) throws InvalidKeyException {
-        return signature.equals(computePowerAuthSignature(data, signatureKeys, counter));
+        return signatureEngine.verifySignature(data, signature, signatureKeys, counter);
+    }
+
+    /**
+     * Compute PowerAuth 2.0 signature for given signature base using a secret signature
+     * keys and counter, without materializing the signed data.
+     *
+     * @param data Signature base to be signed.
+     * @param signatureKeys Keys for computing the signature.
+     * @param counter Counter / derived key index.
+     * @return PowerAuth 2.0 signature for given data.
+     *
+     */
+    public String computePowerAuthSignature(PowerAuthSignatureBase data, List<SecretKey> signatureKeys, long counter) {
+        try {
+            return signatureEngine.computeSignature(data, signatureKeys, counter);
+        } catch (InvalidKeyException ex) {
+            Logger.getLogger(SignatureUtils.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Validate the PowerAuth 2.0 signature for given signature base using provided keys,
+     * without materializing the signed data.
+     *
+     * @param data Signature base that was signed.
+     * @param signature Data signature.
+     * @param signatureKeys Keys for signature validation.
+     * @param counter Counter.
+     * @return Return "true" if signature matches, "false" otherwise.
+     * @throws InvalidKeyException In case invalid key is provided.
+     */
+    public boolean validatePowerAuthSignature(PowerAuthSignatureBase data, String signature, List<SecretKey> signatureKeys, long counter) throws InvalidKeyException {
+        return signatureEngine.verifySignature(data, signature, signatureKeys, counter, counter + 1) != null;
     }
 
 }
@@ -15,9 +15,16 @@
  */
 package io.getlime.security.powerauth.server.signature;
 
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureBase;
+import io.getlime.security.powerauth.lib.util.PowerAuthSignatureEngine;
 import io.getlime.security.powerauth.lib.util.SignatureUtils;
 import java.security.InvalidKeyException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.SecretKey;
 
@@ -30,8 +37,16 @@ import javax.crypto.SecretKey;
  */
 public class PowerAuthServerSignature {
 
+    /**
+     * Minimal number of counters validated by a single task when the counter
+     * range is validated in parallel.
+     */
+    public static final int PARALLEL_COUNTER_CHUNK = 8;
+
     private final SignatureUtils signatureUtils = new SignatureUtils();
 
+    private final PowerAuthSignatureEngine signatureEngine = new PowerAuthSignatureEngine();
+
     /**
      * Verify a PowerAuth 2.0 signature against data using signature key list and
      * counter.
@@ -51,4 +66,146 @@ public class PowerAuthServerSignature {
         return signatureUtils.validatePowerAuthSignature(data, signature, signatureKeys, ctr);
     }
 
+    /**
+     * Verify a PowerAuth 2.0 signature against data using signature key list and
+     * all counters from given range, starting with the lowest one.
+     *
+     * @param data Signed data.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctr Lowest counter / derived signing key index to be checked.
+     * @param lookahead Number of counters to be checked.
+     * @return The lowest matching counter, or null if the signature does not match
+     * any counter from the range.
+     * @throws InvalidKeyException If provided key is invalid.
+     */
+    public Long verifySignatureForCounterRange(
+            byte[] data,
+            String signature,
+            List<SecretKey> signatureKeys,
+            long ctr,
+            long lookahead) throws InvalidKeyException {
+        return verifySignatureForCounterRange(new PowerAuthSignatureBase().append(data), signature, signatureKeys, ctr, lookahead);
+    }
+
+    /**
+     * Verify a PowerAuth 2.0 signature against signature base using signature key
+     * list and all counters from given range, starting with the lowest one. The
+     * signature base is fed to the HMAC without being materialized.
+     *
+     * @param data Signature base.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctr Lowest counter / derived signing key index to be checked.
+     * @param lookahead Number of counters to be checked.
+     * @return The lowest matching counter, or null if the signature does not match
+     * any counter from the range.
+     * @throws InvalidKeyException If provided key is invalid.
+     */
+    public Long verifySignatureForCounterRange(
+            PowerAuthSignatureBase data,
+            String signature,
+            List<SecretKey> signatureKeys,
+            long ctr,
+            long lookahead) throws InvalidKeyException {
+        return signatureEngine.verifySignature(data, signature, signatureKeys, ctr, ctr + lookahead);
+    }
+
+    /**
+     * Verify a PowerAuth 2.0 signature against data using signature key list and
+     * all counters from given range. Ranges larger than {@link #PARALLEL_COUNTER_CHUNK}
+     * are split into chunks validated by provided executor.
+     *
+     * @param data Signed data.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctr Lowest counter / derived signing key index to be checked.
+     * @param lookahead Number of counters to be checked.
+     * @param executor Executor used to validate the chunks, or null for sequential validation.
+     * @return The lowest matching counter, or null if the signature does not match
+     * any counter from the range.
+     * @throws InvalidKeyException If provided key is invalid.
+     */
+    public Long verifySignatureForCounterRange(
+            final byte[] data,
+            final String signature,
+            final List<SecretKey> signatureKeys,
+            long ctr,
+            long lookahead,
+            ExecutorService executor) throws InvalidKeyException {
+        return verifySignatureForCounterRange(new PowerAuthSignatureBase().append(data), signature, signatureKeys, ctr, lookahead, executor);
+    }
+
+    /**
+     * Verify a PowerAuth 2.0 signature against signature base using signature key
+     * list and all counters from given range, see
+     * {@link #verifySignatureForCounterRange(byte[], String, List, long, long, ExecutorService)}.
+     *
+     * @param data Signature base.
+     * @param signature Signature for the data.
+     * @param signatureKeys Keys used for signature.
+     * @param ctr Lowest counter / derived signing key index to be checked.
+     * @param lookahead Number of counters to be checked.
+     * @param executor Executor used to validate the chunks, or null for sequential validation.
+     * @return The lowest matching counter, or null if the signature does not match
+     * any counter from the range.
+     * @throws InvalidKeyException If provided key is invalid.
+     * @throws IllegalStateException In case the calling thread is interrupted while waiting for
+     * the chunks, the interrupt flag of the thread is restored.
+     */
+    public Long verifySignatureForCounterRange(
+            final PowerAuthSignatureBase data,
+            final String signature,
+            final List<SecretKey> signatureKeys,
+            long ctr,
+            long lookahead,
+            ExecutorService executor) throws InvalidKeyException {
+        if (executor == null || lookahead <= PARALLEL_COUNTER_CHUNK) {
+            return verifySignatureForCounterRange(data, signature, signatureKeys, ctr, lookahead);
+        }
+
+        // Submit the chunks, lowest counters first
+        List<Future<Long>> results = new ArrayList<>();
+        for (long from = ctr; from < ctr + lookahead; from += PARALLEL_COUNTER_CHUNK) {
+            final long chunkFrom = from;
+            final long chunkTo = Math.min(from + PARALLEL_COUNTER_CHUNK, ctr + lookahead);
+            results.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return signatureEngine.verifySignature(data, signature, signatureKeys, chunkFrom, chunkTo);
+                }
+            }));
+        }
+
+        // Return the match from the lowest chunk and cancel the remaining ones
+        Long matchingCounter = null;
+        try {
+            for (Future<Long> result : results) {
+                if (matchingCounter == null) {
+                    matchingCounter = result.get();
+                } else {
+                    result.cancel(true);
+                }
+            }
+        } catch (InterruptedException ex) {
+            // Interrupted validation must not be reported as a signature mismatch
+            Thread.currentThread().interrupt();
+            cancelAll(results);
+            throw new IllegalStateException("Signature validation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            cancelAll(results);
+            if (ex.getCause() instanceof InvalidKeyException) {
+                throw (InvalidKeyException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        return matchingCounter;
+    }
+
+    private void cancelAll(List<Future<Long>> results) {
+        for (Future<Long> result : results) {
+            result.cancel(true);
+        }
+    }
+
 }
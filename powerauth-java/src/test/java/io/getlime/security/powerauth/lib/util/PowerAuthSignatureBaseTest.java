@@ -0,0 +1,165 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.lib.util;
+
+import com.google.common.io.BaseEncoding;
+
+import io.getlime.security.powerauth.lib.config.PowerAuthConfiguration;
+import io.getlime.security.powerauth.lib.generator.KeyGenerator;
+import io.getlime.security.powerauth.lib.provider.CryptoProviderUtilFactory;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.crypto.SecretKey;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the signature base, verifying that the streamed data are the same as the
+ * concatenated string representation.
+ * 
+ * @author Petr Dvorak
+ * 
+ */
+public class PowerAuthSignatureBaseTest {
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthSignatureBaseTest() {
+	}
+
+	/**
+	 * Set up crypto providers
+	 */
+	@Before
+	public void setUp() {
+		// Add Bouncy Castle Security Provider
+		Security.addProvider(new BouncyCastleProvider());
+		PowerAuthConfiguration.INSTANCE.setKeyConvertor(CryptoProviderUtilFactory.getCryptoProviderUtils());
+	}
+
+	/**
+	 * Test that the signature base bytes are the same as UTF-8 bytes of the concatenated
+	 * components, for various data lengths crossing the internal buffer size.
+	 * 
+	 * @throws Exception In case test fails 
+	 *
+	 */
+	@Test
+	public void testSignatureBaseBytes() throws Exception {
+		System.out.println("testSignatureBaseBytes");
+		Random random = new Random(42);
+		int[] lengths = { 0, 1, 2, 3, 4, 1000, 3071, 3072, 3073, 4096, 10000, 100000 };
+		for (int length : lengths) {
+			byte[] body = new byte[length];
+			random.nextBytes(body);
+			byte[] nonce = new byte[16];
+			random.nextBytes(nonce);
+			String text = randomString(random, length);
+
+			String expected = "POST&" + BaseEncoding.base64().encode("/pa/signature/validate".getBytes("UTF-8"))
+					+ "&" + BaseEncoding.base64().encode(nonce)
+					+ "&" + BaseEncoding.base64().encode(body)
+					+ "&" + text;
+			byte[] expectedBytes = expected.getBytes("UTF-8");
+
+			ByteBuffer readOnlyBody = ByteBuffer.wrap(body).asReadOnlyBuffer();
+			PowerAuthSignatureBase signatureBase = new PowerAuthSignatureBase()
+					.append("POST")
+					.append("&")
+					.appendBase64("/pa/signature/validate".getBytes("UTF-8"))
+					.append("&")
+					.appendBase64(nonce)
+					.append("&")
+					.appendBase64(readOnlyBody)
+					.append("&")
+					.append(text);
+
+			assertEquals(expectedBytes.length, signatureBase.length());
+			assertArrayEquals(expectedBytes, signatureBase.toByteArray());
+			assertEquals(0, readOnlyBody.position());
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			signatureBase.update(digest);
+			assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expectedBytes), digest.digest());
+		}
+	}
+
+	/**
+	 * Test that signatures computed from the signature base match signatures computed from
+	 * the data bytes.
+	 * 
+	 * @throws Exception In case test fails 
+	 *
+	 */
+	@Test
+	public void testSignatureForSignatureBase() throws Exception {
+		System.out.println("testSignatureForSignatureBase");
+		Random random = new Random(42);
+		KeyGenerator keyGenerator = new KeyGenerator();
+		PowerAuthSignatureEngine signatureEngine = new PowerAuthSignatureEngine();
+		List<SecretKey> signatureKeys = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			signatureKeys.add(keyGenerator.generateRandomSecretKey());
+		}
+		for (int i = 0; i < 20; i++) {
+			byte[] body = new byte[random.nextInt(20000)];
+			random.nextBytes(body);
+			String applicationSecret = BaseEncoding.base64().encode(keyGenerator.generateRandomBytes(16));
+			byte[] data = (BaseEncoding.base64().encode(body) + "&" + applicationSecret).getBytes("UTF-8");
+			PowerAuthSignatureBase signatureBase = new PowerAuthSignatureBase().appendBase64(body).append("&").append(applicationSecret);
+
+			String signature = signatureEngine.computeSignature(data, signatureKeys, i);
+			assertEquals(signature, signatureEngine.computeSignature(signatureBase, signatureKeys, i));
+			assertEquals(Long.valueOf(i), signatureEngine.verifySignature(signatureBase, signature, signatureKeys, 0, 20));
+		}
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			switch (random.nextInt(6)) {
+				case 0:
+					result.append((char) (0x80 + random.nextInt(0x780)));
+					break;
+				case 1:
+					result.append((char) (0x800 + random.nextInt(0xD000)));
+					break;
+				case 2:
+					result.appendCodePoint(0x10000 + random.nextInt(0x10000));
+					break;
+				case 3:
+					// Unpaired surrogate
+					result.append((char) (0xD800 + random.nextInt(0x800)));
+					break;
+				default:
+					result.append((char) random.nextInt(0x80));
+					break;
+			}
+		}
+		return result.toString();
+	}
+
+}
@@ -28,6 +28,11 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Security;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.crypto.SecretKey;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -178,4 +183,92 @@ public class PowerAuthSignatureTest {
         }
     }
 
+    /**
+     * Test of signature computation and validation against the published test vectors.
+     *
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testSignatureVectors() throws Exception {
+        CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        SecretKey possessionKey = keyConvertor.convertBytesToSharedSecretKey(BaseEncoding.base64().decode("4y0gKXeSp7fvVOCiJBVqlQ=="));
+        SecretKey knowledgeKey = keyConvertor.convertBytesToSharedSecretKey(BaseEncoding.base64().decode("FPIf2yDdDOkcT/wCdD4Jug=="));
+        SecretKey biometryKey = keyConvertor.convertBytesToSharedSecretKey(BaseEncoding.base64().decode("aKBMMqyK9f4DS3KTwziqnw=="));
+
+        PowerAuthClientSignature clientSignature = new PowerAuthClientSignature();
+        PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+
+        byte[] data = BaseEncoding.base64().decode("Bdd4kN0KiADdE0vBGgS95w==");
+        assertEquals("78350762", clientSignature.signatureForData(data, Arrays.asList(possessionKey), 0));
+        assertTrue(serverSignature.verifySignatureForData(data, "78350762", Arrays.asList(possessionKey), 0));
+        assertFalse(serverSignature.verifySignatureForData(data, "78350763", Arrays.asList(possessionKey), 0));
+        assertFalse(serverSignature.verifySignatureForData(data, "78350762", Arrays.asList(possessionKey), 1));
+
+        data = BaseEncoding.base64().decode("R6z7E3VBdww+9DLyVO5AQaOtBHXMS5E=");
+        assertEquals("90233478-19793490", clientSignature.signatureForData(data, Arrays.asList(possessionKey, knowledgeKey), 5));
+        assertTrue(serverSignature.verifySignatureForData(data, "90233478-19793490", Arrays.asList(possessionKey, knowledgeKey), 5));
+        assertFalse(serverSignature.verifySignatureForData(data, "90233478", Arrays.asList(possessionKey, knowledgeKey), 5));
+        assertFalse(serverSignature.verifySignatureForData(data, "90233478+19793490", Arrays.asList(possessionKey, knowledgeKey), 5));
+
+        data = BaseEncoding.base64().decode("8aWgeBV7OEevOxrWTG+4hDRr");
+        assertEquals("73191337-63706432-55598755", clientSignature.signatureForData(data, Arrays.asList(possessionKey, knowledgeKey, biometryKey), 2));
+        assertTrue(serverSignature.verifySignatureForData(data, "73191337-63706432-55598755", Arrays.asList(possessionKey, knowledgeKey, biometryKey), 2));
+        assertFalse(serverSignature.verifySignatureForData(data, "73191337-63706432-55598756", Arrays.asList(possessionKey, knowledgeKey, biometryKey), 2));
+        assertFalse(serverSignature.verifySignatureForData(data, null, Arrays.asList(possessionKey, knowledgeKey, biometryKey), 2));
+    }
+
+    /**
+     * Test of signature validation against a counter range.
+     *
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testSignatureCounterRange() throws Exception {
+        CryptoProviderUtil keyConvertor = PowerAuthConfiguration.INSTANCE.getKeyConvertor();
+        SecretKey possessionKey = keyConvertor.convertBytesToSharedSecretKey(BaseEncoding.base64().decode("4y0gKXeSp7fvVOCiJBVqlQ=="));
+        SecretKey knowledgeKey = keyConvertor.convertBytesToSharedSecretKey(BaseEncoding.base64().decode("FPIf2yDdDOkcT/wCdD4Jug=="));
+        List<SecretKey> signatureKeys = Arrays.asList(possessionKey, knowledgeKey);
+        byte[] data = BaseEncoding.base64().decode("R6z7E3VBdww+9DLyVO5AQaOtBHXMS5E=");
+
+        PowerAuthServerSignature serverSignature = new PowerAuthServerSignature();
+        assertEquals(Long.valueOf(5), serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 0, 20));
+        assertEquals(Long.valueOf(5), serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 5, 1));
+        assertNull(serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 6, 20));
+        assertNull(serverSignature.verifySignatureForCounterRange(data, "90233478-1979349a", signatureKeys, 0, 20));
+        assertNull(serverSignature.verifySignatureForCounterRange(data, "90233478-19793491", signatureKeys, 0, 20));
+        assertNull(serverSignature.verifySignatureForCounterRange(data, "90233479-19793490", signatureKeys, 0, 20));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(Long.valueOf(5), serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 0, 40, executor));
+            assertNull(serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 6, 40, executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Interrupted parallel validation fails instead of reporting a signature mismatch
+        final CountDownLatch release = new CountDownLatch(1);
+        executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    release.await();
+                    return null;
+                }
+            });
+            Thread.currentThread().interrupt();
+            try {
+                serverSignature.verifySignatureForCounterRange(data, "90233478-19793490", signatureKeys, 0, 40, executor);
+                fail("Interrupted validation must fail");
+            } catch (IllegalStateException ex) {
+                assertTrue(ex.getCause() instanceof InterruptedException);
+            }
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package io.getlime.rest.api.security.authentication;
 
+import java.nio.ByteBuffer;
+
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 
 /**
@@ -35,7 +37,7 @@ public class PowerAuthAuthentication extends AbstractAuthenticationToken {
 	private String requestUri;
 	private String httpMethod;
 	private byte[] nonce;
-	private byte[] data;
+	private ByteBuffer data;
 
 	/**
 	 * Default constructor.
@@ -171,7 +173,12 @@ public class PowerAuthAuthentication extends AbstractAuthenticationToken {
 	 * @return Request data.
 	 */
 	public byte[] getData() {
-		return data;
+		if (data == null) {
+			return null;
+		}
+		byte[] bytes = new byte[data.remaining()];
+		data.duplicate().get(bytes);
+		return bytes;
 	}
 
 	/**
@@ -179,7 +186,23 @@ public class PowerAuthAuthentication extends AbstractAuthenticationToken {
 	 * @param data Request data.
 	 */
 	public void setData(byte[] data) {
-		this.data = data;
+		this.data = data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+	}
+
+	/**
+	 * Get request data as a read-only buffer, without copying the data.
+	 * @return Request data.
+	 */
+	public ByteBuffer getDataBuffer() {
+		return data;
+	}
+
+	/**
+	 * Set request data buffer, the buffer is used directly without copying the data.
+	 * @param data Request data.
+	 */
+	public void setDataBuffer(ByteBuffer data) {
+		this.data = data != null ? data.asReadOnlyBuffer() : null;
 	}
 
 }
@@ -16,7 +16,6 @@
 package io.getlime.rest.api.security.controller;
 
 import java.io.UnsupportedEncodingException;
-import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -35,6 +34,7 @@ import io.getlime.rest.api.model.VaultUnlockResponse;
 import io.getlime.rest.api.security.exception.PowerAuthAuthenticationException;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpBody;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpHeader;
+import io.getlime.security.powerauth.lib.util.http.PowerAuthSignatureHeader;
 import io.getlime.security.soap.client.PowerAuthServiceClient;
 
 /**
@@ -64,12 +64,12 @@ public class SecureVaultController {
 			@RequestHeader(value = PowerAuthHttpHeader.HEADER_NAME, required = true, defaultValue = "unknown") String signatureHeader) 
 					throws PowerAuthAuthenticationException, UnsupportedEncodingException {
 		
-		Map<String, String> map = PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader(signatureHeader);
-		String activationId = map.get(PowerAuthHttpHeader.ACTIVATION_ID);
-		String applicationId = map.get(PowerAuthHttpHeader.APPLICATION_ID);
-		String signature = map.get(PowerAuthHttpHeader.SIGNATURE);
-		String signatureType = map.get(PowerAuthHttpHeader.SIGNATURE_TYPE);
-		String nonce = map.get(PowerAuthHttpHeader.NONCE);
+		PowerAuthSignatureHeader header = PowerAuthSignatureHeader.parse(signatureHeader);
+		String activationId = header.getActivationId();
+		String applicationId = header.getApplicationKey();
+		String signature = header.getSignature();
+		String signatureType = header.getSignatureType();
+		String nonce = header.getNonce();
 		
 		String data = PowerAuthHttpBody.getSignatureBaseString("POST", "/pa/vault/unlock", BaseEncoding.base64().decode(nonce), null);
 		
@@ -16,6 +16,7 @@
 package io.getlime.rest.api.security.filter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -31,7 +32,15 @@ import io.getlime.security.powerauth.lib.util.http.PowerAuthRequestCanonizationU
 
 /**
  * Request filter that intercepts the request body, forwards it to the controller 
- * as a request attribute named "X-PowerAuth-Request-Body" and resets the stream.
+ * as a request attribute named "X-PowerAuth-Request-Body-Buffer" and resets the stream.
+ * The attribute value is a read-only {@link ByteBuffer} backed directly by the
+ * captured request body. The Base64 encoded request body is still available in the
+ * "X-PowerAuth-Request-Body" attribute, it is encoded only when the attribute is read.
+ * 
+ * GET requests are signed with empty data by default, the way all existing clients sign them.
+ * Signing the canonized GET query parameters changes the signature base string of every GET
+ * request and must be enabled only when all clients sign the canonized query as well, see
+ * {@link #setSignGetQueryParameters(boolean)}.
  *  
  * @author Petr Dvorak
  *
@@ -43,28 +52,74 @@ public class PowerAuthRequestFilter extends OncePerRequestFilter {
 	 */
 	public static final String POWERAUTH_SIGNATURE_BASE_STRING = "X-PowerAuth-Request-Body";
 
+	/**
+	 * Constant for the request attribute name "X-PowerAuth-Request-Body-Buffer".
+	 */
+	public static final String POWERAUTH_SIGNATURE_BASE_BUFFER = "X-PowerAuth-Request-Body-Buffer";
+
+	private boolean signGetQueryParameters = false;
+
+	/**
+	 * Get the flag indicating if the canonized GET query parameters are used as the signed data of GET requests.
+	 * @return True in case the canonized query is signed, false in case GET requests are signed with empty data.
+	 */
+	public boolean isSignGetQueryParameters() {
+		return signGetQueryParameters;
+	}
+
+	/**
+	 * Set the flag indicating if the canonized GET query parameters are used as the signed data of GET requests.
+	 * This is a protocol change, clients that sign GET requests with empty data fail the signature
+	 * validation when the flag is enabled. Default value is false.
+	 * @param signGetQueryParameters True to sign the canonized query, false to sign GET requests with empty data.
+	 */
+	public void setSignGetQueryParameters(boolean signGetQueryParameters) {
+		this.signGetQueryParameters = signGetQueryParameters;
+	}
+
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
-		ResettableStreamHttpServletRequest resetableRequest = new ResettableStreamHttpServletRequest(request);
-		if (request.getMethod().equals(HttpMethod.GET)) { // ... handle GET method
-			// Parse the query parameters
-			String queryString = request.getQueryString();
-			
-			// Get the canonized form
-			String signatureBaseStringData = PowerAuthRequestCanonizationUtils.canonizeGetParameters(queryString);
+		ResettableStreamHttpServletRequest resetableRequest = new ResettableStreamHttpServletRequest(request) {
+			@Override
+			public Object getAttribute(String name) {
+				Object value = super.getAttribute(name);
+				if (value == null && POWERAUTH_SIGNATURE_BASE_STRING.equals(name)) {
+					// Encode the Base64 request body for the callers reading the original attribute
+					ByteBuffer buffer = (ByteBuffer) super.getAttribute(POWERAUTH_SIGNATURE_BASE_BUFFER);
+					if (buffer != null) {
+						byte[] bytes = new byte[buffer.remaining()];
+						buffer.duplicate().get(bytes);
+						value = BaseEncoding.base64().encode(bytes);
+						setAttribute(POWERAUTH_SIGNATURE_BASE_STRING, value);
+					}
+				}
+				return value;
+			}
+		};
+		if (HttpMethod.GET.name().equalsIgnoreCase(request.getMethod())) { // ... handle GET method
 			
-			// Pass the signature base string as the request attribute
-			if (signatureBaseStringData != null) {
-				resetableRequest.setAttribute(POWERAUTH_SIGNATURE_BASE_STRING, BaseEncoding.base64().encode(signatureBaseStringData.getBytes("UTF-8")));
+			// GET requests are signed with empty data, unless the canonized query signing is enabled
+			if (signGetQueryParameters) {
+				
+				// Parse the query parameters
+				String queryString = request.getQueryString();
+				
+				// Get the canonized form
+				String signatureBaseStringData = PowerAuthRequestCanonizationUtils.canonizeGetParameters(queryString);
+				
+				// Pass the signature base string as the request attribute
+				if (signatureBaseStringData != null) {
+					resetableRequest.setAttribute(POWERAUTH_SIGNATURE_BASE_BUFFER, ByteBuffer.wrap(signatureBaseStringData.getBytes("UTF-8")).asReadOnlyBuffer());
+				}
 			}
 			
 		} else { // ... handle POST, PUT, DELETE, ... method
 			
 			// Get the request body and pass it as the signature base string as the request attribute 
-			byte[] body = resetableRequest.getRequestBody();
+			ByteBuffer body = resetableRequest.getRequestBodyBuffer();
 			if (body != null) {
-				resetableRequest.setAttribute(POWERAUTH_SIGNATURE_BASE_STRING, BaseEncoding.base64().encode(body));
+				resetableRequest.setAttribute(POWERAUTH_SIGNATURE_BASE_BUFFER, body);
 			}
 		}
 		super.doFilter(resetableRequest, response, filterChain);
@@ -18,6 +18,7 @@ package io.getlime.rest.api.security.filter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import javax.servlet.ReadListener;
@@ -25,18 +26,23 @@ import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
-import com.google.common.primitives.Bytes;
-
 /**
- * Resettable HTTP servlet request stream.
+ * Resettable HTTP servlet request stream. The request body is read once into a buffer growing as the
+ * body arrives and all subsequent reads are served from that buffer without copying.
  * 
  * @author Petr Dvorak
  *
  */
 public class ResettableStreamHttpServletRequest extends HttpServletRequestWrapper {
 
-    private byte[] requestBody = new byte[0];
-    private boolean bufferFilled = false;
+    /**
+     * Maximum initial buffer size, the declared content length is not trusted for larger allocations
+     * before the body actually arrives.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private byte[] requestBody;
+    private int requestBodyLength;
 
     /**
      * Constructs a request object wrapping the given request.
@@ -54,35 +60,63 @@ public class ResettableStreamHttpServletRequest extends HttpServletRequestWrappe
      * @throws IOException In case stream reqding fails.
      */
     public byte[] getRequestBody() throws IOException {
-        if (bufferFilled) {
-            return Arrays.copyOf(requestBody, requestBody.length);
-        }
-
-        InputStream inputStream = super.getInputStream();
+        readRequestBody();
+        return Arrays.copyOf(requestBody, requestBodyLength);
+    }
 
-        byte[] buffer = new byte[102400];
+    /**
+     * Get request body as a read-only buffer backed directly by the captured request body.
+     * @return Read-only buffer with the request body contents.
+     * @throws IOException In case stream reading fails.
+     */
+    public ByteBuffer getRequestBodyBuffer() throws IOException {
+        readRequestBody();
+        return ByteBuffer.wrap(requestBody, 0, requestBodyLength).asReadOnlyBuffer();
+    }
 
-        int bytesRead;
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            requestBody = Bytes.concat(this.requestBody, Arrays.copyOfRange(buffer, 0, bytesRead));
+    private void readRequestBody() throws IOException {
+        if (requestBody != null) {
+            return;
         }
 
-        bufferFilled = true;
+        // Start with the declared content length up to the default size, grow the buffer as the body arrives
+        int contentLength = super.getContentLength();
+        byte[] buffer = new byte[contentLength >= 0 ? Math.min(contentLength, DEFAULT_BUFFER_SIZE) : DEFAULT_BUFFER_SIZE];
+        int length = 0;
+
+        InputStream inputStream = super.getInputStream();
+        while (true) {
+            if (length == buffer.length) {
+                int next = inputStream.read();
+                if (next == -1) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, Math.max(DEFAULT_BUFFER_SIZE, buffer.length * 2));
+                buffer[length++] = (byte) next;
+            }
+            int bytesRead = inputStream.read(buffer, length, buffer.length - length);
+            if (bytesRead == -1) {
+                break;
+            }
+            length += bytesRead;
+        }
 
-        return requestBody;
+        requestBody = buffer;
+        requestBodyLength = length;
     }
     
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        return new CustomServletInputStream(getRequestBody());
+        readRequestBody();
+        return new CustomServletInputStream(requestBody, requestBodyLength);
     }
 
     private static class CustomServletInputStream extends ServletInputStream {
 
         private ByteArrayInputStream buffer;
 
-        public CustomServletInputStream(byte[] contents) {
-            this.buffer = new ByteArrayInputStream(contents);
+        public CustomServletInputStream(byte[] contents, int length) {
+            this.buffer = new ByteArrayInputStream(contents, 0, length);
         }
 
         @Override
@@ -90,6 +124,11 @@ public class ResettableStreamHttpServletRequest extends HttpServletRequestWrappe
             return buffer.read();
         }
 
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return buffer.read(b, off, len);
+        }
+
 		@Override
 		public boolean isFinished() {
 			return buffer.available() == 0;
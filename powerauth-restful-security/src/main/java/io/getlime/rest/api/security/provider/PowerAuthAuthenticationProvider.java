@@ -16,12 +16,14 @@
 package io.getlime.rest.api.security.provider;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
@@ -32,16 +34,16 @@ import com.google.common.io.BaseEncoding;
 
 import javax.servlet.http.HttpServletRequest;
 
-import io.getlime.powerauth.soap.VerifySignatureRequest;
-import io.getlime.powerauth.soap.VerifySignatureResponse;
 import io.getlime.rest.api.security.application.PowerAuthApplicationConfiguration;
 import io.getlime.rest.api.security.authentication.PowerAuthApiAuthentication;
 import io.getlime.rest.api.security.authentication.PowerAuthAuthentication;
 import io.getlime.rest.api.security.exception.PowerAuthAuthenticationException;
 import io.getlime.rest.api.security.filter.PowerAuthRequestFilter;
+import io.getlime.rest.api.security.verifier.RemoteSignatureVerifier;
+import io.getlime.rest.api.security.verifier.SignatureVerifier;
 import io.getlime.security.powerauth.lib.enums.PowerAuthSignatureTypes;
 import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpBody;
-import io.getlime.security.powerauth.lib.util.http.PowerAuthHttpHeader;
+import io.getlime.security.powerauth.lib.util.http.PowerAuthSignatureHeader;
 import io.getlime.security.soap.client.PowerAuthServiceClient;
 
 /**
@@ -59,40 +61,45 @@ public class PowerAuthAuthenticationProvider implements AuthenticationProvider {
 	@Autowired(required=false)
 	private PowerAuthApplicationConfiguration applicationConfiguration;
 
+	@Autowired(required=false)
+	private SignatureVerifier signatureVerifier;
+
+	/**
+	 * Use the remote verification via PowerAuth 2.0 Server SOAP service, unless a custom
+	 * signature verifier is provided.
+	 */
+	@PostConstruct
+	public void init() {
+		if (signatureVerifier == null) {
+			signatureVerifier = new RemoteSignatureVerifier(powerAuthClient);
+		}
+	}
+
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
 
 		PowerAuthAuthentication powerAuthAuthentication = (PowerAuthAuthentication) authentication;
 
-		VerifySignatureRequest soapRequest = new VerifySignatureRequest();
-		soapRequest.setActivationId(powerAuthAuthentication.getActivationId());
-		soapRequest.setApplicationKey(powerAuthAuthentication.getApplicationKey());
-		soapRequest.setSignature(powerAuthAuthentication.getSignature());
-		soapRequest.setSignatureType(powerAuthAuthentication.getSignatureType());
+		String payload;
 		try {
-			String payload = PowerAuthHttpBody.getSignatureBaseString(
+			payload = PowerAuthHttpBody.getSignatureBaseStringForBuffer(
 					powerAuthAuthentication.getHttpMethod(),
 					powerAuthAuthentication.getRequestUri(),
 					powerAuthAuthentication.getNonce(),
-					powerAuthAuthentication.getData()
+					powerAuthAuthentication.getDataBuffer()
 			);
-			soapRequest.setData(payload);
 		} catch (UnsupportedEncodingException ex) {
 			Logger.getLogger(PowerAuthAuthenticationProvider.class.getName()).log(Level.SEVERE, null, ex);
 			return null;
 		}
-		
-		VerifySignatureResponse soapResponse = powerAuthClient.verifySignature(soapRequest);
-
-		if (soapResponse.isSignatureValid()) {
-			PowerAuthApiAuthentication apiAuthentication = new PowerAuthApiAuthentication();
-			apiAuthentication.setActivationId(soapResponse.getActivationId());
-			apiAuthentication.setUserId(soapResponse.getUserId());
-			apiAuthentication.setAuthenticated(true);
-			return apiAuthentication;
-		} else {
-			return null;
-		}
+
+		return signatureVerifier.verifySignature(
+				powerAuthAuthentication.getActivationId(),
+				powerAuthAuthentication.getApplicationKey(),
+				payload,
+				powerAuthAuthentication.getSignature(),
+				powerAuthAuthentication.getSignatureType()
+		);
 	}
 
 	@Override
@@ -115,6 +122,22 @@ public class PowerAuthAuthenticationProvider implements AuthenticationProvider {
 	 * @throws Exception In case authorization fails, exception is raised.
 	 */
 	public PowerAuthApiAuthentication validateRequestSignature(String httpMethod, byte[] httpBody, String requestUriIdentifier, String httpAuthorizationHeader, List<PowerAuthSignatureTypes> allowedSignatureTypes) throws Exception {
+		return this.validateRequestSignatureForBuffer(httpMethod, httpBody != null ? ByteBuffer.wrap(httpBody) : null, requestUriIdentifier, httpAuthorizationHeader, allowedSignatureTypes);
+	}
+
+	/**
+	 * Validate the signature from the PowerAuth 2.0 HTTP header against the provided HTTP method, request body and URI identifier.
+	 * Request body is read directly from the provided buffer, without copying. Make sure to accept only allowed signatures.
+	 * The method has its own name so that calls with a null request body stay unambiguous.
+	 * @param httpMethod HTTP method (GET, POST, ...)
+	 * @param httpBody Buffer with the body of the HTTP request.
+	 * @param requestUriIdentifier Request URI identifier.
+	 * @param httpAuthorizationHeader PowerAuth 2.0 HTTP authorization header.
+	 * @param allowedSignatureTypes Allowed types of the signature.
+	 * @return Instance of a PowerAuthApiAuthentication on successful authorization.
+	 * @throws Exception In case authorization fails, exception is raised.
+	 */
+	public PowerAuthApiAuthentication validateRequestSignatureForBuffer(String httpMethod, ByteBuffer httpBody, String requestUriIdentifier, String httpAuthorizationHeader, List<PowerAuthSignatureTypes> allowedSignatureTypes) throws Exception {
 
 		// Check for HTTP PowerAuth signature header
 		if (httpAuthorizationHeader == null || httpAuthorizationHeader.equals("undefined")) {
@@ -122,31 +145,26 @@ public class PowerAuthAuthenticationProvider implements AuthenticationProvider {
 		}
 
 		// Parse HTTP header
-		Map<String, String> httpHeaderInfo = PowerAuthHttpHeader.parsePowerAuthSignatureHTTPHeader(httpAuthorizationHeader);
-		
-		// Check if the parsing was successful
-		if (httpHeaderInfo == null) {
-			throw new PowerAuthAuthenticationException("POWER_AUTH_SIGNATURE_INVALID_EMPTY");
-		}
+		PowerAuthSignatureHeader httpHeader = PowerAuthSignatureHeader.parse(httpAuthorizationHeader);
 		
 		// Fetch HTTP header attributes
-		String activationId = httpHeaderInfo.get(PowerAuthHttpHeader.ACTIVATION_ID);
+		String activationId = httpHeader.getActivationId();
 		if (activationId == null) {
 			throw new PowerAuthAuthenticationException("POWER_AUTH_ACTIVATION_ID_EMPTY");
 		}
-		String nonce = httpHeaderInfo.get(PowerAuthHttpHeader.NONCE);
+		String nonce = httpHeader.getNonce();
 		if (nonce == null) {
 			throw new PowerAuthAuthenticationException("POWER_AUTH_NONCE_EMPTY");
 		}
-		String signatureType = httpHeaderInfo.get(PowerAuthHttpHeader.SIGNATURE_TYPE);
+		String signatureType = httpHeader.getSignatureType();
 		if (signatureType == null) {
 			throw new PowerAuthAuthenticationException("POWER_AUTH_SIGNATURE_TYPE_EMPTY");
 		}
-		String signature = httpHeaderInfo.get(PowerAuthHttpHeader.SIGNATURE);
+		String signature = httpHeader.getSignature();
 		if (signature == null) {
 			throw new PowerAuthAuthenticationException("POWER_AUTH_SIGNATURE_EMPTY");
 		}
-		String applicationId = httpHeaderInfo.get(PowerAuthHttpHeader.APPLICATION_ID);
+		String applicationId = httpHeader.getApplicationKey();
 		if (applicationId == null) {
 			throw new PowerAuthAuthenticationException("POWER_AUTH_APPLICATION_EMPTY");
 		}
@@ -174,7 +192,7 @@ public class PowerAuthAuthenticationProvider implements AuthenticationProvider {
 		powerAuthAuthentication.setSignature(signature);
 		powerAuthAuthentication.setHttpMethod(httpMethod);
 		powerAuthAuthentication.setRequestUri(requestUriIdentifier);
-		powerAuthAuthentication.setData(httpBody);
+		powerAuthAuthentication.setDataBuffer(httpBody);
 
 		// Call the authentication
 		PowerAuthApiAuthentication auth = (PowerAuthApiAuthentication) this.authenticate(powerAuthAuthentication);
@@ -214,11 +232,10 @@ public class PowerAuthAuthenticationProvider implements AuthenticationProvider {
 	 * @throws Exception In case authorization fails, exception is raised.
 	 */
 	public PowerAuthApiAuthentication validateRequestSignature(HttpServletRequest servletRequest, String requestUriIdentifier, String httpAuthorizationHeader, List<PowerAuthSignatureTypes> allowedSignatureTypes) throws Exception {
-		// Get HTTP method and body bytes
+		// Get HTTP method and body bytes captured by the request filter
 		String requestMethod = servletRequest.getMethod().toUpperCase();
-		String requestBodyString = ((String) servletRequest.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_STRING));
-		byte[] requestBodyBytes = requestBodyString == null ? null : BaseEncoding.base64().decode(requestBodyString);
-		return this.validateRequestSignature(requestMethod, requestBodyBytes, requestUriIdentifier, httpAuthorizationHeader, allowedSignatureTypes);
+		ByteBuffer requestBody = (ByteBuffer) servletRequest.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_BUFFER);
+		return this.validateRequestSignatureForBuffer(requestMethod, requestBody, requestUriIdentifier, httpAuthorizationHeader, allowedSignatureTypes);
 	}
 	
 	/**
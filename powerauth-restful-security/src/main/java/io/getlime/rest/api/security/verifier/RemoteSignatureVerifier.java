@@ -0,0 +1,63 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.rest.api.security.verifier;
+
+import io.getlime.powerauth.soap.VerifySignatureRequest;
+import io.getlime.powerauth.soap.VerifySignatureResponse;
+import io.getlime.rest.api.security.authentication.PowerAuthApiAuthentication;
+import io.getlime.security.soap.client.PowerAuthServiceClient;
+
+/**
+ * Default signature verifier, calls the PowerAuth 2.0 Server SOAP service to verify the signature.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public class RemoteSignatureVerifier implements SignatureVerifier {
+
+	private final PowerAuthServiceClient powerAuthClient;
+
+	/**
+	 * Create a new verifier with given PowerAuth 2.0 Server SOAP client.
+	 * @param powerAuthClient SOAP service client.
+	 */
+	public RemoteSignatureVerifier(PowerAuthServiceClient powerAuthClient) {
+		this.powerAuthClient = powerAuthClient;
+	}
+
+	@Override
+	public PowerAuthApiAuthentication verifySignature(String activationId, String applicationKey, String data, String signature, String signatureType) {
+		VerifySignatureRequest soapRequest = new VerifySignatureRequest();
+		soapRequest.setActivationId(activationId);
+		soapRequest.setApplicationKey(applicationKey);
+		soapRequest.setData(data);
+		soapRequest.setSignature(signature);
+		soapRequest.setSignatureType(signatureType);
+
+		VerifySignatureResponse soapResponse = powerAuthClient.verifySignature(soapRequest);
+
+		if (soapResponse.isSignatureValid()) {
+			PowerAuthApiAuthentication apiAuthentication = new PowerAuthApiAuthentication();
+			apiAuthentication.setActivationId(soapResponse.getActivationId());
+			apiAuthentication.setUserId(soapResponse.getUserId());
+			apiAuthentication.setAuthenticated(true);
+			return apiAuthentication;
+		} else {
+			return null;
+		}
+	}
+
+}
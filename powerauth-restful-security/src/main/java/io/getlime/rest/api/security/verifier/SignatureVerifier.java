@@ -0,0 +1,43 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.rest.api.security.verifier;
+
+import io.getlime.rest.api.security.authentication.PowerAuthApiAuthentication;
+
+/**
+ * Interface for verifying PowerAuth 2.0 signatures of the protected API requests. By default, signatures
+ * are verified remotely via the PowerAuth 2.0 Server SOAP service. Deployments that run the PowerAuth 2.0
+ * Server in the same application may register a bean implementing this interface that calls the service
+ * implementation in-process, to avoid the XML marshalling and HTTP call on every protected request.
+ * 
+ * @author Petr Dvorak
+ *
+ */
+public interface SignatureVerifier {
+
+	/**
+	 * Verify the signature of given data.
+	 * @param activationId Activation ID.
+	 * @param applicationKey Application key.
+	 * @param data Signature base string, i.e. normalized data that were signed.
+	 * @param signature Provided signature.
+	 * @param signatureType Provided signature type.
+	 * @return Authenticated API authentication with the activation and user ID in case the signature is valid,
+	 * null otherwise.
+	 */
+	public PowerAuthApiAuthentication verifySignature(String activationId, String applicationKey, String data, String signature, String signatureType);
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015 Lime - HighTech Solutions s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.rest.api.security.filter;
+
+import java.nio.ByteBuffer;
+
+import javax.servlet.ServletRequest;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.io.BaseEncoding;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the data passed by the request filter to the signature validation, making sure GET
+ * requests are signed with empty data unless the canonized query signing is enabled.
+ *
+ * @author Petr Dvorak
+ *
+ */
+public class PowerAuthRequestFilterTest {
+
+	/**
+	 * Default constructor
+	 */
+	public PowerAuthRequestFilterTest() {
+	}
+
+	/**
+	 * Test that GET requests are signed with empty data by default, the way existing clients sign them.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testGetSignedWithEmptyDataByDefault() throws Exception {
+		System.out.println("testGetSignedWithEmptyDataByDefault");
+		PowerAuthRequestFilter filter = new PowerAuthRequestFilter();
+		assertFalse(filter.isSignGetQueryParameters());
+
+		ServletRequest request = doFilter(filter, "GET", "b=2&a=1", null);
+		assertNull(request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_BUFFER));
+		assertNull(request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_STRING));
+	}
+
+	/**
+	 * Test that GET requests are signed with the canonized query when the canonized query signing is enabled.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testGetSignedWithCanonizedQuery() throws Exception {
+		System.out.println("testGetSignedWithCanonizedQuery");
+		PowerAuthRequestFilter filter = new PowerAuthRequestFilter();
+		filter.setSignGetQueryParameters(true);
+
+		ServletRequest request = doFilter(filter, "GET", "b=2&a=1", null);
+		assertEquals("a=1&b=2", new String(bytes(request), "UTF-8"));
+		assertEquals(BaseEncoding.base64().encode("a=1&b=2".getBytes("UTF-8")), request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_STRING));
+
+		request = doFilter(filter, "GET", null, null);
+		assertNull(request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_BUFFER));
+	}
+
+	/**
+	 * Test that other requests are signed with the request body regardless of the canonized query signing.
+	 *
+	 * @throws Exception In case test fails
+	 *
+	 */
+	@Test
+	public void testPostSignedWithBody() throws Exception {
+		System.out.println("testPostSignedWithBody");
+		byte[] body = "{\"requestObject\":{}}".getBytes("UTF-8");
+		for (boolean signGetQueryParameters : new boolean[] { false, true }) {
+			PowerAuthRequestFilter filter = new PowerAuthRequestFilter();
+			filter.setSignGetQueryParameters(signGetQueryParameters);
+
+			ServletRequest request = doFilter(filter, "POST", "b=2&a=1", body);
+			assertArrayEquals(body, bytes(request));
+			assertEquals(BaseEncoding.base64().encode(body), request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_STRING));
+		}
+	}
+
+	private static ServletRequest doFilter(PowerAuthRequestFilter filter, String method, String queryString, byte[] body) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/pa/signature/validate");
+		request.setQueryString(queryString);
+		request.setContent(body);
+		MockFilterChain filterChain = new MockFilterChain();
+		filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+		return filterChain.getRequest();
+	}
+
+	private static byte[] bytes(ServletRequest request) {
+		ByteBuffer buffer = (ByteBuffer) request.getAttribute(PowerAuthRequestFilter.POWERAUTH_SIGNATURE_BASE_BUFFER);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+}
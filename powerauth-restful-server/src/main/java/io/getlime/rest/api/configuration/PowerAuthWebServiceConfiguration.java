@@ -20,7 +20,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import io.getlime.security.rest.client.PowerAuthRestClient;
+import io.getlime.security.soap.client.PowerAuthPooledMessageSender;
+import io.getlime.security.soap.client.PowerAuthServiceAsyncClient;
 import io.getlime.security.soap.client.PowerAuthServiceClient;
 
 /**
@@ -36,6 +40,33 @@ public class PowerAuthWebServiceConfiguration {
 	@Value("${powerauth.service.url}")
 	private String powerAuthServiceUrl;
 
+	@Value("${powerauth.service.protocol:SOAP}")
+	private String powerAuthServiceProtocol;
+
+	@Value("${powerauth.service.rest.url:http://localhost:8080/powerauth-java-server/rest/pa}")
+	private String powerAuthServiceRestUrl;
+
+	@Value("${powerauth.service.http.maxConnections:100}")
+	private int httpMaxConnections;
+
+	@Value("${powerauth.service.http.maxConnectionsPerRoute:100}")
+	private int httpMaxConnectionsPerRoute;
+
+	@Value("${powerauth.service.http.connectTimeout:5000}")
+	private int httpConnectTimeout;
+
+	@Value("${powerauth.service.http.readTimeout:30000}")
+	private int httpReadTimeout;
+
+	@Value("${powerauth.service.http.keepAliveTimeout:60000}")
+	private long httpKeepAliveTimeout;
+
+	@Value("${powerauth.service.async.maxConcurrency:20}")
+	private int asyncMaxConcurrency;
+
+	@Value("${powerauth.service.async.queueCapacity:200}")
+	private int asyncQueueCapacity;
+
 	/**
 	 * Marshaller for PowerAuth SOAP service communication.
 	 * @return JAXB marshaller with correctly configured context path.
@@ -48,19 +79,65 @@ public class PowerAuthWebServiceConfiguration {
 	}
 
 	/**
-	 * Prepare a correctly configured PowerAuthServiceClient instance with the service
-	 * URL specified using 'powerauth.service.url' server property.
+	 * HTTP message sender for PowerAuth SOAP service communication, keeping a pool of persistent
+	 * connections configured using 'powerauth.service.http.*' properties.
+	 * @return Pooled HTTP message sender.
+	 */
+	@Bean
+	public PowerAuthPooledMessageSender messageSender() {
+		return new PowerAuthPooledMessageSender(httpMaxConnections, httpMaxConnectionsPerRoute, httpConnectTimeout, httpReadTimeout, httpKeepAliveTimeout);
+	}
+
+	/**
+	 * Prepare a correctly configured PowerAuthServiceClient instance. In case the 'powerauth.service.protocol'
+	 * server property is set to "REST", the client calls the REST interface with the URL specified using
+	 * 'powerauth.service.rest.url' server property, otherwise it calls the SOAP interface with the URL
+	 * specified using 'powerauth.service.url' server property.
 	 * @param marshaller JAXB marshaller
-	 * @return Correctly configured PowerAuthServiceClient instance with the service
-	 * URL specified using 'powerauth.service.url' server property
+	 * @param messageSender HTTP message sender
+	 * @return Correctly configured PowerAuthServiceClient instance.
 	 */
 	@Bean
-	public PowerAuthServiceClient powerAuthClient(Jaxb2Marshaller marshaller) {
+	public PowerAuthServiceClient powerAuthClient(Jaxb2Marshaller marshaller, PowerAuthPooledMessageSender messageSender) {
+		if ("REST".equalsIgnoreCase(powerAuthServiceProtocol)) {
+			return new PowerAuthRestClient(powerAuthServiceRestUrl, messageSender.getHttpClient());
+		}
 		PowerAuthServiceClient client = new PowerAuthServiceClient();
 		client.setDefaultUri(powerAuthServiceUrl);
 		client.setMarshaller(marshaller);
 		client.setUnmarshaller(marshaller);
+		client.setMessageSender(messageSender);
 		return client;
 	}
 
+	/**
+	 * Executor running the asynchronous PowerAuth SOAP service calls. At most 'powerauth.service.async.maxConcurrency'
+	 * calls run at the same time and at most 'powerauth.service.async.queueCapacity' calls wait for execution,
+	 * further calls are rejected.
+	 * @return Executor for the asynchronous PowerAuth SOAP service calls.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor powerAuthClientTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(asyncMaxConcurrency);
+		taskExecutor.setMaxPoolSize(asyncMaxConcurrency);
+		taskExecutor.setQueueCapacity(asyncQueueCapacity);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setDaemon(true);
+		taskExecutor.setThreadNamePrefix("powerauth-client-");
+		return taskExecutor;
+	}
+
+	/**
+	 * Prepare an asynchronous PowerAuthServiceAsyncClient instance, calling the service
+	 * with given client on the PowerAuth SOAP service call executor.
+	 * @param powerAuthClient PowerAuthServiceClient instance.
+	 * @param powerAuthClientTaskExecutor Executor for the asynchronous PowerAuth SOAP service calls.
+	 * @return Asynchronous PowerAuthServiceAsyncClient instance.
+	 */
+	@Bean
+	public PowerAuthServiceAsyncClient powerAuthAsyncClient(PowerAuthServiceClient powerAuthClient, ThreadPoolTaskExecutor powerAuthClientTaskExecutor) {
+		return new PowerAuthServiceAsyncClient(powerAuthClient, powerAuthClientTaskExecutor);
+	}
+
 }
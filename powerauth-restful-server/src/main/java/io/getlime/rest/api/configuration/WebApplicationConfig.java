@@ -17,6 +17,7 @@ package io.getlime.rest.api.configuration;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,6 +40,9 @@ import io.getlime.rest.api.security.filter.PowerAuthRequestFilter;
 @Configuration
 public class WebApplicationConfig extends WebMvcConfigurerAdapter {
 	
+	@Value("${powerauth.signature.signGetQueryParameters:false}")
+	private boolean signGetQueryParameters;
+
 	@Override
 	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
 		argumentResolvers.add(powerAuthWebArgumentResolver());
@@ -63,12 +67,16 @@ public class WebApplicationConfig extends WebMvcConfigurerAdapter {
 
 	/**
 	 * Register a new PowerAuthRequestFilter and map it to /pa/signature/validate end-point.
+	 * GET requests are signed with empty data unless "powerauth.signature.signGetQueryParameters"
+	 * is enabled, enable it only when all clients sign the canonized GET query parameters.
 	 * @return PowerAuthRequestFilter instance.
 	 */
 	@Bean
 	public FilterRegistrationBean powerAuthFilterRegistration() {
 		FilterRegistrationBean registrationBean = new FilterRegistrationBean();
-		registrationBean.setFilter(new PowerAuthRequestFilter());
+		PowerAuthRequestFilter filter = new PowerAuthRequestFilter();
+		filter.setSignGetQueryParameters(signGetQueryParameters);
+		registrationBean.setFilter(filter);
 		registrationBean.setMatchAfter(true);
 		registrationBean.addUrlPatterns("/pa/signature/validate");
 		return registrationBean;